@@ -0,0 +1,41 @@
+package org.greenplum.pxf.api;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.greenplum.pxf.api.model.Resolver;
+
+/**
+ * Interface of resolver which deserializes a batch of records read by the
+ * accessor straight into a reusable {@link ColumnBatch}, without creating
+ * {@link OneField} objects per record.
+ */
+public interface BatchResolver extends Resolver {
+
+    /**
+     * Resolves the object read by the accessor into the given batch,
+     * replacing its contents. The batch has the columns of the external
+     * table, and its capacity is at least the number of rows in the object.
+     *
+     * @param row   the object read by the accessor, holding a batch of records
+     * @param batch the batch to fill
+     * @throws Exception if resolving the batch failed
+     */
+    void resolveBatch(OneRow row, ColumnBatch batch) throws Exception;
+}
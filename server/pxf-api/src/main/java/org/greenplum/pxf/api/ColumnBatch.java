@@ -0,0 +1,250 @@
+package org.greenplum.pxf.api;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.model.RequestContext;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A reusable batch of rows stored by column. The columns follow the schema of
+ * the external table, and their values are kept in primitive arrays (see
+ * {@link ColumnVector}), so that rows can be resolved and serialized without
+ * creating {@link OneRow}, {@link OneField} or boxed objects per row.
+ * <p>
+ * Batch resolvers fill the batch directly. Row resolvers are supported by
+ * {@link #addRow(List)}, which copies the fields of one resolved record into
+ * the next row of the batch.
+ */
+public class ColumnBatch {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final ColumnVector[] columns;
+    private final int capacity;
+    private int size;
+
+    /**
+     * Constructs a batch with the given column types.
+     *
+     * @param columnTypes the OIDs of the column types
+     * @param capacity    the maximum number of rows in the batch
+     */
+    public ColumnBatch(int[] columnTypes, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Batch capacity must be a positive integer, got " + capacity);
+        }
+        this.capacity = capacity;
+        this.columns = new ColumnVector[columnTypes.length];
+        for (int i = 0; i < columnTypes.length; i++) {
+            columns[i] = new ColumnVector(columnTypes[i], capacity);
+        }
+    }
+
+    /**
+     * Constructs a batch with the columns of the external table of the request.
+     *
+     * @param context  the request context
+     * @param capacity the maximum number of rows in the batch
+     */
+    public ColumnBatch(RequestContext context, int capacity) {
+        this(getColumnTypes(context), capacity);
+    }
+
+    /**
+     * @param index the column index
+     * @return the vector holding the values of the column
+     */
+    public ColumnVector getColumn(int index) {
+        return columns[index];
+    }
+
+    /**
+     * @return the number of columns
+     */
+    public int getNumColumns() {
+        return columns.length;
+    }
+
+    /**
+     * @return the number of rows in the batch
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Sets the number of rows in the batch, used by batch resolvers after
+     * filling the column vectors.
+     *
+     * @param size the number of rows
+     */
+    public void setSize(int size) {
+        if (size < 0 || size > capacity) {
+            throw new IllegalArgumentException(String.format(
+                    "Batch size %d is out of range [0, %d]", size, capacity));
+        }
+        this.size = size;
+    }
+
+    /**
+     * @return the maximum number of rows in the batch
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return true if no more rows can be added to the batch
+     */
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * Empties the batch, keeping the allocated column vectors.
+     */
+    public void reset() {
+        size = 0;
+    }
+
+    /**
+     * Copies the fields of a resolved record into the next row of the batch.
+     * The record must match the schema of the batch the same way it has to
+     * for GPDBWritable output; mismatches are reported as a
+     * {@link BadRecordException} and leave the batch unchanged.
+     *
+     * @param record the fields of the record
+     * @throws BadRecordException if the record does not match the schema
+     */
+    public void addRow(List<OneField> record) throws BadRecordException {
+        if (isFull()) {
+            throw new IllegalStateException("Cannot add a row to a full batch of " + capacity + " rows");
+        }
+        int numFields = record.size();
+        if (numFields == 0) {
+            throw new BadRecordException("No fields in record");
+        } else if (numFields != columns.length) {
+            throw new BadRecordException("Record has " + numFields
+                    + " fields but the schema size is " + columns.length);
+        }
+
+        for (int i = 0; i < numFields; i++) {
+            setValue(i, record.get(i));
+        }
+        size++;
+    }
+
+    /**
+     * Returns the given row of the batch as a list of fields. Boxes every
+     * value, intended for code paths that do not support batches.
+     *
+     * @param row the row index
+     * @return the fields of the row
+     */
+    public List<OneField> getFields(int row) {
+        List<OneField> fields = new ArrayList<>(columns.length);
+        for (ColumnVector column : columns) {
+            fields.add(new OneField(column.getTypeCode(), column.getObject(row)));
+        }
+        return fields;
+    }
+
+    private void setValue(int index, OneField field) throws BadRecordException {
+        ColumnVector column = columns[index];
+        DataType schemaType = column.getType();
+        DataType recordType = DataType.get(field.type);
+        if (schemaType != DataType.UNSUPPORTED_TYPE && recordType != schemaType &&
+                !(isStringType(recordType) && isStringType(schemaType))) {
+            throw new BadRecordException(String.format(
+                    "For field %d schema requires type %s but input record has type %s",
+                    index, schemaType, recordType));
+        }
+
+        Object val = field.val;
+        if (val == null) {
+            column.setNull(size);
+            return;
+        }
+        try {
+            switch (schemaType) {
+                case BIGINT:
+                case INTEGER:
+                case SMALLINT:
+                    column.setLong(size, ((Number) val).longValue());
+                    break;
+                case BOOLEAN:
+                    column.setLong(size, (Boolean) val ? 1 : 0);
+                    break;
+                case FLOAT8:
+                case REAL:
+                    column.setDouble(size, ((Number) val).doubleValue());
+                    break;
+                case BYTEA:
+                    byte[] bytes;
+                    if (val instanceof byte[]) {
+                        bytes = (byte[]) val;
+                    } else {
+                        int length = Array.getLength(val);
+                        bytes = new byte[length];
+                        for (int j = 0; j < length; j++) {
+                            bytes[j] = Array.getByte(val, j);
+                        }
+                    }
+                    column.setBytes(size, bytes, 0, bytes.length);
+                    break;
+                default:
+                    column.setString(size, val.toString());
+            }
+        } catch (ClassCastException | IllegalArgumentException e) {
+            throw new BadRecordException(e);
+        }
+    }
+
+    /**
+     * Tests if data type is a string type, i.e. a type that can be serialized
+     * as string, the same way BridgeOutputBuilder does.
+     */
+    private static boolean isStringType(DataType type) {
+        switch (type) {
+            case VARCHAR:
+            case BPCHAR:
+            case TEXT:
+            case NUMERIC:
+            case TIMESTAMP:
+            case TIMESTAMP_WITH_TIME_ZONE:
+            case DATE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static int[] getColumnTypes(RequestContext context) {
+        int[] types = new int[context.getColumns()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = context.getColumn(i).columnTypeCode();
+        }
+        return types;
+    }
+}
@@ -0,0 +1,226 @@
+package org.greenplum.pxf.api;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.greenplum.pxf.api.io.DataType;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Holds the values of one column for all the rows of a {@link ColumnBatch}.
+ * Values are kept in primitive arrays that are allocated once and reused for
+ * every batch:
+ * <ul>
+ * <li>BIGINT, INTEGER, SMALLINT and BOOLEAN values in {@link #longValues}</li>
+ * <li>FLOAT8 and REAL values in {@link #doubleValues}</li>
+ * <li>BYTEA values and the UTF-8 text of every other type in
+ * {@link #bytesValues}, {@link #starts} and {@link #lengths}, which may
+ * reference a region of a larger buffer owned by the resolver</li>
+ * </ul>
+ * The arrays are public so that batch resolvers can fill them without
+ * per-value method calls, similar to the column vectors of ORC.
+ */
+public class ColumnVector {
+
+    private final int typeCode;
+    private final DataType type;
+
+    /**
+     * Whether the value of a row is null.
+     */
+    public final boolean[] isNull;
+
+    /**
+     * Values of integral and boolean columns, null otherwise.
+     */
+    public final long[] longValues;
+
+    /**
+     * Values of floating point columns, null otherwise.
+     */
+    public final double[] doubleValues;
+
+    /**
+     * Buffers holding the values of binary and text columns, null otherwise.
+     */
+    public final byte[][] bytesValues;
+
+    /**
+     * Offsets of the values in {@link #bytesValues}, null for non-binary columns.
+     */
+    public final int[] starts;
+
+    /**
+     * Lengths of the values in {@link #bytesValues}, null for non-binary columns.
+     */
+    public final int[] lengths;
+
+    /**
+     * Constructs a column vector.
+     *
+     * @param typeCode the OID of the column type
+     * @param capacity the maximum number of rows in the vector
+     */
+    public ColumnVector(int typeCode, int capacity) {
+        this.typeCode = typeCode;
+        this.type = DataType.get(typeCode);
+        this.isNull = new boolean[capacity];
+
+        long[] longs = null;
+        double[] doubles = null;
+        byte[][] bytes = null;
+        int[] startArray = null;
+        int[] lengthArray = null;
+        switch (type) {
+            case BIGINT:
+            case INTEGER:
+            case SMALLINT:
+            case BOOLEAN:
+                longs = new long[capacity];
+                break;
+            case FLOAT8:
+            case REAL:
+                doubles = new double[capacity];
+                break;
+            default:
+                bytes = new byte[capacity][];
+                startArray = new int[capacity];
+                lengthArray = new int[capacity];
+        }
+        this.longValues = longs;
+        this.doubleValues = doubles;
+        this.bytesValues = bytes;
+        this.starts = startArray;
+        this.lengths = lengthArray;
+    }
+
+    /**
+     * @return the OID of the column type
+     */
+    public int getTypeCode() {
+        return typeCode;
+    }
+
+    /**
+     * @return the column type
+     */
+    public DataType getType() {
+        return type;
+    }
+
+    /**
+     * Sets the value of the given row to null.
+     *
+     * @param row the row index
+     */
+    public void setNull(int row) {
+        isNull[row] = true;
+    }
+
+    /**
+     * Sets the value of the given row of an integral or boolean column.
+     *
+     * @param row   the row index
+     * @param value the value, 0 or 1 for boolean columns
+     */
+    public void setLong(int row, long value) {
+        isNull[row] = false;
+        longValues[row] = value;
+    }
+
+    /**
+     * Sets the value of the given row of a floating point column.
+     *
+     * @param row   the row index
+     * @param value the value
+     */
+    public void setDouble(int row, double value) {
+        isNull[row] = false;
+        doubleValues[row] = value;
+    }
+
+    /**
+     * Sets the value of the given row of a binary or text column by
+     * reference, without copying the bytes. The buffer must not be modified
+     * until the batch has been written.
+     *
+     * @param row    the row index
+     * @param buffer the buffer containing the value
+     * @param start  the offset of the value in the buffer
+     * @param length the length of the value
+     */
+    public void setBytes(int row, byte[] buffer, int start, int length) {
+        isNull[row] = false;
+        bytesValues[row] = buffer;
+        starts[row] = start;
+        lengths[row] = length;
+    }
+
+    /**
+     * Sets the value of the given row of a text column.
+     *
+     * @param row   the row index
+     * @param value the value, may be null
+     */
+    public void setString(int row, String value) {
+        if (value == null) {
+            setNull(row);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        setBytes(row, bytes, 0, bytes.length);
+    }
+
+    /**
+     * Returns the value of the given row as an object of the type the
+     * {@link org.greenplum.pxf.api.model.Resolver} contract uses for the column
+     * type, or as a String for text columns. Boxes the value, intended for
+     * code paths that do not support batches.
+     *
+     * @param row the row index
+     * @return the value of the row
+     */
+    public Object getObject(int row) {
+        if (isNull[row]) {
+            return null;
+        }
+        switch (type) {
+            case BIGINT:
+                return longValues[row];
+            case INTEGER:
+                return (int) longValues[row];
+            case SMALLINT:
+                return (short) longValues[row];
+            case BOOLEAN:
+                return longValues[row] != 0;
+            case FLOAT8:
+                return doubleValues[row];
+            case REAL:
+                return (float) doubleValues[row];
+            case BYTEA: {
+                byte[] value = new byte[lengths[row]];
+                System.arraycopy(bytesValues[row], starts[row], value, 0, lengths[row]);
+                return value;
+            }
+            default:
+                return new String(bytesValues[row], starts[row], lengths[row], StandardCharsets.UTF_8);
+        }
+    }
+}
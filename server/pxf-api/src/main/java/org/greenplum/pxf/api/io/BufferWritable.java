@@ -26,12 +26,16 @@ import java.io.IOException;
 import java.lang.UnsupportedOperationException;
 
 /**
- * A serializable object for transporting a byte array through the Bridge
- * framework
+ * A serializable object for transporting a byte array, or a region of it,
+ * through the Bridge framework
  */
 public class BufferWritable implements Writable {
 
     byte[] buf = null;
+    private int offset;
+    private int length;
+    // whether buf was allocated by this writable and can be appended to in place
+    private boolean owned;
 
     /**
      * Constructs a BufferWritable. Copies the buffer reference and not the
@@ -42,7 +46,46 @@ public class BufferWritable implements Writable {
      * @param inBuf buffer
      */
     public BufferWritable(byte[] inBuf) {
+        this(inBuf, 0, inBuf != null ? inBuf.length : 0);
+    }
+
+    /**
+     * Constructs a BufferWritable viewing a region of the given buffer.
+     * Copies the buffer reference and not the actual bytes, so the region
+     * must not be modified until the writable has been written.
+     *
+     * @param inBuf  buffer
+     * @param offset the offset of the region in the buffer
+     * @param length the length of the region
+     */
+    public BufferWritable(byte[] inBuf, int offset, int length) {
         buf = inBuf;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Returns the buffer; only the region starting at {@link #getOffset()}
+     * of {@link #getLength()} bytes is valid.
+     *
+     * @return the buffer
+     */
+    public byte[] getBuffer() {
+        return buf;
+    }
+
+    /**
+     * @return the offset of the region in the buffer
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return the length of the region
+     */
+    public int getLength() {
+        return length;
     }
 
     /**
@@ -55,7 +98,7 @@ public class BufferWritable implements Writable {
     public void write(DataOutput out) throws IOException {
         if (buf == null)
             throw new IOException("BufferWritable was not set");
-        out.write(buf);
+        out.write(buf, offset, length);
     }
 
     /**
@@ -84,15 +127,47 @@ public class BufferWritable implements Writable {
     public void append(byte[] app) {
         if (buf == null) {
             buf = app;
+            offset = 0;
+            length = app != null ? app.length : 0;
             return;
         }
         if (app == null) {
             return;
         }
 
-        byte[] newbuf = new byte[buf.length + app.length];
-        System.arraycopy(buf, 0, newbuf, 0, buf.length);
-        System.arraycopy(app, 0, newbuf, buf.length, app.length);
+        byte[] newbuf = new byte[length + app.length];
+        System.arraycopy(buf, offset, newbuf, 0, length);
+        System.arraycopy(app, 0, newbuf, length, app.length);
         buf = newbuf;
+        offset = 0;
+        length = newbuf.length;
+        owned = true;
+    }
+
+    /**
+     * Appends a region of the given buffer. The bytes are copied into a
+     * buffer owned by this writable, which grows by doubling, so that
+     * appending many regions copies each byte a constant number of times.
+     * The appended buffer can be reused after the call.
+     *
+     * @param app    buffer to append from
+     * @param start  the offset of the region to append
+     * @param len    the length of the region to append
+     */
+    public void append(byte[] app, int start, int len) {
+        if (buf == null) {
+            buf = new byte[len];
+            offset = 0;
+            length = 0;
+            owned = true;
+        } else if (!owned || buf.length - length < len) {
+            byte[] newbuf = new byte[Math.max(length + len, 2 * length)];
+            System.arraycopy(buf, offset, newbuf, 0, length);
+            buf = newbuf;
+            offset = 0;
+            owned = true;
+        }
+        System.arraycopy(app, start, buf, length, len);
+        length += len;
     }
 }
@@ -0,0 +1,131 @@
+package org.greenplum.pxf.api.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.greenplum.pxf.api.ColumnBatch;
+import org.greenplum.pxf.api.ColumnVector;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Serializes all the rows of a {@link ColumnBatch} as consecutive
+ * {@link GPDBWritable} records, reading the values straight from the column
+ * vectors. The batch is referenced, not copied, so it must not be modified
+ * until the writable has been written.
+ */
+public class ColumnBatchWritable implements Writable {
+
+    /* buffered records are flushed to the output once they exceed this size */
+    private static final int FLUSH_SIZE = 64 * 1024;
+
+    private final ColumnBatch batch;
+    private final GPDBWritableEncoder encoder;
+
+    /**
+     * Constructs a writable for the given batch.
+     *
+     * @param batch the batch to serialize
+     */
+    public ColumnBatchWritable(ColumnBatch batch) {
+        this.batch = batch;
+        int[] columnTypes = new int[batch.getNumColumns()];
+        for (int i = 0; i < columnTypes.length; i++) {
+            columnTypes[i] = batch.getColumn(i).getTypeCode();
+        }
+        this.encoder = new GPDBWritableEncoder(columnTypes);
+    }
+
+    /**
+     * @return the batch serialized by this writable
+     */
+    public ColumnBatch getBatch() {
+        return batch;
+    }
+
+    /**
+     * Serializes every row of the batch in the GPDBWritable format.
+     *
+     * @param out <code>DataOutput</code> to serialize this object into.
+     * @throws IOException if I/O error occurs
+     */
+    @Override
+    public void write(DataOutput out) throws IOException {
+        for (int row = 0; row < batch.size(); row++) {
+            writeRow(row);
+            if (encoder.size() >= FLUSH_SIZE) {
+                encoder.flush(out);
+            }
+        }
+        encoder.flush(out);
+    }
+
+    /**
+     * Deserialization is not supported.
+     *
+     * @param in <code>DataInput</code> to deserialize this object from
+     * @throws UnsupportedOperationException this function is not supported
+     */
+    @Override
+    public void readFields(DataInput in) {
+        throw new UnsupportedOperationException(
+                "ColumnBatchWritable.readFields() is not implemented");
+    }
+
+    private void writeRow(int row) {
+        encoder.beginRecord(false);
+        for (int i = 0; i < batch.getNumColumns(); i++) {
+            ColumnVector column = batch.getColumn(i);
+            if (column.isNull[row]) {
+                encoder.setNull(i);
+                continue;
+            }
+
+            switch (encoder.getDBType(i)) {
+                case BIGINT:
+                    encoder.setLong(i, column.longValues[row]);
+                    break;
+                case BOOLEAN:
+                    encoder.setBoolean(i, column.longValues[row] != 0);
+                    break;
+                case FLOAT8:
+                    encoder.setDouble(i, column.doubleValues[row]);
+                    break;
+                case INTEGER:
+                    encoder.setInt(i, (int) column.longValues[row]);
+                    break;
+                case REAL:
+                    encoder.setFloat(i, (float) column.doubleValues[row]);
+                    break;
+                case SMALLINT:
+                    encoder.setShort(i, (short) column.longValues[row]);
+                    break;
+                case BYTEA:
+                    encoder.setBytes(i, column.bytesValues[row], column.starts[row], column.lengths[row], false);
+                    break;
+                default:
+                    /* text is sent null terminated, the length includes the terminator */
+                    encoder.setBytes(i, column.bytesValues[row], column.starts[row], column.lengths[row], true);
+            }
+        }
+        encoder.endRecord();
+    }
+}
@@ -0,0 +1,288 @@
+package org.greenplum.pxf.api.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes records of a fixed schema in the {@link GPDBWritable} serialized
+ * form. The per-schema layout (column type bytes, null bit array size,
+ * alignments) is computed once, and records are written into a reusable
+ * buffer that is only handed to the {@link DataOutput} when flushed, so that
+ * encoding a record does not allocate.
+ * <p>
+ * A record is encoded by calling {@link #beginRecord(boolean)}, then one of
+ * the set methods or {@link #setNull(int)} for every column in order, and
+ * finally {@link #endRecord()}. Several records can be buffered before calling
+ * {@link #flush(DataOutput)}. Instances are not thread safe.
+ */
+final class GPDBWritableEncoder {
+
+    private static final int VERSION = 2;
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    private final int[] columnTypes;
+    private final GPDBWritable.DBType[] dbTypes;
+    private final int nullBytesOffset;
+    private final int headerLength;
+    private final int alignmentOfEightBytes;
+
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int position;
+    private int recordStart;
+    private int nextColumn;
+
+    /**
+     * Constructs an encoder for the given schema.
+     *
+     * @param columnTypes the OIDs of the column types
+     */
+    GPDBWritableEncoder(int[] columnTypes) {
+        this.columnTypes = columnTypes;
+        this.dbTypes = new GPDBWritable.DBType[columnTypes.length];
+        for (int i = 0; i < columnTypes.length; i++) {
+            dbTypes[i] = GPDBWritable.getDBType(columnTypes[i]);
+        }
+        /* header = total length (4 byte), Version (2 byte), Error (1 byte), #col (2 byte), col types */
+        this.nullBytesOffset = 4 + 2 + 1 + 2 + columnTypes.length;
+        this.headerLength = nullBytesOffset + GPDBWritable.getNullByteArraySize(columnTypes.length);
+        this.alignmentOfEightBytes = GPDBWritable.getEightByteAlignment();
+    }
+
+    /**
+     * @return the schema this encoder was built for
+     */
+    int[] getColumnTypes() {
+        return columnTypes;
+    }
+
+    /**
+     * @return the serialized type of the given column
+     */
+    GPDBWritable.DBType getDBType(int colIdx) {
+        return dbTypes[colIdx];
+    }
+
+    /**
+     * @return the number of bytes buffered and not flushed yet
+     */
+    int size() {
+        return position;
+    }
+
+    /**
+     * Starts a new record, writing its header.
+     *
+     * @param error whether the record is an error record
+     */
+    void beginRecord(boolean error) {
+        ensureCapacity(headerLength);
+        recordStart = position;
+        nextColumn = 0;
+        position += 4; // total length, filled by endRecord
+        putShort(VERSION);
+        buffer[position++] = (byte) (error ? 1 : 0);
+        putShort(dbTypes.length);
+        for (GPDBWritable.DBType dbType : dbTypes) {
+            buffer[position++] = (byte) dbType.ordinal();
+        }
+        for (int i = recordStart + nullBytesOffset; i < recordStart + headerLength; i++) {
+            buffer[i] = 0;
+        }
+        position = recordStart + headerLength;
+    }
+
+    /**
+     * Completes the current record, adding the final alignment padding for
+     * the next record and filling in its total length.
+     */
+    void endRecord() {
+        if (nextColumn != dbTypes.length) {
+            throw new IllegalStateException(String.format(
+                    "Record has %d values but the schema size is %d", nextColumn, dbTypes.length));
+        }
+        align(8);
+        int length = position - recordStart;
+        buffer[recordStart] = (byte) (length >>> 24);
+        buffer[recordStart + 1] = (byte) (length >>> 16);
+        buffer[recordStart + 2] = (byte) (length >>> 8);
+        buffer[recordStart + 3] = (byte) length;
+    }
+
+    /**
+     * Writes the buffered records to the output and empties the buffer.
+     *
+     * @param out the output to write to
+     * @throws IOException if I/O error occurs
+     */
+    void flush(DataOutput out) throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+
+    /**
+     * Sets the next column of the record to null.
+     *
+     * @param colIdx the column index
+     */
+    void setNull(int colIdx) {
+        checkColumn(colIdx);
+        buffer[recordStart + nullBytesOffset + colIdx / 8] |= 1 << (7 - colIdx % 8);
+    }
+
+    /*
+     * Setters of fixed length values, the type of the column must match.
+     */
+    void setLong(int colIdx, long val) {
+        startValue(colIdx);
+        putInt((int) (val >>> 32));
+        putInt((int) val);
+    }
+
+    void setBoolean(int colIdx, boolean val) {
+        startValue(colIdx);
+        buffer[position++] = (byte) (val ? 1 : 0);
+    }
+
+    void setDouble(int colIdx, double val) {
+        setLong(colIdx, Double.doubleToLongBits(val));
+    }
+
+    void setInt(int colIdx, int val) {
+        startValue(colIdx);
+        putInt(val);
+    }
+
+    void setFloat(int colIdx, float val) {
+        setInt(colIdx, Float.floatToIntBits(val));
+    }
+
+    void setShort(int colIdx, short val) {
+        startValue(colIdx);
+        putShort(val);
+    }
+
+    /**
+     * Sets a variable length value from a region of a byte array.
+     *
+     * @param colIdx    the column index
+     * @param val       the buffer containing the value
+     * @param start     the offset of the value in the buffer
+     * @param length    the length of the value
+     * @param terminate whether to add a '\0' terminator, as text values require
+     */
+    void setBytes(int colIdx, byte[] val, int start, int length, boolean terminate) {
+        int varLength = terminate ? length + 1 : length;
+        startValue(colIdx, 4 + varLength);
+        putInt(varLength);
+        System.arraycopy(val, start, buffer, position, length);
+        position += length;
+        if (terminate) {
+            buffer[position++] = 0;
+        }
+    }
+
+    /**
+     * Sets a text value, encoded in UTF-8. The string is written as is, so
+     * it must already include the '\0' terminator.
+     *
+     * @param colIdx the column index
+     * @param val    the value
+     */
+    void setString(int colIdx, String val) {
+        int length = val.length();
+        startValue(colIdx, 4 + length);
+        int lengthPosition = position;
+        position += 4;
+        // ASCII strings are copied without allocating, others are encoded by the JDK
+        for (int i = 0; i < length; i++) {
+            char c = val.charAt(i);
+            if (c >= 0x80) {
+                byte[] bytes = val.getBytes(StandardCharsets.UTF_8);
+                position = lengthPosition;
+                ensureCapacity(4 + bytes.length);
+                putInt(bytes.length);
+                System.arraycopy(bytes, 0, buffer, position, bytes.length);
+                position += bytes.length;
+                return;
+            }
+            buffer[position++] = (byte) c;
+        }
+        int end = position;
+        position = lengthPosition;
+        putInt(length);
+        position = end;
+    }
+
+    private void startValue(int colIdx) {
+        startValue(colIdx, dbTypes[colIdx].getTypeLength());
+    }
+
+    /**
+     * Pads the record to the alignment of the column and makes room for a
+     * value of the given serialized length.
+     */
+    private void startValue(int colIdx, int length) {
+        checkColumn(colIdx);
+        ensureCapacity(8 + length);
+        align(dbTypes[colIdx].getAlignment());
+    }
+
+    private void checkColumn(int colIdx) {
+        if (colIdx != nextColumn) {
+            throw new IllegalStateException(String.format(
+                    "Expected a value for column %d, got column %d", nextColumn, colIdx));
+        }
+        nextColumn++;
+    }
+
+    private void align(int alignment) {
+        int commonAlignment = alignment == 8 ? alignmentOfEightBytes : alignment;
+        int offset = position - recordStart;
+        int padding = ((offset + (commonAlignment - 1)) & ~(commonAlignment - 1)) - offset;
+        ensureCapacity(padding);
+        for (int i = 0; i < padding; i++) {
+            buffer[position++] = 0;
+        }
+    }
+
+    private void putShort(int val) {
+        buffer[position++] = (byte) (val >>> 8);
+        buffer[position++] = (byte) val;
+    }
+
+    private void putInt(int val) {
+        buffer[position++] = (byte) (val >>> 24);
+        buffer[position++] = (byte) (val >>> 16);
+        buffer[position++] = (byte) (val >>> 8);
+        buffer[position++] = (byte) val;
+    }
+
+    private void ensureCapacity(int length) {
+        if (position + length > buffer.length) {
+            int newSize = Math.max(buffer.length * 2, position + length);
+            byte[] newBuffer = new byte[newSize];
+            System.arraycopy(buffer, 0, newBuffer, 0, position);
+            buffer = newBuffer;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package org.greenplum.pxf.api.model;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.conf.Configuration;
@@ -13,20 +15,52 @@ import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 public class BaseConfigurationFactory implements ConfigurationFactory {
 
+    /**
+     * Name of the system property that turns off caching of parsed configurations
+     */
+    public static final String PXF_CONFIGURATION_CACHE_ENABLED_PROPERTY = "pxf.configuration.cache.enabled";
+
+    private static final int CACHE_MAXIMUM_SIZE = 1000;
+    private static final long CACHE_EXPIRATION_MINUTES = 10;
+
     private static final BaseConfigurationFactory instance = new BaseConfigurationFactory();
     protected final Logger LOG = LoggerFactory.getLogger(this.getClass());
     private final File serversConfigDirectory;
+    private final boolean cacheEnabled;
+
+    /*
+     * Parsed configurations, used as templates for the configurations returned
+     * to the plugins. Hadoop parses the XML resources of a configuration when
+     * its first property is read, the copies share the parsed properties.
+     */
+    private final Cache<ConfigurationKey, CachedConfiguration> configurationCache = CacheBuilder.newBuilder()
+            .maximumSize(CACHE_MAXIMUM_SIZE)
+            .expireAfterAccess(CACHE_EXPIRATION_MINUTES, TimeUnit.MINUTES)
+            .build();
 
     public BaseConfigurationFactory() {
         this(SERVERS_CONFIG_DIR);
     }
 
     BaseConfigurationFactory(File serversConfigDirectory) {
+        this(serversConfigDirectory,
+                !StringUtils.equalsIgnoreCase(System.getProperty(PXF_CONFIGURATION_CACHE_ENABLED_PROPERTY, "true"), "false"));
+    }
+
+    BaseConfigurationFactory(File serversConfigDirectory, boolean cacheEnabled) {
         this.serversConfigDirectory = serversConfigDirectory;
+        this.cacheEnabled = cacheEnabled;
     }
 
     /**
@@ -38,25 +72,48 @@ public class BaseConfigurationFactory implements ConfigurationFactory {
         return instance;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The configuration files are parsed once per combination of arguments,
+     * and a copy of the parsed configuration is returned on every call. The
+     * files are parsed again when any of them has been modified, added or
+     * removed since.
+     */
     @Override
     public Configuration initConfiguration(String configDirectory, String serverName, String userName, Map<String, String> additionalProperties) {
-        // start with built-in Hadoop configuration that loads core-site.xml
-        LOG.debug("Initializing configuration for server {}", serverName);
-        Configuration configuration = new Configuration();
-        // while implementing multiple kerberized support we noticed that non-kerberized hadoop
-        // access was trying to use SASL-client authentication. Setting the fallback to simple auth
-        // allows us to still access non-kerberized hadoop clusters when there exists at least one
-        // kerberized hadoop cluster. The root cause is that UGI has static fields and many hadoop
-        // libraries depend on the state of the UGI
-        // allow using SIMPLE auth for non-Kerberized HCFS access by SASL-enabled IPC client
-        // that is created due to the fact that it uses UGI.isSecurityEnabled
-        // and will try to use SASL if there is at least one Kerberized Hadoop cluster
-        configuration.set(CommonConfigurationKeys.IPC_CLIENT_FALLBACK_TO_SIMPLE_AUTH_ALLOWED_KEY, "true");
+        File serverDirectory = getServerDirectory(configDirectory, serverName);
+        if (!cacheEnabled) {
+            return createConfiguration(serverDirectory, serverName, userName, additionalProperties);
+        }
 
-        // set synthetic property pxf.session.user so that is can be used in config files for interpolation in other properties
-        // for example in JDBC when setting session authorization from a proxy user to the end-user
-        configuration.set(PXF_SESSION_USER_PROPERTY, userName);
+        ConfigurationKey key = new ConfigurationKey(configDirectory, serverName, userName, additionalProperties);
+        CachedConfiguration cached = configurationCache.getIfPresent(key);
+        if (cached == null || !cached.isCurrent(serverDirectory)) {
+            // take the snapshot first, a file modified while parsing invalidates the entry on the next call
+            ResourceSnapshot snapshot = new ResourceSnapshot(serverDirectory, userName);
+            Configuration template = createConfiguration(serverDirectory, serverName, userName, additionalProperties);
+            // force parsing the resources, so that copies do not parse them again
+            template.size();
+            cached = new CachedConfiguration(serverDirectory, snapshot, template);
+            configurationCache.put(key, cached);
+        } else {
+            LOG.debug("Using cached configuration for server {} and user {}", serverName, userName);
+        }
+
+        Configuration configuration = new Configuration(cached.template);
+        allowSystemProperties(configuration);
+        return configuration;
+    }
 
+    /**
+     * Finds the directory with the configuration files for the server.
+     *
+     * @param configDirectory name of the configuration directory or an absolute path
+     * @param serverName      name of the server
+     * @return the server directory, or null if it does not exist or cannot be read
+     */
+    private File getServerDirectory(String configDirectory, String serverName) {
         File[] serverDirectories = null;
         Path p = Paths.get(configDirectory);
 
@@ -76,14 +133,37 @@ public class BaseConfigurationFactory implements ConfigurationFactory {
         if (ArrayUtils.isEmpty(serverDirectories)) {
             LOG.debug("Directory {}{}{} does not exist or cannot be read by PXF, no configuration resources are added for server {}",
                     serversConfigDirectory, File.separator, configDirectory, serverName);
+            return null;
         } else if (serverDirectories.length > 1) {
             throw new IllegalStateException(String.format(
                     "Multiple directories found for server %s. Server directories are expected to be case-insensitive.", serverName
             ));
-        } else {
+        }
+        return serverDirectories[0];
+    }
+
+    private Configuration createConfiguration(File serverDirectory, String serverName, String userName, Map<String, String> additionalProperties) {
+        // start with built-in Hadoop configuration that loads core-site.xml
+        LOG.debug("Initializing configuration for server {}", serverName);
+        Configuration configuration = new Configuration();
+        // while implementing multiple kerberized support we noticed that non-kerberized hadoop
+        // access was trying to use SASL-client authentication. Setting the fallback to simple auth
+        // allows us to still access non-kerberized hadoop clusters when there exists at least one
+        // kerberized hadoop cluster. The root cause is that UGI has static fields and many hadoop
+        // libraries depend on the state of the UGI
+        // allow using SIMPLE auth for non-Kerberized HCFS access by SASL-enabled IPC client
+        // that is created due to the fact that it uses UGI.isSecurityEnabled
+        // and will try to use SASL if there is at least one Kerberized Hadoop cluster
+        configuration.set(CommonConfigurationKeys.IPC_CLIENT_FALLBACK_TO_SIMPLE_AUTH_ALLOWED_KEY, "true");
+
+        // set synthetic property pxf.session.user so that is can be used in config files for interpolation in other properties
+        // for example in JDBC when setting session authorization from a proxy user to the end-user
+        configuration.set(PXF_SESSION_USER_PROPERTY, userName);
+
+        if (serverDirectory != null) {
             // add all site files as URL resources to the configuration, no resources will be added from the classpath
-            LOG.debug("Using directory {} for server {} configuration", serverDirectories[0], serverName);
-            processServerResources(configuration, serverName, serverDirectories[0]);
+            LOG.debug("Using directory {} for server {} configuration", serverDirectory, serverName);
+            processServerResources(configuration, serverName, serverDirectory);
         }
 
         // add additional properties, if provided
@@ -93,10 +173,15 @@ public class BaseConfigurationFactory implements ConfigurationFactory {
         }
 
         // add user configuration
-        if (!ArrayUtils.isEmpty(serverDirectories)) {
-            processUserResource(configuration, serverName, userName, serverDirectories[0]);
+        if (serverDirectory != null) {
+            processUserResource(configuration, serverName, userName, serverDirectory);
         }
 
+        allowSystemProperties(configuration);
+        return configuration;
+    }
+
+    private void allowSystemProperties(Configuration configuration) {
         try {
             // We need to set the restrict system properties to false so
             // variables in the configuration get replaced by system property
@@ -105,8 +190,6 @@ public class BaseConfigurationFactory implements ConfigurationFactory {
         } catch (NoSuchMethodError e) {
             // Expected exception for MapR
         }
-
-        return configuration;
     }
 
     private void processServerResources(Configuration configuration, String serverName, File directory) {
@@ -131,7 +214,7 @@ public class BaseConfigurationFactory implements ConfigurationFactory {
     private void processUserResource(Configuration configuration, String serverName, String userName, File directory) {
         // add user config file as configuration resource
         try {
-            Path path = Paths.get(String.format("%s/%s-user.xml", directory.toPath(), userName));
+            Path path = getUserResourcePath(directory, userName);
             if (Files.exists(path)) {
                 Configuration userConfiguration = new Configuration(false);
                 URL resourceURL = path.toUri().toURL();
@@ -145,4 +228,102 @@ public class BaseConfigurationFactory implements ConfigurationFactory {
                     userName, serverName, directory.getAbsolutePath()), e);
         }
     }
+
+    private static Path getUserResourcePath(File directory, String userName) {
+        return Paths.get(String.format("%s/%s-user.xml", directory.toPath(), userName));
+    }
+
+    /**
+     * Key of the configuration cache, made of all the arguments the
+     * configuration depends on.
+     */
+    private static final class ConfigurationKey {
+        private final String configDirectory;
+        private final String serverName;
+        private final String userName;
+        private final Map<String, String> additionalProperties;
+
+        ConfigurationKey(String configDirectory, String serverName, String userName, Map<String, String> additionalProperties) {
+            this.configDirectory = configDirectory;
+            this.serverName = serverName;
+            this.userName = userName;
+            this.additionalProperties = (additionalProperties == null) ?
+                    Collections.emptyMap() : new HashMap<>(additionalProperties);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            ConfigurationKey that = (ConfigurationKey) o;
+            return Objects.equals(configDirectory, that.configDirectory) &&
+                    Objects.equals(serverName, that.serverName) &&
+                    Objects.equals(userName, that.userName) &&
+                    additionalProperties.equals(that.additionalProperties);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(configDirectory, serverName, userName, additionalProperties);
+        }
+    }
+
+    /**
+     * A parsed configuration along with the state of the files it was parsed from.
+     */
+    private static final class CachedConfiguration {
+        private final File serverDirectory;
+        private final ResourceSnapshot snapshot;
+        private final Configuration template;
+
+        CachedConfiguration(File serverDirectory, ResourceSnapshot snapshot, Configuration template) {
+            this.serverDirectory = serverDirectory;
+            this.snapshot = snapshot;
+            this.template = template;
+        }
+
+        boolean isCurrent(File currentServerDirectory) {
+            return Objects.equals(serverDirectory, currentServerDirectory) && snapshot.isCurrent();
+        }
+    }
+
+    /**
+     * Modification times and lengths of the server directory, its site files
+     * and the user file. Adding or removing a site file changes the
+     * modification time of the directory, creating the user file changes its
+     * own modification time from 0.
+     */
+    private static final class ResourceSnapshot {
+        private final File[] files;
+        private final long[] modificationTimes;
+        private final long[] lengths;
+
+        ResourceSnapshot(File serverDirectory, String userName) {
+            List<File> fileList = new ArrayList<>();
+            if (serverDirectory != null) {
+                fileList.add(serverDirectory);
+                File[] siteFiles = serverDirectory.listFiles((dir, name) -> name.endsWith("-site.xml"));
+                if (siteFiles != null) {
+                    fileList.addAll(Arrays.asList(siteFiles));
+                }
+                fileList.add(getUserResourcePath(serverDirectory, userName).toFile());
+            }
+            files = fileList.toArray(new File[0]);
+            modificationTimes = new long[files.length];
+            lengths = new long[files.length];
+            for (int i = 0; i < files.length; i++) {
+                modificationTimes[i] = files[i].lastModified();
+                lengths[i] = files[i].length();
+            }
+        }
+
+        boolean isCurrent() {
+            for (int i = 0; i < files.length; i++) {
+                if (files[i].lastModified() != modificationTimes[i] || files[i].length() != lengths[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
 }
@@ -0,0 +1,16 @@
+package org.greenplum.pxf.api.model;
+
+/**
+ * Interface for plugins that can be reused across requests. Plugin factories
+ * keep released instances of such plugins in a pool, and initialize them for
+ * the next request instead of creating new instances.
+ */
+public interface ReusablePlugin extends Plugin {
+
+    /**
+     * Clears the state of the previous request, called when the plugin is
+     * returned to the pool. {@link #initialize(RequestContext)} is called
+     * again before the plugin is used for another request.
+     */
+    void reset();
+}
@@ -3,12 +3,45 @@ package org.greenplum.pxf.api.utilities;
 import org.apache.commons.lang.StringUtils;
 import org.greenplum.pxf.api.model.Plugin;
 import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.model.ReusablePlugin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class BasePluginFactory<T extends Plugin> implements PluginFactory<T> {
 
+    /**
+     * Name of the system property with the maximum number of idle instances
+     * kept per {@link ReusablePlugin} class, 0 disables reuse
+     */
+    public static final String PXF_PLUGIN_POOL_SIZE_PROPERTY = "pxf.plugin.pool.size";
+
+    private static final int DEFAULT_POOL_SIZE = 32;
+
+    protected final Logger LOG = LoggerFactory.getLogger(this.getClass());
+
+    private final int poolSize;
+
+    /* constructors of the plugin classes, so that classes are only looked up once */
+    private final Map<String, Constructor<?>> constructors = new ConcurrentHashMap<>();
+
+    /* released instances of reusable plugins, by class name */
+    private final Map<String, BlockingQueue<Plugin>> pools = new ConcurrentHashMap<>();
+
+    public BasePluginFactory() {
+        this(Integer.getInteger(PXF_PLUGIN_POOL_SIZE_PROPERTY, DEFAULT_POOL_SIZE));
+    }
+
+    BasePluginFactory(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
     @Override
     public T getPlugin(RequestContext requestContext) {
 
@@ -18,6 +51,74 @@ public abstract class BasePluginFactory<T extends Plugin> implements PluginFacto
             throw new RuntimeException("Could not determine plugin class name");
         }
 
+        // reuse a released instance, if any
+        Plugin instance = null;
+        BlockingQueue<Plugin> pool = pools.get(pluginClassName);
+        if (pool != null) {
+            instance = pool.poll();
+        }
+
+        // create plugin instance
+        if (instance == null) {
+            Constructor<?> con = getConstructor(pluginClassName);
+            try {
+                instance = (Plugin) con.newInstance();
+            } catch (InvocationTargetException e) {
+                throw (e.getCause() != null) ? new RuntimeException(e.getCause()) :
+                                               new RuntimeException(e);
+            } catch (Exception e) {
+                throw new RuntimeException(String.format("Class %s could not be instantiated", pluginClassName), e);
+            }
+        } else {
+            LOG.debug("Reusing instance of plugin {}", pluginClassName);
+        }
+
+        // initialize the instance
+        instance.initialize(requestContext);
+
+        // cast into a target type
+        @SuppressWarnings("unchecked")
+        T castInstance = (T) instance;
+
+        return castInstance;
+    }
+
+    /**
+     * Resets a {@link ReusablePlugin} and keeps it for the next request,
+     * unless the pool of its class is full. Other plugins are left to the
+     * garbage collector.
+     *
+     * @param plugin the plugin obtained from {@link #getPlugin(RequestContext)}
+     */
+    @Override
+    public void releasePlugin(T plugin) {
+        if (poolSize <= 0 || !(plugin instanceof ReusablePlugin)) {
+            return;
+        }
+
+        String pluginClassName = plugin.getClass().getName();
+        try {
+            ((ReusablePlugin) plugin).reset();
+        } catch (Exception e) {
+            LOG.warn("Failed to reset plugin {}, it will not be reused: {}", pluginClassName, e.getMessage());
+            return;
+        }
+        pools.computeIfAbsent(pluginClassName, k -> new ArrayBlockingQueue<>(poolSize)).offer(plugin);
+    }
+
+    /**
+     * Returns the empty constructor of the plugin class, loading the class
+     * on first use.
+     *
+     * @param pluginClassName the name of the plugin class
+     * @return the empty constructor of the class
+     */
+    private Constructor<?> getConstructor(String pluginClassName) {
+        Constructor<?> con = constructors.get(pluginClassName);
+        if (con != null) {
+            return con;
+        }
+
         // load the class by name
         Class<?> cls;
         try {
@@ -32,32 +133,14 @@ public abstract class BasePluginFactory<T extends Plugin> implements PluginFacto
         }
 
         // get the empty constructor
-        Constructor<?> con;
         try {
             con = cls.getConstructor();
         } catch (NoSuchMethodException e) {
             throw new RuntimeException(String.format("Class %s does not have an empty constructor", pluginClassName));
         }
 
-        // create plugin instance
-        Plugin instance;
-        try {
-            instance = (Plugin) con.newInstance();
-        } catch (InvocationTargetException e) {
-            throw (e.getCause() != null) ? new RuntimeException(e.getCause()) :
-                                           new RuntimeException(e);
-        } catch (Exception e) {
-            throw new RuntimeException(String.format("Class %s could not be instantiated", pluginClassName), e);
-        }
-
-        // initialize the instance
-        instance.initialize(requestContext);
-
-        // cast into a target type
-        @SuppressWarnings("unchecked")
-        T castInstance = (T) instance;
-
-        return castInstance;
+        constructors.put(pluginClassName, con);
+        return con;
     }
 
     abstract protected String getPluginClassName(RequestContext requestContext);
@@ -0,0 +1,78 @@
+package org.greenplum.pxf.api.utilities;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.common.cache.Cache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiFunction;
+
+/**
+ * Helper methods for the caches of values that plugins load from external
+ * systems, like file footers, splits or query results.
+ */
+public class CacheUtilities {
+
+    private CacheUtilities() {
+    }
+
+    /**
+     * Returns the cached value for the given key, loading it if it is not
+     * cached yet. Concurrent calls for the same key wait for a single load.
+     * Failed loads are not cached.
+     * <p>
+     * Guava wraps the failures of the loader. They are unwrapped here, so
+     * that callers get the exception the loader threw: exceptions of the
+     * given type and runtime exceptions are thrown as they are, and the
+     * other checked exceptions are wrapped into the given type, with the
+     * given message followed by the message of the failure.
+     *
+     * @param cache          the cache
+     * @param key            the key of the value
+     * @param loader         loads the value
+     * @param exceptionClass the type of the exceptions the caller throws
+     * @param exceptionType  creates an exception of that type from a message and a cause
+     * @param message        describes the failure of the load
+     * @param <K>            the type of the keys
+     * @param <V>            the type of the values
+     * @param <E>            the type of the exceptions the caller throws
+     * @return the value
+     * @throws E if the load fails
+     */
+    public static <K, V, E extends Exception> V get(Cache<K, V> cache, K key, Callable<? extends V> loader,
+                                                    Class<E> exceptionClass,
+                                                    BiFunction<String, Throwable, E> exceptionType,
+                                                    String message) throws E {
+        try {
+            return cache.get(key, loader);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (exceptionClass.isInstance(cause)) {
+                throw exceptionClass.cast(cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw exceptionType.apply(String.format("%s: %s", message, cause.getMessage()), cause);
+        }
+    }
+}
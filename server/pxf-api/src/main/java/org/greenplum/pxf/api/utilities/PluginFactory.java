@@ -17,4 +17,14 @@ public interface PluginFactory<T extends Plugin> {
      * @return an initialized instance of the plugin
      */
     T getPlugin(RequestContext requestContext);
+
+    /**
+     * Returns a plugin that is no longer used by the request to the factory,
+     * which may reuse it for another request. The plugin must not be used
+     * after it has been released.
+     *
+     * @param plugin the plugin obtained from {@link #getPlugin(RequestContext)}
+     */
+    default void releasePlugin(T plugin) {
+    }
 }
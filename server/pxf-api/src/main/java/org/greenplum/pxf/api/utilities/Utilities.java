@@ -19,6 +19,7 @@ package org.greenplum.pxf.api.utilities;
  * under the License.
  */
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
@@ -36,6 +37,8 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -320,6 +323,20 @@ public class Utilities {
         return !StringUtils.equalsIgnoreCase(System.getProperty(PROPERTY_KEY_FRAGMENTER_CACHE, "true"), "false");
     }
 
+    /**
+     * Creates a pool of daemon threads shared by the requests of a plugin,
+     * with the number of threads given by a system property.
+     *
+     * @param threadsProperty the name of the system property with the number of threads
+     * @param defaultThreads  the number of threads if the property is not set
+     * @param nameFormat      the format of the thread names, with a %d for the thread number
+     * @return the thread pool
+     */
+    public static ExecutorService newDaemonThreadPool(String threadsProperty, int defaultThreads, String nameFormat) {
+        return Executors.newFixedThreadPool(Integer.getInteger(threadsProperty, defaultThreads),
+                new ThreadFactoryBuilder().setNameFormat(nameFormat).setDaemon(true).build());
+    }
+
     /**
      * Data sources are absolute data paths. Method ensures that dataSource
      * begins with '/' unless the path includes the protocol as a prefix
@@ -21,9 +21,14 @@ package org.greenplum.pxf.api.io;
 
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
 public class BufferWritableTest {
 
     @Test
@@ -39,4 +44,38 @@ public class BufferWritableTest {
 
         assertArrayEquals((data1+data2).getBytes(), bw1.buf);
     }
+
+    @Test
+    public void writeRegion() throws Exception {
+        byte[] chunk = "first\nsecond\nthird".getBytes();
+
+        BufferWritable bw = new BufferWritable(chunk, 6, 7);
+
+        assertEquals(6, bw.getOffset());
+        assertEquals(7, bw.getLength());
+        assertArrayEquals("second\n".getBytes(), serialize(bw));
+    }
+
+    @Test
+    public void appendRegion() throws Exception {
+        byte[] chunk = "first\nsecond\nthird".getBytes();
+
+        BufferWritable bw = new BufferWritable(chunk, 0, 3);
+        bw.append(chunk, 6, 3);
+        bw.append(chunk, 14, 5);
+
+        assertArrayEquals("firsecthird".getBytes(), serialize(bw));
+        // the viewed buffer is not modified by appending
+        assertArrayEquals("first\nsecond\nthird".getBytes(), chunk);
+
+        // the appended data was copied
+        chunk[0] = 'F';
+        assertArrayEquals("firsecthird".getBytes(), serialize(bw));
+    }
+
+    private byte[] serialize(BufferWritable bw) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bw.write(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
 }
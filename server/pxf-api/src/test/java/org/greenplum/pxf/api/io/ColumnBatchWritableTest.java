@@ -0,0 +1,123 @@
+package org.greenplum.pxf.api.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import org.greenplum.pxf.api.BadRecordException;
+import org.greenplum.pxf.api.ColumnBatch;
+import org.greenplum.pxf.api.OneField;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ColumnBatchWritableTest {
+
+    private static final int[] COLUMN_TYPES = new int[]{
+            DataType.BIGINT.getOID(),
+            DataType.BOOLEAN.getOID(),
+            DataType.FLOAT8.getOID(),
+            DataType.INTEGER.getOID(),
+            DataType.REAL.getOID(),
+            DataType.SMALLINT.getOID(),
+            DataType.BYTEA.getOID(),
+            DataType.TEXT.getOID(),
+            DataType.NUMERIC.getOID()
+    };
+
+    @Test
+    public void testWriteMatchesGPDBWritable() throws Exception {
+        List<List<OneField>> records = Arrays.asList(
+                record(1L, true, 1.5d, 2, 2.5f, (short) 3, new byte[]{1, 2, 3}, "abc", "1.23"),
+                record(null, false, null, -7, null, (short) -1, new byte[0], "", null),
+                record(Long.MAX_VALUE, null, -0.25d, null, 0.5f, null, null, "\u05e9\u05dc\u05d5\u05dd", "-42"),
+                record(null, null, null, null, null, null, null, null, null));
+
+        ColumnBatch batch = new ColumnBatch(COLUMN_TYPES, 8);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (List<OneField> record : records) {
+            batch.addRow(record);
+            toGPDBWritable(record).write(new DataOutputStream(expected));
+        }
+
+        assertEquals(4, batch.size());
+        assertArrayEquals(expected.toByteArray(), serialize(new ColumnBatchWritable(batch)));
+    }
+
+    @Test
+    public void testWriteEmptyBatch() throws Exception {
+        ColumnBatch batch = new ColumnBatch(COLUMN_TYPES, 8);
+
+        assertEquals(0, serialize(new ColumnBatchWritable(batch)).length);
+    }
+
+    @Test
+    public void testWriteAfterReset() throws Exception {
+        ColumnBatch batch = new ColumnBatch(COLUMN_TYPES, 1);
+        batch.addRow(record(1L, true, 1.5d, 2, 2.5f, (short) 3, new byte[]{1}, "first", "1"));
+        batch.reset();
+
+        List<OneField> record = record(null, false, 3d, null, 4f, (short) 5, null, "second", null);
+        batch.addRow(record);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        toGPDBWritable(record).write(new DataOutputStream(expected));
+
+        assertArrayEquals(expected.toByteArray(), serialize(new ColumnBatchWritable(batch)));
+    }
+
+    @Test(expected = BadRecordException.class)
+    public void testAddRowTypeMismatch() throws Exception {
+        ColumnBatch batch = new ColumnBatch(new int[]{DataType.INTEGER.getOID()}, 8);
+
+        batch.addRow(Arrays.asList(new OneField(DataType.TEXT.getOID(), "abc")));
+    }
+
+    private List<OneField> record(Object... values) {
+        OneField[] fields = new OneField[values.length];
+        for (int i = 0; i < values.length; i++) {
+            fields[i] = new OneField(COLUMN_TYPES[i], values[i]);
+        }
+        return Arrays.asList(fields);
+    }
+
+    private GPDBWritable toGPDBWritable(List<OneField> record) throws Exception {
+        GPDBWritable writable = new GPDBWritable(COLUMN_TYPES);
+        for (int i = 0; i < record.size(); i++) {
+            Object val = record.get(i).val;
+            if (DataType.isTextForm(COLUMN_TYPES[i])) {
+                writable.setString(i, (String) val);
+            } else {
+                writable.setObject(i, val);
+            }
+        }
+        return writable;
+    }
+
+    private byte[] serialize(Writable writable) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writable.write(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+}
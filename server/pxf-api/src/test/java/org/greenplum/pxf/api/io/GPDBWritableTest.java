@@ -23,11 +23,15 @@ package org.greenplum.pxf.api.io;
 import org.junit.Test;
 import org.mockito.stubbing.OngoingStubbing;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
+import java.io.DataOutputStream;
 import java.io.EOFException;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -154,9 +158,67 @@ public class GPDBWritableTest {
         assertEquals(typeName, DataType.NUMERIC.name());
     }
 
+    /*
+     * Test the write method: the record is read back with the same values,
+     * also when the writable is refilled and written again
+     */
+    @Test
+    public void testWriteAndReadBack() throws Exception {
+        int[] schema = new int[]{
+                DataType.BIGINT.getOID(),
+                DataType.BOOLEAN.getOID(),
+                DataType.FLOAT8.getOID(),
+                DataType.INTEGER.getOID(),
+                DataType.REAL.getOID(),
+                DataType.SMALLINT.getOID(),
+                DataType.BYTEA.getOID(),
+                DataType.TEXT.getOID(),
+                DataType.VARCHAR.getOID()
+        };
+        GPDBWritable gpdbWritable = new GPDBWritable(schema);
+
+        gpdbWritable.setLong(0, 1L);
+        gpdbWritable.setBoolean(1, true);
+        gpdbWritable.setDouble(2, 2.5d);
+        gpdbWritable.setInt(3, 3);
+        gpdbWritable.setFloat(4, 4.5f);
+        gpdbWritable.setShort(5, (short) 5);
+        gpdbWritable.setBytes(6, new byte[]{6, 7});
+        gpdbWritable.setString(7, "text");
+        gpdbWritable.setString(8, "\u05e9\u05dc\u05d5\u05dd");
+        GPDBWritable result = new GPDBWritable(serialize(gpdbWritable));
+
+        assertEquals(Long.valueOf(1L), result.getLong(0));
+        assertEquals(Boolean.TRUE, result.getBoolean(1));
+        assertEquals(Double.valueOf(2.5d), result.getDouble(2));
+        assertEquals(Integer.valueOf(3), result.getInt(3));
+        assertEquals(Float.valueOf(4.5f), result.getFloat(4));
+        assertEquals(Short.valueOf((short) 5), result.getShort(5));
+        assertArrayEquals(new byte[]{6, 7}, result.getBytes(6));
+        assertEquals("text", result.getString(7));
+        assertEquals("\u05e9\u05dc\u05d5\u05dd", result.getString(8));
+
+        for (int i = 0; i < schema.length; i++) {
+            gpdbWritable.setObject(i, null);
+        }
+        gpdbWritable.setString(7, "other");
+        result = new GPDBWritable(serialize(gpdbWritable));
+
+        assertNull(result.getLong(0));
+        assertNull(result.getBytes(6));
+        assertEquals("other", result.getString(7));
+        assertNull(result.getString(8));
+    }
+
     /*
      * helpers functions
      */
+    private byte[] serialize(GPDBWritable gpdbWritable) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        gpdbWritable.write(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
     private GPDBWritable buildGPDBWritable()
             throws Exception {
         return new GPDBWritable();
@@ -5,12 +5,14 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -18,6 +20,7 @@ import static org.greenplum.pxf.api.model.ConfigurationFactory.PXF_CONFIG_RESOUR
 import static org.greenplum.pxf.api.model.ConfigurationFactory.PXF_CONFIG_SERVER_DIRECTORY_PROPERTY;
 import static org.greenplum.pxf.api.model.ConfigurationFactory.PXF_SESSION_USER_PROPERTY;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.mockito.Matchers.any;
@@ -29,6 +32,9 @@ public class BaseConfigurationFactoryTest {
     @Rule
     public ExpectedException thrown = ExpectedException.none();
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private BaseConfigurationFactory factory;
     private Map<String, String> additionalProperties;
     private File mockServersDirectory;
@@ -205,4 +211,67 @@ public class BaseConfigurationFactoryTest {
         assertEquals("dummy", configuration.get(PXF_SESSION_USER_PROPERTY));
     }
 
+    @Test
+    public void testCachedConfigurationIsCopied() {
+        Configuration configuration1 = factory.initConfiguration("default", "default", "dummy", null);
+        configuration1.set("test.blue", "changed");
+        Configuration configuration2 = factory.initConfiguration("default", "default", "dummy", null);
+
+        assertNotSame(configuration1, configuration2);
+        assertEquals("changed", configuration1.get("test.blue"));
+        assertEquals("blue", configuration2.get("test.blue"));
+        assertEquals("uservalue", configuration2.get("test.user.key"));
+        assertEquals("dummy-user", configuration2.get("test.user.interpolated.key"));
+    }
+
+    @Test
+    public void testCachedConfigurationDependsOnUserAndAdditionalProperties() {
+        additionalProperties.put("test.newOption", "newOption");
+        Configuration configuration1 = factory.initConfiguration("default", "default", "dummy", additionalProperties);
+        Configuration configuration2 = factory.initConfiguration("default", "default", "other", null);
+
+        assertEquals("newOption", configuration1.get("test.newOption"));
+        assertEquals("dummy", configuration1.get(PXF_SESSION_USER_PROPERTY));
+        assertNull(configuration2.get("test.newOption"));
+        assertEquals("other", configuration2.get(PXF_SESSION_USER_PROPERTY));
+        assertNull(configuration2.get("test.user.key"));
+    }
+
+    @Test
+    public void testCachedConfigurationIsReloadedWhenFilesChange() throws IOException {
+        File serverDirectory = temporaryFolder.newFolder("servers", "changing");
+        File siteFile = new File(serverDirectory, "test-site.xml");
+        writeConfiguration(siteFile, "test.color", "blue");
+        factory = new BaseConfigurationFactory(serverDirectory.getParentFile());
+
+        assertEquals("blue", factory.initConfiguration("changing", "changing", "dummy", null).get("test.color"));
+
+        writeConfiguration(siteFile, "test.color", "purple");
+        assertEquals("purple", factory.initConfiguration("changing", "changing", "dummy", null).get("test.color"));
+
+        writeConfiguration(new File(serverDirectory, "dummy-user.xml"), "test.color", "green");
+        assertEquals("green", factory.initConfiguration("changing", "changing", "dummy", null).get("test.color"));
+    }
+
+    @Test
+    public void testConfigurationIsParsedEveryTimeWhenCacheIsDisabled() {
+        factory = new BaseConfigurationFactory(serversDirectory, false);
+        Configuration configuration1 = factory.initConfiguration("default", "default", "dummy", null);
+        Configuration configuration2 = factory.initConfiguration("default", "default", "dummy", null);
+
+        assertNotSame(configuration1, configuration2);
+        assertEquals("blue", configuration2.get("test.blue"));
+        assertEquals("uservalue", configuration2.get("test.user.key"));
+    }
+
+    private void writeConfiguration(File file, String name, String value) throws IOException {
+        String previous = file.exists() ? new String(Files.readAllBytes(file.toPath())) : "";
+        String content = String.format("<configuration><property><name>%s</name><value>%s</value></property></configuration>",
+                name, value);
+        // make sure the length changes even if the modification time has a coarse granularity
+        while (content.length() == previous.length()) {
+            content += " ";
+        }
+        Files.write(file.toPath(), content.getBytes());
+    }
 }
@@ -0,0 +1,126 @@
+package org.greenplum.pxf.api.utilities;
+
+import org.greenplum.pxf.api.model.Plugin;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.model.ReusablePlugin;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class BasePluginFactoryTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private RequestContext context;
+
+    @Before
+    public void setup() {
+        context = new RequestContext();
+    }
+
+    @Test
+    public void testPluginIsCreatedAndInitialized() {
+        context.setAccessor(TestPlugin.class.getName());
+        TestPlugin plugin = new TestPluginFactory(4).getPlugin(context);
+
+        assertSame(context, plugin.context);
+    }
+
+    @Test
+    public void testReusablePluginIsReused() {
+        TestPluginFactory factory = new TestPluginFactory(4);
+        context.setAccessor(TestReusablePlugin.class.getName());
+        TestPlugin plugin = factory.getPlugin(context);
+        factory.releasePlugin(plugin);
+
+        RequestContext nextContext = new RequestContext();
+        nextContext.setAccessor(TestReusablePlugin.class.getName());
+        TestPlugin reused = factory.getPlugin(nextContext);
+
+        assertSame(plugin, reused);
+        assertSame(nextContext, reused.context);
+        assertEquals(1, ((TestReusablePlugin) reused).resets);
+        // the pool is empty now
+        assertNotSame(reused, factory.getPlugin(nextContext));
+    }
+
+    @Test
+    public void testPluginIsNotReused() {
+        TestPluginFactory factory = new TestPluginFactory(4);
+        context.setAccessor(TestPlugin.class.getName());
+        TestPlugin plugin = factory.getPlugin(context);
+        factory.releasePlugin(plugin);
+
+        assertNotSame(plugin, factory.getPlugin(context));
+    }
+
+    @Test
+    public void testReusablePluginIsNotReusedWhenPoolIsDisabled() {
+        TestPluginFactory factory = new TestPluginFactory(0);
+        context.setAccessor(TestReusablePlugin.class.getName());
+        TestPlugin plugin = factory.getPlugin(context);
+        factory.releasePlugin(plugin);
+
+        assertNotSame(plugin, factory.getPlugin(context));
+        assertEquals(0, ((TestReusablePlugin) plugin).resets);
+    }
+
+    @Test
+    public void testClassNotFound() {
+        thrown.expect(RuntimeException.class);
+        thrown.expectMessage("Class org.greenplum.pxf.api.utilities.NoSuchPlugin is not found");
+
+        context.setAccessor("org.greenplum.pxf.api.utilities.NoSuchPlugin");
+        new TestPluginFactory(4).getPlugin(context);
+    }
+
+    @Test
+    public void testClassIsNotAPlugin() {
+        thrown.expect(RuntimeException.class);
+        thrown.expectMessage("Class java.lang.String does not implement Plugin interface");
+
+        context.setAccessor(String.class.getName());
+        new TestPluginFactory(4).getPlugin(context);
+    }
+
+    static class TestPluginFactory extends BasePluginFactory<TestPlugin> {
+        TestPluginFactory(int poolSize) {
+            super(poolSize);
+        }
+
+        @Override
+        protected String getPluginClassName(RequestContext requestContext) {
+            return requestContext.getAccessor();
+        }
+    }
+
+    public static class TestPlugin implements Plugin {
+        RequestContext context;
+
+        @Override
+        public void initialize(RequestContext requestContext) {
+            context = requestContext;
+        }
+
+        @Override
+        public boolean isThreadSafe() {
+            return true;
+        }
+    }
+
+    public static class TestReusablePlugin extends TestPlugin implements ReusablePlugin {
+        int resets;
+
+        @Override
+        public void reset() {
+            context = null;
+            resets++;
+        }
+    }
+}
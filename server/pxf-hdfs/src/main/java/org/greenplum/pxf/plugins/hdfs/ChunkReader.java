@@ -23,8 +23,7 @@ package org.greenplum.pxf.plugins.hdfs;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Arrays;
 
 import org.apache.hadoop.io.Writable;
 
@@ -61,22 +60,10 @@ public class ChunkReader implements Closeable {
         in.close();
     }
 
-    /*
-     * Internal class used for holding part of a chunk brought by one read()
-     * operation on the input stream. We collect several such nodes in a list by
-     * doing several read operation until we reach the chunk size -
-     * maxBytesToConsume
-     */
-    private class Node {
-        /* part of a chunk brought in a single inputstream.read() operation */
-        public byte[] slice;
-        /* the size of the slice */
-        public int len;
-    }
-
     /**
-     * Reads data in chunks of DEFAULT_CHUNK_SIZE, until we reach
-     * maxBytesToConsume.
+     * Reads data in chunks of maxBytesToConsume bytes. The data is read
+     * straight into the array of the chunk, which is allocated once per chunk
+     * since the chunk is handed downstream and may be retained there.
      *
      * @param str - output parameter, will contain the read chunk byte array
      * @param maxBytesToConsume - requested chunk size
@@ -88,45 +75,30 @@ public class ChunkReader implements Closeable {
     public int readChunk(Writable str, int maxBytesToConsume) throws IOException
            {
         ChunkWritable cw = (ChunkWritable) str;
-        List<Node> list = new LinkedList<Node>();
 
-        long bytesConsumed = 0;
+        // start with the data left in the buffer by readLine()
+        int remaining = bufferLength - bufferPosn;
+        byte[] chunk = new byte[Math.max(maxBytesToConsume, remaining)];
+        if (remaining > 0) {
+            System.arraycopy(buffer, bufferPosn, chunk, 0, remaining);
+        }
+        int bytesConsumed = Math.max(remaining, 0);
+        bufferLength = bufferPosn = 0;
 
-        do {
-            if (bufferLength > 0) {
-                int remaining = bufferLength - bufferPosn;
-                Node nd = new Node();
-                nd.slice = new byte[remaining];
-                nd.len = remaining;
-                System.arraycopy(buffer, bufferPosn, nd.slice, 0, nd.len);
-                list.add(nd);
-                bytesConsumed += nd.len;
-            } else {
-                Node nd = new Node();
-                nd.slice = new byte[buffer.length];
-                nd.len = in.read(nd.slice);
-                if (nd.len <= 0) {
-                    break; // EOF
-                }
-                bytesConsumed += nd.len;
-                list.add(nd);
+        while (bytesConsumed < maxBytesToConsume) {
+            int len = in.read(chunk, bytesConsumed, chunk.length - bytesConsumed);
+            if (len <= 0) {
+                break; // EOF
             }
+            bytesConsumed += len;
+        }
 
-            bufferLength = bufferPosn = 0;
-
-        } while (bytesConsumed < maxBytesToConsume);
-
-        if (list.size() > 0) {
-            cw.box = new byte[(int) bytesConsumed];
-            int pos = 0;
-            for (int i = 0; i < list.size(); i++) {
-                Node n = list.get(i);
-                System.arraycopy(n.slice, 0, cw.box, pos, n.len);
-                pos += n.len;
-            }
+        if (bytesConsumed > 0) {
+            // the chunk is only trimmed when the end of the stream was reached
+            cw.box = (bytesConsumed == chunk.length) ? chunk : Arrays.copyOf(chunk, bytesConsumed);
         }
 
-        return (int) bytesConsumed;
+        return bytesConsumed;
     }
 
     /**
@@ -141,10 +113,10 @@ public class ChunkReader implements Closeable {
      */
     public int readLine(Writable str, int maxBytesToConsume) throws IOException {
         ChunkWritable cw = (ChunkWritable) str;
-        List<Node> list = new LinkedList<Node>();
+        byte[] line = null;
 
         boolean newLine = false; // length of terminating newline
-        long bytesConsumed = 0;
+        int bytesConsumed = 0;
 
         do {
             int startPosn = bufferPosn; // starting from where we left off the
@@ -169,27 +141,25 @@ public class ChunkReader implements Closeable {
             }
 
             int readLength = bufferPosn - startPosn;
-            bytesConsumed += readLength;
 
             if (readLength > 0) {
-                Node nd = new Node();
-                nd.slice = new byte[readLength];
-                nd.len = readLength;
-                System.arraycopy(buffer, startPosn, nd.slice, 0, nd.len);
-                list.add(nd);
+                if (line == null) {
+                    line = Arrays.copyOfRange(buffer, startPosn, bufferPosn);
+                } else {
+                    // the line spans several buffers, grow it geometrically
+                    if (line.length - bytesConsumed < readLength) {
+                        line = Arrays.copyOf(line, Math.max(bytesConsumed + readLength, 2 * line.length));
+                    }
+                    System.arraycopy(buffer, startPosn, line, bytesConsumed, readLength);
+                }
             }
+            bytesConsumed += readLength;
         } while (!newLine && bytesConsumed < maxBytesToConsume);
 
-        if (list.size() > 0) {
-            cw.box = new byte[(int) bytesConsumed];
-            int pos = 0;
-            for (int i = 0; i < list.size(); i++) {
-                Node n = list.get(i);
-                System.arraycopy(n.slice, 0, cw.box, pos, n.len);
-                pos += n.len;
-            }
+        if (line != null) {
+            cw.box = (line.length == bytesConsumed) ? line : Arrays.copyOf(line, bytesConsumed);
         }
 
-        return (int) bytesConsumed;
+        return bytesConsumed;
     }
 }
@@ -0,0 +1,288 @@
+package org.greenplum.pxf.plugins.hdfs;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.InvalidInputException;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.apache.parquet.filter2.compat.FilterCompat;
+import org.apache.parquet.filter2.compat.RowGroupFilter;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.schema.MessageType;
+import org.greenplum.pxf.api.model.Fragment;
+import org.greenplum.pxf.api.utilities.Utilities;
+import org.greenplum.pxf.plugins.hdfs.parquet.ParquetFooterCache;
+import org.greenplum.pxf.plugins.hdfs.utilities.HdfsUtilities;
+import org.greenplum.pxf.plugins.hdfs.utilities.PxfInputFormat;
+
+import java.io.IOException;
+import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Fragmenter class for Parquet files.
+ * <p>
+ * Reads the footers of the Parquet files of the data source in parallel,
+ * through {@link ParquetFooterCache}, and drops the row groups whose column
+ * statistics cannot match the filter of the request. The remaining row groups
+ * are grouped into fragments of about the same compressed size, so that each
+ * segment reads about the same amount of data. A fragment holds a range of
+ * consecutive row groups of a file, which the {@link ParquetFileAccessor}
+ * reads as a file split.
+ */
+public class ParquetDataFragmenter extends HdfsDataFragmenter {
+
+    /**
+     * Threads reading the footers of the files of all fragmenter requests.
+     * Footer reads are mostly waiting on the name node and data nodes, so
+     * there can be more threads than cores.
+     */
+    public static final String PXF_PARQUET_FOOTER_THREADS_PROPERTY = "pxf.parquet.fragmenter.footer.threads";
+
+    private static final int DEFAULT_FOOTER_THREADS = 16;
+
+    private static final ExecutorService FOOTER_EXECUTOR = Utilities.newDaemonThreadPool(
+            PXF_PARQUET_FOOTER_THREADS_PROPERTY, DEFAULT_FOOTER_THREADS, "pxf-parquet-footers-%d");
+
+    private final ParquetFooterCache footerCache;
+
+    public ParquetDataFragmenter() {
+        this(ParquetFooterCache.getInstance());
+    }
+
+    ParquetDataFragmenter(ParquetFooterCache footerCache) {
+        this.footerCache = footerCache;
+    }
+
+    /**
+     * Gets the fragments for a data source URI that can appear as a file name,
+     * a directory name or a wildcard. Returns a fragment per range of row
+     * groups that may match the filter of the request.
+     */
+    @Override
+    public List<Fragment> getFragments() throws Exception {
+        Path path = new Path(hcfsType.getDataUri(jobConf, context));
+
+        PxfInputFormat pxfInputFormat = new PxfInputFormat();
+        PxfInputFormat.setInputPaths(jobConf, path);
+
+        FileStatus[] fileStatusArray;
+        try {
+            fileStatusArray = pxfInputFormat.listStatus(jobConf);
+        } catch (InvalidInputException e) {
+            if (StringUtils.equalsIgnoreCase("true", context.getOption(IGNORE_MISSING_PATH_OPTION))) {
+                LOG.debug("Ignoring InvalidInputException", e);
+                return fragments;
+            }
+            throw e;
+        }
+
+        List<ParquetFile> files = readFiles(fileStatusArray);
+
+        long totalSize = 0;
+        for (ParquetFile file : files) {
+            for (BlockMetaData rowGroup : file.rowGroups) {
+                totalSize += rowGroup.getCompressedSize();
+            }
+        }
+        long fragmentSize = getFragmentSize(totalSize, context.getTotalSegments());
+
+        for (ParquetFile file : files) {
+            addFragments(file, fragmentSize);
+        }
+        LOG.debug("Total number of fragments = {}", fragments.size());
+
+        return fragments;
+    }
+
+    /**
+     * Returns the compressed size fragments are filled up to, so that there
+     * is about a fragment per segment.
+     *
+     * @param totalSize     the compressed size of the row groups to read
+     * @param totalSegments the number of segments
+     * @return the size of the fragments
+     */
+    static long getFragmentSize(long totalSize, int totalSegments) {
+        int segments = Math.max(totalSegments, 1);
+        return Math.max((totalSize + segments - 1) / segments, 1);
+    }
+
+    /*
+     * Reads the footers and the block locations of the files in parallel, as
+     * the user of the request, and keeps the row groups that may match the
+     * filter. The files are returned in the order they were listed.
+     */
+    private List<ParquetFile> readFiles(FileStatus[] fileStatusArray) throws Exception {
+        UserGroupInformation ugi = UserGroupInformation.getCurrentUser();
+        List<Future<ParquetFile>> futures = new ArrayList<>(fileStatusArray.length);
+        try {
+            for (FileStatus fileStatus : fileStatusArray) {
+                futures.add(FOOTER_EXECUTOR.submit(() -> ugi.doAs(
+                        (PrivilegedExceptionAction<ParquetFile>) () -> readFile(fileStatus))));
+            }
+
+            List<ParquetFile> files = new ArrayList<>(futures.size());
+            for (Future<ParquetFile> future : futures) {
+                try {
+                    files.add(future.get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception) {
+                        throw (Exception) e.getCause();
+                    }
+                    throw e;
+                }
+            }
+            return files;
+        } finally {
+            // stops reading the remaining footers after a failure
+            for (Future<ParquetFile> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private ParquetFile readFile(FileStatus fileStatus) throws IOException {
+        List<String> key = Arrays.asList(context.getServerName(), context.getUser(),
+                fileStatus.getPath().toString(), String.valueOf(fileStatus.getModificationTime()),
+                String.valueOf(fileStatus.getLen()));
+        ParquetMetadata footer = footerCache.get(key, () -> {
+            try (ParquetFileReader reader = ParquetFileReader.open(HadoopInputFile.fromStatus(fileStatus, configuration))) {
+                return reader.getFooter();
+            }
+        });
+
+        List<BlockMetaData> rowGroups = filterRowGroups(fileStatus, footer);
+        BlockLocation[] locations = new BlockLocation[0];
+        if (!rowGroups.isEmpty()) {
+            FileSystem fs = fileStatus.getPath().getFileSystem(configuration);
+            locations = fs.getFileBlockLocations(fileStatus, 0, fileStatus.getLen());
+        }
+        return new ParquetFile(fileStatus, footer, rowGroups, locations);
+    }
+
+    /*
+     * Drops the row groups whose column statistics cannot match the filter.
+     * All the row groups are kept when the filter cannot be translated, the
+     * accessor still filters the records it reads.
+     */
+    private List<BlockMetaData> filterRowGroups(FileStatus fileStatus, ParquetMetadata footer) {
+        List<BlockMetaData> rowGroups = footer.getBlocks();
+        if (!context.hasFilter()) {
+            return rowGroups;
+        }
+
+        MessageType schema = footer.getFileMetaData().getSchema();
+        try {
+            FilterCompat.Filter filter = ParquetFileAccessor.buildRecordFilter(context,
+                    ParquetFileAccessor.getOriginalFieldsMap(schema));
+            return RowGroupFilter.filterRowGroups(filter, rowGroups, schema);
+        } catch (Exception e) {
+            LOG.warn("Row groups are not pruned, failed to apply filter {} to the schema of {}: {}",
+                    context.getFilterString(), fileStatus.getPath(), e.getMessage());
+            return rowGroups;
+        }
+    }
+
+    /*
+     * Adds fragments for the ranges of consecutive row groups of the file
+     * that were kept, each filled up to the fragment size, and no larger than
+     * a block of the file so that it can be read locally. A fragment spans
+     * row groups whose midpoints fall into its range, which is how the
+     * Parquet reader assigns row groups to file splits.
+     */
+    private void addFragments(ParquetFile file, long fragmentSize) throws IOException {
+        Set<BlockMetaData> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+        kept.addAll(file.rowGroups);
+        long blockSize = file.status.getBlockSize();
+        long maxSize = (blockSize > 0) ? Math.min(fragmentSize, blockSize) : fragmentSize;
+
+        long start = -1;
+        long end = -1;
+        for (BlockMetaData rowGroup : file.footer.getBlocks()) {
+            if (!kept.contains(rowGroup)) {
+                addFragment(file, start, end);
+                start = -1;
+                continue;
+            }
+            if (start < 0) {
+                start = rowGroup.getStartingPos();
+            }
+            end = rowGroup.getStartingPos() + rowGroup.getCompressedSize();
+            if (end - start >= maxSize) {
+                addFragment(file, start, end);
+                start = -1;
+            }
+        }
+        addFragment(file, start, end);
+
+        LOG.debug("Kept {} of {} row groups of {}", kept.size(),
+                file.footer.getBlocks().size(), file.status.getPath());
+    }
+
+    private void addFragment(ParquetFile file, long start, long end) throws IOException {
+        if (start < 0) {
+            return;
+        }
+        String[] hosts = new String[0];
+        for (BlockLocation location : file.locations) {
+            if (start >= location.getOffset() && start < location.getOffset() + location.getLength()) {
+                hosts = location.getHosts();
+                break;
+            }
+        }
+
+        FileSplit fileSplit = new FileSplit(file.status.getPath(), start, end - start, hosts);
+        byte[] fragmentMetadata = HdfsUtilities.prepareFragmentMetadata(fileSplit);
+        fragments.add(new Fragment(file.status.getPath().toString(), hosts, fragmentMetadata));
+    }
+
+    /* The footer, the row groups to read and the block locations of a file */
+    private static class ParquetFile {
+        private final FileStatus status;
+        private final ParquetMetadata footer;
+        private final List<BlockMetaData> rowGroups;
+        private final BlockLocation[] locations;
+
+        ParquetFile(FileStatus status, ParquetMetadata footer, List<BlockMetaData> rowGroups,
+                    BlockLocation[] locations) {
+            this.status = status;
+            this.footer = footer;
+            this.rowGroups = rowGroups;
+            this.locations = locations;
+        }
+    }
+}
@@ -56,6 +56,7 @@ import org.greenplum.pxf.api.filter.TreeVisitor;
 import org.greenplum.pxf.api.io.DataType;
 import org.greenplum.pxf.api.model.Accessor;
 import org.greenplum.pxf.api.model.BasePlugin;
+import org.greenplum.pxf.api.model.RequestContext;
 import org.greenplum.pxf.api.utilities.ColumnDescriptor;
 import org.greenplum.pxf.plugins.hdfs.parquet.ParquetRecordFilterBuilder;
 import org.greenplum.pxf.plugins.hdfs.parquet.ParquetOperatorPrunerAndTransformer;
@@ -148,7 +149,7 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
         // case of column projection) of the greenplum schema.
         MessageType readSchema = buildReadSchema(originalFieldsMap, originalSchema);
         // Get the record filter in case of predicate push-down
-        FilterCompat.Filter recordFilter = getRecordFilter(context.getFilterString(), originalFieldsMap, readSchema);
+        FilterCompat.Filter recordFilter = getRecordFilter(originalFieldsMap);
 
         // add column projection
         configuration.set(PARQUET_READ_SCHEMA, readSchema.toString());
@@ -299,29 +300,12 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
     /**
      * Returns the parquet record filter for the given filter string
      *
-     * @param filterString      the filter string
      * @param originalFieldsMap a map of field names to types
-     * @param schema            the parquet schema
      * @return the parquet record filter for the given filter string
      */
-    private FilterCompat.Filter getRecordFilter(String filterString, Map<String, Type> originalFieldsMap, MessageType schema) {
-        if (StringUtils.isBlank(filterString)) {
-            return FilterCompat.NOOP;
-        }
-
-        ParquetRecordFilterBuilder filterBuilder = new ParquetRecordFilterBuilder(
-                context.getTupleDescription(), originalFieldsMap);
-        TreeVisitor pruner = new ParquetOperatorPrunerAndTransformer(
-                context.getTupleDescription(), originalFieldsMap, SUPPORTED_OPERATORS);
-
+    FilterCompat.Filter getRecordFilter(Map<String, Type> originalFieldsMap) {
         try {
-            // Parse the filter string into a expression tree Node
-            Node root = new FilterParser().parse(filterString);
-            // Prune the parsed tree with valid supported operators and then
-            // traverse the pruned tree with the ParquetRecordFilterBuilder to
-            // produce a record filter for parquet
-            TRAVERSER.traverse(root, pruner, filterBuilder);
-            return filterBuilder.getRecordFilter();
+            return buildRecordFilter(context, originalFieldsMap);
         } catch (Exception e) {
             LOG.error(String.format("%s-%d: %s--%s Unable to generate Parquet Record Filter for filter",
                     context.getTransactionId(),
@@ -332,6 +316,35 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
         }
     }
 
+    /**
+     * Builds the parquet record filter for the filter string of the request
+     *
+     * @param context           the request context
+     * @param originalFieldsMap a map of field names to types
+     * @return the parquet record filter for the filter string of the request
+     * @throws Exception when the filter string cannot be translated
+     */
+    static FilterCompat.Filter buildRecordFilter(RequestContext context, Map<String, Type> originalFieldsMap)
+            throws Exception {
+        String filterString = context.getFilterString();
+        if (StringUtils.isBlank(filterString)) {
+            return FilterCompat.NOOP;
+        }
+
+        ParquetRecordFilterBuilder filterBuilder = new ParquetRecordFilterBuilder(
+                context.getTupleDescription(), originalFieldsMap);
+        TreeVisitor pruner = new ParquetOperatorPrunerAndTransformer(
+                context.getTupleDescription(), originalFieldsMap, SUPPORTED_OPERATORS);
+
+        // Parse the filter string into a expression tree Node
+        Node root = new FilterParser().parse(filterString);
+        // Prune the parsed tree with valid supported operators and then
+        // traverse the pruned tree with the ParquetRecordFilterBuilder to
+        // produce a record filter for parquet
+        TRAVERSER.traverse(root, pruner, filterBuilder);
+        return filterBuilder.getRecordFilter();
+    }
+
     /**
      * Reads the original schema from the parquet file.
      *
@@ -340,7 +353,7 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
      * @return the original schema from the parquet file
      * @throws IOException when there's an IOException while reading the schema
      */
-    private MessageType getSchema(Path parquetFile, FileSplit fileSplit) throws IOException {
+    MessageType getSchema(Path parquetFile, FileSplit fileSplit) throws IOException {
 
         final long then = System.nanoTime();
         ParquetMetadataConverter.MetadataFilter filter = ParquetMetadataConverter.range(
@@ -375,7 +388,7 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
      * @param originalSchema the original schema of the parquet file
      * @return a map of field names to types
      */
-    private Map<String, Type> getOriginalFieldsMap(MessageType originalSchema) {
+    static Map<String, Type> getOriginalFieldsMap(MessageType originalSchema) {
         Map<String, Type> originalFields = new HashMap<>(originalSchema.getFieldCount() * 2);
 
         // We need to add the original name and lower cased name to
@@ -398,7 +411,7 @@ public class ParquetFileAccessor extends BasePlugin implements Accessor {
      * @param originalFields a map of field names to types
      * @param originalSchema the original read schema
      */
-    private MessageType buildReadSchema(Map<String, Type> originalFields, MessageType originalSchema) {
+    MessageType buildReadSchema(Map<String, Type> originalFields, MessageType originalSchema) {
         List<Type> projectedFields = context.getTupleDescription().stream()
                 .filter(ColumnDescriptor::isProjected)
                 .map(c -> {
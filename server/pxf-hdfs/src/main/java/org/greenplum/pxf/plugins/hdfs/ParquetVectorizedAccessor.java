@@ -0,0 +1,171 @@
+package org.greenplum.pxf.plugins.hdfs;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.parquet.HadoopReadOptions;
+import org.apache.parquet.ParquetReadOptions;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.filter2.compat.FilterCompat;
+import org.apache.parquet.filter2.compat.RowGroupFilter;
+import org.apache.parquet.filter2.compat.RowGroupFilter.FilterLevel;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
+import org.greenplum.pxf.api.ColumnBatch;
+import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.UnsupportedTypeException;
+import org.greenplum.pxf.plugins.hdfs.parquet.ParquetBatch;
+import org.greenplum.pxf.plugins.hdfs.utilities.HdfsUtilities;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parquet file accessor that reads batches of rows for the
+ * {@link ParquetVectorizedResolver}. Unit of operation is a batch of up to
+ * {@link ColumnBatch#DEFAULT_CAPACITY} rows of a row group.
+ * <p>
+ * Row groups are read with the low-level {@link ParquetFileReader}, without
+ * assembling records. The row groups of the split whose statistics or
+ * dictionaries cannot match the filter are skipped before any of their pages
+ * are read; Greenplum filters the rows of the other row groups. Only the
+ * projected columns are read. Repeated and complex types are not supported,
+ * the {@link ParquetFileAccessor} reads them.
+ */
+public class ParquetVectorizedAccessor extends ParquetFileAccessor {
+
+    private ParquetFileReader rowGroupReader;
+    private List<BlockMetaData> rowGroups;
+    private Set<BlockMetaData> matchingRowGroups;
+    private int rowGroupIndex;
+    private MessageType readSchema;
+    private String createdBy;
+    private PageReadStore rowGroup;
+    private long rowsLeft;
+    private int batchIndex;
+
+    /**
+     * Opens the resource for read.
+     *
+     * @throws IOException if opening the resource failed
+     */
+    @Override
+    public boolean openForRead() throws IOException {
+        Path file = new Path(context.getDataSource());
+        FileSplit fileSplit = HdfsUtilities.parseFileSplit(context);
+
+        ParquetReadOptions options = HadoopReadOptions.builder(configuration)
+                // Read the row groups of the split
+                .withRange(fileSplit.getStart(), fileSplit.getStart() + fileSplit.getLength())
+                .build();
+        rowGroupReader = ParquetFileReader.open(HadoopInputFile.fromPath(file, configuration), options);
+
+        // The schema of the file comes from the footer the reader just read
+        MessageType originalSchema = rowGroupReader.getFooter().getFileMetaData().getSchema();
+        Map<String, Type> originalFieldsMap = getOriginalFieldsMap(originalSchema);
+        readSchema = buildReadSchema(originalFieldsMap, originalSchema);
+        for (Type type : readSchema.getFields()) {
+            if (!type.isPrimitive() || type.isRepetition(Type.Repetition.REPEATED)) {
+                rowGroupReader.close();
+                rowGroupReader = null;
+                throw new UnsupportedTypeException(String.format(
+                        "Column %s of type %s is not supported by %s", type.getName(), type,
+                        getClass().getSimpleName()));
+            }
+        }
+
+        // Skip the row groups of the split that cannot match the filter
+        List<FilterLevel> levels = new ArrayList<>();
+        if (options.useStatsFilter()) {
+            levels.add(FilterLevel.STATISTICS);
+        }
+        if (options.useDictionaryFilter()) {
+            levels.add(FilterLevel.DICTIONARY);
+        }
+        FilterCompat.Filter recordFilter = getRecordFilter(originalFieldsMap);
+        rowGroups = rowGroupReader.getRowGroups();
+        matchingRowGroups = Collections.newSetFromMap(new IdentityHashMap<>());
+        matchingRowGroups.addAll(RowGroupFilter.filterRowGroups(levels, recordFilter, rowGroups, rowGroupReader));
+
+        rowGroupReader.setRequestedSchema(readSchema);
+        createdBy = rowGroupReader.getFooter().getFileMetaData().getCreatedBy();
+        LOG.debug("{}-{}: Reading {} of {} row groups of file {}", context.getTransactionId(),
+                context.getSegmentId(), matchingRowGroups.size(), rowGroups.size(), file.getName());
+
+        context.setMetadata(readSchema);
+        return true;
+    }
+
+    /**
+     * Reads the next batch of rows of the current row group, reading the
+     * next row group once all its rows were returned.
+     *
+     * @return next batch in OneRow format, key is a batch number, data is a {@link ParquetBatch}
+     * @throws IOException if unable to read
+     */
+    @Override
+    public OneRow readNextObject() throws IOException {
+        while (rowsLeft == 0) {
+            if (rowGroupIndex == rowGroups.size()) {
+                // All row groups are exhausted
+                return null;
+            }
+            if (!matchingRowGroups.contains(rowGroups.get(rowGroupIndex++))) {
+                rowGroupReader.skipNextRowGroup();
+                continue;
+            }
+            rowGroup = rowGroupReader.readNextRowGroup();
+            rowsLeft = rowGroup.getRowCount();
+        }
+
+        int size = (int) Math.min(rowsLeft, ColumnBatch.DEFAULT_CAPACITY);
+        rowsLeft -= size;
+        batchIndex++;
+        return new OneRow(new LongWritable(batchIndex), new ParquetBatch(rowGroup, readSchema, createdBy, size));
+    }
+
+    /**
+     * Closes the resource for read.
+     *
+     * @throws IOException if closing the resource failed
+     */
+    @Override
+    public void closeForRead() throws IOException {
+        LOG.debug("{}-{}: Read {} batches from file {} on server {}",
+                context.getTransactionId(),
+                context.getSegmentId(),
+                batchIndex,
+                context.getDataSource(),
+                context.getServerName());
+        if (rowGroupReader != null) {
+            rowGroupReader.close();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package org.greenplum.pxf.plugins.hdfs;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.parquet.column.ColumnReader;
+import org.apache.parquet.column.impl.ColumnReadStoreImpl;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.io.api.Converter;
+import org.apache.parquet.io.api.GroupConverter;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.greenplum.pxf.api.BadRecordException;
+import org.greenplum.pxf.api.BatchResolver;
+import org.greenplum.pxf.api.ColumnBatch;
+import org.greenplum.pxf.api.ColumnVector;
+import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.model.BasePlugin;
+import org.greenplum.pxf.plugins.hdfs.parquet.ParquetBatch;
+import org.greenplum.pxf.plugins.hdfs.parquet.ParquetColumnConverter;
+import org.greenplum.pxf.plugins.hdfs.parquet.ParquetTypeConverter;
+
+import java.util.List;
+
+/**
+ * Resolves the batches read by the {@link ParquetVectorizedAccessor}. The
+ * pages of every projected column are decoded straight into the column
+ * vectors of a {@link ColumnBatch} by a {@link ParquetColumnConverter},
+ * without assembling records or creating fields. Values are converted the
+ * same way the {@link ParquetResolver} converts them.
+ */
+public class ParquetVectorizedResolver extends BasePlugin implements BatchResolver {
+
+    private PageReadStore rowGroup;
+    private ColumnReader[] columnReaders;
+    private ParquetColumnConverter[] converters;
+    private int[] maxDefinitionLevels;
+
+    /**
+     * Decodes the next rows of the row group of the batch into the given
+     * column batch. Text values decoded from a dictionary reference the
+     * dictionary entries, which are converted once per row group.
+     *
+     * @param row   the batch read by the accessor
+     * @param batch the batch to fill
+     * @throws BadRecordException if the type of a column does not match the external table
+     */
+    @Override
+    public void resolveBatch(OneRow row, ColumnBatch batch) throws BadRecordException {
+        ParquetBatch parquetBatch = (ParquetBatch) row.getData();
+        int size = parquetBatch.getSize();
+        if (size > batch.getCapacity()) {
+            throw new IllegalStateException(String.format(
+                    "Parquet batch of %d rows exceeds the batch capacity of %d rows", size, batch.getCapacity()));
+        }
+        if (parquetBatch.getRowGroup() != rowGroup) {
+            initColumnReaders(parquetBatch, batch);
+        }
+
+        int schemaIndex = 0;
+        for (int columnIndex = 0; columnIndex < batch.getNumColumns(); columnIndex++) {
+            ColumnVector target = batch.getColumn(columnIndex);
+            // columns that are not projected are not read from the file
+            if (!context.getColumn(columnIndex).isProjected()) {
+                for (int rowIndex = 0; rowIndex < size; rowIndex++) {
+                    target.setNull(rowIndex);
+                }
+                continue;
+            }
+
+            ColumnReader columnReader = columnReaders[schemaIndex];
+            ParquetColumnConverter converter = converters[schemaIndex];
+            int maxDefinitionLevel = maxDefinitionLevels[schemaIndex];
+            converter.setVector(target);
+            for (int rowIndex = 0; rowIndex < size; rowIndex++) {
+                if (columnReader.getCurrentDefinitionLevel() == maxDefinitionLevel) {
+                    converter.setRow(rowIndex);
+                    columnReader.writeCurrentValueToConverter();
+                } else {
+                    target.setNull(rowIndex);
+                }
+                columnReader.consume();
+            }
+            schemaIndex++;
+        }
+        batch.setSize(size);
+    }
+
+    /*
+     * Creates the readers of the columns of a new row group, after checking
+     * that the columns match the types of the external table.
+     */
+    private void initColumnReaders(ParquetBatch parquetBatch, ColumnBatch batch) throws BadRecordException {
+        MessageType schema = parquetBatch.getSchema();
+        int fieldCount = schema.getFieldCount();
+        converters = new ParquetColumnConverter[fieldCount];
+
+        int schemaIndex = 0;
+        for (int columnIndex = 0; columnIndex < batch.getNumColumns(); columnIndex++) {
+            if (!context.getColumn(columnIndex).isProjected()) {
+                continue;
+            }
+            PrimitiveType type = schema.getType(schemaIndex).asPrimitiveType();
+            DataType fieldType = ParquetTypeConverter.from(type).getDataType(type);
+            DataType schemaType = batch.getColumn(columnIndex).getType();
+            if (schemaType != DataType.UNSUPPORTED_TYPE && fieldType != schemaType &&
+                    !(isStringType(fieldType) && isStringType(schemaType))) {
+                throw new BadRecordException(String.format(
+                        "For field %d schema requires type %s but input record has type %s",
+                        columnIndex, schemaType, fieldType));
+            }
+            converters[schemaIndex] = ParquetColumnConverter.create(type, schemaType);
+            schemaIndex++;
+        }
+
+        GroupConverter recordConverter = new GroupConverter() {
+            @Override
+            public Converter getConverter(int fieldIndex) {
+                return converters[fieldIndex];
+            }
+
+            @Override
+            public void start() {
+            }
+
+            @Override
+            public void end() {
+            }
+        };
+        ColumnReadStoreImpl columnReadStore = new ColumnReadStoreImpl(parquetBatch.getRowGroup(),
+                recordConverter, schema, parquetBatch.getCreatedBy());
+
+        columnReaders = new ColumnReader[fieldCount];
+        maxDefinitionLevels = new int[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            org.apache.parquet.column.ColumnDescriptor column = schema.getColumns().get(i);
+            columnReaders[i] = columnReadStore.getColumnReader(column);
+            maxDefinitionLevels[i] = column.getMaxDefinitionLevel();
+        }
+        rowGroup = parquetBatch.getRowGroup();
+    }
+
+    /* Types that are serialized as text, like the GPDBWritable output does */
+    private static boolean isStringType(DataType type) {
+        switch (type) {
+            case VARCHAR:
+            case BPCHAR:
+            case TEXT:
+            case NUMERIC:
+            case TIMESTAMP:
+            case TIMESTAMP_WITH_TIME_ZONE:
+            case DATE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Batches are only resolved into column batches.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public List<OneField> getFields(OneRow row) {
+        throw new UnsupportedOperationException(getClass().getSimpleName()
+                + " only resolves batches, use it with the GPDBWritable output format");
+    }
+
+    /**
+     * Writing is not supported.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public OneRow setFields(List<OneField> record) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support writing");
+    }
+}
@@ -0,0 +1,80 @@
+package org.greenplum.pxf.plugins.hdfs.parquet;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.schema.MessageType;
+
+/**
+ * A batch of consecutive rows of a Parquet row group, read by the vectorized
+ * accessor. The pages of the row group are read, but not decoded: the
+ * resolver decodes the next {@link #getSize()} rows of every column straight
+ * into column vectors.
+ */
+public class ParquetBatch {
+
+    private final PageReadStore rowGroup;
+    private final MessageType schema;
+    private final String createdBy;
+    private final int size;
+
+    /**
+     * Constructs a batch.
+     *
+     * @param rowGroup  the pages of the row group
+     * @param schema    the schema of the columns read from the row group
+     * @param createdBy the writer of the file
+     * @param size      the number of rows in the batch
+     */
+    public ParquetBatch(PageReadStore rowGroup, MessageType schema, String createdBy, int size) {
+        this.rowGroup = rowGroup;
+        this.schema = schema;
+        this.createdBy = createdBy;
+        this.size = size;
+    }
+
+    /**
+     * @return the pages of the row group, shared by the batches of the row group
+     */
+    public PageReadStore getRowGroup() {
+        return rowGroup;
+    }
+
+    /**
+     * @return the schema of the columns read from the row group
+     */
+    public MessageType getSchema() {
+        return schema;
+    }
+
+    /**
+     * @return the writer of the file, which determines how some statistics and encodings are read
+     */
+    public String getCreatedBy() {
+        return createdBy;
+    }
+
+    /**
+     * @return the number of rows in the batch
+     */
+    public int getSize() {
+        return size;
+    }
+}
@@ -0,0 +1,241 @@
+package org.greenplum.pxf.plugins.hdfs.parquet;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.hadoop.hive.serde2.io.DateWritable;
+import org.apache.parquet.column.Dictionary;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.PrimitiveConverter;
+import org.apache.parquet.schema.OriginalType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.greenplum.pxf.api.ColumnVector;
+import org.greenplum.pxf.api.io.DataType;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts the values of a Parquet column straight into a {@link ColumnVector},
+ * without materializing records. The values are converted the same way
+ * {@link ParquetTypeConverter} converts them for the row resolver.
+ * <p>
+ * Converters of values serialized as text keep the dictionary of the row
+ * group: every dictionary entry is converted to UTF-8 once, and the rows
+ * reference the converted entries instead of converting their values again.
+ */
+public abstract class ParquetColumnConverter extends PrimitiveConverter {
+
+    ColumnVector vector;
+    int row;
+
+    /**
+     * Sets the vector the next values are converted into.
+     *
+     * @param vector the column vector
+     */
+    public void setVector(ColumnVector vector) {
+        this.vector = vector;
+    }
+
+    /**
+     * Sets the row the next value is converted into.
+     *
+     * @param row the row index
+     */
+    public void setRow(int row) {
+        this.row = row;
+    }
+
+    /**
+     * Creates the converter of a Parquet column into a column of the given
+     * type. The type of the column must match the type of the Parquet
+     * column, as it has to for the row resolver.
+     *
+     * @param type       the type of the Parquet column
+     * @param columnType the type of the column of the external table
+     * @return the converter
+     */
+    public static ParquetColumnConverter create(PrimitiveType type, DataType columnType) {
+        switch (columnType) {
+            case BIGINT:
+            case INTEGER:
+            case SMALLINT:
+            case BOOLEAN:
+                return new LongConverter();
+            case FLOAT8:
+            case REAL:
+                return new DoubleConverter();
+            default:
+                if (type.getPrimitiveTypeName() == PrimitiveType.PrimitiveTypeName.BINARY &&
+                        type.getOriginalType() == null) {
+                    return new BytesConverter();
+                }
+                return new TextConverter(type);
+        }
+    }
+
+    /* Integral and boolean values */
+    private static class LongConverter extends ParquetColumnConverter {
+        @Override
+        public void addInt(int value) {
+            vector.setLong(row, value);
+        }
+
+        @Override
+        public void addLong(long value) {
+            vector.setLong(row, value);
+        }
+
+        @Override
+        public void addBoolean(boolean value) {
+            vector.setLong(row, value ? 1 : 0);
+        }
+    }
+
+    /* Floating point values */
+    private static class DoubleConverter extends ParquetColumnConverter {
+        @Override
+        public void addFloat(float value) {
+            vector.setDouble(row, value);
+        }
+
+        @Override
+        public void addDouble(double value) {
+            vector.setDouble(row, value);
+        }
+    }
+
+    /* Binary values without a logical type */
+    private static class BytesConverter extends ParquetColumnConverter {
+        @Override
+        public void addBinary(Binary value) {
+            byte[] bytes = value.getBytes();
+            vector.setBytes(row, bytes, 0, bytes.length);
+        }
+    }
+
+    /* Values serialized as text: strings, dates, decimals and timestamps */
+    private static class TextConverter extends ParquetColumnConverter {
+        private final PrimitiveType type;
+        private byte[][] dictionary;
+
+        TextConverter(PrimitiveType type) {
+            this.type = type;
+        }
+
+        @Override
+        public boolean hasDictionarySupport() {
+            return true;
+        }
+
+        @Override
+        public void setDictionary(Dictionary dictionary) {
+            byte[][] entries = new byte[dictionary.getMaxId() + 1][];
+            for (int id = 0; id < entries.length; id++) {
+                entries[id] = decode(dictionary, id);
+            }
+            this.dictionary = entries;
+        }
+
+        @Override
+        public void addValueFromDictionary(int dictionaryId) {
+            byte[] entry = dictionary[dictionaryId];
+            vector.setBytes(row, entry, 0, entry.length);
+        }
+
+        @Override
+        public void addBinary(Binary value) {
+            byte[] bytes = binaryToText(value);
+            vector.setBytes(row, bytes, 0, bytes.length);
+        }
+
+        @Override
+        public void addInt(int value) {
+            vector.setString(row, intToText(value));
+        }
+
+        @Override
+        public void addLong(long value) {
+            vector.setString(row, longToText(value));
+        }
+
+        @Override
+        public void addBoolean(boolean value) {
+            vector.setString(row, String.valueOf(value));
+        }
+
+        @Override
+        public void addFloat(float value) {
+            vector.setString(row, String.valueOf(value));
+        }
+
+        @Override
+        public void addDouble(double value) {
+            vector.setString(row, String.valueOf(value));
+        }
+
+        private byte[] decode(Dictionary dictionary, int id) {
+            switch (type.getPrimitiveTypeName()) {
+                case INT32:
+                    return utf8(intToText(dictionary.decodeToInt(id)));
+                case INT64:
+                    return utf8(longToText(dictionary.decodeToLong(id)));
+                case FLOAT:
+                    return utf8(String.valueOf(dictionary.decodeToFloat(id)));
+                case DOUBLE:
+                    return utf8(String.valueOf(dictionary.decodeToDouble(id)));
+                default:
+                    return binaryToText(dictionary.decodeToBinary(id));
+            }
+        }
+
+        private byte[] binaryToText(Binary value) {
+            switch (type.getPrimitiveTypeName()) {
+                case INT96:
+                    return utf8(ParquetTypeConverter.bytesToTimestamp(value.getBytes()));
+                case FIXED_LEN_BYTE_ARRAY:
+                    int scale = type.getDecimalMetadata().getScale();
+                    return utf8(new BigDecimal(new BigInteger(value.getBytes()), scale).toString());
+                default:
+                    return value.getBytes();
+            }
+        }
+
+        private String intToText(int value) {
+            if (type.getOriginalType() == OriginalType.DATE) {
+                return new DateWritable(value).get(true).toString();
+            }
+            return longToText(value);
+        }
+
+        private String longToText(long value) {
+            if (type.getOriginalType() == OriginalType.DECIMAL) {
+                int scale = type.getDecimalMetadata().getScale();
+                return new BigDecimal(BigInteger.valueOf(value), scale).toString();
+            }
+            return String.valueOf(value);
+        }
+
+        private static byte[] utf8(String value) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.greenplum.pxf.plugins.hdfs.parquet;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.greenplum.pxf.api.utilities.CacheUtilities;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the footers of Parquet files, so that the fragmenter does not read
+ * them again for the next queries on the same files. The callers include the
+ * modification time and the length of the file in the key, so that the
+ * footer is read again once the file is rewritten.
+ */
+public class ParquetFooterCache {
+
+    /**
+     * Seconds a footer stays cached after the last fragmenter request that
+     * used it. Rewritten files get a new key, so this only bounds how long
+     * the footers of files that are no longer queried take up memory.
+     */
+    public static final String PXF_PARQUET_FOOTER_CACHE_EXPIRATION_PROPERTY = "pxf.parquet.footer.cache.expiration.seconds";
+
+    /**
+     * Maximum number of footers kept, one per version of a file. Footers of
+     * files with many row groups and columns can take a lot of memory, the
+     * least recently used ones are dropped first.
+     */
+    public static final String PXF_PARQUET_FOOTER_CACHE_SIZE_PROPERTY = "pxf.parquet.footer.cache.size";
+
+    private static final int DEFAULT_EXPIRATION_SECONDS = 600;
+    private static final int DEFAULT_SIZE = 1000;
+
+    /**
+     * Singleton instance of the ParquetFooterCache
+     */
+    private static final ParquetFooterCache instance = new ParquetFooterCache();
+
+    private final Cache<List<String>, ParquetMetadata> footers;
+
+    /**
+     * Creates an instance of the cache.
+     */
+    private ParquetFooterCache() {
+        this(Ticker.systemTicker(),
+                Integer.getInteger(PXF_PARQUET_FOOTER_CACHE_EXPIRATION_PROPERTY, DEFAULT_EXPIRATION_SECONDS),
+                Integer.getInteger(PXF_PARQUET_FOOTER_CACHE_SIZE_PROPERTY, DEFAULT_SIZE));
+    }
+
+    ParquetFooterCache(Ticker ticker, long expirationSeconds, long size) {
+        this.footers = CacheBuilder.newBuilder()
+                .ticker(ticker)
+                .expireAfterAccess(expirationSeconds, TimeUnit.SECONDS)
+                .maximumSize(size)
+                .build();
+    }
+
+    /**
+     * @return a singleton instance of the footer cache.
+     */
+    public static ParquetFooterCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the cached footer for the given key, reading it if it is not
+     * cached yet. Concurrent requests for the same key wait for a single
+     * read. Failed reads are not cached.
+     *
+     * @param key    the values that identify the footer, like the path, the modification time and the length of the file
+     * @param reader reads the footer
+     * @return the footer, which must not be modified
+     * @throws IOException if the read fails
+     */
+    public ParquetMetadata get(List<String> key, Callable<ParquetMetadata> reader) throws IOException {
+        return CacheUtilities.get(footers, key, reader, IOException.class, IOException::new, "Failed to read footer");
+    }
+}
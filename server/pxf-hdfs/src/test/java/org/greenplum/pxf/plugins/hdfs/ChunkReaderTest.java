@@ -98,42 +98,80 @@ public class ChunkReaderTest {
     }
 
 	/*
-	 * Read one line
+	 * Read a chunk that ends with the file
 	 */
     @Test
     public void readChunk() throws Exception {
 		reader = new ChunkReader(mockStream);
-		when( mockStream.read( (byte [])Mockito.anyObject()) ).thenAnswer(new Answer<java.lang.Number>() {
-			@Override
-			public java.lang.Number answer(InvocationOnMock invocation) throws Throwable {
-				byte[] buf = (byte[]) invocation.getArguments()[0];
-
-				byte [] source = "OneLine\nTwoLine\n".getBytes();
-				System.arraycopy(source, 0, buf, 0, source.length);
-				return new java.lang.Integer(source.length);
-			}
-		});
+		mockRegionReads("OneLine\nTwoLine\n".getBytes(), 0);
 
 		ChunkWritable out = new ChunkWritable();
-		int maxBytesToConsume = 10; /* make readChunk return after reading the first "chunk": OneLine\nTwoLine\n */
+		int maxBytesToConsume = 1024; /* make readChunk stop at the end of the stream: OneLine\nTwoLine\n */
 		// read chunk
 		assertEquals("OneLine\nTwoLine\n".length()
 					 , reader.readChunk(out, maxBytesToConsume) );
 		assertEquals("OneLine\nTwoLine\n", new String(out.box) );
     }
 
-}
-
-
-
-
-
-
-
-
-
+	/*
+	 * Read chunks of the requested size, the last one ends with the file
+	 */
+    @Test
+    public void readChunkOfMaxSize() throws Exception {
+		reader = new ChunkReader(mockStream);
+		mockRegionReads("OneLine\nTwoLine\n".getBytes(), 0);
 
+		ChunkWritable out = new ChunkWritable();
+		assertEquals(10, reader.readChunk(out, 10) );
+		assertEquals("OneLine\nTw", new String(out.box) );
+		assertEquals(6, reader.readChunk(out, 10) );
+		assertEquals("oLine\n", new String(out.box) );
+    }
 
+	/*
+	 * Read a chunk starting with the data buffered by a previous readLine
+	 */
+    @Test
+    public void readChunkAfterLine() throws Exception {
+		reader = new ChunkReader(mockStream);
+		final byte[] source = "OneLine\nTwoLine\nThreeLine\n".getBytes();
+		when( mockStream.read( (byte [])Mockito.anyObject()) ).thenAnswer(new Answer<java.lang.Number>() {
+			@Override
+			public java.lang.Number answer(InvocationOnMock invocation) throws Throwable {
+				byte[] buf = (byte[]) invocation.getArguments()[0];
+				System.arraycopy(source, 0, buf, 0, 12);
+				return new java.lang.Integer(12);
+			}
+		});
+		mockRegionReads(source, 12);
 
+		ChunkWritable out = new ChunkWritable();
+		assertEquals("OneLine\n".length(), reader.readLine(out, 1024) );
+		assertEquals("OneLine\n", new String(out.box) );
+		assertEquals("TwoLine\nThreeLine\n".length(), reader.readChunk(out, 1024) );
+		assertEquals("TwoLine\nThreeLine\n", new String(out.box) );
+    }
 
+	/*
+	 * Serves the given data from the given position to read(byte[], int, int)
+	 * calls, then returns EOF
+	 */
+	private void mockRegionReads(final byte[] source, final int start) throws Exception {
+		when( mockStream.read( (byte [])Mockito.anyObject(), Mockito.anyInt(), Mockito.anyInt()) ).thenAnswer(new Answer<java.lang.Number>() {
+			private int position = start;
+			@Override
+			public java.lang.Number answer(InvocationOnMock invocation) throws Throwable {
+				byte[] buf = (byte[]) invocation.getArguments()[0];
+				int off = (Integer) invocation.getArguments()[1];
+				int len = Math.min((Integer) invocation.getArguments()[2], source.length - position);
+				if (len <= 0) {
+					return -1;
+				}
+				System.arraycopy(source, position, buf, off, len);
+				position += len;
+				return len;
+			}
+		});
+	}
 
+}
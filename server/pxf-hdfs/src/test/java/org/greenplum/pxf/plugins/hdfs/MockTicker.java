@@ -0,0 +1,19 @@
+package org.greenplum.pxf.plugins.hdfs;
+
+import com.google.common.base.Ticker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class MockTicker extends Ticker {
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Override
+    public long read() {
+        return nanos.get();
+    }
+
+    public void advanceTime(long value, TimeUnit unit) {
+        nanos.addAndGet(unit.toNanos(value));
+    }
+}
@@ -0,0 +1,251 @@
+package org.greenplum.pxf.plugins.hdfs;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.MessageTypeParser;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.model.Fragment;
+import org.greenplum.pxf.api.model.Fragmenter;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.greenplum.pxf.plugins.hdfs.parquet.ParquetFooterCache;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the ParquetDataFragmenter
+ */
+public class ParquetDataFragmenterTest {
+
+    private static final int ROWS = 1000;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private RequestContext context;
+    private String path;
+
+    @Before
+    public void setup() {
+        path = Objects.requireNonNull(getClass().getClassLoader().getResource("parquet/parquet_types.parquet")).getPath();
+
+        context = new RequestContext();
+        context.setConfig("default");
+        context.setServerName("default");
+        context.setUser("test-user");
+        context.setProfileScheme("localfile");
+        context.setDataSource(path);
+        context.setTotalSegments(3);
+        context.getTupleDescription().add(new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null));
+    }
+
+    @Test
+    public void testFragmenterReturnsRowGroups() throws Exception {
+        List<Fragment> fragments = getFragments();
+
+        assertEquals(1, fragments.size());
+        assertTrue(fragments.get(0).getSourceName().endsWith("parquet/parquet_types.parquet"));
+    }
+
+    @Test
+    public void testFragmenterKeepsMatchingRowGroups() throws Exception {
+        // id = 5
+        context.setFilterString("a0c20s1d5o5");
+
+        assertEquals(1, getFragments().size());
+    }
+
+    @Test
+    public void testFragmenterDropsRowGroupsThatCannotMatch() throws Exception {
+        // id = 1000
+        context.setFilterString("a0c20s4d1000o5");
+
+        assertEquals(0, getFragments().size());
+    }
+
+    @Test
+    public void testInvalidInputPathIgnored() throws Exception {
+        context.setDataSource(path + "non-existent");
+        context.addOption("IGNORE_MISSING_PATH", "true");
+
+        assertEquals(0, getFragments().size());
+    }
+
+    @Test
+    public void testFragmentSize() {
+        assertEquals(34, ParquetDataFragmenter.getFragmentSize(100, 3));
+        assertEquals(100, ParquetDataFragmenter.getFragmentSize(100, 0));
+        assertEquals(1, ParquetDataFragmenter.getFragmentSize(0, 3));
+    }
+
+    @Test
+    public void testFragmenterFillsFragmentsWithRowGroups() throws Exception {
+        List<BlockMetaData> rowGroups = writeRowGroups();
+        assertTrue("Expected several row groups, got " + rowGroups.size(), rowGroups.size() >= 5);
+
+        context.setTotalSegments(1);
+        List<long[]> ranges = getRanges();
+        assertEquals(1, ranges.size());
+        assertRanges(rowGroups, rowGroups, ranges);
+
+        context.setTotalSegments(2);
+        ranges = getRanges();
+        assertEquals(2, ranges.size());
+        assertRanges(rowGroups, rowGroups, ranges);
+
+        context.setTotalSegments(3);
+        ranges = getRanges();
+        assertTrue(ranges.size() > 1 && ranges.size() <= 3);
+        assertRanges(rowGroups, rowGroups, ranges);
+    }
+
+    @Test
+    public void testFragmenterReturnsAFragmentPerRowGroupForManySegments() throws Exception {
+        List<BlockMetaData> rowGroups = writeRowGroups();
+
+        context.setTotalSegments(ROWS);
+        List<long[]> ranges = getRanges();
+        assertEquals(rowGroups.size(), ranges.size());
+        assertRanges(rowGroups, rowGroups, ranges);
+    }
+
+    @Test
+    public void testFragmenterDoesNotSpanPrunedRowGroups() throws Exception {
+        List<BlockMetaData> rowGroups = writeRowGroups();
+        // id < 250 OR id >= 750
+        context.setFilterString("a0c20s3d250o1a0c20s3d750o4l1");
+
+        List<BlockMetaData> kept = new ArrayList<>();
+        for (BlockMetaData rowGroup : rowGroups) {
+            int min = (Integer) rowGroup.getColumns().get(0).getStatistics().genericGetMin();
+            int max = (Integer) rowGroup.getColumns().get(0).getStatistics().genericGetMax();
+            if (min < 250 || max >= 750) {
+                kept.add(rowGroup);
+            }
+        }
+        assertTrue(kept.size() > 1 && kept.size() < rowGroups.size());
+
+        // a single segment still gets a fragment on each side of the pruned row groups
+        context.setTotalSegments(1);
+        List<long[]> ranges = getRanges();
+        assertEquals(2, ranges.size());
+        assertRanges(rowGroups, kept, ranges);
+
+        context.setTotalSegments(ROWS);
+        ranges = getRanges();
+        assertEquals(kept.size(), ranges.size());
+        assertRanges(rowGroups, kept, ranges);
+    }
+
+    /*
+     * Writes a file of ROWS rows to the data source, with a row group size
+     * small enough to flush a row group about every hundred rows, and returns
+     * its row groups
+     */
+    private List<BlockMetaData> writeRowGroups() throws IOException {
+        MessageType schema = MessageTypeParser.parseMessageType(
+                "message test { required int32 id; required binary name (UTF8); }");
+        File file = new File(tempFolder.getRoot(), "row_groups.parquet");
+        Path filePath = new Path(file.toURI());
+        Configuration configuration = new Configuration();
+
+        SimpleGroupFactory groupFactory = new SimpleGroupFactory(schema);
+        try (ParquetWriter<Group> writer = ExampleParquetWriter.builder(filePath)
+                .withConf(configuration)
+                .withType(schema)
+                .withRowGroupSize(1024)
+                .withPageSize(512)
+                .withDictionaryEncoding(false)
+                .build()) {
+            for (int id = 0; id < ROWS; id++) {
+                writer.write(groupFactory.newGroup().append("id", id).append("name", "row number " + id));
+            }
+        }
+
+        context.setDataSource(file.getPath());
+        try (ParquetFileReader reader = ParquetFileReader.open(HadoopInputFile.fromPath(filePath, configuration))) {
+            return reader.getFooter().getBlocks();
+        }
+    }
+
+    /*
+     * Checks that the ranges of the fragments do not overlap, and that every
+     * kept row group is read by exactly one fragment: the one its midpoint
+     * falls into, which is how the Parquet reader assigns row groups to file
+     * splits. The pruned row groups are read by no fragment, and every
+     * fragment reads at least one row group. Without pruning, the fragments
+     * cover the row groups of the file without any gap.
+     */
+    private void assertRanges(List<BlockMetaData> rowGroups, List<BlockMetaData> kept, List<long[]> ranges) {
+        ranges.sort(Comparator.comparingLong(range -> range[0]));
+        for (int i = 1; i < ranges.size(); i++) {
+            assertTrue("Fragment " + i + " overlaps the previous one", ranges.get(i)[0] >= ranges.get(i - 1)[1]);
+        }
+
+        int[] rowGroupsPerRange = new int[ranges.size()];
+        for (BlockMetaData rowGroup : rowGroups) {
+            long midpoint = rowGroup.getStartingPos() + rowGroup.getCompressedSize() / 2;
+            int matches = 0;
+            for (int i = 0; i < ranges.size(); i++) {
+                if (midpoint >= ranges.get(i)[0] && midpoint < ranges.get(i)[1]) {
+                    rowGroupsPerRange[i]++;
+                    matches++;
+                }
+            }
+            assertEquals("Row group at " + rowGroup.getStartingPos(), kept.contains(rowGroup) ? 1 : 0, matches);
+        }
+        for (int i = 0; i < ranges.size(); i++) {
+            assertTrue("Fragment " + i + " reads no row group", rowGroupsPerRange[i] > 0);
+        }
+
+        if (kept.size() == rowGroups.size()) {
+            BlockMetaData last = rowGroups.get(rowGroups.size() - 1);
+            assertEquals(rowGroups.get(0).getStartingPos(), ranges.get(0)[0]);
+            assertEquals(last.getStartingPos() + last.getCompressedSize(), ranges.get(ranges.size() - 1)[1]);
+            for (int i = 1; i < ranges.size(); i++) {
+                assertEquals("Gap before fragment " + i, ranges.get(i - 1)[1], ranges.get(i)[0]);
+            }
+        }
+    }
+
+    /* Returns the start and the end of the file range of every fragment */
+    private List<long[]> getRanges() throws Exception {
+        List<long[]> ranges = new ArrayList<>();
+        for (Fragment fragment : getFragments()) {
+            try (ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(fragment.getMetadata()))) {
+                long start = stream.readLong();
+                long length = stream.readLong();
+                ranges.add(new long[]{start, start + length});
+            }
+        }
+        return ranges;
+    }
+
+    private List<Fragment> getFragments() throws Exception {
+        Fragmenter fragmenter = new ParquetDataFragmenter(ParquetFooterCache.getInstance());
+        fragmenter.initialize(context);
+        return fragmenter.getFragments();
+    }
+}
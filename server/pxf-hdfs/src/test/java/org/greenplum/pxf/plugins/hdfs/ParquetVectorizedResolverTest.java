@@ -0,0 +1,283 @@
+package org.greenplum.pxf.plugins.hdfs;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.column.Encoding;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.MessageTypeParser;
+import org.greenplum.pxf.api.BadRecordException;
+import org.greenplum.pxf.api.ColumnBatch;
+import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.model.Fragment;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.greenplum.pxf.plugins.hdfs.parquet.ParquetBaseTest;
+import org.greenplum.pxf.plugins.hdfs.utilities.HdfsUtilities;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the ParquetVectorizedAccessor and the ParquetVectorizedResolver
+ * against the row path of the ParquetFileAccessor and the ParquetResolver
+ */
+public class ParquetVectorizedResolverTest extends ParquetBaseTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private RequestContext context;
+
+    @Before
+    public void setup() throws Exception {
+        super.setup();
+
+        String path = Objects.requireNonNull(getClass().getClassLoader().getResource("parquet/parquet_types.parquet")).getPath();
+
+        context = new RequestContext();
+        context.setConfig("fakeConfig");
+        context.setServerName("fakeServerName");
+        context.setUser("test-user");
+        context.setProfileScheme("localfile");
+        context.setRequestType(RequestContext.RequestType.READ_BRIDGE);
+        context.setDataSource(path);
+        context.setFragmentMetadata(HdfsUtilities.prepareFragmentMetadata(0, 4196, Fragment.HOSTS));
+        context.setTupleDescription(columnDescriptors);
+    }
+
+    @Test
+    public void testResolveBatch() throws Exception {
+        ColumnBatch batch = readVectorized();
+
+        assertEquals(25, batch.size());
+        assertBatchEquals(readRows(), batch);
+    }
+
+    @Test
+    public void testResolveBatchWithProjectedColumns() throws Exception {
+        columnDescriptors.forEach(d -> d.setProjected(false));
+        columnDescriptors.get(0).setProjected(true);
+        columnDescriptors.get(4).setProjected(true);
+        columnDescriptors.get(13).setProjected(true);
+
+        ColumnBatch batch = readVectorized();
+
+        assertEquals(25, batch.size());
+        assertBatchEquals(readRows(), batch);
+        assertEquals(5, batch.getColumn(0).getObject(4));
+        assertEquals("good", batch.getColumn(4).getObject(4));
+        assertTrue(batch.getColumn(1).isNull[4]);
+    }
+
+    @Test
+    public void testResolveBatchesOfSeveralRowGroups() throws Exception {
+        List<BlockMetaData> rowGroups = writeRowGroups(10000);
+        // the row groups but the last one are read in several batches, the last batch of each being partial
+        assertTrue(rowGroups.size() > 2);
+        for (BlockMetaData rowGroup : rowGroups.subList(0, rowGroups.size() - 1)) {
+            assertTrue(rowGroup.getRowCount() > ColumnBatch.DEFAULT_CAPACITY);
+        }
+        for (BlockMetaData rowGroup : rowGroups) {
+            assertTrue(rowGroup.getColumns().get(1).getEncodings().contains(Encoding.PLAIN_DICTIONARY));
+        }
+
+        ParquetVectorizedAccessor accessor = new ParquetVectorizedAccessor();
+        ParquetVectorizedResolver resolver = new ParquetVectorizedResolver();
+        accessor.initialize(context);
+        resolver.initialize(context);
+        ParquetFileAccessor rowAccessor = new ParquetFileAccessor();
+        ParquetResolver rowResolver = new ParquetResolver();
+        rowAccessor.initialize(context);
+        rowResolver.initialize(context);
+
+        // the batches are reused, the way the bridge does
+        ColumnBatch batch = new ColumnBatch(context, ColumnBatch.DEFAULT_CAPACITY);
+        ColumnBatch expected = new ColumnBatch(context, ColumnBatch.DEFAULT_CAPACITY);
+        int batches = 0;
+        int rows = 0;
+        assertTrue(accessor.openForRead());
+        assertTrue(rowAccessor.openForRead());
+        try {
+            OneRow oneRow;
+            while ((oneRow = accessor.readNextObject()) != null) {
+                batch.reset();
+                resolver.resolveBatch(oneRow, batch);
+
+                expected.reset();
+                while (expected.size() < batch.size()) {
+                    OneRow record = rowAccessor.readNextObject();
+                    assertNotNull(record);
+                    expected.addRow(rowResolver.getFields(record));
+                }
+                assertBatchEquals(expected, batch);
+                batches++;
+                rows += batch.size();
+            }
+            assertNull("No more rows expected", rowAccessor.readNextObject());
+        } finally {
+            accessor.closeForRead();
+            rowAccessor.closeForRead();
+        }
+
+        assertEquals(10000, rows);
+        assertTrue(batches > rowGroups.size());
+    }
+
+    @Test
+    public void testRowGroupsThatCannotMatchAreSkipped() throws Exception {
+        // id = 1000
+        context.setFilterString("a0c20s4d1000o5");
+
+        ParquetVectorizedAccessor accessor = new ParquetVectorizedAccessor();
+        accessor.initialize(context);
+        assertTrue(accessor.openForRead());
+        assertNull(accessor.readNextObject());
+        accessor.closeForRead();
+    }
+
+    @Test
+    public void testRowGroupsThatMayMatchAreRead() throws Exception {
+        // id = 5, the rows are filtered by Greenplum
+        context.setFilterString("a0c20s1d5o5");
+
+        assertEquals(25, readVectorized().size());
+    }
+
+    @Test
+    public void testTypeMismatch() throws Exception {
+        expectedException.expect(BadRecordException.class);
+        expectedException.expectMessage("For field 0 schema requires type BIGINT but input record has type INTEGER");
+
+        columnDescriptors.set(0, new ColumnDescriptor("id", DataType.BIGINT.getOID(), 0, "int8", null));
+
+        readVectorized();
+    }
+
+    /*
+     * Writes a file of the given number of rows to the data source, with row
+     * groups of a few thousand rows. The text column is dictionary encoded,
+     * with other values in every row group, and the optional columns have
+     * nulls.
+     */
+    private List<BlockMetaData> writeRowGroups(int rows) throws IOException {
+        MessageType schema = MessageTypeParser.parseMessageType("message test {\n" +
+                "  required int32 id;\n" +
+                "  optional binary grade (UTF8);\n" +
+                "  optional double amt;\n" +
+                "  optional int64 bg;\n" +
+                "}");
+        File file = new File(tempFolder.getRoot(), "row_groups.parquet");
+        Path filePath = new Path(file.toURI());
+        Configuration configuration = new Configuration();
+
+        SimpleGroupFactory groupFactory = new SimpleGroupFactory(schema);
+        try (ParquetWriter<Group> writer = ExampleParquetWriter.builder(filePath)
+                .withConf(configuration)
+                .withType(schema)
+                .withRowGroupSize(64 * 1024)
+                .withPageSize(4 * 1024)
+                .withDictionaryEncoding(true)
+                .build()) {
+            for (int id = 0; id < rows; id++) {
+                Group group = groupFactory.newGroup().append("id", id);
+                if (id % 7 != 0) {
+                    group.append("grade", "grade " + (id / 1000) + "-" + (id % 10));
+                }
+                if (id % 5 != 0) {
+                    group.append("amt", id * 1.5);
+                }
+                if (id % 3 != 0) {
+                    group.append("bg", (long) id * Integer.MAX_VALUE);
+                }
+                writer.write(group);
+            }
+        }
+
+        context.setDataSource(file.getPath());
+        context.setFragmentMetadata(HdfsUtilities.prepareFragmentMetadata(0, file.length(), Fragment.HOSTS));
+        context.setTupleDescription(Arrays.asList(
+                new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null),
+                new ColumnDescriptor("grade", DataType.TEXT.getOID(), 1, "text", null),
+                new ColumnDescriptor("amt", DataType.FLOAT8.getOID(), 2, "float8", null),
+                new ColumnDescriptor("bg", DataType.BIGINT.getOID(), 3, "int8", null)));
+        try (ParquetFileReader reader = ParquetFileReader.open(HadoopInputFile.fromPath(filePath, configuration))) {
+            return reader.getFooter().getBlocks();
+        }
+    }
+
+    private ColumnBatch readVectorized() throws Exception {
+        ParquetVectorizedAccessor accessor = new ParquetVectorizedAccessor();
+        ParquetVectorizedResolver resolver = new ParquetVectorizedResolver();
+        accessor.initialize(context);
+        resolver.initialize(context);
+
+        ColumnBatch batch = new ColumnBatch(context, ColumnBatch.DEFAULT_CAPACITY);
+        assertTrue(accessor.openForRead());
+        try {
+            OneRow oneRow = accessor.readNextObject();
+            assertNotNull(oneRow);
+            resolver.resolveBatch(oneRow, batch);
+            assertNull("No more batches expected", accessor.readNextObject());
+        } finally {
+            accessor.closeForRead();
+        }
+        return batch;
+    }
+
+    private ColumnBatch readRows() throws Exception {
+        ParquetFileAccessor accessor = new ParquetFileAccessor();
+        ParquetResolver resolver = new ParquetResolver();
+        accessor.initialize(context);
+        resolver.initialize(context);
+
+        ColumnBatch batch = new ColumnBatch(context, ColumnBatch.DEFAULT_CAPACITY);
+        assertTrue(accessor.openForRead());
+        OneRow oneRow;
+        while ((oneRow = accessor.readNextObject()) != null) {
+            batch.addRow(resolver.getFields(oneRow));
+        }
+        accessor.closeForRead();
+        return batch;
+    }
+
+    private void assertBatchEquals(ColumnBatch expected, ColumnBatch actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int column = 0; column < expected.getNumColumns(); column++) {
+            for (int row = 0; row < expected.size(); row++) {
+                String message = "Column " + column + " row " + row;
+                Object expectedValue = expected.getColumn(column).isNull[row] ? null : expected.getColumn(column).getObject(row);
+                Object actualValue = actual.getColumn(column).isNull[row] ? null : actual.getColumn(column).getObject(row);
+                if (expectedValue instanceof byte[]) {
+                    assertArrayEquals(message, (byte[]) expectedValue, (byte[]) actualValue);
+                } else {
+                    assertEquals(message, expectedValue, actualValue);
+                }
+            }
+        }
+    }
+}
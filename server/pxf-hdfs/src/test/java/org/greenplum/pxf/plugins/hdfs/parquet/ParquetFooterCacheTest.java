@@ -0,0 +1,102 @@
+package org.greenplum.pxf.plugins.hdfs.parquet;
+
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.greenplum.pxf.plugins.hdfs.MockTicker;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class ParquetFooterCacheTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private MockTicker ticker;
+    private ParquetFooterCache cache;
+    private AtomicInteger reads;
+    private ParquetMetadata footer;
+
+    @Before
+    public void setup() {
+        ticker = new MockTicker();
+        cache = new ParquetFooterCache(ticker, 600, 100);
+        reads = new AtomicInteger();
+        footer = mock(ParquetMetadata.class);
+    }
+
+    @Test
+    public void testFooterIsReadOnce() throws IOException {
+        List<String> key = key("1571702400000");
+
+        assertSame(footer, cache.get(key, this::read));
+        assertSame(footer, cache.get(key, this::read));
+        assertEquals(1, reads.get());
+    }
+
+    @Test
+    public void testFooterIsReadAgainWhenFileChanges() throws IOException {
+        cache.get(key("1571702400000"), this::read);
+        cache.get(key("1571788800000"), this::read);
+
+        assertEquals(2, reads.get());
+    }
+
+    @Test
+    public void testUnusedFooterExpires() throws IOException {
+        List<String> key = key("1571702400000");
+
+        cache.get(key, this::read);
+        ticker.advanceTime(601, TimeUnit.SECONDS);
+        cache.get(key, this::read);
+
+        assertEquals(2, reads.get());
+    }
+
+    @Test
+    public void testFailedReadIsNotCached() throws IOException {
+        List<String> key = key("1571702400000");
+
+        try {
+            cache.get(key, () -> {
+                throw new FileNotFoundException("File does not exist");
+            });
+            fail("the read failure was not reported");
+        } catch (FileNotFoundException e) {
+            assertEquals("File does not exist", e.getMessage());
+        }
+        assertSame(footer, cache.get(key, this::read));
+        assertEquals(1, reads.get());
+    }
+
+    @Test
+    public void testCheckedExceptionIsWrapped() throws IOException {
+        expectedException.expect(IOException.class);
+        expectedException.expectMessage("Failed to read footer: interrupted");
+
+        cache.get(key("1571702400000"), () -> {
+            throw new InterruptedException("interrupted");
+        });
+    }
+
+    private List<String> key(String modificationTime) {
+        return Arrays.asList("default", "dummy", "hdfs://namenode:8020/data/sales.parquet", modificationTime, "4196");
+    }
+
+    private ParquetMetadata read() {
+        reads.incrementAndGet();
+        return footer;
+    }
+}
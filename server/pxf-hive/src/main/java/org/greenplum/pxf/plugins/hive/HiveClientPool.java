@@ -0,0 +1,299 @@
+package org.greenplum.pxf.plugins.hive;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import org.apache.hadoop.hive.metastore.IMetaStoreClient;
+import org.apache.hadoop.hive.metastore.api.MetaException;
+import org.apache.thrift.TBase;
+import org.apache.thrift.TException;
+import org.apache.thrift.transport.TTransportException;
+import org.greenplum.pxf.api.utilities.CacheUtilities;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Keeps idle Hive MetaStore clients for reuse, in one pool per key (the
+ * server, the user and the MetaStore of the request).
+ * <p>
+ * The clients handed out by {@link #getClient(List, Supplier)} are shared by
+ * all the requests with the same key: every call on them borrows an idle
+ * client of the pool, or creates a new one, and returns it to the pool when
+ * the call completes. Clients whose connection fails are closed instead of
+ * being returned, and new clients replace them; the errors that the MetaStore
+ * answers with, like a missing object or a denied access, leave the client in
+ * the pool.
+ * Clients idle for a while are checked before use, clients idle for too long
+ * are closed, and pools not used for that long are closed entirely.
+ */
+public class HiveClientPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HiveClientPool.class);
+
+    /**
+     * Name of the system property with the maximum number of idle clients per pool, 0 disables pooling
+     */
+    public static final String PXF_HIVE_CLIENT_POOL_SIZE_PROPERTY = "pxf.hive.metastore.pool.size";
+
+    /**
+     * Name of the system property with the number of seconds after which idle clients are closed
+     */
+    public static final String PXF_HIVE_CLIENT_POOL_IDLE_TIMEOUT_PROPERTY = "pxf.hive.metastore.pool.idle.timeout.seconds";
+
+    /**
+     * Name of the system property with the number of seconds after which idle clients are checked before use
+     */
+    public static final String PXF_HIVE_CLIENT_POOL_VALIDATION_PROPERTY = "pxf.hive.metastore.pool.validation.seconds";
+
+    private static final int DEFAULT_SIZE = 8;
+    private static final int DEFAULT_IDLE_TIMEOUT_SECONDS = 600;
+    private static final int DEFAULT_VALIDATION_SECONDS = 30;
+
+    private final Ticker ticker;
+    private final int size;
+    private final long idleTimeoutNanos;
+    private final long validationNanos;
+    private final Cache<List<String>, Pool> pools;
+
+    /**
+     * Creates a pool configured by the system properties.
+     */
+    HiveClientPool() {
+        this(Ticker.systemTicker(),
+                Integer.getInteger(PXF_HIVE_CLIENT_POOL_SIZE_PROPERTY, DEFAULT_SIZE),
+                Integer.getInteger(PXF_HIVE_CLIENT_POOL_IDLE_TIMEOUT_PROPERTY, DEFAULT_IDLE_TIMEOUT_SECONDS),
+                Integer.getInteger(PXF_HIVE_CLIENT_POOL_VALIDATION_PROPERTY, DEFAULT_VALIDATION_SECONDS));
+    }
+
+    HiveClientPool(Ticker ticker, int size, long idleTimeoutSeconds, long validationSeconds) {
+        this.ticker = ticker;
+        this.size = size;
+        this.idleTimeoutNanos = TimeUnit.SECONDS.toNanos(idleTimeoutSeconds);
+        this.validationNanos = TimeUnit.SECONDS.toNanos(validationSeconds);
+        this.pools = CacheBuilder.newBuilder()
+                .ticker(ticker)
+                .expireAfterAccess(idleTimeoutSeconds, TimeUnit.SECONDS)
+                .removalListener((RemovalListener<List<String>, Pool>) notification -> {
+                    LOG.debug("Closing Hive MetaStore client pool for {} with cause {}",
+                            notification.getKey(), notification.getCause());
+                    notification.getValue().close();
+                })
+                .build();
+    }
+
+    /**
+     * Returns a client for the given key. A client is borrowed and returned
+     * at once, so that failures to connect are reported here.
+     *
+     * @param key     the values that identify the MetaStore and the user of the clients
+     * @param factory creates new clients, reporting failures with runtime exceptions
+     * @return a client whose calls are run by the clients of the pool
+     * @throws MetaException if the pool cannot be created
+     */
+    public IMetaStoreClient getClient(List<String> key, Supplier<IMetaStoreClient> factory) throws MetaException {
+        if (size <= 0) {
+            return factory.get();
+        }
+
+        Pool pool = CacheUtilities.get(pools, key, () -> new Pool(factory),
+                MetaException.class, HiveClientPool::newMetaException,
+                "Failed to create Hive MetaStore client pool");
+        pool.release(pool.borrow());
+
+        return (IMetaStoreClient) Proxy.newProxyInstance(
+                IMetaStoreClient.class.getClassLoader(),
+                new Class<?>[]{IMetaStoreClient.class},
+                (proxy, method, args) -> invoke(proxy, key, pool, method, args));
+    }
+
+    /**
+     * Explicitly runs cache maintenance operations.
+     */
+    void cleanCache() {
+        pools.cleanUp();
+    }
+
+    private Object invoke(Object proxy, List<String> key, Pool pool, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "close":
+                // the clients are closed by the pool
+                return null;
+            case "toString":
+                return "pooled Hive MetaStore client for " + key;
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            default:
+                break;
+        }
+
+        // keep the pool from expiring while it is in use
+        pools.getIfPresent(key);
+
+        PooledClient client = pool.borrow();
+        boolean healthy = false;
+        try {
+            Object result = method.invoke(client.client, args);
+            healthy = true;
+            return result;
+        } catch (InvocationTargetException e) {
+            healthy = !isConnectionFailure(e.getCause());
+            throw e.getCause();
+        } finally {
+            if (healthy) {
+                pool.release(client);
+            } else {
+                LOG.debug("Closing Hive MetaStore client after a failed call to {}", method.getName());
+                client.close();
+            }
+        }
+    }
+
+    private static MetaException newMetaException(String message, Throwable cause) {
+        // the Thrift exceptions have no constructor with a cause
+        MetaException e = new MetaException(message);
+        e.initCause(cause);
+        return e;
+    }
+
+    /**
+     * Returns whether the given failure of a call leaves the connection of
+     * the client unusable. The exceptions declared by the MetaStore API, like
+     * {@code NoSuchObjectException} or {@code MetaException}, are Thrift
+     * structures sent as answers over a working connection. The other Thrift
+     * exceptions report transport or protocol failures.
+     *
+     * @param failure the failure of the call
+     * @return true if the client must be closed
+     */
+    static boolean isConnectionFailure(Throwable failure) {
+        return failure instanceof TTransportException
+                || (failure instanceof TException && !(failure instanceof TBase));
+    }
+
+    /**
+     * The idle clients of one key, most recently used first.
+     */
+    private class Pool {
+        private final Supplier<IMetaStoreClient> factory;
+        private final Deque<PooledClient> idleClients = new ArrayDeque<>();
+        private boolean closed;
+
+        Pool(Supplier<IMetaStoreClient> factory) {
+            this.factory = factory;
+        }
+
+        PooledClient borrow() {
+            PooledClient client;
+            while ((client = poll()) != null) {
+                long idleNanos = ticker.read() - client.lastUsed;
+                if (idleNanos > idleTimeoutNanos) {
+                    client.close();
+                } else if (idleNanos > validationNanos && !client.isValid()) {
+                    LOG.debug("Closing Hive MetaStore client that failed validation");
+                    client.close();
+                } else {
+                    return client;
+                }
+            }
+            LOG.debug("Creating Hive MetaStore client");
+            return new PooledClient(factory.get());
+        }
+
+        void release(PooledClient client) {
+            client.lastUsed = ticker.read();
+            synchronized (this) {
+                // close the clients left idle for too long, they are at the end
+                Iterator<PooledClient> iterator = idleClients.descendingIterator();
+                while (iterator.hasNext()) {
+                    PooledClient idleClient = iterator.next();
+                    if (client.lastUsed - idleClient.lastUsed <= idleTimeoutNanos) {
+                        break;
+                    }
+                    iterator.remove();
+                    idleClient.close();
+                }
+
+                if (!closed && idleClients.size() < size) {
+                    idleClients.addFirst(client);
+                    return;
+                }
+            }
+            client.close();
+        }
+
+        void close() {
+            synchronized (this) {
+                closed = true;
+            }
+            PooledClient client;
+            while ((client = poll()) != null) {
+                client.close();
+            }
+        }
+
+        private synchronized PooledClient poll() {
+            return idleClients.pollFirst();
+        }
+    }
+
+    /**
+     * A client of a pool, with the time it was last used.
+     */
+    private static class PooledClient {
+        private final IMetaStoreClient client;
+        private long lastUsed;
+
+        PooledClient(IMetaStoreClient client) {
+            this.client = client;
+        }
+
+        boolean isValid() {
+            try {
+                client.getAllDatabases();
+                return true;
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        void close() {
+            try {
+                client.close();
+            } catch (Exception e) {
+                LOG.warn("Failed to close Hive MetaStore client: {}", e.getMessage());
+            }
+        }
+    }
+}
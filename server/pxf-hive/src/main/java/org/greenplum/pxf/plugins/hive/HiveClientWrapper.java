@@ -52,13 +52,21 @@ public class HiveClientWrapper {
     private static final String STR_TEXT_FILE_INPUT_FORMAT = "org.apache.hadoop.mapred.TextInputFormat";
     private static final String STR_ORC_FILE_INPUT_FORMAT = "org.apache.hadoop.hive.ql.io.orc.OrcInputFormat";
     private final HiveClientFactory hiveClientFactory;
+    private final HiveClientPool hiveClientPool;
+    private final HiveMetadataCache hiveMetadataCache;
 
     private HiveClientWrapper() {
         this(HiveClientFactory.getInstance());
     }
 
     HiveClientWrapper(HiveClientFactory hiveClientFactory) {
+        this(hiveClientFactory, new HiveClientPool(), new HiveMetadataCache());
+    }
+
+    HiveClientWrapper(HiveClientFactory hiveClientFactory, HiveClientPool hiveClientPool, HiveMetadataCache hiveMetadataCache) {
         this.hiveClientFactory = hiveClientFactory;
+        this.hiveClientPool = hiveClientPool;
+        this.hiveMetadataCache = hiveMetadataCache;
     }
 
     /**
@@ -73,13 +81,34 @@ public class HiveClientWrapper {
     /**
      * Initializes the IMetaStoreClient
      * Uses classpath configuration files to locate the MetaStore
+     * <p>
+     * The client is shared with the other requests of the same user to the same MetaStore, its calls are run by
+     * the clients of a {@link HiveClientPool}, and it does not need to be closed. Tables and partition lists are
+     * answered from a {@link HiveMetadataCache} when they were fetched recently.
      *
      * @return initialized client
      */
     public IMetaStoreClient initHiveClient(RequestContext context, Configuration configuration) {
         HiveConf hiveConf = getHiveConf(configuration);
+        boolean isSecurityEnabled = Utilities.isSecurityEnabled(configuration);
+        List<String> key = Arrays.asList(
+                context.getServerName(),
+                context.getUser(),
+                hiveConf.getVar(HiveConf.ConfVars.METASTOREURIS),
+                String.valueOf(isSecurityEnabled));
+
+        try {
+            return hiveMetadataCache.wrap(key,
+                    hiveClientPool.getClient(key, () -> createHiveClient(context, configuration, hiveConf, isSecurityEnabled)));
+        } catch (MetaException e) {
+            throw new RuntimeException("Failed connecting to Hive MetaStore service: " + e.getMessage(), e);
+        }
+    }
+
+    private IMetaStoreClient createHiveClient(RequestContext context, Configuration configuration,
+                                              HiveConf hiveConf, boolean isSecurityEnabled) {
         try {
-            if (Utilities.isSecurityEnabled(configuration)) {
+            if (isSecurityEnabled) {
                 UserGroupInformation loginUser = SecureLogin.getInstance().getLoginUser(context, configuration);
                 LOG.debug("initialize HiveMetaStoreClient as login user '{}'", loginUser.getUserName());
                 // wrap in doAs for Kerberos to propagate kerberos tokens from login Subject
@@ -143,7 +172,8 @@ public class HiveClientWrapper {
     }
 
     /**
-     * The method which serializes fragment-related attributes, needed for reading and resolution to string
+     * The method which serializes fragment-related attributes, needed for reading and resolution, in the compact
+     * binary form of {@link HiveUserData}. The attributes are the same for all the splits of a partition.
      *
      * @param fragmenterClassName fragmenter class name
      * @param partData            partition data
@@ -183,7 +213,7 @@ public class HiveClientWrapper {
 
         hiveUserData = new HiveUserData(inputFormatName, serdeClassName, propertiesString, partitionKeys, filterInFragmenter, delimiter, colTypes, skipHeader, hiveIndexes, allColumnNames, allColumnTypes);
 
-        return hiveUserData.toString().getBytes();
+        return hiveUserData.toBytes();
     }
 
     /**
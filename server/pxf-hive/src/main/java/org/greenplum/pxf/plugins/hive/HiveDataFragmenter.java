@@ -29,12 +29,19 @@ import org.apache.hadoop.hive.metastore.api.FieldSchema;
 import org.apache.hadoop.hive.metastore.api.Partition;
 import org.apache.hadoop.hive.metastore.api.StorageDescriptor;
 import org.apache.hadoop.hive.metastore.api.Table;
+import org.apache.hadoop.hive.metastore.api.hive_metastoreConstants;
+import org.apache.hadoop.hive.ql.io.orc.OrcInputFormat;
+import org.apache.hadoop.hive.ql.io.sarg.ConvertAstToSearchArg;
+import org.apache.hadoop.hive.serde.serdeConstants;
+import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
 import org.apache.hadoop.mapred.FileInputFormat;
 import org.apache.hadoop.mapred.FileSplit;
 import org.apache.hadoop.mapred.InputFormat;
 import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.InvalidInputException;
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.TextInputFormat;
+import org.apache.hadoop.security.UserGroupInformation;
 import org.greenplum.pxf.api.filter.FilterParser;
 import org.greenplum.pxf.api.filter.Node;
 import org.greenplum.pxf.api.filter.Operator;
@@ -47,13 +54,18 @@ import org.greenplum.pxf.api.model.FragmentStats;
 import org.greenplum.pxf.api.model.Metadata;
 import org.greenplum.pxf.api.model.RequestContext;
 import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.greenplum.pxf.api.utilities.Utilities;
 import org.greenplum.pxf.plugins.hdfs.HdfsDataFragmenter;
 import org.greenplum.pxf.plugins.hdfs.utilities.HdfsUtilities;
 import org.greenplum.pxf.plugins.hive.utilities.ProfileFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.security.PrivilegedExceptionAction;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
@@ -61,6 +73,9 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -76,9 +91,16 @@ import static org.apache.commons.lang3.ObjectUtils.defaultIfNull;
  * <li>sourceName: full HDFS path to the data file that this data fragment is
  * part of</li>
  * <li>hosts: a list of the datanode machines that hold a replica of this block</li>
- * <li>userData:
- * file_input_format_name_DELIM_serde_name_DELIM_serialization_properties</li>
+ * <li>userData: the {@link HiveUserData} of the partition, in compact binary
+ * form, with the file input format name, the serde name and the serialization
+ * properties</li>
  * </ol>
+ * The splits of the partitions are listed in parallel by a pool of threads
+ * shared by all the requests, a few partitions of a request at a time, and
+ * are kept by {@link HiveSplitCache} until
+ * the partition is modified. The splits of ORC partitions are aligned to
+ * stripes, and the stripes whose statistics cannot match the filter of the
+ * request are dropped before they become fragments.
  */
 public class HiveDataFragmenter extends HdfsDataFragmenter {
     private static final Logger LOG = LoggerFactory.getLogger(HiveDataFragmenter.class);
@@ -88,6 +110,24 @@ public class HiveDataFragmenter extends HdfsDataFragmenter {
     public static final String HIVE_PARTITIONS_DELIM = "!HPAD!";
     public static final String HIVE_NO_PART_TBL = "!HNPT!";
 
+    /**
+     * Name of the system property with the number of threads listing the splits of partitions
+     */
+    public static final String PXF_HIVE_SPLIT_THREADS_PROPERTY = "pxf.hive.fragmenter.split.threads";
+
+    /**
+     * Name of the system property with the number of partitions of a request whose splits are listed at the same time
+     */
+    public static final String PXF_HIVE_SPLIT_THREADS_PER_REQUEST_PROPERTY = "pxf.hive.fragmenter.split.threads.per.request";
+
+    private static final int DEFAULT_SPLIT_THREADS = 16;
+    private static final int DEFAULT_SPLIT_THREADS_PER_REQUEST = 4;
+
+    private static final String ORC_SPLIT_STRATEGY = "ETL";
+
+    private static final ExecutorService SPLIT_EXECUTOR = Utilities.newDaemonThreadPool(
+            PXF_HIVE_SPLIT_THREADS_PROPERTY, DEFAULT_SPLIT_THREADS, "pxf-hive-splits-%d");
+
     static final EnumSet<Operator> SUPPORTED_OPERATORS =
             EnumSet.of(
                     Operator.EQUALS,
@@ -104,6 +144,7 @@ public class HiveDataFragmenter extends HdfsDataFragmenter {
 
     private IMetaStoreClient client;
     private HiveClientWrapper hiveClientWrapper;
+    private HiveSplitCache splitCache;
 
     private boolean filterInFragmenter = false;
 
@@ -118,8 +159,14 @@ public class HiveDataFragmenter extends HdfsDataFragmenter {
     }
 
     HiveDataFragmenter(ConfigurationFactory configurationFactory, HiveClientWrapper hiveClientWrapper) {
+        this(configurationFactory, hiveClientWrapper, HiveSplitCache.getInstance());
+    }
+
+    HiveDataFragmenter(ConfigurationFactory configurationFactory, HiveClientWrapper hiveClientWrapper,
+                       HiveSplitCache splitCache) {
         this.configurationFactory = configurationFactory;
         this.hiveClientWrapper = hiveClientWrapper;
+        this.splitCache = splitCache;
     }
 
     @Override
@@ -265,6 +312,7 @@ public class HiveDataFragmenter extends HdfsDataFragmenter {
                     hiveIndexes, allColumnNames.toString(), allColumnTypes.toString());
         } else {
             List<FieldSchema> partitionKeys = tbl.getPartitionKeys();
+            List<HiveTablePartition> tablePartitions = new ArrayList<>(partitions.size());
 
             for (Partition partition : partitions) {
                 StorageDescriptor descPartition = partition.getSd();
@@ -272,10 +320,11 @@ public class HiveDataFragmenter extends HdfsDataFragmenter {
                         null,
                         tblDesc.getPath(), tblDesc.getName(),
                         partitionKeys);
-                fetchMetaDataForPartitionedTable(descPartition, props, partition,
-                        partitionKeys, tblDesc.getName(), hasComplexTypes,
-                        hiveIndexes, allColumnNames.toString(), allColumnTypes.toString());
+                tablePartitions.add(new HiveTablePartition(descPartition, props, partition,
+                        partitionKeys, tblDesc.getName()));
             }
+            fetchMetaData(tablePartitions, hasComplexTypes, hiveIndexes,
+                    allColumnNames.toString(), allColumnTypes.toString());
         }
     }
 
@@ -345,34 +394,180 @@ public class HiveDataFragmenter extends HdfsDataFragmenter {
                                              String allColumnNames,
                                              String allColumnTypes)
             throws Exception {
-        fetchMetaData(new HiveTablePartition(stdsc, props, null, null,
-                tableName), hasComplexTypes, hiveIndexes, allColumnNames, allColumnTypes);
-    }
-
-    private void fetchMetaDataForPartitionedTable(StorageDescriptor stdsc,
-                                                  Properties props,
-                                                  Partition partition,
-                                                  List<FieldSchema> partitionKeys,
-                                                  String tableName,
-                                                  boolean hasComplexTypes,
-                                                  List<Integer> hiveIndexes,
-                                                  String allColumnNames,
-                                                  String allColumnTypes)
-            throws Exception {
-        fetchMetaData(new HiveTablePartition(stdsc, props, partition,
-                partitionKeys, tableName), hasComplexTypes, hiveIndexes,
-                allColumnNames, allColumnTypes);
+        fetchMetaData(Collections.singletonList(new HiveTablePartition(stdsc, props, null, null,
+                tableName)), hasComplexTypes, hiveIndexes, allColumnNames, allColumnTypes);
     }
 
-    /* Fills a table partition */
-    private void fetchMetaData(HiveTablePartition tablePartition,
+    /*
+     * Fills the table partitions. The splits of the partitions are listed in
+     * parallel, as the user of the request, and the fragments are added in the
+     * order of the partitions. A request only lists the splits of a few
+     * partitions at a time, so that it leaves threads of the shared pool to
+     * the other requests.
+     */
+    private void fetchMetaData(List<HiveTablePartition> tablePartitions,
                                boolean hasComplexTypes,
                                List<Integer> hiveIndexes,
                                String allColumnNames,
                                String allColumnTypes)
             throws Exception {
-        InputFormat<?, ?> fformat = makeInputFormat(
-                tablePartition.storageDesc.getInputFormat(), jobConf);
+        // partitions usually share a few input formats, create them once
+        Map<String, InputFormat<?, ?>> inputFormats = new HashMap<>();
+        List<InputFormat<?, ?>> partitionInputFormats = new ArrayList<>(tablePartitions.size());
+        for (HiveTablePartition tablePartition : tablePartitions) {
+            String inputFormatName = tablePartition.storageDesc.getInputFormat();
+            InputFormat<?, ?> fformat = inputFormats.get(inputFormatName);
+            if (fformat == null) {
+                fformat = makeInputFormat(inputFormatName, jobConf);
+                inputFormats.put(inputFormatName, fformat);
+            }
+            partitionInputFormats.add(fformat);
+        }
+
+        String orcSearchArgument = null;
+        if (inputFormats.values().stream().anyMatch(fformat -> fformat instanceof OrcInputFormat)) {
+            orcSearchArgument = getOrcSearchArgument();
+        }
+
+        UserGroupInformation ugi = UserGroupInformation.getCurrentUser();
+        int maxListings = Math.max(1, Integer.getInteger(PXF_HIVE_SPLIT_THREADS_PER_REQUEST_PROPERTY,
+                DEFAULT_SPLIT_THREADS_PER_REQUEST));
+        List<Future<InputSplit[]>> partitionSplits = new ArrayList<>(tablePartitions.size());
+        try {
+            for (int i = 0; i < tablePartitions.size(); i++) {
+                // the listing of the next partition starts once the listing of the oldest one is done
+                while (partitionSplits.size() < Math.min(tablePartitions.size(), i + maxListings)) {
+                    int next = partitionSplits.size();
+                    HiveTablePartition tablePartition = tablePartitions.get(next);
+                    InputFormat<?, ?> fformat = partitionInputFormats.get(next);
+                    String searchArgument = (fformat instanceof OrcInputFormat) ? orcSearchArgument : null;
+                    partitionSplits.add(SPLIT_EXECUTOR.submit(() -> ugi.doAs(
+                            (PrivilegedExceptionAction<InputSplit[]>) () -> getSplits(fformat, tablePartition, searchArgument))));
+                }
+
+                InputSplit[] splits;
+                try {
+                    splits = partitionSplits.get(i).get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof InvalidInputException) {
+                        LOG.debug("getSplits failed on " + e.getCause().getMessage());
+                        continue;
+                    }
+                    if (e.getCause() instanceof Exception) {
+                        throw (Exception) e.getCause();
+                    }
+                    throw e;
+                }
+                addFragments(tablePartitions.get(i), partitionInputFormats.get(i), splits,
+                        hasComplexTypes, hiveIndexes, allColumnNames, allColumnTypes);
+            }
+        } finally {
+            // stops listing the remaining partitions after a failure
+            for (Future<InputSplit[]> future : partitionSplits) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /*
+     * Lists the splits of a table partition, or gets them from the cache when
+     * the last DDL time of the partition is known. The splits of ORC partitions
+     * depend on the search argument their stripes were pruned with.
+     */
+    private InputSplit[] getSplits(InputFormat<?, ?> fformat, HiveTablePartition tablePartition,
+                                   String orcSearchArgument) throws IOException {
+        String location = tablePartition.storageDesc.getLocation();
+        String lastDdlTime;
+        if (tablePartition.partition != null) {
+            Map<String, String> parameters = tablePartition.partition.getParameters();
+            lastDdlTime = (parameters != null) ? parameters.get(hive_metastoreConstants.DDL_TIME) : null;
+        } else {
+            lastDdlTime = tablePartition.properties.getProperty(hive_metastoreConstants.DDL_TIME);
+        }
+        if (lastDdlTime == null) {
+            return listSplits(fformat, tablePartition, orcSearchArgument);
+        }
+
+        // the splits also depend on the split sizes of the server configuration
+        List<String> key = Arrays.asList(context.getServerName(), context.getUser(),
+                tablePartition.storageDesc.getInputFormat(), location, lastDdlTime,
+                StringUtils.defaultString(orcSearchArgument),
+                StringUtils.defaultString(jobConf.get(org.apache.hadoop.mapreduce.lib.input.FileInputFormat.SPLIT_MINSIZE)),
+                StringUtils.defaultString(jobConf.get(org.apache.hadoop.mapreduce.lib.input.FileInputFormat.SPLIT_MAXSIZE)));
+        return splitCache.get(key, () -> listSplits(fformat, tablePartition, orcSearchArgument));
+    }
+
+    private InputSplit[] listSplits(InputFormat<?, ?> fformat, HiveTablePartition tablePartition,
+                                    String orcSearchArgument) throws IOException {
+        // the input paths are set on a copy of the configuration, as partitions are listed in parallel
+        JobConf partitionJobConf = new JobConf(jobConf);
+        FileInputFormat.setInputPaths(partitionJobConf, new Path(tablePartition.storageDesc.getLocation()));
+        if (fformat instanceof OrcInputFormat) {
+            configureOrcSplits(partitionJobConf, tablePartition.properties, orcSearchArgument);
+        }
+        return fformat.getSplits(partitionJobConf, 1);
+    }
+
+    /**
+     * Configures the listing of the splits of an ORC partition. Unless the
+     * server configuration sets another split strategy, ORC reads the footers
+     * of the files, in parallel and through its footer cache, and aligns the
+     * splits to stripes. When there is a search argument, ORC also drops the
+     * stripes whose statistics cannot match it. The columns of the partition
+     * map the names of the search argument to the columns of the files, and
+     * are all declared as read: ORC does not drop any stripe when the names
+     * of the columns read are missing, and the splits are shared by queries
+     * that read other columns.
+     *
+     * @param jobConf        the configuration to list the splits of the partition with
+     * @param properties     the properties of the partition
+     * @param searchArgument the serialized search argument of the filter, or null
+     */
+    static void configureOrcSplits(JobConf jobConf, Properties properties, String searchArgument) {
+        if (jobConf.get(HiveConf.ConfVars.HIVE_ORC_SPLIT_STRATEGY.varname) == null) {
+            jobConf.set(HiveConf.ConfVars.HIVE_ORC_SPLIT_STRATEGY.varname, ORC_SPLIT_STRATEGY);
+        }
+
+        String columns = properties.getProperty(serdeConstants.LIST_COLUMNS);
+        String columnTypes = properties.getProperty(serdeConstants.LIST_COLUMN_TYPES);
+        if (searchArgument == null || columns == null || columnTypes == null) {
+            return;
+        }
+        jobConf.set(serdeConstants.LIST_COLUMNS, columns);
+        jobConf.set(serdeConstants.LIST_COLUMN_TYPES, columnTypes);
+        jobConf.set(ColumnProjectionUtils.READ_ALL_COLUMNS, "true");
+        jobConf.set(ColumnProjectionUtils.READ_COLUMN_NAMES_CONF_STR, columns);
+        jobConf.set(ConvertAstToSearchArg.SARG_PUSHDOWN, searchArgument);
+    }
+
+    /*
+     * Translates the filter of the request into the search argument ORC prunes
+     * stripes with. The stripes are not pruned when the filter cannot be
+     * translated, the filter is still applied to the rows that are read.
+     */
+    private String getOrcSearchArgument() {
+        try {
+            return HiveORCAccessor.getSearchArgument(context, configuration);
+        } catch (Exception e) {
+            LOG.warn("ORC stripes are not pruned, failed to translate filter {}: {}",
+                    context.getFilterString(), e.getMessage());
+            return null;
+        }
+    }
+
+    /* Adds the fragments of the splits of a table partition */
+    private void addFragments(HiveTablePartition tablePartition,
+                              InputFormat<?, ?> fformat,
+                              InputSplit[] splits,
+                              boolean hasComplexTypes,
+                              List<Integer> hiveIndexes,
+                              String allColumnNames,
+                              String allColumnTypes)
+            throws Exception {
+        if (splits.length == 0) {
+            return;
+        }
+
         String profile = null;
         String userProfile = context.getProfile();
         if (userProfile != null) {
@@ -387,16 +582,14 @@ public class HiveDataFragmenter extends HdfsDataFragmenter {
             fragmenterForProfile = context.getFragmenter();
         }
 
-        FileInputFormat.setInputPaths(jobConf, new Path(
-                tablePartition.storageDesc.getLocation()));
-
-        InputSplit[] splits;
-        try {
-            splits = fformat.getSplits(jobConf, 1);
-        } catch (org.apache.hadoop.mapred.InvalidInputException e) {
-            LOG.debug("getSplits failed on " + e.getMessage());
-            return;
-        }
+        // the user data is the same for all the splits of the partition, it is serialized once
+        byte[] userData = hiveClientWrapper.makeUserData(
+                fragmenterForProfile,
+                tablePartition,
+                filterInFragmenter,
+                hiveIndexes,
+                allColumnNames,
+                allColumnTypes);
 
         for (InputSplit split : splits) {
             FileSplit fsp = (FileSplit) split;
@@ -404,13 +597,6 @@ public class HiveDataFragmenter extends HdfsDataFragmenter {
             String filepath = fsp.getPath().toString();
 
             byte[] locationInfo = HdfsUtilities.prepareFragmentMetadata(fsp);
-            byte[] userData = hiveClientWrapper.makeUserData(
-                    fragmenterForProfile,
-                    tablePartition,
-                    filterInFragmenter,
-                    hiveIndexes,
-                    allColumnNames,
-                    allColumnTypes);
             Fragment fragment = new Fragment(filepath, hosts, locationInfo,
                     userData, profile);
             fragments.add(fragment);
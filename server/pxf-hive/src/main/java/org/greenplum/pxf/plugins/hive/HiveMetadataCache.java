@@ -0,0 +1,409 @@
+package org.greenplum.pxf.plugins.hive;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import org.apache.hadoop.hive.metastore.IMetaStoreClient;
+import org.apache.hadoop.hive.metastore.api.CurrentNotificationEventId;
+import org.apache.hadoop.hive.metastore.api.MetaException;
+import org.apache.hadoop.hive.metastore.api.NotificationEvent;
+import org.apache.hadoop.hive.metastore.api.NotificationEventResponse;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.Table;
+import org.apache.thrift.TApplicationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the tables and the partition lists returned by the Hive MetaStore for
+ * a short time, so that concurrent queries on the same tables do not fetch
+ * them again.
+ * <p>
+ * The clients returned by {@link #wrap(List, IMetaStoreClient)} answer
+ * <code>getTable</code>, <code>listPartitions</code> and
+ * <code>listPartitionsByFilter</code> from the cache, and pass the other calls
+ * to the MetaStore. Entries are kept for
+ * {@link #PXF_HIVE_METADATA_CACHE_EXPIRATION_PROPERTY} seconds. When the
+ * MetaStore records notification events, the entries of the tables named by
+ * new events are dropped, and the other entries are kept for
+ * {@link #PXF_HIVE_METADATA_CACHE_NOTIFICATION_EXPIRATION_PROPERTY} seconds.
+ * Events that cannot be read are read again later, after a growing delay;
+ * in the meantime entries are only kept for the shorter expiration time.
+ * MetaStores that do not let the user read events, or that keep failing to
+ * return them, are treated as MetaStores that do not record events.
+ */
+public class HiveMetadataCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HiveMetadataCache.class);
+
+    /**
+     * Name of the system property with the number of seconds entries are kept, 0 disables the cache
+     */
+    public static final String PXF_HIVE_METADATA_CACHE_EXPIRATION_PROPERTY = "pxf.hive.metadata.cache.expiration.seconds";
+
+    /**
+     * Name of the system property with the number of seconds entries are kept when the MetaStore records
+     * notification events
+     */
+    public static final String PXF_HIVE_METADATA_CACHE_NOTIFICATION_EXPIRATION_PROPERTY = "pxf.hive.metadata.cache.notification.expiration.seconds";
+
+    /**
+     * Name of the system property with the maximum number of entries
+     */
+    public static final String PXF_HIVE_METADATA_CACHE_SIZE_PROPERTY = "pxf.hive.metadata.cache.size";
+
+    private static final int DEFAULT_EXPIRATION_SECONDS = 10;
+    private static final int DEFAULT_NOTIFICATION_EXPIRATION_SECONDS = 600;
+    private static final int DEFAULT_SIZE = 1000;
+
+    /* notification events are read at most once per interval */
+    private static final long NOTIFICATION_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    /* the delay before reading events again after a failure doubles up to this delay */
+    private static final long MAX_NOTIFICATION_RETRY_NANOS = TimeUnit.MINUTES.toNanos(1);
+    /* events are no longer read after that many consecutive failures */
+    private static final int MAX_NOTIFICATION_FAILURES = 10;
+    /* the entries of a MetaStore are all dropped when more events happened */
+    private static final int MAX_EVENTS = 1000;
+
+    private static final Class<?>[] GET_TABLE = {String.class, String.class};
+    private static final Class<?>[] LIST_PARTITIONS = {String.class, String.class, short.class};
+    private static final Class<?>[] LIST_PARTITIONS_BY_FILTER = {String.class, String.class, String.class, short.class};
+
+    private final Ticker ticker;
+    private final long expirationNanos;
+    private final long notificationExpirationNanos;
+    private final Cache<List<String>, Entry> entries;
+    /* the keys of the entries of every table, so that the entries of a table are dropped without a scan */
+    private final Map<List<String>, Set<List<String>>> tableEntries = new ConcurrentHashMap<>();
+    private final Map<List<String>, MetaStoreState> states = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a cache configured by the system properties.
+     */
+    HiveMetadataCache() {
+        this(Ticker.systemTicker(),
+                Integer.getInteger(PXF_HIVE_METADATA_CACHE_EXPIRATION_PROPERTY, DEFAULT_EXPIRATION_SECONDS),
+                Integer.getInteger(PXF_HIVE_METADATA_CACHE_NOTIFICATION_EXPIRATION_PROPERTY, DEFAULT_NOTIFICATION_EXPIRATION_SECONDS),
+                Integer.getInteger(PXF_HIVE_METADATA_CACHE_SIZE_PROPERTY, DEFAULT_SIZE));
+    }
+
+    HiveMetadataCache(Ticker ticker, long expirationSeconds, long notificationExpirationSeconds, long size) {
+        this.ticker = ticker;
+        this.expirationNanos = TimeUnit.SECONDS.toNanos(expirationSeconds);
+        this.notificationExpirationNanos = TimeUnit.SECONDS.toNanos(Math.max(expirationSeconds, notificationExpirationSeconds));
+        this.entries = CacheBuilder.newBuilder()
+                .ticker(ticker)
+                .expireAfterWrite(notificationExpirationNanos, TimeUnit.NANOSECONDS)
+                .maximumSize(size)
+                .removalListener((RemovalListener<List<String>, Entry>) this::removeTableEntry)
+                .build();
+    }
+
+    /**
+     * Returns a client that answers the table and partition lookups from
+     * the cache, and passes the other calls to the given client.
+     *
+     * @param key    the values that identify the MetaStore and the user of the client
+     * @param client the client of the MetaStore
+     * @return the caching client, or the given client when the cache is disabled
+     */
+    public IMetaStoreClient wrap(List<String> key, IMetaStoreClient client) {
+        if (expirationNanos <= 0) {
+            return client;
+        }
+        return (IMetaStoreClient) Proxy.newProxyInstance(
+                IMetaStoreClient.class.getClassLoader(),
+                new Class<?>[]{IMetaStoreClient.class},
+                (proxy, method, args) -> invoke(proxy, key, client, method, args));
+    }
+
+    private Object invoke(Object proxy, List<String> key, IMetaStoreClient client, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "toString":
+                return "caching Hive MetaStore client for " + key;
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            default:
+                break;
+        }
+
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        if (method.getName().equals("getTable") && Arrays.equals(parameterTypes, GET_TABLE)) {
+            // tables are small, callers get their own copy
+            Table table = getTable(key, client, (String) args[0], (String) args[1]);
+            return (table != null) ? new Table(table) : null;
+        }
+        if ((method.getName().equals("listPartitions") && Arrays.equals(parameterTypes, LIST_PARTITIONS)) ||
+                (method.getName().equals("listPartitionsByFilter") && Arrays.equals(parameterTypes, LIST_PARTITIONS_BY_FILTER))) {
+            return getPartitions(key, client, method, args);
+        }
+        return call(client, method, args);
+    }
+
+    private Table getTable(List<String> key, IMetaStoreClient client, String dbName, String tableName) throws Throwable {
+        List<String> entryKey = getEntryKey(key, "getTable", dbName, tableName);
+        Entry entry = getEntry(key, client, entryKey);
+        if (entry != null) {
+            return (Table) entry.value;
+        }
+
+        Table table = client.getTable(dbName, tableName);
+        if (table == null) {
+            return null;
+        }
+        put(key, dbName, tableName, entryKey, table);
+        return table;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Partition> getPartitions(List<String> key, IMetaStoreClient client, Method method, Object[] args) throws Throwable {
+        List<String> entryKey = getEntryKey(key, method.getName(), args);
+        Entry entry = getEntry(key, client, entryKey);
+        if (entry != null) {
+            return (List<Partition>) entry.value;
+        }
+
+        List<Partition> partitions = (List<Partition>) call(client, method, args);
+        if (partitions != null) {
+            partitions = Collections.unmodifiableList(partitions);
+            put(key, (String) args[0], (String) args[1], entryKey, partitions);
+        }
+        return partitions;
+    }
+
+    private void put(List<String> key, String dbName, String tableName, List<String> entryKey, Object value) {
+        List<String> tableKey = getTableKey(key, dbName, tableName);
+        entries.put(entryKey, new Entry(tableKey, value, ticker.read()));
+        tableEntries.compute(tableKey, (k, entryKeys) -> {
+            Set<List<String>> keys = (entryKeys != null) ? entryKeys : ConcurrentHashMap.newKeySet();
+            keys.add(entryKey);
+            return keys;
+        });
+    }
+
+    /*
+     * Returns the entry for the given key, unless it is older than the
+     * expiration time of its MetaStore.
+     */
+    private Entry getEntry(List<String> key, IMetaStoreClient client, List<String> entryKey) {
+        MetaStoreState state = readNotifications(key, client);
+        Entry entry = entries.getIfPresent(entryKey);
+        if (entry == null) {
+            return null;
+        }
+        long maxAge = (state.notificationsSupported && state.failures == 0) ? notificationExpirationNanos : expirationNanos;
+        return (ticker.read() - entry.loadTime <= maxAge) ? entry : null;
+    }
+
+    /*
+     * Drops the entries of the tables changed since the last notification
+     * event read from the MetaStore. Entries are kept when the MetaStore does
+     * not record events, so that they are only bound by the expiration time.
+     * Events are read again after a failure, once a delay that doubles with
+     * every failure has passed, until too many failures happened in a row.
+     */
+    private MetaStoreState readNotifications(List<String> key, IMetaStoreClient client) {
+        MetaStoreState state = states.computeIfAbsent(key, k -> new MetaStoreState());
+        synchronized (state) {
+            long now = ticker.read();
+            if (!state.notificationsSupported || (state.nextRead != null && now - state.nextRead < 0)) {
+                return state;
+            }
+
+            try {
+                CurrentNotificationEventId currentEventId = client.getCurrentNotificationEventId();
+                if (currentEventId == null || currentEventId.getEventId() <= 0) {
+                    LOG.debug("Hive MetaStore for {} does not record notification events", key);
+                    state.notificationsSupported = false;
+                    return state;
+                }
+
+                long eventId = currentEventId.getEventId();
+                if (state.lastEventId == null || eventId - state.lastEventId > MAX_EVENTS) {
+                    invalidate(key, null, null);
+                } else if (eventId > state.lastEventId) {
+                    NotificationEventResponse response = client.getNextNotification(state.lastEventId, MAX_EVENTS, null);
+                    for (NotificationEvent event : response.getEvents()) {
+                        LOG.debug("Hive MetaStore event {} {} for {}.{}", event.getEventId(), event.getEventType(),
+                                event.getDbName(), event.getTableName());
+                        invalidate(key, event.getDbName(), event.getTableName());
+                    }
+                }
+                state.lastEventId = eventId;
+                state.failures = 0;
+                state.nextRead = now + NOTIFICATION_INTERVAL_NANOS;
+            } catch (TApplicationException e) {
+                LOG.debug("Hive MetaStore for {} does not support notification events: {}", key, e.getMessage());
+                state.notificationsSupported = false;
+            } catch (MetaException e) {
+                if (isAccessDenied(e)) {
+                    LOG.debug("Hive MetaStore for {} does not allow reading notification events: {}", key, e.getMessage());
+                    state.notificationsSupported = false;
+                } else {
+                    retryNotifications(key, state, now, e);
+                }
+            } catch (Exception e) {
+                retryNotifications(key, state, now, e);
+            }
+            return state;
+        }
+    }
+
+    /*
+     * Records a failure to read notification events, and schedules the next
+     * read. Only the first of consecutive failures is logged as a warning.
+     */
+    private void retryNotifications(List<String> key, MetaStoreState state, long now, Exception e) {
+        state.failures++;
+        if (state.failures >= MAX_NOTIFICATION_FAILURES) {
+            LOG.warn("Failed to read notification events from Hive MetaStore for {} {} times in a row, no longer reading them: {}",
+                    key, state.failures, e.getMessage());
+            state.notificationsSupported = false;
+            return;
+        }
+
+        long delay = NOTIFICATION_INTERVAL_NANOS << Math.min(state.failures, 6);
+        state.nextRead = now + Math.min(delay, MAX_NOTIFICATION_RETRY_NANOS);
+        if (state.failures == 1) {
+            LOG.warn("Failed to read notification events from Hive MetaStore for {}, reading them again in {} seconds: {}",
+                    key, TimeUnit.NANOSECONDS.toSeconds(state.nextRead - now), e.getMessage());
+        } else {
+            LOG.debug("Failed to read notification events from Hive MetaStore for {} {} times in a row, reading them again in {} seconds: {}",
+                    key, state.failures, TimeUnit.NANOSECONDS.toSeconds(state.nextRead - now), e.getMessage());
+        }
+    }
+
+    /*
+     * Returns whether the MetaStore refused to return the notification events
+     * to the user, as MetaStores that restrict the notification API to
+     * superusers or to authorized users do.
+     */
+    private static boolean isAccessDenied(MetaException e) {
+        String message = (e.getMessage() != null) ? e.getMessage().toLowerCase(Locale.ROOT) : "";
+        return message.contains("not allowed") || message.contains("not authorized") ||
+                message.contains("permission") || message.contains("privilege");
+    }
+
+    /*
+     * Drops the entries of the given MetaStore for the given table, for all
+     * the tables of the given database when the table is null, or for all
+     * the tables when the database is null.
+     */
+    private void invalidate(List<String> key, String dbName, String tableName) {
+        if (dbName != null && tableName != null) {
+            Set<List<String>> entryKeys = tableEntries.get(getTableKey(key, dbName, tableName));
+            if (entryKeys != null) {
+                entries.invalidateAll(new ArrayList<>(entryKeys));
+            }
+            return;
+        }
+
+        // events of databases are rare, the tables of the database are looked up in the index
+        List<List<String>> entryKeys = tableEntries.entrySet().stream()
+                .filter(e -> e.getKey().subList(0, e.getKey().size() - 2).equals(key) &&
+                        (dbName == null || e.getKey().get(key.size()).equals(dbName.toLowerCase())))
+                .flatMap(e -> e.getValue().stream())
+                .collect(Collectors.toList());
+        entries.invalidateAll(entryKeys);
+    }
+
+    private void removeTableEntry(RemovalNotification<List<String>, Entry> notification) {
+        // the key stays when another entry replaced the removed one
+        if (entries.asMap().containsKey(notification.getKey())) {
+            return;
+        }
+        tableEntries.computeIfPresent(notification.getValue().tableKey, (tableKey, entryKeys) -> {
+            entryKeys.remove(notification.getKey());
+            return entryKeys.isEmpty() ? null : entryKeys;
+        });
+    }
+
+    private static List<String> getEntryKey(List<String> key, String methodName, Object... args) {
+        List<String> entryKey = new ArrayList<>(key.size() + 1 + args.length);
+        entryKey.addAll(key);
+        entryKey.add(methodName);
+        for (Object arg : args) {
+            entryKey.add(String.valueOf(arg).toLowerCase());
+        }
+        return entryKey;
+    }
+
+    private static List<String> getTableKey(List<String> key, String dbName, String tableName) {
+        List<String> tableKey = new ArrayList<>(key.size() + 2);
+        tableKey.addAll(key);
+        tableKey.add(dbName.toLowerCase());
+        tableKey.add(tableName.toLowerCase());
+        return tableKey;
+    }
+
+    private static Object call(IMetaStoreClient client, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(client, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * A cached table or partition list, with the key of its table.
+     */
+    private static class Entry {
+        private final List<String> tableKey;
+        private final Object value;
+        private final long loadTime;
+
+        Entry(List<String> tableKey, Object value, long loadTime) {
+            this.tableKey = tableKey;
+            this.value = value;
+            this.loadTime = loadTime;
+        }
+    }
+
+    /**
+     * The last notification event read from a MetaStore, and the failures
+     * to read the next events.
+     */
+    private static class MetaStoreState {
+        private volatile boolean notificationsSupported = true;
+        private volatile int failures;
+        private Long lastEventId;
+        private Long nextRead;
+    }
+}
@@ -23,11 +23,14 @@ import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Output;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hive.ql.io.orc.OrcInputFormat;
 import org.apache.hadoop.hive.ql.io.orc.Reader;
 import org.apache.hadoop.hive.ql.io.sarg.ConvertAstToSearchArg;
 import org.apache.hadoop.hive.ql.io.sarg.SearchArgument;
+import org.apache.hadoop.mapred.FileSplit;
 import org.apache.hadoop.mapred.JobConf;
+import org.apache.orc.StripeInformation;
 import org.greenplum.pxf.api.OneRow;
 import org.greenplum.pxf.api.StatsAccessor;
 import org.greenplum.pxf.api.filter.FilterParser;
@@ -40,6 +43,7 @@ import org.greenplum.pxf.api.model.RequestContext;
 import org.greenplum.pxf.api.utilities.ColumnDescriptor;
 import org.greenplum.pxf.api.utilities.EnumAggregationType;
 import org.greenplum.pxf.api.utilities.Utilities;
+import org.greenplum.pxf.plugins.hdfs.utilities.HdfsUtilities;
 
 import java.util.ArrayList;
 import java.util.EnumSet;
@@ -137,13 +141,29 @@ public class HiveORCAccessor extends HiveAccessor implements StatsAccessor {
     }
 
     /**
-     * Uses {@link HivePartitionFilterBuilder} to translate a filter string into a
-     * Hive {@link SearchArgument} object. The result is added as a filter to
-     * JobConf object
+     * Adds the {@link SearchArgument} of the request filter to JobConf object,
+     * so that the ORC reader skips the row groups that cannot match it.
      */
     private void addFilters() throws Exception {
+        String searchArgument = getSearchArgument(context, configuration);
+        if (searchArgument != null) {
+            jobConf.set(ConvertAstToSearchArg.SARG_PUSHDOWN, searchArgument);
+        }
+    }
+
+    /**
+     * Uses {@link HiveORCSearchArgumentBuilder} to translate the filter string
+     * of the request into a Hive {@link SearchArgument} object, serialized the
+     * way ORC expects it in the configuration.
+     *
+     * @param context       the request context
+     * @param configuration the server configuration
+     * @return the serialized search argument, or null when the request has no filter
+     * @throws Exception if the filter string cannot be parsed
+     */
+    static String getSearchArgument(RequestContext context, Configuration configuration) throws Exception {
         if (!context.hasFilter()) {
-            return;
+            return null;
         }
 
         /* Predicate push-down configuration */
@@ -159,29 +179,48 @@ public class HiveORCAccessor extends HiveAccessor implements StatsAccessor {
 
         SearchArgument.Builder filterBuilder = searchArgumentBuilder.getFilterBuilder();
         SearchArgument searchArgument = filterBuilder.build();
-        jobConf.set(ConvertAstToSearchArg.SARG_PUSHDOWN, toKryo(searchArgument));
+        return toKryo(searchArgument);
     }
 
     /**
-     * Fetches file-level statistics from an ORC file.
+     * Counts the rows of the split from the stripe information of the ORC
+     * file footer, without reading the stripes. A stripe belongs to the split
+     * its offset falls into, the same way the ORC reader assigns stripes to
+     * splits, so that every split of a file counts its own rows.
      */
     @Override
     public void retrieveStats() throws Exception {
         if (!this.useStats) {
             throw new IllegalStateException("Accessor is not using statistics in current context.");
         }
-        /*
-         * We are using file-level stats therefore if file has multiple splits,
-         * it's enough to return count for a first split in file.
-         * In case file has multiple splits - we don't want to duplicate counts.
-         */
-        if (context.getFragmentIndex() == 0) {
-            this.count = this.orcReader.getNumberOfRows();
+        FileSplit fileSplit = HdfsUtilities.parseFileSplit(context);
+        this.count = getNumberOfRows(orcReader.getStripes(), fileSplit.getStart(), fileSplit.getLength());
+        if (count > 0) {
             rowToEmitCount = readNextObject();
         }
         statsInitialized = true;
     }
 
+    /**
+     * Returns the number of rows of the stripes starting in the given range
+     * of the file.
+     *
+     * @param stripes the stripes of the file
+     * @param start   the start of the range
+     * @param length  the length of the range
+     * @return the number of rows
+     */
+    static long getNumberOfRows(List<StripeInformation> stripes, long start, long length) {
+        long numberOfRows = 0;
+        for (StripeInformation stripe : stripes) {
+            long offset = stripe.getOffset();
+            if (offset >= start && offset < start + length) {
+                numberOfRows += stripe.getNumberOfRows();
+            }
+        }
+        return numberOfRows;
+    }
+
     /**
      * Emits tuple without reading from disk, currently supports COUNT
      */
@@ -212,7 +251,7 @@ public class HiveORCAccessor extends HiveAccessor implements StatsAccessor {
         return jobConf;
     }
 
-    private String toKryo(SearchArgument sarg) {
+    private static String toKryo(SearchArgument sarg) {
         Output out = new Output(KRYO_BUFFER_SIZE, KRYO_MAX_BUFFER_SIZE);
         new Kryo().writeObject(out, sarg);
         out.close();
@@ -50,6 +50,9 @@ import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.StructField;
 import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
 import org.apache.hadoop.io.Text;
+import org.greenplum.pxf.api.BadRecordException;
+import org.greenplum.pxf.api.BatchResolver;
+import org.greenplum.pxf.api.ColumnBatch;
 import org.greenplum.pxf.api.OneField;
 import org.greenplum.pxf.api.OneRow;
 import org.greenplum.pxf.api.ReadVectorizedResolver;
@@ -60,9 +63,12 @@ import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector.Category;
 import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
 
 /**
- * Class which implements resolving a batch of records at once
+ * Class which implements resolving a batch of records at once. For the
+ * GPDBWritable output format, the ORC column vectors are copied straight into
+ * the column vectors of a {@link ColumnBatch}, without creating fields or
+ * boxing values.
  */
-public class HiveORCVectorizedResolver extends HiveResolver implements ReadVectorizedResolver {
+public class HiveORCVectorizedResolver extends HiveResolver implements ReadVectorizedResolver, BatchResolver {
 
     private static final Log LOG = LogFactory.getLog(HiveORCVectorizedResolver.class);
 
@@ -116,6 +122,240 @@ public class HiveORCVectorizedResolver extends HiveResolver implements ReadVecto
         return resolvedBatch;
     }
 
+    /**
+     * Resolves the ORC batch into the given column batch. Honors repeating
+     * vectors, vectors without nulls and selected rows. Text and binary values
+     * reference the buffers of the ORC batch, which are only reused when the
+     * accessor reads the next batch.
+     *
+     * @param row   the ORC batch read by the accessor
+     * @param batch the batch to fill
+     * @throws BadRecordException if the type of a column does not match the external table
+     */
+    @Override
+    public void resolveBatch(OneRow row, ColumnBatch batch) throws BadRecordException {
+        VectorizedRowBatch vectorizedBatch = (VectorizedRowBatch) row.getData();
+        int size = vectorizedBatch.size;
+        if (size > batch.getCapacity()) {
+            throw new IllegalStateException(String.format(
+                    "ORC batch of %d rows exceeds the batch capacity of %d rows", size, batch.getCapacity()));
+        }
+        int[] selected = vectorizedBatch.selectedInUse ? vectorizedBatch.selected : null;
+
+        List<? extends StructField> allStructFieldRefs = soi.getAllStructFieldRefs();
+        for (int columnIndex = 0; columnIndex < batch.getNumColumns(); columnIndex++) {
+            org.greenplum.pxf.api.ColumnVector target = batch.getColumn(columnIndex);
+            ColumnVector source = columnIndex < vectorizedBatch.numCols ? vectorizedBatch.cols[columnIndex] : null;
+            // columns that are not projected are not read from the file
+            if (source == null || !context.getColumn(columnIndex).isProjected()) {
+                for (int rowIndex = 0; rowIndex < size; rowIndex++) {
+                    target.setNull(rowIndex);
+                }
+                continue;
+            }
+
+            ObjectInspector oi = allStructFieldRefs.get(columnIndex).getFieldObjectInspector();
+            if (oi.getCategory() != Category.PRIMITIVE) {
+                throw new UnsupportedTypeException("Unable to resolve column index:" + columnIndex
+                        + ". Only primitive types are supported.");
+            }
+            PrimitiveCategory primitiveCategory = ((PrimitiveObjectInspector) oi).getPrimitiveCategory();
+            DataType fieldType = getFieldType(primitiveCategory, oi);
+            DataType schemaType = target.getType();
+            if (fieldType != schemaType && !(isStringType(fieldType) && target.bytesValues != null)) {
+                throw new BadRecordException(String.format(
+                        "For field %d schema requires type %s but input record has type %s",
+                        columnIndex, schemaType, fieldType));
+            }
+            resolveColumn(primitiveCategory, source, selected, size, target);
+        }
+        batch.setSize(size);
+    }
+
+    /* Copies the values of an ORC column vector into a column vector of the batch */
+    private void resolveColumn(PrimitiveCategory primitiveCategory, ColumnVector source, int[] selected, int size,
+                               org.greenplum.pxf.api.ColumnVector target) {
+        switch (primitiveCategory) {
+            case BOOLEAN: {
+                LongColumnVector lcv = (LongColumnVector) source;
+                for (int rowIndex = 0; rowIndex < size; rowIndex++) {
+                    int rowId = getRowId(source, selected, rowIndex);
+                    if (isNull(source, rowId)) {
+                        target.setNull(rowIndex);
+                    } else {
+                        target.setLong(rowIndex, lcv.vector[rowId] == 1 ? 1 : 0);
+                    }
+                }
+                break;
+            }
+            case BYTE:
+            case SHORT: {
+                LongColumnVector lcv = (LongColumnVector) source;
+                for (int rowIndex = 0; rowIndex < size; rowIndex++) {
+                    int rowId = getRowId(source, selected, rowIndex);
+                    if (isNull(source, rowId)) {
+                        target.setNull(rowIndex);
+                    } else {
+                        target.setLong(rowIndex, (short) lcv.vector[rowId]);
+                    }
+                }
+                break;
+            }
+            case INT: {
+                LongColumnVector lcv = (LongColumnVector) source;
+                for (int rowIndex = 0; rowIndex < size; rowIndex++) {
+                    int rowId = getRowId(source, selected, rowIndex);
+                    if (isNull(source, rowId)) {
+                        target.setNull(rowIndex);
+                    } else {
+                        target.setLong(rowIndex, (int) lcv.vector[rowId]);
+                    }
+                }
+                break;
+            }
+            case LONG: {
+                LongColumnVector lcv = (LongColumnVector) source;
+                for (int rowIndex = 0; rowIndex < size; rowIndex++) {
+                    int rowId = getRowId(source, selected, rowIndex);
+                    if (isNull(source, rowId)) {
+                        target.setNull(rowIndex);
+                    } else {
+                        target.setLong(rowIndex, lcv.vector[rowId]);
+                    }
+                }
+                break;
+            }
+            case FLOAT: {
+                DoubleColumnVector dcv = (DoubleColumnVector) source;
+                for (int rowIndex = 0; rowIndex < size; rowIndex++) {
+                    int rowId = getRowId(source, selected, rowIndex);
+                    if (isNull(source, rowId)) {
+                        target.setNull(rowIndex);
+                    } else {
+                        target.setDouble(rowIndex, (float) dcv.vector[rowId]);
+                    }
+                }
+                break;
+            }
+            case DOUBLE: {
+                DoubleColumnVector dcv = (DoubleColumnVector) source;
+                for (int rowIndex = 0; rowIndex < size; rowIndex++) {
+                    int rowId = getRowId(source, selected, rowIndex);
+                    if (isNull(source, rowId)) {
+                        target.setNull(rowIndex);
+                    } else {
+                        target.setDouble(rowIndex, dcv.vector[rowId]);
+                    }
+                }
+                break;
+            }
+            case DECIMAL: {
+                DecimalColumnVector dcv = (DecimalColumnVector) source;
+                for (int rowIndex = 0; rowIndex < size; rowIndex++) {
+                    int rowId = getRowId(source, selected, rowIndex);
+                    if (isNull(source, rowId)) {
+                        target.setNull(rowIndex);
+                    } else {
+                        target.setString(rowIndex, dcv.vector[rowId].toString());
+                    }
+                }
+                break;
+            }
+            case VARCHAR:
+            case CHAR:
+            case STRING:
+            case BINARY: {
+                BytesColumnVector bcv = (BytesColumnVector) source;
+                for (int rowIndex = 0; rowIndex < size; rowIndex++) {
+                    int rowId = getRowId(source, selected, rowIndex);
+                    if (isNull(source, rowId)) {
+                        target.setNull(rowIndex);
+                    } else {
+                        target.setBytes(rowIndex, bcv.vector[rowId], bcv.start[rowId], bcv.length[rowId]);
+                    }
+                }
+                break;
+            }
+            case DATE: {
+                LongColumnVector lcv = (LongColumnVector) source;
+                for (int rowIndex = 0; rowIndex < size; rowIndex++) {
+                    int rowId = getRowId(source, selected, rowIndex);
+                    if (isNull(source, rowId)) {
+                        target.setNull(rowIndex);
+                    } else {
+                        target.setString(rowIndex, new Date(DateWritable.daysToMillis((int) lcv.vector[rowId])).toString());
+                    }
+                }
+                break;
+            }
+            default:
+                // rejected by getFieldType
+                throw new IllegalStateException("Unexpected primitive category " + primitiveCategory);
+        }
+    }
+
+    /* Returns the index of the value of a row in an ORC column vector */
+    private static int getRowId(ColumnVector columnVector, int[] selected, int rowIndex) {
+        if (columnVector.isRepeating) {
+            return 0;
+        }
+        return selected != null ? selected[rowIndex] : rowIndex;
+    }
+
+    /* isNull is only maintained by ORC column vectors that have nulls */
+    private static boolean isNull(ColumnVector columnVector, int rowId) {
+        return !columnVector.noNulls && columnVector.isNull[rowId];
+    }
+
+    /* Returns the type of the fields resolved from an ORC column of the given category */
+    private DataType getFieldType(PrimitiveCategory primitiveCategory, ObjectInspector oi) {
+        switch (primitiveCategory) {
+            case BOOLEAN:
+                return BOOLEAN;
+            case BYTE:
+            case SHORT:
+                return SMALLINT;
+            case INT:
+                return INTEGER;
+            case LONG:
+                return BIGINT;
+            case FLOAT:
+                return REAL;
+            case DOUBLE:
+                return FLOAT8;
+            case DECIMAL:
+                return NUMERIC;
+            case VARCHAR:
+                return VARCHAR;
+            case CHAR:
+                return BPCHAR;
+            case STRING:
+                return TEXT;
+            case BINARY:
+                return BYTEA;
+            case DATE:
+                return DATE;
+            default:
+                throw new UnsupportedTypeException(oi.getTypeName()
+                        + " conversion is not supported by "
+                        + getClass().getSimpleName());
+        }
+    }
+
+    /* Types that are serialized as text, like the GPDBWritable output does */
+    private static boolean isStringType(DataType type) {
+        switch (type) {
+            case VARCHAR:
+            case BPCHAR:
+            case TEXT:
+            case NUMERIC:
+            case DATE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
     /**
      * Resolves a column of a primitive type out of given batch
      *
@@ -0,0 +1,119 @@
+package org.greenplum.pxf.plugins.hive;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import org.apache.hadoop.mapred.InputSplit;
+import org.greenplum.pxf.api.utilities.CacheUtilities;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the splits of Hive tables and partitions, so that the files of
+ * partitions that did not change are not listed again by the next queries.
+ * The callers include the last DDL time of the partition in the key, so that
+ * the splits are listed again once the partition is modified through Hive.
+ * Splits are also listed again once they expire, to pick up files written
+ * to the partition directories without Hive.
+ */
+public class HiveSplitCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HiveSplitCache.class);
+
+    /**
+     * Seconds the splits of a partition are used after they are listed. Files
+     * added to a partition directory without Hive show up once the splits
+     * expire, so this is how stale a listing can get.
+     */
+    public static final String PXF_HIVE_SPLIT_CACHE_EXPIRATION_PROPERTY = "pxf.hive.fragmenter.split.cache.expiration.seconds";
+
+    /**
+     * Maximum number of tables and partitions whose splits are kept. A table
+     * with many partitions needs an entry per partition to skip all of its
+     * listings.
+     */
+    public static final String PXF_HIVE_SPLIT_CACHE_SIZE_PROPERTY = "pxf.hive.fragmenter.split.cache.size";
+
+    private static final int DEFAULT_EXPIRATION_SECONDS = 300;
+    private static final int DEFAULT_SIZE = 100000;
+
+    /**
+     * Singleton instance of the HiveSplitCache
+     */
+    private static final HiveSplitCache instance = new HiveSplitCache();
+
+    private final Cache<List<String>, InputSplit[]> splits;
+
+    /**
+     * Creates an instance of the cache.
+     */
+    private HiveSplitCache() {
+        this(Ticker.systemTicker(),
+                Integer.getInteger(PXF_HIVE_SPLIT_CACHE_EXPIRATION_PROPERTY, DEFAULT_EXPIRATION_SECONDS),
+                Integer.getInteger(PXF_HIVE_SPLIT_CACHE_SIZE_PROPERTY, DEFAULT_SIZE));
+    }
+
+    HiveSplitCache(Ticker ticker, long expirationSeconds, long size) {
+        this.splits = CacheBuilder.newBuilder()
+                .ticker(ticker)
+                .expireAfterWrite(expirationSeconds, TimeUnit.SECONDS)
+                .maximumSize(size)
+                .removalListener((RemovalListener<List<String>, InputSplit[]>) notification ->
+                        LOG.debug("Removed split cache entry for {} with cause {}",
+                                notification.getKey(), notification.getCause()))
+                .build();
+    }
+
+    /**
+     * @return a singleton instance of the split cache.
+     */
+    public static HiveSplitCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the cached splits for the given key, listing them if they are
+     * not cached yet. Concurrent requests for the same key wait for a single
+     * listing. Failed listings are not cached.
+     *
+     * @param key      the values that identify the splits, like the location and the last DDL time of the partition
+     * @param listing  lists the splits
+     * @return the splits, which must not be modified
+     * @throws IOException if the listing fails
+     */
+    public InputSplit[] get(List<String> key, Callable<InputSplit[]> listing) throws IOException {
+        return CacheUtilities.get(splits, key, listing, IOException.class, IOException::new, "Failed to list splits");
+    }
+
+    /**
+     * Explicitly runs cache maintenance operations.
+     */
+    void cleanCache() {
+        splits.cleanUp();
+    }
+}
@@ -19,18 +19,35 @@
 
 package org.greenplum.pxf.plugins.hive;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 /**
  * Class which is a carrier for user data in Hive fragment.
- *
+ * <p>
+ * The fragmenter sends the user data in the compact binary form returned by
+ * {@link #toBytes()}, the text form returned by {@link #toString()} is still
+ * accepted from older fragmenters.
  */
 public class HiveUserData {
 
     public static final String HIVE_UD_DELIM = "!HUDD!";
     private static final int EXPECTED_NUM_OF_TOKS = 11;
 
+    /**
+     * First byte of the binary form, the text form starts with the input format name
+     */
+    public static final byte BINARY_FORMAT_VERSION = 1;
+
     private final String inputFormatName;
     private final String serdeClassName;
     private final String propertiesString;
@@ -192,4 +209,93 @@ public class HiveUserData {
                 + allColumnTypes;
     }
 
+    /**
+     * Returns the binary form of the user data: {@link #BINARY_FORMAT_VERSION}
+     * followed by the deflated values. As in the text form, missing values
+     * are encoded as "null", so that both forms decode to the same values.
+     *
+     * @return the binary form of the user data
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(BINARY_FORMAT_VERSION);
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            writeString(out, inputFormatName);
+            writeString(out, serdeClassName);
+            writeString(out, propertiesString);
+            writeString(out, partitionKeys);
+            out.writeBoolean(filterInFragmenter);
+            writeString(out, delimiter);
+            writeString(out, colTypes);
+            out.writeInt(skipHeader);
+            if (hiveIndexes == null) {
+                out.writeInt(-1);
+            } else {
+                out.writeInt(hiveIndexes.size());
+                for (Integer index : hiveIndexes) {
+                    out.writeInt(index != null ? index : -1);
+                }
+            }
+            writeString(out, allColumnNames);
+            writeString(out, allColumnTypes);
+        } catch (IOException e) {
+            // the streams are in memory
+            throw new IllegalStateException("Failed to serialize Hive user data", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes the binary form of the user data returned by {@link #toBytes()}.
+     *
+     * @param bytes the binary form of the user data
+     * @return the user data
+     * @throws IllegalArgumentException if the user data is not in the binary form or is corrupted
+     */
+    public static HiveUserData fromBytes(byte[] bytes) throws IllegalArgumentException {
+        if (bytes.length == 0 || bytes[0] != BINARY_FORMAT_VERSION) {
+            throw new IllegalArgumentException("Hive user data is not in binary form");
+        }
+
+        ByteArrayInputStream bytesIn = new ByteArrayInputStream(bytes, 1, bytes.length - 1);
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(bytesIn))) {
+            String inputFormatName = readString(in);
+            String serdeClassName = readString(in);
+            String propertiesString = readString(in);
+            String partitionKeys = readString(in);
+            boolean filterInFragmenter = in.readBoolean();
+            String delimiter = readString(in);
+            String colTypes = readString(in);
+            int skipHeader = in.readInt();
+            List<Integer> hiveIndexes = null;
+            int numOfIndexes = in.readInt();
+            if (numOfIndexes >= 0) {
+                hiveIndexes = new ArrayList<>(numOfIndexes);
+                for (int i = 0; i < numOfIndexes; i++) {
+                    int index = in.readInt();
+                    hiveIndexes.add(index >= 0 ? index : null);
+                }
+            }
+            String allColumnNames = readString(in);
+            String allColumnTypes = readString(in);
+
+            return new HiveUserData(inputFormatName, serdeClassName, propertiesString, partitionKeys,
+                    filterInFragmenter, delimiter, colTypes, skipHeader, hiveIndexes, allColumnNames, allColumnTypes);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to deserialize Hive user data: " + e.getMessage(), e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
 }
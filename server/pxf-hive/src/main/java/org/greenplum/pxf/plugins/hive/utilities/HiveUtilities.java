@@ -20,6 +20,8 @@ package org.greenplum.pxf.plugins.hive.utilities;
  */
 
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
@@ -31,15 +33,18 @@ import org.greenplum.pxf.api.UnsupportedTypeException;
 import org.greenplum.pxf.api.io.DataType;
 import org.greenplum.pxf.api.model.Metadata;
 import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.CacheUtilities;
 import org.greenplum.pxf.api.utilities.EnumGpdbType;
 import org.greenplum.pxf.api.utilities.Utilities;
 import org.greenplum.pxf.plugins.hive.HiveUserData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -52,6 +57,19 @@ public class HiveUtilities {
 
     private static final Logger LOG = LoggerFactory.getLogger(HiveUtilities.class);
 
+    /**
+     * Name of the system property with the maximum number of decoded user data kept
+     */
+    public static final String PXF_HIVE_USER_DATA_CACHE_SIZE_PROPERTY = "pxf.hive.user.data.cache.size";
+
+    private static final int DEFAULT_USER_DATA_CACHE_SIZE = 100;
+
+    /* the fragments of a partition have the same user data, it is decoded once */
+    private static final Cache<ByteBuffer, HiveUserData> USER_DATA_CACHE = CacheBuilder.newBuilder()
+            .maximumSize(Integer.getInteger(PXF_HIVE_USER_DATA_CACHE_SIZE_PROPERTY, DEFAULT_USER_DATA_CACHE_SIZE))
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .build();
+
     /**
      * Checks if hive type is supported, and if so return its matching GPDB
      * type. Unsupported types will result in an exception. <br>
@@ -204,14 +222,27 @@ public class HiveUtilities {
     }
 
     /**
-     * The method parses raw user data into HiveUserData class
+     * The method parses raw user data into HiveUserData class. The user data
+     * is in the binary form of {@link HiveUserData#toBytes()}, or in the text
+     * form of older fragmenters. The decoded user data is kept for the next
+     * fragments of the same partition, and must not be modified.
      *
      * @param context input data
      * @return instance of HiveUserData class
      * @throws IllegalArgumentException when incorrect number of tokens in Hive user data received
      */
     public static HiveUserData parseHiveUserData(RequestContext context) throws IllegalArgumentException {
-        String userData = new String(context.getFragmentUserData());
+        byte[] userData = context.getFragmentUserData();
+        return CacheUtilities.get(USER_DATA_CACHE, ByteBuffer.wrap(userData), () ->
+                        (userData.length > 0 && userData[0] == HiveUserData.BINARY_FORMAT_VERSION) ?
+                                HiveUserData.fromBytes(userData) :
+                                parseHiveUserData(new String(userData)),
+                IllegalArgumentException.class, IllegalArgumentException::new,
+                "Failed to parse Hive user data");
+    }
+
+    /* Parses the text form of the user data */
+    private static HiveUserData parseHiveUserData(String userData) throws IllegalArgumentException {
         String[] toks = userData.split(HiveUserData.HIVE_UD_DELIM, HiveUserData.getNumOfTokens());
 
         if (toks.length != (HiveUserData.getNumOfTokens())) {
@@ -0,0 +1,210 @@
+package org.greenplum.pxf.plugins.hive;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.hadoop.hive.metastore.IMetaStoreClient;
+import org.apache.hadoop.hive.metastore.api.MetaException;
+import org.apache.hadoop.hive.metastore.api.NoSuchObjectException;
+import org.apache.hadoop.hive.metastore.api.Table;
+import org.apache.thrift.TApplicationException;
+import org.apache.thrift.transport.TTransportException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HiveClientPoolTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private MockTicker ticker;
+    private HiveClientPool pool;
+    private List<IMetaStoreClient> clients;
+    private List<String> key = Arrays.asList("default", "dummy", "thrift://metastore:9083", "false");
+
+    @Before
+    public void setup() {
+        ticker = new MockTicker();
+        pool = new HiveClientPool(ticker, 2, 600, 30);
+        clients = new ArrayList<>();
+    }
+
+    @Test
+    public void testClientIsReused() throws Exception {
+        Table table = new Table();
+
+        IMetaStoreClient client = pool.getClient(key, this::createClient);
+        when(clients.get(0).getTable("default", "sales")).thenReturn(table);
+
+        assertSame(table, client.getTable("default", "sales"));
+        assertSame(table, pool.getClient(key, this::createClient).getTable("default", "sales"));
+        assertEquals(1, clients.size());
+    }
+
+    @Test
+    public void testClientsAreNotSharedBetweenKeys() throws Exception {
+        pool.getClient(key, this::createClient);
+        pool.getClient(Arrays.asList("default", "other", "thrift://metastore:9083", "false"), this::createClient);
+
+        assertEquals(2, clients.size());
+    }
+
+    @Test
+    public void testConnectionFailureIsReported() throws Exception {
+        expectedException.expect(RuntimeException.class);
+        expectedException.expectMessage("Failed connecting to Hive MetaStore service: which way to albuquerque");
+
+        pool.getClient(key, () -> {
+            throw new RuntimeException("Failed connecting to Hive MetaStore service: which way to albuquerque");
+        });
+    }
+
+    @Test
+    public void testCloseDoesNotCloseClient() throws Exception {
+        pool.getClient(key, this::createClient).close();
+
+        verify(clients.get(0), never()).close();
+    }
+
+    @Test
+    public void testFailedClientIsReplaced() throws Exception {
+        IMetaStoreClient client = pool.getClient(key, this::createClient);
+        when(clients.get(0).getTable("default", "sales")).thenThrow(new TTransportException("connection reset"));
+
+        try {
+            client.getTable("default", "sales");
+            fail("the failure was not reported");
+        } catch (TTransportException e) {
+            assertEquals("connection reset", e.getMessage());
+        }
+        verify(clients.get(0)).close();
+
+        client.getTable("default", "sales");
+        assertEquals(2, clients.size());
+    }
+
+    @Test
+    public void testClientIsKeptWhenObjectIsMissing() throws Exception {
+        IMetaStoreClient client = pool.getClient(key, this::createClient);
+        when(clients.get(0).getTable("default", "sales")).thenThrow(new NoSuchObjectException("default.sales table not found"));
+
+        try {
+            client.getTable("default", "sales");
+            fail("the missing table was not reported");
+        } catch (NoSuchObjectException e) {
+            assertEquals("default.sales table not found", e.getMessage());
+        }
+
+        client.getAllDatabases();
+        verify(clients.get(0), never()).close();
+        assertEquals(1, clients.size());
+    }
+
+    @Test
+    public void testClientIsKeptWhenAccessIsDenied() throws Exception {
+        IMetaStoreClient client = pool.getClient(key, this::createClient);
+        when(clients.get(0).getTable("default", "sales")).thenThrow(new MetaException("User dummy is not allowed to perform this API call"));
+
+        try {
+            client.getTable("default", "sales");
+            fail("the denied access was not reported");
+        } catch (MetaException e) {
+            assertEquals("User dummy is not allowed to perform this API call", e.getMessage());
+        }
+
+        client.getAllDatabases();
+        verify(clients.get(0), never()).close();
+        assertEquals(1, clients.size());
+    }
+
+    @Test
+    public void testConnectionFailures() {
+        assertTrue(HiveClientPool.isConnectionFailure(new TTransportException("broken pipe")));
+        assertTrue(HiveClientPool.isConnectionFailure(new TApplicationException(TApplicationException.BAD_SEQUENCE_ID)));
+        assertFalse(HiveClientPool.isConnectionFailure(new MetaException("permission denied")));
+        assertFalse(HiveClientPool.isConnectionFailure(new NoSuchObjectException("default.sales table not found")));
+        assertFalse(HiveClientPool.isConnectionFailure(new IllegalStateException("not a MetaStore failure")));
+    }
+
+    @Test
+    public void testIdleClientIsValidated() throws Exception {
+        IMetaStoreClient client = pool.getClient(key, this::createClient);
+        when(clients.get(0).getAllDatabases()).thenThrow(new MetaException("broken pipe"));
+
+        ticker.advanceTime(31, TimeUnit.SECONDS);
+        client.getTable("default", "sales");
+
+        verify(clients.get(0)).close();
+        assertEquals(2, clients.size());
+    }
+
+    @Test
+    public void testIdleClientIsClosed() throws Exception {
+        IMetaStoreClient client = pool.getClient(key, this::createClient);
+
+        ticker.advanceTime(601, TimeUnit.SECONDS);
+        client.getTable("default", "sales");
+
+        verify(clients.get(0)).close();
+        verify(clients.get(0), never()).getAllDatabases();
+        assertEquals(2, clients.size());
+    }
+
+    @Test
+    public void testUnusedPoolIsClosed() throws Exception {
+        pool.getClient(key, this::createClient);
+
+        ticker.advanceTime(601, TimeUnit.SECONDS);
+        pool.cleanCache();
+
+        verify(clients.get(0)).close();
+    }
+
+    @Test
+    public void testPoolingIsDisabled() throws Exception {
+        pool = new HiveClientPool(ticker, 0, 600, 30);
+
+        IMetaStoreClient client = pool.getClient(key, this::createClient);
+
+        assertSame(clients.get(0), client);
+    }
+
+    private IMetaStoreClient createClient() {
+        IMetaStoreClient client = mock(IMetaStoreClient.class);
+        clients.add(client);
+        return client;
+    }
+}
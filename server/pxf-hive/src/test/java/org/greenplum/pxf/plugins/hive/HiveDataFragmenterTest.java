@@ -20,13 +20,64 @@ package org.greenplum.pxf.plugins.hive;
  */
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.metastore.IMetaStoreClient;
+import org.apache.hadoop.hive.metastore.api.FieldSchema;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.SerDeInfo;
+import org.apache.hadoop.hive.metastore.api.StorageDescriptor;
+import org.apache.hadoop.hive.metastore.api.Table;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.ql.io.orc.OrcInputFormat;
+import org.apache.hadoop.hive.ql.io.sarg.ConvertAstToSearchArg;
+import org.apache.hadoop.hive.serde.serdeConstants;
+import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
+import org.apache.hadoop.mapred.FileInputFormat;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.RecordReader;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.orc.OrcFile;
+import org.apache.orc.StripeInformation;
+import org.apache.orc.TypeDescription;
+import org.apache.orc.Writer;
+import org.greenplum.pxf.api.io.DataType;
 import org.greenplum.pxf.api.model.ConfigurationFactory;
+import org.greenplum.pxf.api.model.Fragment;
+import org.greenplum.pxf.api.model.Metadata;
 import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -35,16 +86,21 @@ public class HiveDataFragmenterTest {
     @Rule
     public ExpectedException expectedException = ExpectedException.none();
 
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
     private RequestContext context;
     private Configuration configuration;
     private ConfigurationFactory configurationFactory;
     private HiveClientWrapper hiveClientWrapper;
+    private IMetaStoreClient client;
 
     @Before
     public void setup() {
 
         hiveClientWrapper = mock(HiveClientWrapper.class);
         configurationFactory = mock(ConfigurationFactory.class);
+        client = mock(IMetaStoreClient.class);
 
         context = new RequestContext();
         context.setConfig("default");
@@ -57,6 +113,15 @@ public class HiveDataFragmenterTest {
         when(configurationFactory
                 .initConfiguration("default", "default", "dummy", context.getAdditionalConfigProps()))
                 .thenReturn(configuration);
+
+        ListingInputFormat.listed.clear();
+        ListingInputFormat.failing = null;
+        ListingInputFormat.blocking = null;
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty(HiveDataFragmenter.PXF_HIVE_SPLIT_THREADS_PER_REQUEST_PROPERTY);
     }
 
     @Test
@@ -69,4 +134,235 @@ public class HiveDataFragmenterTest {
         HiveDataFragmenter fragmenter = new HiveDataFragmenter(configurationFactory, hiveClientWrapper);
         fragmenter.initialize(context);
     }
+
+    @Test
+    public void configureOrcSplitsWithSearchArgument() {
+        JobConf jobConf = new JobConf(configuration);
+
+        HiveDataFragmenter.configureOrcSplits(jobConf, partitionProperties(), "sarg");
+
+        assertEquals("ETL", jobConf.get("hive.exec.orc.split.strategy"));
+        assertEquals("id,name", jobConf.get(serdeConstants.LIST_COLUMNS));
+        assertEquals("int:string", jobConf.get(serdeConstants.LIST_COLUMN_TYPES));
+        assertEquals("id,name", jobConf.get(ColumnProjectionUtils.READ_COLUMN_NAMES_CONF_STR));
+        assertEquals("sarg", jobConf.get(ConvertAstToSearchArg.SARG_PUSHDOWN));
+    }
+
+    @Test
+    public void configureOrcSplitsWithoutSearchArgument() {
+        JobConf jobConf = new JobConf(configuration);
+
+        HiveDataFragmenter.configureOrcSplits(jobConf, partitionProperties(), null);
+
+        assertEquals("ETL", jobConf.get("hive.exec.orc.split.strategy"));
+        assertNull(jobConf.get(serdeConstants.LIST_COLUMNS));
+        assertNull(jobConf.get(ConvertAstToSearchArg.SARG_PUSHDOWN));
+    }
+
+    @Test
+    public void configureOrcSplitsKeepsConfiguredStrategy() {
+        configuration.set("hive.exec.orc.split.strategy", "BI");
+        JobConf jobConf = new JobConf(configuration);
+
+        HiveDataFragmenter.configureOrcSplits(jobConf, partitionProperties(), "sarg");
+
+        assertEquals("BI", jobConf.get("hive.exec.orc.split.strategy"));
+        assertEquals("sarg", jobConf.get(ConvertAstToSearchArg.SARG_PUSHDOWN));
+    }
+
+    @Test
+    public void orcStripesThatCannotMatchTheFilterAreNotSplit() throws Exception {
+        configuration.set("fs.defaultFS", "file:///");
+        Path path = writeOrcFile(4, 100);
+        List<StripeInformation> stripes = OrcFile.createReader(path, OrcFile.readerOptions(configuration)).getStripes();
+        assertEquals(4, stripes.size());
+
+        // id < 100 only matches the first stripe
+        context.setTupleDescription(Arrays.asList(
+                new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null),
+                new ColumnDescriptor("name", DataType.TEXT.getOID(), 1, "text", null)));
+        context.setFilterString("a0c23s3d100o1");
+        String searchArgument = HiveORCAccessor.getSearchArgument(context, configuration);
+
+        JobConf jobConf = new JobConf(configuration);
+        FileInputFormat.setInputPaths(jobConf, path.getParent());
+        HiveDataFragmenter.configureOrcSplits(jobConf, partitionProperties(), searchArgument);
+        InputSplit[] splits = new OrcInputFormat().getSplits(jobConf, 1);
+
+        assertEquals(1, splits.length);
+        assertEquals(stripes.get(0).getOffset(), ((FileSplit) splits[0]).getStart());
+        assertEquals(stripes.get(0).getLength(), ((FileSplit) splits[0]).getLength());
+    }
+
+    @Test
+    public void orcStripesAreAllSplitWithoutFilter() throws Exception {
+        configuration.set("fs.defaultFS", "file:///");
+        Path path = writeOrcFile(4, 100);
+        List<StripeInformation> stripes = OrcFile.createReader(path, OrcFile.readerOptions(configuration)).getStripes();
+
+        JobConf jobConf = new JobConf(configuration);
+        FileInputFormat.setInputPaths(jobConf, path.getParent());
+        HiveDataFragmenter.configureOrcSplits(jobConf, partitionProperties(), null);
+        InputSplit[] splits = new OrcInputFormat().getSplits(jobConf, 1);
+
+        long stripesLength = stripes.stream().mapToLong(StripeInformation::getLength).sum();
+        long splitsLength = Arrays.stream(splits).mapToLong(split -> ((FileSplit) split).getLength()).sum();
+        assertEquals(stripes.get(0).getOffset(), ((FileSplit) splits[0]).getStart());
+        assertEquals(stripesLength, splitsLength);
+    }
+
+    @Test
+    public void fragmentsAreInPartitionOrder() throws Exception {
+        // the first partitions are the slowest to list
+        List<Fragment> fragments = getFragments("p0", "p1", "p2", "p3", "p4", "p5");
+
+        assertEquals(6, ListingInputFormat.listed.size());
+        List<String> partitions = fragments.stream()
+                .map(fragment -> new Path(fragment.getSourceName()).getParent().getName())
+                .collect(Collectors.toList());
+        assertEquals(Arrays.asList("p0", "p1", "p2", "p3", "p4", "p5"), partitions);
+    }
+
+    @Test
+    public void partitionFailureCancelsOtherListings() throws Exception {
+        System.setProperty(HiveDataFragmenter.PXF_HIVE_SPLIT_THREADS_PER_REQUEST_PROPERTY, "2");
+        ListingInputFormat.failing = "p0";
+        ListingInputFormat.blocking = "p1";
+        ListingInputFormat.blockingStarted = new CountDownLatch(1);
+        ListingInputFormat.interrupted = new CountDownLatch(1);
+
+        try {
+            getFragments("p0", "p1", "p2", "p3", "p4");
+            fail("the listing failure was not reported");
+        } catch (IOException e) {
+            assertEquals("failed to list p0", e.getMessage());
+        }
+
+        // the listing in progress is interrupted, and the next partitions are not listed
+        assertTrue(ListingInputFormat.interrupted.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("p0", "p1"),
+                ListingInputFormat.listed.stream().sorted().collect(Collectors.toList()));
+    }
+
+    private List<Fragment> getFragments(String... partitionNames) throws Exception {
+        configuration.set("fs.defaultFS", "file:///");
+        context.setDataSource("default.tbl");
+        context.setTupleDescription(Collections.singletonList(
+                new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null)));
+
+        Table table = new Table();
+        table.setDbName("default");
+        table.setTableName("tbl");
+        table.setSd(storageDescriptor(tempFolder.getRoot()));
+        table.setPartitionKeys(Collections.singletonList(new FieldSchema("part", "string", null)));
+
+        List<Partition> partitions = new ArrayList<>();
+        for (String name : partitionNames) {
+            File directory = tempFolder.newFolder(name);
+            Files.write(new File(directory, "data").toPath(), "1\n2\n".getBytes());
+
+            Partition partition = new Partition();
+            partition.setDbName("default");
+            partition.setTableName("tbl");
+            partition.setValues(Collections.singletonList(name));
+            partition.setSd(storageDescriptor(directory));
+            partitions.add(partition);
+        }
+
+        Metadata.Item tableName = new Metadata.Item("default", "tbl");
+        when(hiveClientWrapper.initHiveClient(context, configuration)).thenReturn(client);
+        when(hiveClientWrapper.extractTableFromName("default.tbl")).thenReturn(tableName);
+        when(hiveClientWrapper.getHiveTable(any(IMetaStoreClient.class), any(Metadata.Item.class))).thenReturn(table);
+        when(client.listPartitions("default", "tbl", (short) -1)).thenReturn(partitions);
+
+        HiveDataFragmenter fragmenter = new HiveDataFragmenter(configurationFactory, hiveClientWrapper);
+        fragmenter.initialize(context);
+        return fragmenter.getFragments();
+    }
+
+    private StorageDescriptor storageDescriptor(File location) {
+        SerDeInfo serDeInfo = new SerDeInfo();
+        serDeInfo.setSerializationLib("org.apache.hadoop.hive.serde2.lazy.LazySimpleSerDe");
+        serDeInfo.setParameters(Collections.emptyMap());
+
+        StorageDescriptor storageDescriptor = new StorageDescriptor();
+        storageDescriptor.setCols(Collections.singletonList(new FieldSchema("id", "int", null)));
+        storageDescriptor.setLocation(location.toURI().toString());
+        storageDescriptor.setInputFormat(ListingInputFormat.class.getName());
+        storageDescriptor.setOutputFormat("org.apache.hadoop.hive.ql.io.HiveIgnoreKeyTextOutputFormat");
+        storageDescriptor.setSerdeInfo(serDeInfo);
+        return storageDescriptor;
+    }
+
+    /**
+     * Lists the files of a partition directory named p0, p1..., the first
+     * partitions being the slowest to list. The listing of the failing
+     * partition fails once the listing of the blocking partition started,
+     * which waits until it is interrupted.
+     */
+    public static class ListingInputFormat extends FileInputFormat<Object, Object> {
+        static final Queue<String> listed = new ConcurrentLinkedQueue<>();
+        static volatile String failing;
+        static volatile String blocking;
+        static volatile CountDownLatch blockingStarted;
+        static volatile CountDownLatch interrupted;
+
+        @Override
+        public InputSplit[] getSplits(JobConf job, int numSplits) throws IOException {
+            String name = getInputPaths(job)[0].getName();
+            listed.add(name);
+            try {
+                if (name.equals(blocking)) {
+                    blockingStarted.countDown();
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                } else if (name.equals(failing)) {
+                    blockingStarted.await();
+                    throw new IOException("failed to list " + name);
+                } else {
+                    Thread.sleep(20 * (10 - Integer.parseInt(name.substring(1))));
+                }
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw new InterruptedIOException(name);
+            }
+            return super.getSplits(job, numSplits);
+        }
+
+        @Override
+        public RecordReader<Object, Object> getRecordReader(InputSplit split, JobConf job, Reporter reporter) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /* Writes an ORC file with the given number of stripes, the ids of each stripe following the previous ones */
+    private Path writeOrcFile(int stripeCount, int rowsPerStripe) throws IOException {
+        Path path = new Path(new File(tempFolder.newFolder("orc"), "data.orc").toURI());
+        TypeDescription schema = TypeDescription.fromString("struct<id:int,name:string>");
+        VectorizedRowBatch batch = schema.createRowBatch(rowsPerStripe);
+        LongColumnVector ids = (LongColumnVector) batch.cols[0];
+        BytesColumnVector names = (BytesColumnVector) batch.cols[1];
+
+        Writer writer = OrcFile.createWriter(path, OrcFile.writerOptions(configuration).setSchema(schema));
+        for (int stripe = 0; stripe < stripeCount; stripe++) {
+            batch.reset();
+            for (int row = 0; row < rowsPerStripe; row++) {
+                int id = stripe * rowsPerStripe + row;
+                ids.vector[row] = id;
+                names.setVal(row, ("name" + id).getBytes(StandardCharsets.UTF_8));
+            }
+            batch.size = rowsPerStripe;
+            writer.addRowBatch(batch);
+            // ends the stripe
+            writer.writeIntermediateFooter();
+        }
+        writer.close();
+        return path;
+    }
+
+    private Properties partitionProperties() {
+        Properties properties = new Properties();
+        properties.setProperty(serdeConstants.LIST_COLUMNS, "id,name");
+        properties.setProperty(serdeConstants.LIST_COLUMN_TYPES, "int:string");
+        return properties;
+    }
 }
@@ -0,0 +1,343 @@
+package org.greenplum.pxf.plugins.hive;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.hadoop.hive.metastore.IMetaStoreClient;
+import org.apache.hadoop.hive.metastore.api.CurrentNotificationEventId;
+import org.apache.hadoop.hive.metastore.api.MetaException;
+import org.apache.hadoop.hive.metastore.api.NoSuchObjectException;
+import org.apache.hadoop.hive.metastore.api.NotificationEvent;
+import org.apache.hadoop.hive.metastore.api.NotificationEventResponse;
+import org.apache.hadoop.hive.metastore.api.Partition;
+import org.apache.hadoop.hive.metastore.api.Table;
+import org.apache.hadoop.hive.metastore.api.hive_metastoreConstants;
+import org.apache.thrift.TApplicationException;
+import org.apache.thrift.TException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HiveMetadataCacheTest {
+
+    private static final short ALL_PARTS = -1;
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private MockTicker ticker;
+    private HiveMetadataCache cache;
+    private IMetaStoreClient mockClient;
+    private IMetaStoreClient client;
+    private List<String> key = Arrays.asList("default", "dummy", "thrift://metastore:9083", "false");
+
+    @Before
+    public void setup() throws Exception {
+        ticker = new MockTicker();
+        cache = new HiveMetadataCache(ticker, 10, 600, 100);
+        mockClient = mock(IMetaStoreClient.class);
+        client = cache.wrap(key, mockClient);
+
+        when(mockClient.getTable("default", "sales")).thenReturn(table("1571702400"));
+        when(mockClient.listPartitions("default", "sales", ALL_PARTS))
+                .thenReturn(Collections.singletonList(new Partition()));
+    }
+
+    @Test
+    public void testTableIsFetchedOnce() throws Exception {
+        assertEquals("sales", client.getTable("default", "sales").getTableName());
+        assertEquals("sales", client.getTable("default", "sales").getTableName());
+
+        verify(mockClient, times(1)).getTable("default", "sales");
+    }
+
+    @Test
+    public void testTableIsCopied() throws Exception {
+        client.getTable("default", "sales").setTableName("changed");
+
+        assertEquals("sales", client.getTable("default", "sales").getTableName());
+        assertNotSame(client.getTable("default", "sales"), client.getTable("default", "sales"));
+    }
+
+    @Test
+    public void testTableExpires() throws Exception {
+        client.getTable("default", "sales");
+        ticker.advanceTime(11, TimeUnit.SECONDS);
+        client.getTable("default", "sales");
+
+        verify(mockClient, times(2)).getTable("default", "sales");
+    }
+
+    @Test
+    public void testEntriesAreNotSharedBetweenKeys() throws Exception {
+        client.getTable("default", "sales");
+        cache.wrap(Arrays.asList("default", "other", "thrift://metastore:9083", "false"), mockClient)
+                .getTable("default", "sales");
+
+        verify(mockClient, times(2)).getTable("default", "sales");
+    }
+
+    @Test
+    public void testPartitionsAreListedOnce() throws Exception {
+        List<Partition> partitions = client.listPartitions("default", "sales", ALL_PARTS);
+
+        assertSame(partitions, client.listPartitions("default", "sales", ALL_PARTS));
+        verify(mockClient, times(1)).listPartitions("default", "sales", ALL_PARTS);
+    }
+
+    @Test
+    public void testPartitionsAreListedPerFilter() throws Exception {
+        client.listPartitionsByFilter("default", "sales", "year = \"2019\"", ALL_PARTS);
+        client.listPartitionsByFilter("default", "sales", "year = \"2020\"", ALL_PARTS);
+        client.listPartitionsByFilter("default", "sales", "year = \"2019\"", ALL_PARTS);
+
+        verify(mockClient, times(1)).listPartitionsByFilter("default", "sales", "year = \"2019\"", ALL_PARTS);
+        verify(mockClient, times(1)).listPartitionsByFilter("default", "sales", "year = \"2020\"", ALL_PARTS);
+    }
+
+    @Test
+    public void testPartitionsExpire() throws Exception {
+        client.listPartitions("default", "sales", ALL_PARTS);
+        ticker.advanceTime(11, TimeUnit.SECONDS);
+        client.listPartitions("default", "sales", ALL_PARTS);
+
+        verify(mockClient, times(2)).listPartitions("default", "sales", ALL_PARTS);
+        verify(mockClient, never()).getTable("default", "sales");
+    }
+
+    @Test
+    public void testEntriesAreKeptLongerWithNotifications() throws Exception {
+        when(mockClient.getCurrentNotificationEventId()).thenReturn(new CurrentNotificationEventId(5));
+
+        client.getTable("default", "sales");
+        ticker.advanceTime(60, TimeUnit.SECONDS);
+        client.getTable("default", "sales");
+
+        verify(mockClient, times(1)).getTable("default", "sales");
+    }
+
+    @Test
+    public void testNotificationsInvalidateChangedTables() throws Exception {
+        when(mockClient.getTable("default", "customers")).thenReturn(table("1571702400"));
+        when(mockClient.getCurrentNotificationEventId())
+                .thenReturn(new CurrentNotificationEventId(5), new CurrentNotificationEventId(6));
+        when(mockClient.getNextNotification(5, 1000, null))
+                .thenReturn(new NotificationEventResponse(Collections.singletonList(event(6, "default", "sales"))));
+
+        client.getTable("default", "sales");
+        client.listPartitions("default", "sales", ALL_PARTS);
+        client.getTable("default", "customers");
+        ticker.advanceTime(2, TimeUnit.SECONDS);
+        client.getTable("default", "sales");
+        client.listPartitions("default", "sales", ALL_PARTS);
+        client.getTable("default", "customers");
+
+        verify(mockClient, times(2)).getTable("default", "sales");
+        verify(mockClient, times(2)).listPartitions("default", "sales", ALL_PARTS);
+        verify(mockClient, times(1)).getTable("default", "customers");
+    }
+
+    @Test
+    public void testDatabaseNotificationsInvalidateItsTables() throws Exception {
+        when(mockClient.getTable("default", "customers")).thenReturn(table("1571702400"));
+        when(mockClient.getTable("other", "sales")).thenReturn(table("1571702400"));
+        when(mockClient.getCurrentNotificationEventId())
+                .thenReturn(new CurrentNotificationEventId(5), new CurrentNotificationEventId(6));
+        when(mockClient.getNextNotification(5, 1000, null))
+                .thenReturn(new NotificationEventResponse(Collections.singletonList(event(6, "DEFAULT", null))));
+
+        client.getTable("default", "sales");
+        client.getTable("default", "customers");
+        client.getTable("other", "sales");
+        ticker.advanceTime(2, TimeUnit.SECONDS);
+        client.getTable("default", "sales");
+        client.getTable("default", "customers");
+        client.getTable("other", "sales");
+
+        verify(mockClient, times(2)).getTable("default", "sales");
+        verify(mockClient, times(2)).getTable("default", "customers");
+        verify(mockClient, times(1)).getTable("other", "sales");
+    }
+
+    @Test
+    public void testReplacedEntriesAreInvalidated() throws Exception {
+        when(mockClient.getCurrentNotificationEventId())
+                .thenThrow(new TException("connection reset"))
+                .thenThrow(new TException("connection reset"))
+                .thenReturn(new CurrentNotificationEventId(5), new CurrentNotificationEventId(6));
+        when(mockClient.getNextNotification(5, 1000, null))
+                .thenReturn(new NotificationEventResponse(Collections.singletonList(event(6, "default", "sales"))));
+
+        client.getTable("default", "sales");
+        // the events cannot be read, the table expires and is replaced
+        ticker.advanceTime(11, TimeUnit.SECONDS);
+        client.getTable("default", "sales");
+        // the events are read again, all the entries are dropped as the first event is not known
+        ticker.advanceTime(4, TimeUnit.SECONDS);
+        client.getTable("default", "sales");
+        // the next event drops the table
+        ticker.advanceTime(1, TimeUnit.SECONDS);
+        client.getTable("default", "sales");
+
+        verify(mockClient, times(4)).getCurrentNotificationEventId();
+        verify(mockClient, times(4)).getTable("default", "sales");
+    }
+
+    @Test
+    public void testNotificationsAreReadOncePerInterval() throws Exception {
+        when(mockClient.getCurrentNotificationEventId())
+                .thenReturn(new CurrentNotificationEventId(5), new CurrentNotificationEventId(6));
+
+        client.getTable("default", "sales");
+        client.getTable("default", "sales");
+        client.listPartitions("default", "sales", ALL_PARTS);
+
+        verify(mockClient, times(1)).getCurrentNotificationEventId();
+        verify(mockClient, never()).getNextNotification(anyLong(), anyInt(), any());
+    }
+
+    @Test
+    public void testUnsupportedNotificationsFallBackToExpiration() throws Exception {
+        when(mockClient.getCurrentNotificationEventId())
+                .thenThrow(new TApplicationException(TApplicationException.UNKNOWN_METHOD, "Invalid method name"));
+
+        client.getTable("default", "sales");
+        ticker.advanceTime(11, TimeUnit.SECONDS);
+        client.getTable("default", "sales");
+        ticker.advanceTime(11, TimeUnit.SECONDS);
+        client.getTable("default", "sales");
+
+        verify(mockClient, times(1)).getCurrentNotificationEventId();
+        verify(mockClient, times(3)).getTable("default", "sales");
+    }
+
+    @Test
+    public void testDeniedNotificationsFallBackToExpiration() throws Exception {
+        when(mockClient.getCurrentNotificationEventId())
+                .thenThrow(new MetaException("User dummy is not allowed to perform this API call"));
+
+        client.getTable("default", "sales");
+        ticker.advanceTime(11, TimeUnit.SECONDS);
+        client.getTable("default", "sales");
+        ticker.advanceTime(11, TimeUnit.SECONDS);
+        client.getTable("default", "sales");
+
+        verify(mockClient, times(1)).getCurrentNotificationEventId();
+        verify(mockClient, times(3)).getTable("default", "sales");
+    }
+
+    @Test
+    public void testNotificationsAreNoLongerReadAfterRepeatedFailures() throws Exception {
+        when(mockClient.getCurrentNotificationEventId())
+                .thenThrow(new MetaException("Failed to connect to the database"));
+
+        // every read fails, the next read happens after the longest retry delay
+        for (int i = 0; i < 12; i++) {
+            client.getTable("default", "sales");
+            ticker.advanceTime(61, TimeUnit.SECONDS);
+        }
+
+        verify(mockClient, times(10)).getCurrentNotificationEventId();
+        verify(mockClient, times(12)).getTable("default", "sales");
+    }
+
+    @Test
+    public void testNotificationFailureIsRetried() throws Exception {
+        when(mockClient.getCurrentNotificationEventId())
+                .thenThrow(new TException("connection reset"))
+                .thenReturn(new CurrentNotificationEventId(5));
+
+        client.getTable("default", "sales");
+        // the events are not read again before the retry delay
+        ticker.advanceTime(1, TimeUnit.SECONDS);
+        client.getTable("default", "sales");
+        verify(mockClient, times(1)).getCurrentNotificationEventId();
+
+        // the events are read once the delay passed, and the entries are kept longer from then on
+        ticker.advanceTime(10, TimeUnit.SECONDS);
+        client.getTable("default", "sales");
+        ticker.advanceTime(60, TimeUnit.SECONDS);
+        client.getTable("default", "sales");
+
+        verify(mockClient, times(3)).getCurrentNotificationEventId();
+        verify(mockClient, times(2)).getTable("default", "sales");
+    }
+
+    @Test
+    public void testMissingTableIsReported() throws Exception {
+        expectedException.expect(NoSuchObjectException.class);
+        expectedException.expectMessage("default.customers table not found");
+
+        when(mockClient.getTable("default", "customers"))
+                .thenThrow(new NoSuchObjectException("default.customers table not found"));
+
+        client.getTable("default", "customers");
+    }
+
+    @Test
+    public void testOtherCallsArePassedThrough() throws Exception {
+        when(mockClient.getAllDatabases()).thenReturn(Collections.singletonList("default"));
+
+        assertEquals(Collections.singletonList("default"), client.getAllDatabases());
+        assertEquals(Collections.singletonList("default"), client.getAllDatabases());
+        verify(mockClient, times(2)).getAllDatabases();
+    }
+
+    @Test
+    public void testCacheIsDisabled() {
+        cache = new HiveMetadataCache(ticker, 0, 600, 100);
+
+        assertSame(mockClient, cache.wrap(key, mockClient));
+    }
+
+    private Table table(String lastDdlTime) {
+        Table table = new Table();
+        table.setDbName("default");
+        table.setTableName("sales");
+        table.setParameters(new HashMap<>());
+        table.getParameters().put(hive_metastoreConstants.DDL_TIME, lastDdlTime);
+        return table;
+    }
+
+    private NotificationEvent event(long eventId, String dbName, String tableName) {
+        NotificationEvent event = new NotificationEvent(eventId, 0, "ALTER_TABLE", "");
+        event.setDbName(dbName);
+        event.setTableName(tableName);
+        return event;
+    }
+}
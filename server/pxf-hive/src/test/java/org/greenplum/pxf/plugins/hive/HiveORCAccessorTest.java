@@ -25,6 +25,7 @@ import org.apache.commons.codec.binary.Base64;
 import org.apache.hadoop.hive.ql.io.sarg.PredicateLeaf;
 import org.apache.hadoop.hive.ql.io.sarg.SearchArgument;
 import org.apache.hadoop.hive.ql.io.sarg.SearchArgumentFactory;
+import org.apache.orc.StripeInformation;
 import org.greenplum.pxf.api.model.RequestContext;
 import org.greenplum.pxf.api.utilities.ColumnDescriptor;
 import org.greenplum.pxf.plugins.hdfs.utilities.HdfsUtilities;
@@ -32,9 +33,12 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.List;
 
 import static org.apache.hadoop.hive.ql.io.sarg.ConvertAstToSearchArg.SARG_PUSHDOWN;
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class HiveORCAccessorTest {
 
@@ -116,6 +120,25 @@ public class HiveORCAccessorTest {
         accessor.emitAggObject();
     }
 
+    @Test
+    public void getNumberOfRowsCountsStripesOfSplit() {
+        List<StripeInformation> stripes = Arrays.asList(
+                stripe(3, 100), stripe(1000, 200), stripe(2000, 400), stripe(3000, 800));
+
+        assertEquals(1500, HiveORCAccessor.getNumberOfRows(stripes, 0, 4000));
+        assertEquals(100, HiveORCAccessor.getNumberOfRows(stripes, 0, 1000));
+        assertEquals(600, HiveORCAccessor.getNumberOfRows(stripes, 1000, 1001));
+        assertEquals(800, HiveORCAccessor.getNumberOfRows(stripes, 2001, 1999));
+        assertEquals(0, HiveORCAccessor.getNumberOfRows(stripes, 4000, 1000));
+    }
+
+    private StripeInformation stripe(long offset, long numberOfRows) {
+        StripeInformation stripe = mock(StripeInformation.class);
+        when(stripe.getOffset()).thenReturn(offset);
+        when(stripe.getNumberOfRows()).thenReturn(numberOfRows);
+        return stripe;
+    }
+
     private String toKryo(SearchArgument sarg) {
         Output out = new Output(4 * 1024, 10 * 1024 * 1024);
         new Kryo().writeObject(out, sarg);
@@ -0,0 +1,161 @@
+package org.greenplum.pxf.plugins.hive;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.LongWritable;
+import org.greenplum.pxf.api.BadRecordException;
+import org.greenplum.pxf.api.ColumnBatch;
+import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.internal.util.reflection.Whitebox.setInternalState;
+
+public class HiveORCVectorizedResolverTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private HiveORCVectorizedResolver resolver;
+    private RequestContext context;
+    private VectorizedRowBatch vectorizedBatch;
+
+    @Before
+    public void setup() {
+        List<ObjectInspector> inspectors = Arrays.asList(
+                PrimitiveObjectInspectorFactory.javaIntObjectInspector,
+                PrimitiveObjectInspectorFactory.javaStringObjectInspector,
+                PrimitiveObjectInspectorFactory.javaDoubleObjectInspector);
+
+        context = new RequestContext();
+        context.getTupleDescription().add(new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null));
+        context.getTupleDescription().add(new ColumnDescriptor("name", DataType.TEXT.getOID(), 1, "text", null));
+        context.getTupleDescription().add(new ColumnDescriptor("amount", DataType.FLOAT8.getOID(), 2, "float8", null));
+
+        resolver = new HiveORCVectorizedResolver();
+        setInternalState(resolver, "context", context);
+        setInternalState(resolver, "soi", ObjectInspectorFactory.getStandardStructObjectInspector(
+                Arrays.asList("id", "name", "amount"), inspectors));
+
+        LongColumnVector ids = new LongColumnVector(4);
+        ids.vector[0] = 1;
+        ids.vector[1] = 2;
+        ids.vector[2] = 3;
+        ids.vector[3] = 4;
+
+        BytesColumnVector names = new BytesColumnVector(4);
+        names.initBuffer();
+        names.setVal(0, "sales".getBytes(StandardCharsets.UTF_8), 0, 5);
+        names.isRepeating = true;
+
+        DoubleColumnVector amounts = new DoubleColumnVector(4);
+        amounts.vector[0] = 1.5;
+        amounts.vector[2] = 3.5;
+        amounts.vector[3] = 4.5;
+        amounts.noNulls = false;
+        amounts.isNull[1] = true;
+        // stale null flags are ignored for vectors without nulls
+        ids.isNull[3] = true;
+
+        vectorizedBatch = new VectorizedRowBatch(3, 4);
+        vectorizedBatch.cols[0] = ids;
+        vectorizedBatch.cols[1] = names;
+        vectorizedBatch.cols[2] = amounts;
+        vectorizedBatch.size = 4;
+    }
+
+    @Test
+    public void resolveBatch() throws Exception {
+        ColumnBatch batch = new ColumnBatch(context, ColumnBatch.DEFAULT_CAPACITY);
+
+        resolver.resolveBatch(new OneRow(new LongWritable(1), vectorizedBatch), batch);
+
+        assertEquals(4, batch.size());
+        assertEquals(Arrays.asList(1, 2, 3, 4), Arrays.asList(
+                batch.getColumn(0).getObject(0), batch.getColumn(0).getObject(1),
+                batch.getColumn(0).getObject(2), batch.getColumn(0).getObject(3)));
+        for (int row = 0; row < 4; row++) {
+            assertEquals("sales", batch.getColumn(1).getObject(row));
+        }
+        assertEquals(1.5, batch.getColumn(2).getObject(0));
+        assertTrue(batch.getColumn(2).isNull[1]);
+        assertEquals(3.5, batch.getColumn(2).getObject(2));
+        assertEquals(4.5, batch.getColumn(2).getObject(3));
+    }
+
+    @Test
+    public void resolveBatchWithSelectedRows() throws Exception {
+        ColumnBatch batch = new ColumnBatch(context, ColumnBatch.DEFAULT_CAPACITY);
+        vectorizedBatch.selectedInUse = true;
+        vectorizedBatch.selected[0] = 1;
+        vectorizedBatch.selected[1] = 3;
+        vectorizedBatch.size = 2;
+
+        resolver.resolveBatch(new OneRow(new LongWritable(1), vectorizedBatch), batch);
+
+        assertEquals(2, batch.size());
+        assertEquals(2, batch.getColumn(0).getObject(0));
+        assertEquals(4, batch.getColumn(0).getObject(1));
+        assertEquals("sales", batch.getColumn(1).getObject(1));
+        assertTrue(batch.getColumn(2).isNull[0]);
+        assertEquals(4.5, batch.getColumn(2).getObject(1));
+    }
+
+    @Test
+    public void resolveBatchWithColumnNotProjected() throws Exception {
+        context.getColumn(1).setProjected(false);
+        ColumnBatch batch = new ColumnBatch(context, ColumnBatch.DEFAULT_CAPACITY);
+
+        resolver.resolveBatch(new OneRow(new LongWritable(1), vectorizedBatch), batch);
+
+        assertTrue(batch.getColumn(1).isNull[0]);
+        assertFalse(batch.getColumn(0).isNull[0]);
+    }
+
+    @Test
+    public void resolveBatchWithTypeMismatch() throws Exception {
+        expectedException.expect(BadRecordException.class);
+        expectedException.expectMessage("For field 0 schema requires type BIGINT but input record has type INTEGER");
+
+        ColumnBatch batch = new ColumnBatch(new int[]{DataType.BIGINT.getOID(), DataType.TEXT.getOID(),
+                DataType.FLOAT8.getOID()}, ColumnBatch.DEFAULT_CAPACITY);
+
+        resolver.resolveBatch(new OneRow(new LongWritable(1), vectorizedBatch), batch);
+    }
+}
@@ -0,0 +1,127 @@
+package org.greenplum.pxf.plugins.hive;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.InvalidInputException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class HiveSplitCacheTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private MockTicker ticker;
+    private HiveSplitCache cache;
+    private AtomicInteger listings;
+    private InputSplit[] splits;
+
+    @Before
+    public void setup() {
+        ticker = new MockTicker();
+        cache = new HiveSplitCache(ticker, 300, 100);
+        listings = new AtomicInteger();
+        splits = new InputSplit[]{mock(InputSplit.class), mock(InputSplit.class)};
+    }
+
+    @Test
+    public void testSingletonInstance() {
+        assertSame(HiveSplitCache.getInstance(), HiveSplitCache.getInstance());
+    }
+
+    @Test
+    public void testSplitsAreListedOnce() throws IOException {
+        List<String> key = key("/warehouse/sales/year=2019", "1571702400");
+
+        assertSame(splits, cache.get(key, this::list));
+        assertSame(splits, cache.get(key, this::list));
+        assertEquals(1, listings.get());
+    }
+
+    @Test
+    public void testSplitsAreListedAgainWhenPartitionChanges() throws IOException {
+        cache.get(key("/warehouse/sales/year=2019", "1571702400"), this::list);
+        cache.get(key("/warehouse/sales/year=2019", "1571788800"), this::list);
+
+        assertEquals(2, listings.get());
+    }
+
+    @Test
+    public void testSplitsExpire() throws IOException {
+        List<String> key = key("/warehouse/sales/year=2019", "1571702400");
+
+        cache.get(key, this::list);
+        ticker.advanceTime(301, TimeUnit.SECONDS);
+        cache.cleanCache();
+        cache.get(key, this::list);
+
+        assertEquals(2, listings.get());
+    }
+
+    @Test
+    public void testFailedListingIsNotCached() throws IOException {
+        List<String> key = key("/warehouse/sales/year=2019", "1571702400");
+
+        try {
+            cache.get(key, () -> {
+                throw new InvalidInputException(Collections.singletonList(new IOException("Input path does not exist")));
+            });
+            fail("the listing failure was not reported");
+        } catch (InvalidInputException e) {
+            assertEquals("Input path does not exist", e.getMessage());
+        }
+        assertSame(splits, cache.get(key, this::list));
+        assertEquals(1, listings.get());
+    }
+
+    @Test
+    public void testCheckedExceptionIsWrapped() throws IOException {
+        expectedException.expect(IOException.class);
+        expectedException.expectMessage("Failed to list splits: no such input format");
+
+        cache.get(key("/warehouse/sales/year=2019", "1571702400"), () -> {
+            throw new ClassNotFoundException("no such input format");
+        });
+    }
+
+    private List<String> key(String location, String lastDdlTime) {
+        return Arrays.asList("default", "dummy", "org.apache.hadoop.mapred.TextInputFormat", location, lastDdlTime);
+    }
+
+    private InputSplit[] list() {
+        listings.incrementAndGet();
+        return splits;
+    }
+}
@@ -23,6 +23,8 @@ package org.greenplum.pxf.plugins.hive.utilities;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.Arrays;
@@ -31,8 +33,10 @@ import com.google.common.base.Joiner;
 
 import org.greenplum.pxf.api.io.DataType;
 import org.apache.hadoop.hive.metastore.api.FieldSchema;
+import org.greenplum.pxf.plugins.hive.HiveUserData;
 import org.junit.Test;
 import org.greenplum.pxf.api.model.Metadata;
+import org.greenplum.pxf.api.model.RequestContext;
 import org.greenplum.pxf.api.UnsupportedTypeException;
 
 public class HiveUtilitiesTest {
@@ -331,4 +335,60 @@ public class HiveUtilitiesTest {
             assertNull(result.getModifiers());
         }
     }
+
+    @Test
+    public void parseHiveUserDataBinary() {
+        HiveUserData userData = new HiveUserData("org.apache.hadoop.mapred.TextInputFormat",
+                "org.apache.hadoop.hive.serde2.lazy.LazySimpleSerDe", "columns=id,name\n", "year!HPAD!int!HPAD!2019",
+                true, null, null, 1, Arrays.asList(0, null, 2), "id,name,year", "int,string,int");
+        byte[] bytes = userData.toBytes();
+
+        HiveUserData result = HiveUtilities.parseHiveUserData(context(bytes));
+
+        assertEquals(HiveUserData.BINARY_FORMAT_VERSION, bytes[0]);
+        assertTrue(bytes.length < userData.toString().getBytes().length);
+        assertEquals(userData.toString(), result.toString());
+        assertEquals("0", result.getDelimiter());
+        assertEquals("null", result.getColTypes());
+        assertEquals(Arrays.asList(0, null, 2), result.getHiveIndexes());
+    }
+
+    @Test
+    public void parseHiveUserDataText() {
+        HiveUserData userData = new HiveUserData("org.apache.hadoop.mapred.TextInputFormat",
+                "org.apache.hadoop.hive.serde2.lazy.LazySimpleSerDe", "columns=id,name\n", "HIVE_NO_PART_TBL",
+                false, "44", "int,string", 0, null, "id,name", "int,string");
+
+        HiveUserData result = HiveUtilities.parseHiveUserData(context(userData.toString().getBytes()));
+
+        assertEquals(userData.toString(), result.toString());
+        assertNull(result.getHiveIndexes());
+    }
+
+    @Test
+    public void parseHiveUserDataIsDecodedOnce() {
+        HiveUserData userData = new HiveUserData("org.apache.hadoop.hive.ql.io.orc.OrcInputFormat",
+                "org.apache.hadoop.hive.ql.io.orc.OrcSerde", "columns=id\n", "HIVE_NO_PART_TBL",
+                false, "44", "int", 0, Arrays.asList(0), "id", "int");
+
+        HiveUserData result = HiveUtilities.parseHiveUserData(context(userData.toBytes()));
+
+        assertSame(result, HiveUtilities.parseHiveUserData(context(userData.toBytes())));
+    }
+
+    @Test
+    public void parseHiveUserDataWrongNumberOfTokens() {
+        try {
+            HiveUtilities.parseHiveUserData(context("org.apache.hadoop.mapred.TextInputFormat!HUDD!serde".getBytes()));
+            fail("should fail with wrong number of tokens");
+        } catch (IllegalArgumentException e) {
+            assertEquals("HiveInputFormatFragmenter expected 11 tokens, but got 2", e.getMessage());
+        }
+    }
+
+    private RequestContext context(byte[] userData) {
+        RequestContext context = new RequestContext();
+        context.setFragmentUserData(userData);
+        return context;
+    }
 }
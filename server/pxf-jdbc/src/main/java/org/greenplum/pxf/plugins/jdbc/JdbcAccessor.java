@@ -19,31 +19,36 @@ package org.greenplum.pxf.plugins.jdbc;
  * under the License.
  */
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.greenplum.pxf.api.OneRow;
-import org.greenplum.pxf.api.model.Accessor;
-import org.greenplum.pxf.api.model.ConfigurationFactory;
+import org.greenplum.pxf.api.StatsAccessor;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.greenplum.pxf.api.utilities.EnumAggregationType;
+import org.greenplum.pxf.api.utilities.Utilities;
 import org.greenplum.pxf.plugins.jdbc.utils.ConnectionManager;
+import org.greenplum.pxf.plugins.jdbc.utils.DbProduct;
+import org.greenplum.pxf.plugins.jdbc.utils.QueryResultCache;
+import org.greenplum.pxf.plugins.jdbc.writercallable.ParallelWriter;
 import org.greenplum.pxf.plugins.jdbc.writercallable.WriterCallable;
 import org.greenplum.pxf.plugins.jdbc.writercallable.WriterCallableFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
 import java.io.IOException;
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.SQLTimeoutException;
 import java.sql.Statement;
 import java.text.ParseException;
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 /**
  * JDBC tables accessor
@@ -52,23 +57,42 @@ import java.util.concurrent.Future;
  *
  * The INSERT queries are processed by {@link java.sql.PreparedStatement} and
  * built-in JDBC batches of arbitrary size
+ *
+ * COUNT(*) queries without filters are counted by the external database,
+ * and the accessor emits as many empty rows as the count
+ *
+ * When the result cache is enabled, the results of SELECT queries are kept by
+ * {@link QueryResultCache}, and the fragments of the same transaction that
+ * request the same rows read them without querying the external database
  */
-public class JdbcAccessor extends JdbcBasePlugin implements Accessor {
+public class JdbcAccessor extends JdbcBasePlugin implements StatsAccessor {
 
     private static final Logger LOG = LoggerFactory.getLogger(JdbcAccessor.class);
 
+    // Bounds of the fetch size adapted to the width of the rows
+    private static final int MIN_ADAPTIVE_FETCH_SIZE = 10;
+    private static final int MAX_ADAPTIVE_FETCH_SIZE = 10000;
+    // Width assumed for columns of unlimited size, like TEXT or BLOB
+    private static final int MAX_COLUMN_WIDTH = 1024;
+
     // Read variables
     private String queryRead = null;
     private Statement statementRead = null;
     private ResultSet resultSetRead = null;
 
+    // Aggregate variables
+    private boolean useStats;
+    private boolean statsInitialized;
+    private long count;
+    private long objectsEmitted;
+    private OneRow rowToEmitCount;
+
     // Write variables
     private String queryWrite = null;
     private PreparedStatement statementWrite = null;
     private WriterCallableFactory writerCallableFactory = null;
     private WriterCallable writerCallable = null;
-    private ExecutorService executorServiceWrite = null;
-    private List<Future<SQLException> > poolTasks = null;
+    private ParallelWriter parallelWriter = null;
 
     /**
      * Creates a new instance of accessor with default connection manager.
@@ -85,9 +109,19 @@ public class JdbcAccessor extends JdbcBasePlugin implements Accessor {
         super(connectionManager);
     }
 
+    @Override
+    public void initialize(RequestContext context) {
+        super.initialize(context);
+        useStats = Utilities.aggregateOptimizationsSupported(context);
+    }
+
     /**
      * openForRead() implementation
      * Create query, open JDBC connection, execute query and store the result into resultSet
+     * <p>
+     * When the result cache is enabled, the result is read from the cache, and the query is only executed
+     * if the result is not cached yet. Results too large to be cached are read from the external database,
+     * without running the query again when this fragment is the one that ran it.
      *
      * @return true if successful
      * @throws SQLException if a database access error occurs
@@ -101,8 +135,42 @@ public class JdbcAccessor extends JdbcBasePlugin implements Accessor {
             return true;
         }
 
+        if (resultCacheEnabled && !useStats) {
+            QueryResultCache cache = QueryResultCache.getInstance();
+            ResultSet cachedResultSet;
+            try {
+                cachedResultSet = cache.get(getResultCacheKey(), columns, () -> {
+                    executeRead();
+                    return resultSetRead;
+                }, this::closeForRead);
+            } catch (SQLException | RuntimeException e) {
+                closeForRead();
+                throw e;
+            }
+            // if this query found the result too large to be cached, the copied rows are followed by its other rows
+            resultSetRead = cachedResultSet;
+            if (resultSetRead != null) {
+                return true;
+            }
+            LOG.debug("Query result is too large to be cached, reading it from the external database");
+        }
+
+        executeRead();
+        return true;
+    }
+
+    /**
+     * Builds the SELECT (or COUNT) query, opens a JDBC connection and executes the query,
+     * storing the statement into statementRead and the result into resultSetRead
+     *
+     * @throws SQLException if a database access error occurs
+     * @throws ParseException if th SQL statement provided in PXF RequestContext is incorrect
+     */
+    private void executeRead() throws SQLException, ParseException {
         Connection connection = super.getConnection();
-        SQLQueryBuilder sqlQueryBuilder = new SQLQueryBuilder(context, connection.getMetaData(), getQueryText());
+        DatabaseMetaData metaData = connection.getMetaData();
+        DbProduct dbProduct = DbProduct.getDbProduct(metaData.getDatabaseProductName());
+        SQLQueryBuilder sqlQueryBuilder = new SQLQueryBuilder(context, metaData, getQueryText());
 
         // Build SELECT query
         if (quoteColumns == null) {
@@ -111,12 +179,12 @@ public class JdbcAccessor extends JdbcBasePlugin implements Accessor {
         else if (quoteColumns) {
             sqlQueryBuilder.forceSetQuoteString();
         }
-        queryRead = sqlQueryBuilder.buildSelectQuery();
+        queryRead = useStats ? sqlQueryBuilder.buildCountQuery() : sqlQueryBuilder.buildSelectQuery();
         LOG.trace("Select query: {}", queryRead);
 
         // Execute queries
         statementRead = connection.createStatement();
-        statementRead.setFetchSize(fetchSize);
+        statementRead.setFetchSize(dbProduct.getStreamingFetchSize(fetchSize));
 
         if (queryTimeout != null) {
             LOG.debug("Setting query timeout to {} seconds", queryTimeout);
@@ -124,7 +192,62 @@ public class JdbcAccessor extends JdbcBasePlugin implements Accessor {
         }
         resultSetRead = statementRead.executeQuery(queryRead);
 
-        return true;
+        if (!fetchSizeIsSetByUser && fetchSize > 0 && dbProduct.isFetchSizeAdjustable()) {
+            adaptFetchSize(resultSetRead);
+        }
+    }
+
+    /**
+     * Returns the values that identify the rows requested by this fragment: the server, the user and the transaction,
+     * the data source and the text of the named query, the filter, the projected columns and their types and the fragment metadata.
+     * The generated SQL query is not part of the key, so that cached results are found without a connection.
+     *
+     * @return the key of the result in the cache
+     */
+    private List<String> getResultCacheKey() {
+        String projectedColumns = columns.stream()
+                .filter(ColumnDescriptor::isProjected)
+                .map(column -> column.columnName() + ":" + column.columnTypeName())
+                .collect(Collectors.joining(","));
+        byte[] fragmentMetadata = context.getFragmentMetadata();
+
+        return Arrays.asList(
+                context.getServerName(),
+                context.getUser(),
+                context.getTransactionId(),
+                context.getDataSource(),
+                getQueryText(),
+                context.getFilterString(),
+                projectedColumns,
+                fragmentMetadata == null ? null : Base64.getEncoder().encodeToString(fragmentMetadata));
+    }
+
+    /**
+     * Sets the fetch size of the result set so that every fetch reads about
+     * fetchBufferSize bytes, based on the width of the rows reported by the
+     * metadata of the result set. The new size applies from the next fetch on.
+     *
+     * @param resultSet result set to adjust
+     * @throws SQLException if a database access error occurs
+     */
+    private void adaptFetchSize(ResultSet resultSet) throws SQLException {
+        ResultSetMetaData resultSetMetaData = resultSet.getMetaData();
+        if (resultSetMetaData == null) {
+            return;
+        }
+
+        long rowWidth = 1;
+        for (int i = 1; i <= resultSetMetaData.getColumnCount(); i++) {
+            int columnWidth = resultSetMetaData.getColumnDisplaySize(i);
+            rowWidth += (columnWidth <= 0 || columnWidth > MAX_COLUMN_WIDTH) ? MAX_COLUMN_WIDTH : columnWidth;
+        }
+
+        int adaptiveFetchSize = (int) Math.max(MIN_ADAPTIVE_FETCH_SIZE,
+                Math.min(MAX_ADAPTIVE_FETCH_SIZE, fetchBufferSize / rowWidth));
+        if (adaptiveFetchSize != fetchSize) {
+            LOG.debug("Setting fetch size to {} for rows of about {} bytes", adaptiveFetchSize, rowWidth);
+            resultSet.setFetchSize(adaptiveFetchSize);
+        }
     }
 
     /**
@@ -142,12 +265,56 @@ public class JdbcAccessor extends JdbcBasePlugin implements Accessor {
         return null;
     }
 
+    /**
+     * Reads the number of rows counted by the external database
+     *
+     * @throws SQLException if a problem in resultSet occurs
+     */
+    @Override
+    public void retrieveStats() throws SQLException {
+        if (!useStats) {
+            throw new IllegalStateException("Accessor is not using statistics in current context.");
+        }
+        count = resultSetRead.next() ? resultSetRead.getLong(1) : 0;
+        // the row carries no data, JdbcResolver resolves it to null fields
+        rowToEmitCount = new OneRow();
+        statsInitialized = true;
+    }
+
+    /**
+     * Emits tuple without reading from the external database, currently supports COUNT
+     */
+    @Override
+    public OneRow emitAggObject() {
+        if (!statsInitialized) {
+            throw new IllegalStateException("retrieveStats() should be called before calling emitAggObject()");
+        }
+        if (context.getAggType() != EnumAggregationType.COUNT) {
+            throw new UnsupportedOperationException("Aggregation operation is not supported.");
+        }
+
+        if (objectsEmitted < count) {
+            objectsEmitted++;
+            return rowToEmitCount;
+        }
+        return null;
+    }
+
     /**
      * closeForRead() implementation
      */
     @Override
     public void closeForRead() throws SQLException {
+        if (resultSetRead != null) {
+            // closing a result read from the cache releases the rows it reads
+            resultSetRead.close();
+            resultSetRead = null;
+        }
+        if (statementRead == null) {
+            return;
+        }
         closeStatementAndConnection(statementRead);
+        statementRead = null;
     }
 
     /**
@@ -202,14 +369,14 @@ public class JdbcAccessor extends JdbcBasePlugin implements Accessor {
             );
         }
         if (poolSize > 1) {
-            executorServiceWrite = Executors.newFixedThreadPool(poolSize);
-            poolTasks = new LinkedList<>();
-        }
+            // every thread of the pool keeps its own connection and statement
+            parallelWriter = new ParallelWriter(this, queryWrite, batchSize, poolSize, commitInterval);
+        } else {
+            // Setup WriterCallableFactory
+            writerCallableFactory = new WriterCallableFactory(this, queryWrite, statementWrite, batchSize, poolSize);
 
-        // Setup WriterCallableFactory
-        writerCallableFactory = new WriterCallableFactory(this, queryWrite, statementWrite, batchSize, poolSize);
-
-        writerCallable = writerCallableFactory.get();
+            writerCallable = writerCallableFactory.get();
+        }
 
         return true;
     }
@@ -222,32 +389,35 @@ public class JdbcAccessor extends JdbcBasePlugin implements Accessor {
      *
      * In both cases, a {@link java.sql.PreparedStatement} is used
      *
+     * If POOL_SIZE is greater than 1, the tuple is passed to the {@link ParallelWriter},
+     * whose threads write full batches with their own connections
+     *
      * @param row one row
      * @return true if successful
      * @throws SQLException if a database access error occurs
      * @throws IOException if the data provided by {@link JdbcResolver} is corrupted
      * @throws ClassNotFoundException if pooling is used and the JDBC driver was not found
      * @throws IllegalStateException if writerCallableFactory was not properly initialized
-     * @throws Exception if it happens in writerCallable.call()
+     * @throws Exception if it happens in writerCallable.call() or in a thread of the pool
      */
     @Override
     public boolean writeNextObject(OneRow row) throws Exception {
+        if (parallelWriter != null) {
+            // Pooling is used, the row is written by one of the threads
+            parallelWriter.write(row);
+            return true;
+        }
+
         if (writerCallable == null) {
             throw new IllegalStateException("The JDBC connection was not properly initialized (writerCallable is null)");
         }
 
         writerCallable.supply(row);
         if (writerCallable.isCallRequired()) {
-            if (poolSize > 1) {
-                // Pooling is used. Create new writerCallable
-                poolTasks.add(executorServiceWrite.submit(writerCallable));
-                writerCallable = writerCallableFactory.get();
-            } else {
-                // Pooling is not used, call directly and process potential error
-                SQLException e = writerCallable.call();
-                if (e != null) {
-                    throw e;
-                }
+            // Pooling is not used, call directly and process potential error
+            SQLException e = writerCallable.call();
+            if (e != null) {
+                throw e;
             }
         }
 
@@ -261,96 +431,24 @@ public class JdbcAccessor extends JdbcBasePlugin implements Accessor {
      */
     @Override
     public void closeForWrite() throws Exception {
-        if ((statementWrite == null) || (writerCallable == null)) {
+        if ((statementWrite == null) || ((writerCallable == null) && (parallelWriter == null))) {
             return;
         }
 
         try {
-            if (poolSize > 1) {
-                // Process thread pool
-                Exception firstException = null;
-                for (Future<SQLException> task : poolTasks) {
-                    // We need this construction to ensure that we try to close all connections opened by pool threads
-                    try {
-                        SQLException currentSqlException = task.get();
-                        if (currentSqlException != null) {
-                            if (firstException == null) {
-                                firstException = currentSqlException;
-                            }
-                            LOG.error(
-                                "A SQLException in a pool thread occured: " + currentSqlException.getClass() + " " + currentSqlException.getMessage()
-                            );
-                        }
-                    }
-                    catch (Exception e) {
-                        // This exception must have been caused by some thread execution error. However, there may be other exception (maybe of class SQLException) that happened in one of threads that were not examined yet. That is why we do not modify firstException
-                        if (LOG.isDebugEnabled()) {
-                            LOG.debug(
-                                "A runtime exception in a thread pool occured: " + e.getClass() + " " + e.getMessage()
-                            );
-                        }
-                    }
-                }
-                try {
-                    executorServiceWrite.shutdown();
-                    executorServiceWrite.shutdownNow();
-                }
-                catch (Exception e) {
-                    if (LOG.isDebugEnabled()) {
-                        LOG.debug("executorServiceWrite.shutdown() or .shutdownNow() threw an exception: " + e.getClass() + " " + e.getMessage());
-                    }
-                }
-                if (firstException != null) {
-                    throw firstException;
+            if (parallelWriter != null) {
+                // Send data that is left and wait for the threads of the pool
+                parallelWriter.close();
+            } else {
+                // Send data that is left
+                SQLException e = writerCallable.call();
+                if (e != null) {
+                    throw e;
                 }
             }
-
-            // Send data that is left
-            SQLException e = writerCallable.call();
-            if (e != null) {
-                throw e;
-            }
         } finally {
             closeStatementAndConnection(statementWrite);
         }
     }
 
-
-    /**
-     * Gets the text of the query by reading the file from the server configuration directory. The name of the file
-     * is expected to be the same as the name of the query provided by the user and have extension ".sql"
-     *
-     * @return text of the query
-     */
-    private String getQueryText() {
-        if (StringUtils.isBlank(queryName)) {
-            return null;
-        }
-        // read the contents of the file holding the text of the query with a given name
-        String serverDirectory = configuration.get(ConfigurationFactory.PXF_CONFIG_SERVER_DIRECTORY_PROPERTY);
-        if (StringUtils.isBlank(serverDirectory)) {
-            throw new IllegalStateException("No server configuration directory found for server " + context.getServerName());
-        }
-
-        String queryText;
-        try {
-            File queryFile = new File(serverDirectory, queryName + ".sql");
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("Reading text of query={} from {}", queryName, queryFile.getCanonicalPath());
-            }
-            queryText = FileUtils.readFileToString(queryFile);
-        } catch (IOException e) {
-            throw new RuntimeException(String.format("Failed to read text of query %s : %s", queryName, e.getMessage()), e);
-        }
-        if (StringUtils.isBlank(queryText)) {
-            throw new RuntimeException(String.format("Query text file is empty for query %s", queryName));
-        }
-
-        // Remove one or more semicolons followed by optional blank space
-        // happening at the end of the query
-        queryText = queryText.replaceFirst("(;+\\s*)+$", "");
-
-        return queryText;
-    }
-
 }
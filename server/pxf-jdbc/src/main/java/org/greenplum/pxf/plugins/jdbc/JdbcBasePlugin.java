@@ -19,9 +19,11 @@ package org.greenplum.pxf.plugins.jdbc;
  * under the License.
  */
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.greenplum.pxf.api.model.BasePlugin;
+import org.greenplum.pxf.api.model.ConfigurationFactory;
 import org.greenplum.pxf.api.model.RequestContext;
 import org.greenplum.pxf.api.security.SecureLogin;
 import org.greenplum.pxf.api.utilities.ColumnDescriptor;
@@ -32,6 +34,8 @@ import org.greenplum.pxf.plugins.jdbc.utils.HiveJdbcUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
 import java.security.PrivilegedExceptionAction;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
@@ -43,6 +47,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import static org.greenplum.pxf.api.security.SecureLogin.CONFIG_KEY_SERVICE_USER_IMPERSONATION;
@@ -59,7 +64,9 @@ public class JdbcBasePlugin extends BasePlugin {
     // '100' is a recommended value: https://docs.oracle.com/cd/E11882_01/java.112/e16548/oraperf.htm#JJDBC28754
     private static final int DEFAULT_BATCH_SIZE = 100;
     private static final int DEFAULT_FETCH_SIZE = 1000;
+    private static final int DEFAULT_FETCH_BUFFER_SIZE = 8 * 1024 * 1024;
     private static final int DEFAULT_POOL_SIZE = 1;
+    private static final int DEFAULT_COMMIT_INTERVAL = 1;
 
     // configuration parameter names
     private static final String JDBC_DRIVER_PROPERTY_NAME = "jdbc.driver";
@@ -75,8 +82,12 @@ public class JdbcBasePlugin extends BasePlugin {
     // statement properties
     private static final String JDBC_STATEMENT_BATCH_SIZE_PROPERTY_NAME = "jdbc.statement.batchSize";
     private static final String JDBC_STATEMENT_FETCH_SIZE_PROPERTY_NAME = "jdbc.statement.fetchSize";
+    private static final String JDBC_STATEMENT_FETCH_BUFFER_SIZE_PROPERTY_NAME = "jdbc.statement.fetchBufferSize";
     private static final String JDBC_STATEMENT_QUERY_TIMEOUT_PROPERTY_NAME = "jdbc.statement.queryTimeout";
 
+    // result cache properties
+    private static final String JDBC_RESULT_CACHE_ENABLED_PROPERTY_NAME = "jdbc.result.cache.enabled";
+
     // connection pool properties
     private static final String JDBC_CONNECTION_POOL_ENABLED_PROPERTY_NAME = "jdbc.pool.enabled";
     private static final String JDBC_CONNECTION_POOL_PROPERTY_PREFIX = "jdbc.pool.property.";
@@ -127,13 +138,23 @@ public class JdbcBasePlugin extends BasePlugin {
 
     // Read batch size
     protected int fetchSize;
+    protected boolean fetchSizeIsSetByUser = false;
+
+    // Approximate number of bytes to fetch at a time, when fetch size is not set by the user
+    protected int fetchBufferSize;
 
     // Thread pool size
     protected int poolSize;
 
+    // Number of batches written by a thread of the pool per transaction, 0 to commit once at the end
+    protected int commitInterval;
+
     // Query timeout.
     protected Integer queryTimeout;
 
+    // Whether the results of SELECT queries are cached for the other segments of the transaction
+    protected boolean resultCacheEnabled;
+
     // Quote columns setting set by user (three values are possible)
     protected Boolean quoteColumns = null;
 
@@ -159,6 +180,9 @@ public class JdbcBasePlugin extends BasePlugin {
 
     private ConnectionManager connectionManager;
 
+    // Texts of the named queries by file path, reloaded when the file changes
+    private static final Map<String, QueryText> queryTexts = new ConcurrentHashMap<>();
+
     static {
         // Deprecated as of Oct 22, 2019 in version 5.9.2+
         Configuration.addDeprecation("pxf.impersonation.jdbc",
@@ -234,10 +258,18 @@ public class JdbcBasePlugin extends BasePlugin {
             }
         }
 
+        fetchSizeIsSetByUser = configuration.get(JDBC_STATEMENT_FETCH_SIZE_PROPERTY_NAME) != null;
         fetchSize = configuration.getInt(JDBC_STATEMENT_FETCH_SIZE_PROPERTY_NAME, DEFAULT_FETCH_SIZE);
+        fetchBufferSize = configuration.getInt(JDBC_STATEMENT_FETCH_BUFFER_SIZE_PROPERTY_NAME, DEFAULT_FETCH_BUFFER_SIZE);
+        if (fetchBufferSize <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Property %s has incorrect value %s : must be a positive integer", JDBC_STATEMENT_FETCH_BUFFER_SIZE_PROPERTY_NAME, fetchBufferSize));
+        }
 
         poolSize = context.getOption("POOL_SIZE", DEFAULT_POOL_SIZE);
 
+        commitInterval = context.getOption("COMMIT_INTERVAL", DEFAULT_COMMIT_INTERVAL, true);
+
         String queryTimeoutString = configuration.get(JDBC_STATEMENT_QUERY_TIMEOUT_PROPERTY_NAME);
         if (StringUtils.isNotBlank(queryTimeoutString)) {
             try {
@@ -249,6 +281,8 @@ public class JdbcBasePlugin extends BasePlugin {
             }
         }
 
+        resultCacheEnabled = configuration.getBoolean(JDBC_RESULT_CACHE_ENABLED_PROPERTY_NAME, false);
+
         // Optional parameter. The default value is null
         String quoteColumnsRaw = context.getOption("QUOTE_COLUMNS");
         if (quoteColumnsRaw != null) {
@@ -385,6 +419,53 @@ public class JdbcBasePlugin extends BasePlugin {
         return connection;
     }
 
+    /**
+     * Gets the text of the query by reading the file from the server configuration directory. The name of the file
+     * is expected to be the same as the name of the query provided by the user and have extension ".sql"
+     * <p>
+     * The text is read again only when the file is modified.
+     *
+     * @return text of the query
+     */
+    protected String getQueryText() {
+        if (StringUtils.isBlank(queryName)) {
+            return null;
+        }
+        // read the contents of the file holding the text of the query with a given name
+        String serverDirectory = configuration.get(ConfigurationFactory.PXF_CONFIG_SERVER_DIRECTORY_PROPERTY);
+        if (StringUtils.isBlank(serverDirectory)) {
+            throw new IllegalStateException("No server configuration directory found for server " + context.getServerName());
+        }
+
+        File queryFile = new File(serverDirectory, queryName + ".sql");
+        QueryText cached = queryTexts.get(queryFile.getPath());
+        if (cached != null && cached.isCurrent(queryFile)) {
+            return cached.text;
+        }
+
+        String queryText;
+        long lastModified = queryFile.lastModified();
+        long length = queryFile.length();
+        try {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Reading text of query={} from {}", queryName, queryFile.getCanonicalPath());
+            }
+            queryText = FileUtils.readFileToString(queryFile);
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Failed to read text of query %s : %s", queryName, e.getMessage()), e);
+        }
+        if (StringUtils.isBlank(queryText)) {
+            throw new RuntimeException(String.format("Query text file is empty for query %s", queryName));
+        }
+
+        // Remove one or more semicolons followed by optional blank space
+        // happening at the end of the query
+        queryText = queryText.replaceFirst("(;+\\s*)+$", "");
+
+        queryTexts.put(queryFile.getPath(), new QueryText(queryText, lastModified, length));
+        return queryText;
+    }
+
     /**
      * Prepare a JDBC PreparedStatement
      *
@@ -581,4 +662,23 @@ public class JdbcBasePlugin extends BasePlugin {
         return configMap;
     }
 
+    /**
+     * Text of a named query, with the modification time and length of its file when it was read
+     */
+    private static class QueryText {
+        private final String text;
+        private final long lastModified;
+        private final long length;
+
+        QueryText(String text, long lastModified, long length) {
+            this.text = text;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        boolean isCurrent(File file) {
+            return file.lastModified() == lastModified && file.length() == length;
+        }
+    }
+
 }
@@ -26,22 +26,67 @@ import org.greenplum.pxf.api.model.FragmentStats;
 import org.greenplum.pxf.api.model.RequestContext;
 import org.greenplum.pxf.plugins.jdbc.partitioning.JdbcFragmentMetadata;
 import org.greenplum.pxf.plugins.jdbc.partitioning.PartitionType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 
 /**
  * JDBC fragmenter
  * <p>
  * Splits the query to allow multiple simultaneous SELECTs
+ * <p>
+ * When the RANGE of an INT or DATE partition is 'auto', or the partition
+ * column is 'auto' (the single-column primary key of the table), the range is
+ * taken from the minimum and the maximum values of the column in the external
+ * database, and the interval is chosen so that every fragment holds about
+ * ROWS_PER_PARTITION rows.
  */
 public class JdbcPartitionFragmenter extends BaseFragmenter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JdbcPartitionFragmenter.class);
+
     // A PXF engine to use as a host for fragments
     private static final String[] pxfHosts = {"localhost"};
 
+    // PARTITION_BY or RANGE value that discovers the partitions in the external database
+    private static final String AUTO = "auto";
+    private static final int DEFAULT_ROWS_PER_PARTITION = 1000000;
+
+    private final JdbcBasePlugin plugin;
+
     private PartitionType partitionType;
     private String column;
     private String range;
     private String interval;
+    private boolean autoPartition;
+    private int rowsPerPartition;
+
+    /**
+     * Creates a new fragmenter that gets connections from the default
+     * (singleton) instance of ConnectionManager.
+     */
+    public JdbcPartitionFragmenter() {
+        this(new JdbcBasePlugin());
+    }
+
+    /**
+     * Creates a new fragmenter that gets connections from the given plugin.
+     *
+     * @param plugin plugin to query the external database with
+     */
+    JdbcPartitionFragmenter(JdbcBasePlugin plugin) {
+        this.plugin = plugin;
+    }
 
     @Override
     public void initialize(RequestContext context) {
@@ -50,16 +95,34 @@ public class JdbcPartitionFragmenter extends BaseFragmenter {
         String partitionByOption = context.getOption("PARTITION_BY");
         if (partitionByOption == null) return;
 
-        try {
-            String[] partitionBy = partitionByOption.split(":");
-            column = partitionBy[0];
-            partitionType = PartitionType.of(partitionBy[1]);
-        } catch (ArrayIndexOutOfBoundsException e) {
-            throw new IllegalArgumentException("The parameter 'PARTITION_BY' has incorrect format. The correct format is '<column_name>:{int|date|enum}'");
-        }
-
         range = context.getOption("RANGE");
         interval = context.getOption("INTERVAL");
+
+        if (AUTO.equalsIgnoreCase(partitionByOption)) {
+            autoPartition = true;
+        } else {
+            try {
+                String[] partitionBy = partitionByOption.split(":");
+                column = partitionBy[0];
+                partitionType = PartitionType.of(partitionBy[1]);
+            } catch (ArrayIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("The parameter 'PARTITION_BY' has incorrect format. The correct format is '<column_name>:{int|date|enum}'");
+            }
+            autoPartition = AUTO.equalsIgnoreCase(range);
+            if (autoPartition && partitionType == PartitionType.ENUM) {
+                throw new IllegalArgumentException(String.format(
+                        "The parameter 'RANGE' cannot be '%s' for partition of type '%s'", AUTO, partitionType));
+            }
+        }
+
+        if (autoPartition) {
+            range = null;
+            rowsPerPartition = context.getOption("ROWS_PER_PARTITION", DEFAULT_ROWS_PER_PARTITION, true);
+            if (rowsPerPartition == 0) {
+                throw new IllegalArgumentException("The parameter 'ROWS_PER_PARTITION' must be at least 1");
+            }
+            plugin.initialize(context);
+        }
     }
 
     /**
@@ -67,9 +130,14 @@ public class JdbcPartitionFragmenter extends BaseFragmenter {
      * Note that all partitionType parameters must be verified before calling this procedure.
      *
      * @return a list of getFragmentsMetadata to be passed to PXF segments
+     * @throws SQLException if the partitions could not be discovered in the external database
      */
     @Override
-    public List<Fragment> getFragments() {
+    public List<Fragment> getFragments() throws SQLException {
+        if (autoPartition) {
+            discoverPartitions();
+        }
+
         if (partitionType == null) {
             fragments.add(createFragment(null));
         } else {
@@ -99,4 +167,230 @@ public class JdbcPartitionFragmenter extends BaseFragmenter {
     public FragmentStats getFragmentStats() throws UnsupportedOperationException {
         throw new UnsupportedOperationException("ANALYZE for JDBC plugin is not supported");
     }
+
+    /**
+     * Sets the partition column, type, range and interval from the
+     * statistics of the external database. The partition type is left null
+     * (a single fragment is produced) if the table is empty, if it is small
+     * enough for one fragment and no INTERVAL was requested, or if no
+     * suitable primary key was found.
+     *
+     * @throws SQLException if a database access error occurs
+     */
+    private void discoverPartitions() throws SQLException {
+        Connection connection = plugin.getConnection();
+        Statement statement;
+        try {
+            statement = connection.createStatement();
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+
+        try {
+            DatabaseMetaData metaData = connection.getMetaData();
+            if (column == null && !findPrimaryKey(metaData)) {
+                return;
+            }
+
+            SQLQueryBuilder sqlQueryBuilder = new SQLQueryBuilder(context, metaData, plugin.getQueryText());
+            if (plugin.quoteColumns == null) {
+                sqlQueryBuilder.autoSetQuoteString();
+            } else if (plugin.quoteColumns) {
+                sqlQueryBuilder.forceSetQuoteString();
+            }
+
+            long rowCount = estimateRowCount(metaData);
+            String query = sqlQueryBuilder.buildPartitionStatisticsQuery(column, rowCount < 0);
+            LOG.debug("Partition statistics query: {}", query);
+            if (plugin.queryTimeout != null) {
+                statement.setQueryTimeout(plugin.queryTimeout);
+            }
+
+            try (ResultSet resultSet = statement.executeQuery(query)) {
+                if (!resultSet.next()) {
+                    partitionType = null;
+                    return;
+                }
+                if (rowCount < 0) {
+                    rowCount = resultSet.getLong(3);
+                }
+                setRangeAndInterval(resultSet, rowCount);
+            }
+        } finally {
+            JdbcBasePlugin.closeStatementAndConnection(statement);
+        }
+    }
+
+    /**
+     * Sets the range and, unless provided by the user, the interval of the
+     * partitions from the MIN and MAX values in the given result set.
+     *
+     * @param resultSet result set positioned on the row with MIN and MAX values
+     * @param rowCount  the number of rows in the table
+     * @throws SQLException if a database access error occurs
+     */
+    private void setRangeAndInterval(ResultSet resultSet, long rowCount) throws SQLException {
+        long partitions = (rowCount + rowsPerPartition - 1) / rowsPerPartition;
+        if (interval == null && partitions <= 1) {
+            LOG.debug("{} rows fit in a single fragment", rowCount);
+            partitionType = null;
+            return;
+        }
+
+        if (partitionType == PartitionType.INT) {
+            long min = resultSet.getLong(1);
+            if (resultSet.wasNull()) {
+                partitionType = null;
+                return;
+            }
+            long max = resultSet.getLong(2);
+            long span;
+            try {
+                span = Math.subtractExact(max, min);
+            } catch (ArithmeticException e) {
+                LOG.debug("Values of {} from {} to {} cannot be split into intervals", column, min, max);
+                partitionType = null;
+                return;
+            }
+            // RANGE end is exclusive, values above it still go to the last fragment
+            range = min + ":" + (max == Long.MAX_VALUE ? max : max + 1);
+            if (interval == null) {
+                interval = Long.toString(span / partitions + 1);
+            }
+        } else {
+            Date min = resultSet.getDate(1);
+            Date max = resultSet.getDate(2);
+            if (min == null || max == null) {
+                partitionType = null;
+                return;
+            }
+            LocalDate start = min.toLocalDate();
+            LocalDate end = max.toLocalDate().plusDays(1);
+            range = start + ":" + end;
+            if (interval == null) {
+                long days = ChronoUnit.DAYS.between(start, end);
+                interval = ((days + partitions - 1) / partitions) + ":day";
+            }
+        }
+        LOG.debug("Partitioning {} by {} with RANGE {} and INTERVAL {} for {} rows",
+                context.getDataSource(), column, range, interval, rowCount);
+    }
+
+    /**
+     * Sets the partition column and type to the primary key of the table, if
+     * it consists of a single integer or date column. Timestamp keys are not
+     * used, as DATE partitions would drop their time of day.
+     *
+     * @param metaData metadata of the external database
+     * @return true if such a primary key was found
+     * @throws SQLException if a database access error occurs
+     */
+    private boolean findPrimaryKey(DatabaseMetaData metaData) throws SQLException {
+        if (plugin.tableName == null) {
+            throw new IllegalArgumentException("PARTITION_BY=auto is not supported for named queries, the partition column must be specified");
+        }
+
+        String[] schemaAndTable = getSchemaAndTable(metaData);
+
+        String keyColumn = null;
+        try (ResultSet keys = metaData.getPrimaryKeys(null, schemaAndTable[0], schemaAndTable[1])) {
+            while (keys.next()) {
+                if (keyColumn != null) {
+                    LOG.info("Primary key of {} has multiple columns, it will not be partitioned", plugin.tableName);
+                    return false;
+                }
+                keyColumn = keys.getString("COLUMN_NAME");
+            }
+        }
+        if (keyColumn == null) {
+            LOG.info("No primary key found for {}, it will not be partitioned", plugin.tableName);
+            return false;
+        }
+
+        try (ResultSet columns = metaData.getColumns(null, schemaAndTable[0], schemaAndTable[1], keyColumn)) {
+            if (columns.next()) {
+                partitionType = getPartitionType(columns.getInt("DATA_TYPE"), columns.getInt("DECIMAL_DIGITS"));
+            }
+        }
+        if (partitionType == null) {
+            LOG.info("Primary key {} of {} is neither an integer nor a date, it will not be partitioned", keyColumn, plugin.tableName);
+            return false;
+        }
+
+        column = keyColumn;
+        LOG.debug("Partition column of {} is its primary key {} of type {}", plugin.tableName, column, partitionType);
+        return true;
+    }
+
+    /**
+     * Returns the number of rows of the table estimated by the external
+     * database, as reported in the table statistics of its index information.
+     *
+     * @param metaData metadata of the external database
+     * @return the estimated number of rows, or -1 if not available
+     */
+    private long estimateRowCount(DatabaseMetaData metaData) {
+        if (plugin.tableName == null) {
+            return -1;
+        }
+
+        String[] schemaAndTable = getSchemaAndTable(metaData);
+
+        try (ResultSet indexInfo = metaData.getIndexInfo(null, schemaAndTable[0], schemaAndTable[1], false, true)) {
+            while (indexInfo.next()) {
+                if (indexInfo.getShort("TYPE") == DatabaseMetaData.tableIndexStatistic) {
+                    long cardinality = indexInfo.getLong("CARDINALITY");
+                    // statistics that were never collected are reported as 0
+                    return cardinality > 0 ? cardinality : -1;
+                }
+            }
+        } catch (SQLException e) {
+            LOG.debug("Table statistics are not available for {}: {}", plugin.tableName, e.getMessage());
+        }
+        return -1;
+    }
+
+    /**
+     * Splits the table name into the schema (null if not specified) and the
+     * table, converted to the case the external database uses to store
+     * unquoted identifiers in its metadata.
+     *
+     * @param metaData metadata of the external database
+     * @return an array of the schema name and the table name
+     */
+    private String[] getSchemaAndTable(DatabaseMetaData metaData) {
+        String name = plugin.tableName;
+        try {
+            if (metaData.storesUpperCaseIdentifiers()) {
+                name = name.toUpperCase();
+            } else if (metaData.storesLowerCaseIdentifiers()) {
+                name = name.toLowerCase();
+            }
+        } catch (SQLException e) {
+            LOG.debug("Identifier case is not available: {}", e.getMessage());
+        }
+
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ?
+                new String[]{null, name} :
+                new String[]{name.substring(0, dot), name.substring(dot + 1)};
+    }
+
+    private static PartitionType getPartitionType(int sqlType, int decimalDigits) {
+        switch (sqlType) {
+            case Types.BIGINT:
+            case Types.INTEGER:
+            case Types.SMALLINT:
+            case Types.TINYINT:
+                return PartitionType.INT;
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return decimalDigits == 0 ? PartitionType.INT : null;
+            case Types.DATE:
+                return PartitionType.DATE;
+            default:
+                return null;
+        }
+    }
 }
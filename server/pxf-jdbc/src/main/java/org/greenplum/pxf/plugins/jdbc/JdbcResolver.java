@@ -24,6 +24,7 @@ import org.greenplum.pxf.api.OneRow;
 import org.greenplum.pxf.api.io.DataType;
 import org.greenplum.pxf.api.model.Resolver;
 import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.greenplum.pxf.plugins.jdbc.utils.ColumnExtractor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,8 +37,8 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.EnumSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
@@ -63,75 +64,74 @@ public class JdbcResolver extends JdbcBasePlugin implements Resolver {
 
     private static final Logger LOG = LoggerFactory.getLogger(JdbcResolver.class);
 
+    // ResultSet for which columnIndexes and extractors were prepared
+    private ResultSet preparedResultSet = null;
+    // Indexes of the columns in the ResultSet
+    private int[] columnIndexes = null;
+    // Extractors of the column values, null for non-projected columns
+    private ColumnExtractor[] extractors = null;
+
     /**
      * getFields() implementation
      *
+     * The indexes of the columns in the ResultSet and the functions that
+     * extract their values are determined once per ResultSet, so that values
+     * are fetched by index instead of by name.
+     *
+     * Rows emitted by {@link JdbcAccessor} for aggregate queries carry no
+     * data, all their fields are null.
+     *
      * @param row one row
      * @throws SQLException if the provided {@link OneRow} object is invalid
      */
     @Override
     public List<OneField> getFields(OneRow row) throws SQLException {
         ResultSet result = (ResultSet) row.getData();
-        LinkedList<OneField> fields = new LinkedList<>();
-
-        for (ColumnDescriptor column : columns) {
-            String colName = column.columnName();
-            Object value;
-
-            OneField oneField = new OneField();
-            oneField.type = column.columnTypeCode();
-
-            fields.add(oneField);
+        if (result == null) {
+            List<OneField> fields = new ArrayList<>(columns.size());
+            for (ColumnDescriptor column : columns) {
+                fields.add(new OneField(column.columnTypeCode(), null));
+            }
+            return fields;
+        }
+        if (result != preparedResultSet) {
+            prepareExtractors(result);
+        }
 
+        List<OneField> fields = new ArrayList<>(extractors.length);
+        for (int i = 0; i < extractors.length; i++) {
+            ColumnExtractor extractor = extractors[i];
             /*
              * Non-projected columns get null values
              */
-            if (!column.isProjected()) continue;
+            Object value = (extractor == null) ? null : extractor.extract(result, columnIndexes[i]);
+            fields.add(new OneField(columns.get(i).columnTypeCode(), value));
+        }
+        return fields;
+    }
 
-            switch (DataType.get(oneField.type)) {
-                case INTEGER:
-                    value = result.getInt(colName);
-                    break;
-                case FLOAT8:
-                    value = result.getDouble(colName);
-                    break;
-                case REAL:
-                    value = result.getFloat(colName);
-                    break;
-                case BIGINT:
-                    value = result.getLong(colName);
-                    break;
-                case SMALLINT:
-                    value = result.getShort(colName);
-                    break;
-                case BOOLEAN:
-                    value = result.getBoolean(colName);
-                    break;
-                case BYTEA:
-                    value = result.getBytes(colName);
-                    break;
-                case VARCHAR:
-                case BPCHAR:
-                case TEXT:
-                case NUMERIC:
-                    value = result.getString(colName);
-                    break;
-                case DATE:
-                    value = result.getDate(colName);
-                    break;
-                case TIMESTAMP:
-                    value = result.getTimestamp(colName);
-                    break;
-                default:
-                    throw new UnsupportedOperationException(
-                            String.format("Field type '%s' (column '%s') is not supported",
-                                    DataType.get(oneField.type),
-                                    column));
-            }
+    /**
+     * Finds the indexes of the projected columns in the given ResultSet and
+     * chooses the extractor of every column based on its type.
+     *
+     * @param result the ResultSet
+     * @throws SQLException if a column is not found in the ResultSet
+     */
+    private void prepareExtractors(ResultSet result) throws SQLException {
+        int[] indexes = new int[columns.size()];
+        ColumnExtractor[] columnExtractors = new ColumnExtractor[columns.size()];
+
+        for (int i = 0; i < columns.size(); i++) {
+            ColumnDescriptor column = columns.get(i);
+            if (!column.isProjected()) continue;
 
-            oneField.val = result.wasNull() ? null : value;
+            columnExtractors[i] = ColumnExtractor.forColumn(column);
+            indexes[i] = result.findColumn(column.columnName());
         }
-        return fields;
+
+        columnIndexes = indexes;
+        extractors = columnExtractors;
+        preparedResultSet = result;
     }
 
     /**
@@ -144,6 +144,46 @@ public class SQLQueryBuilder {
         return sb.toString();
     }
 
+    /**
+     * Build SELECT COUNT(*) query (with "WHERE" and partition constraints).
+     *
+     * @return Complete SQL query
+     */
+    public String buildCountQuery() {
+        StringBuilder sb = new StringBuilder("SELECT COUNT(*) FROM ")
+                .append(getSource());
+
+        // Insert regular WHERE constraints
+        buildWhereSQL(sb);
+
+        // Insert partition constraints
+        buildFragmenterSql(context, dbProduct, quoteString, sb);
+
+        return sb.toString();
+    }
+
+    /**
+     * Build a query that returns the minimum and the maximum values of the
+     * given column and, optionally, the number of rows of the source. The
+     * query ignores WHERE and partition constraints.
+     *
+     * @param column    name of the column
+     * @param countRows whether to add COUNT(*) to the query
+     * @return Complete SQL query
+     */
+    public String buildPartitionStatisticsQuery(String column, boolean countRows) {
+        String quotedColumn = quoteString + column + quoteString;
+        StringBuilder sb = new StringBuilder("SELECT ")
+                .append("MIN(").append(quotedColumn).append("), ")
+                .append("MAX(").append(quotedColumn).append(")");
+        if (countRows) {
+            sb.append(", COUNT(*)");
+        }
+        return sb.append(" FROM ")
+                .append(getSource())
+                .toString();
+    }
+
     /**
      * Build INSERT query template (field values are replaced by placeholders '?')
      *
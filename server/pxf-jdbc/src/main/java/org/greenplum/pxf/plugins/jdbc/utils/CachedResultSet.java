@@ -0,0 +1,258 @@
+package org.greenplum.pxf.plugins.jdbc.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Timestamp;
+
+/**
+ * A forward-only {@link ResultSet} over the rows of a cached query result,
+ * read one at a time from a {@link RowSource}. Supports the methods that
+ * {@link org.greenplum.pxf.plugins.jdbc.JdbcResolver} uses to read rows:
+ * {@code next}, {@code findColumn}, {@code wasNull} and the getters of
+ * column values by index or by label. The other methods throw
+ * {@link SQLFeatureNotSupportedException}.
+ * <p>
+ * Once the rows of the source are exhausted, the result set can go on with
+ * the rows of another, open result set. It then delegates every call to it,
+ * reading the columns of the cached rows from their indexes in that result
+ * set.
+ */
+class CachedResultSet implements InvocationHandler {
+
+    /**
+     * Rows of a cached result, as arrays of column values.
+     */
+    interface RowSource extends Closeable {
+
+        /**
+         * @return the next row, or null if there are no more rows
+         * @throws IOException if the row cannot be read
+         */
+        Object[] next() throws IOException;
+    }
+
+    private final String[] labels;
+    private final RowSource source;
+    private final ResultSet remainder;
+    private final int[] remainderIndexes;
+
+    private Object[] row;
+    private boolean wasNull;
+    private boolean closed;
+    private boolean readingRemainder;
+
+    private CachedResultSet(String[] labels, RowSource source, ResultSet remainder, int[] remainderIndexes) {
+        this.labels = labels;
+        this.source = source;
+        this.remainder = remainder;
+        this.remainderIndexes = remainderIndexes;
+    }
+
+    /**
+     * Creates a result set over the given rows.
+     *
+     * @param labels           the labels of the columns
+     * @param source           the rows, closed with the result set
+     * @param remainder        the result set with the rows that follow, or null; it is not closed with the result set
+     * @param remainderIndexes the indexes of the columns in the remainder
+     * @return the result set, positioned before its first row
+     */
+    static ResultSet create(String[] labels, RowSource source, ResultSet remainder, int[] remainderIndexes) {
+        return (ResultSet) Proxy.newProxyInstance(CachedResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, new CachedResultSet(labels, source, remainder, remainderIndexes));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if (method.getDeclaringClass() == Object.class) {
+            switch (name) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return "CachedResultSet@" + Integer.toHexString(System.identityHashCode(proxy));
+            }
+        }
+
+        switch (name) {
+            case "close":
+                close();
+                return null;
+            case "isClosed":
+                return closed;
+            default:
+                break;
+        }
+        if (closed) {
+            throw new SQLException("Result set is closed");
+        }
+        if ("findColumn".equals(name)) {
+            return findColumn((String) args[0]);
+        }
+        boolean getter = name.startsWith("get") && args != null && args.length == 1;
+        if (readingRemainder) {
+            if (getter) {
+                // columns are numbered as in the copied rows
+                int index = (args[0] instanceof String) ? findColumn((String) args[0]) : (Integer) args[0];
+                if (index < 1 || index > remainderIndexes.length) {
+                    throw new SQLException(String.format("Column index %d is out of range", index));
+                }
+                method = ResultSet.class.getMethod(name, int.class);
+                args = new Object[]{remainderIndexes[index - 1]};
+            }
+            try {
+                return method.invoke(remainder, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        switch (name) {
+            case "next":
+                return next();
+            case "wasNull":
+                return wasNull;
+            default:
+                if (getter) {
+                    int index = (args[0] instanceof String) ? findColumn((String) args[0]) : (Integer) args[0];
+                    return getValue(name, index, method.getReturnType());
+                }
+                throw new SQLFeatureNotSupportedException(name + " is not supported by cached query results");
+        }
+    }
+
+    private boolean next() throws SQLException {
+        try {
+            row = source.next();
+        } catch (IOException e) {
+            throw new SQLException(String.format("Failed to read cached query result: %s", e.getMessage()), e);
+        }
+        if (row == null && remainder != null) {
+            readingRemainder = true;
+            closeSource();
+            return remainder.next();
+        }
+        return row != null;
+    }
+
+    private int findColumn(String label) throws SQLException {
+        for (int i = 0; i < labels.length; i++) {
+            if (labels[i].equalsIgnoreCase(label)) {
+                return i + 1;
+            }
+        }
+        throw new SQLException(String.format("Column '%s' not found", label));
+    }
+
+    /*
+     * Returns the value of the given column, converted to the type of the
+     * getter the same way CachedRowSet converts its values
+     */
+    private Object getValue(String getter, int index, Class<?> type) throws SQLException {
+        if (row == null) {
+            throw new SQLException("Result set is not positioned on a row");
+        }
+        if (index < 1 || index > row.length) {
+            throw new SQLException(String.format("Column index %d is out of range", index));
+        }
+
+        Object value = row[index - 1];
+        wasNull = (value == null);
+        try {
+            if (type == int.class) {
+                return value == null ? 0 : toNumber(value).intValue();
+            } else if (type == long.class) {
+                return value == null ? 0L : toNumber(value).longValue();
+            } else if (type == short.class) {
+                return value == null ? (short) 0 : toNumber(value).shortValue();
+            } else if (type == double.class) {
+                return value == null ? 0d : toNumber(value).doubleValue();
+            } else if (type == float.class) {
+                return value == null ? 0f : toNumber(value).floatValue();
+            } else if (type == boolean.class) {
+                return value != null && toBoolean(value);
+            } else if (value == null || type == Object.class || type.isInstance(value)) {
+                return value;
+            } else if (type == String.class) {
+                return value.toString();
+            } else if (type == BigDecimal.class) {
+                return new BigDecimal(value.toString().trim());
+            } else if (type == Date.class && value instanceof java.util.Date) {
+                return new Date(((java.util.Date) value).getTime());
+            } else if (type == Timestamp.class && value instanceof java.util.Date) {
+                return new Timestamp(((java.util.Date) value).getTime());
+            }
+        } catch (NumberFormatException e) {
+            throw new SQLException(String.format("Value of column %d cannot be read with %s: %s",
+                    index, getter, e.getMessage()), e);
+        }
+        throw new SQLException(String.format("Value of column %d of type %s cannot be read with %s",
+                index, value.getClass().getName(), getter));
+    }
+
+    private static Number toNumber(Object value) {
+        if (value instanceof Number) {
+            return (Number) value;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        }
+        return new BigDecimal(value.toString().trim());
+    }
+
+    private static boolean toBoolean(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).intValue() != 0;
+        }
+        String text = value.toString().trim();
+        return "true".equalsIgnoreCase(text) || "1".equals(text);
+    }
+
+    private void close() throws SQLException {
+        if (!closed) {
+            closed = true;
+            closeSource();
+        }
+    }
+
+    private void closeSource() throws SQLException {
+        try {
+            source.close();
+        } catch (IOException e) {
+            throw new SQLException(String.format("Failed to close cached query result: %s", e.getMessage()), e);
+        }
+    }
+}
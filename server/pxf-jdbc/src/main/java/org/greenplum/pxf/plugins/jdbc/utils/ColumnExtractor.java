@@ -0,0 +1,97 @@
+package org.greenplum.pxf.plugins.jdbc.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Extracts the value of a column from the current row of a ResultSet
+ */
+@FunctionalInterface
+public interface ColumnExtractor {
+
+    Object extract(ResultSet result, int index) throws SQLException;
+
+    /**
+     * Returns the function that extracts the values of the given column from
+     * a ResultSet, with the getter that matches the Greenplum type of the
+     * column. The values are plain Java objects: numbers, booleans, strings,
+     * byte arrays, dates and timestamps. SQL NULL values are returned as null.
+     *
+     * @param column the column
+     * @return the extractor of the column
+     * @throws UnsupportedOperationException if the type of the column is not supported
+     */
+    static ColumnExtractor forColumn(ColumnDescriptor column) {
+        switch (DataType.get(column.columnTypeCode())) {
+            case INTEGER:
+                return (result, index) -> {
+                    int value = result.getInt(index);
+                    return result.wasNull() ? null : value;
+                };
+            case FLOAT8:
+                return (result, index) -> {
+                    double value = result.getDouble(index);
+                    return result.wasNull() ? null : value;
+                };
+            case REAL:
+                return (result, index) -> {
+                    float value = result.getFloat(index);
+                    return result.wasNull() ? null : value;
+                };
+            case BIGINT:
+                return (result, index) -> {
+                    long value = result.getLong(index);
+                    return result.wasNull() ? null : value;
+                };
+            case SMALLINT:
+                return (result, index) -> {
+                    short value = result.getShort(index);
+                    return result.wasNull() ? null : value;
+                };
+            case BOOLEAN:
+                return (result, index) -> {
+                    boolean value = result.getBoolean(index);
+                    return result.wasNull() ? null : value;
+                };
+            // getters returning objects return null for SQL NULL values
+            case BYTEA:
+                return ResultSet::getBytes;
+            case VARCHAR:
+            case BPCHAR:
+            case TEXT:
+            case NUMERIC:
+                return ResultSet::getString;
+            case DATE:
+                return ResultSet::getDate;
+            case TIMESTAMP:
+                return ResultSet::getTimestamp;
+            default:
+                throw new UnsupportedOperationException(
+                        String.format("Field type '%s' (column '%s') is not supported",
+                                DataType.get(column.columnTypeCode()),
+                                column));
+        }
+    }
+}
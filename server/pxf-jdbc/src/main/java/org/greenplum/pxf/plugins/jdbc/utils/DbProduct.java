@@ -43,6 +43,20 @@ public enum DbProduct {
         public String wrapDate(Object val) {
             return "DATE('" + val + "')";
         }
+
+        /**
+         * MySQL Connector/J reads the whole result set into memory unless the
+         * fetch size is Integer.MIN_VALUE, which makes it stream rows one by one.
+         */
+        @Override
+        public int getStreamingFetchSize(int fetchSize) {
+            return fetchSize > 0 ? Integer.MIN_VALUE : fetchSize;
+        }
+
+        @Override
+        public boolean isFetchSizeAdjustable() {
+            return false;
+        }
     },
 
     ORACLE {
@@ -110,6 +124,30 @@ public enum DbProduct {
         return String.format("SET %s = %s", key, value);
     }
 
+    /**
+     * Returns the fetch size to set on a statement so that the driver of the
+     * target database streams the rows of the result set instead of reading
+     * all of them into memory. The PostgreSQL driver only uses a cursor when
+     * autocommit is disabled, which PXF does for databases that support
+     * transactions; Oracle and SQL Server drivers use the fetch size as is.
+     *
+     * @param fetchSize number of rows to fetch at a time, 0 to use the default of the driver
+     * @return fetch size to set on the statement
+     */
+    public int getStreamingFetchSize(int fetchSize) {
+        return fetchSize;
+    }
+
+    /**
+     * Returns whether the fetch size of a result set can be changed while it
+     * is read, to adapt it to the width of the rows
+     *
+     * @return true if the fetch size can be adjusted
+     */
+    public boolean isFetchSizeAdjustable() {
+        return true;
+    }
+
     /**
      * Get DbProduct for database by database name
      *
@@ -0,0 +1,407 @@
+package org.greenplum.pxf.plugins.jdbc.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.Weigher;
+import org.greenplum.pxf.api.utilities.CacheUtilities;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the results of SELECT queries for a short time, so that the same
+ * query issued again by other segments in the same Greenplum transaction is
+ * answered locally instead of by the external database. Concurrent requests
+ * for the same key wait for a single query to complete.
+ * <p>
+ * The rows of a result are copied one at a time. Only the projected columns
+ * are copied, each with the getter {@link ColumnExtractor} chooses for its
+ * type, the same getter the resolver uses to read the column, so that the
+ * cache keeps plain Java values instead of objects of the JDBC driver. Once a result has more than
+ * {@link #PXF_JDBC_CACHE_MEMORY_ROWS_PROPERTY} rows, its rows are written one
+ * at a time to a file in the temporary directory, and read back one at a time
+ * by every reader. Once a result has more than
+ * {@link #PXF_JDBC_CACHE_MAX_ROWS_PROPERTY} rows, the copy stops: the caller
+ * that ran the query reads the rest of its rows from the open result set, and
+ * the other callers run the query themselves.
+ */
+public class QueryResultCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QueryResultCache.class);
+
+    /**
+     * Seconds a query result is reused after it is copied. The key includes
+     * the transaction, so this mostly bounds how long the rows of finished
+     * queries take up memory and disk space.
+     */
+    public static final String PXF_JDBC_CACHE_EXPIRATION_PROPERTY = "pxf.jdbc.cache.expiration.seconds";
+
+    /**
+     * Rows of a result kept in memory, the next rows are spilled to a
+     * temporary file that the readers of the result read back.
+     */
+    public static final String PXF_JDBC_CACHE_MEMORY_ROWS_PROPERTY = "pxf.jdbc.cache.memory.rows";
+
+    /**
+     * Rows a result may have to be cached. Larger results are read from the
+     * database by every caller, the caller that started the copy goes on
+     * with the open result set.
+     */
+    public static final String PXF_JDBC_CACHE_MAX_ROWS_PROPERTY = "pxf.jdbc.cache.max.rows";
+
+    /**
+     * Rows of all the cached results together, in memory and in files. A
+     * partitioned table caches a result per fragment, the least recently
+     * used results are dropped first once their rows exceed this number.
+     */
+    public static final String PXF_JDBC_CACHE_TOTAL_ROWS_PROPERTY = "pxf.jdbc.cache.total.rows";
+
+    private static final int DEFAULT_EXPIRATION_SECONDS = 60;
+    private static final int DEFAULT_MEMORY_ROWS = 10000;
+    private static final int DEFAULT_MAX_ROWS = 1000000;
+    private static final long DEFAULT_TOTAL_ROWS = 5000000;
+
+    /* marks the results that have too many rows to be cached */
+    private static final CachedResult TOO_LARGE = new CachedResult(null, null, null, null, 0, null);
+
+    /**
+     * Singleton instance of the QueryResultCache
+     */
+    private static final QueryResultCache instance = new QueryResultCache();
+
+    private final Cache<List<String>, CachedResult> results;
+    private final int memoryRows;
+    private final int maxRows;
+
+    /**
+     * Creates an instance of the cache.
+     */
+    private QueryResultCache() {
+        this(Ticker.systemTicker(),
+                Integer.getInteger(PXF_JDBC_CACHE_EXPIRATION_PROPERTY, DEFAULT_EXPIRATION_SECONDS),
+                Integer.getInteger(PXF_JDBC_CACHE_MEMORY_ROWS_PROPERTY, DEFAULT_MEMORY_ROWS),
+                Integer.getInteger(PXF_JDBC_CACHE_MAX_ROWS_PROPERTY, DEFAULT_MAX_ROWS),
+                Long.getLong(PXF_JDBC_CACHE_TOTAL_ROWS_PROPERTY, DEFAULT_TOTAL_ROWS));
+    }
+
+    QueryResultCache(Ticker ticker, long expirationSeconds, int memoryRows, int maxRows, long totalRows) {
+        this.memoryRows = memoryRows;
+        this.maxRows = maxRows;
+        this.results = CacheBuilder.newBuilder()
+                .ticker(ticker)
+                .expireAfterWrite(expirationSeconds, TimeUnit.SECONDS)
+                // results weigh their number of rows, results too large to be cached weigh one row
+                .maximumWeight(totalRows)
+                .weigher((Weigher<List<String>, CachedResult>) (key, result) ->
+                        (int) Math.max(Math.min(result.size, Integer.MAX_VALUE), 1))
+                .removalListener((RemovalListener<List<String>, CachedResult>) notification -> {
+                    LOG.debug("Removed query result cache entry with cause {}", notification.getCause());
+                    notification.getValue().delete();
+                })
+                .build();
+    }
+
+    /**
+     * @return a singleton instance of the query result cache.
+     */
+    public static QueryResultCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the cached result for the given key, running the query if the
+     * result is not cached yet. The returned result set is positioned before
+     * its first row, and must be closed to release the rows it reads.
+     * <p>
+     * The result set returned by the query is released once all its rows are
+     * copied. If the result has too many rows to be cached, the copy stops
+     * and the result set stays open: the returned result set reads the rows
+     * copied so far and then the rest of the rows of the open result set,
+     * which the caller closes once it has read them.
+     *
+     * @param key     the values that identify the result, like the server, the user, the query and the transaction
+     * @param columns the columns of the external table, the projected ones are copied
+     * @param query   runs the query
+     * @param release closes the result set returned by the query once all its rows are copied
+     * @return the result set, or null if the result has too many rows to be cached and was queried by another caller
+     * @throws SQLException if the query fails
+     */
+    public ResultSet get(List<String> key, List<ColumnDescriptor> columns, Callable<ResultSet> query,
+                         AutoCloseable release) throws SQLException {
+        // the result set of the query and the rows copied from it, if the copy stopped
+        ResultSet[] remainder = new ResultSet[1];
+        CachedResult[] head = new CachedResult[1];
+
+        CachedResult result = CacheUtilities.get(results, key, () -> {
+            ResultSet resultSet = query.call();
+            CachedResult copy = copy(resultSet, columns);
+            if (copy.next == null) {
+                release.close();
+                return copy;
+            }
+            LOG.debug("Query result has more than {} rows, it will not be cached", maxRows);
+            remainder[0] = resultSet;
+            head[0] = copy;
+            return TOO_LARGE;
+        }, SQLException.class, SQLException::new, "Failed to cache query result");
+
+        try {
+            if (head[0] != null) {
+                return head[0].open(remainder[0]);
+            }
+            if (result == TOO_LARGE) {
+                return null;
+            }
+            return result.open(null);
+        } catch (IOException e) {
+            if (head[0] != null) {
+                head[0].delete();
+            }
+            results.invalidate(key);
+            throw new SQLException(String.format("Failed to read cached query result: %s", e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Explicitly runs cache maintenance operations.
+     */
+    void cleanCache() {
+        results.cleanUp();
+    }
+
+    /*
+     * Copies the projected columns of the rows of the given result set, up
+     * to the maximum number of rows of a cached result. The rows past the
+     * number of rows kept in memory are written to a file, one at a time.
+     */
+    private CachedResult copy(ResultSet resultSet, List<ColumnDescriptor> columns) throws SQLException, IOException {
+        List<String> labelList = new ArrayList<>();
+        List<ColumnExtractor> extractorList = new ArrayList<>();
+        for (ColumnDescriptor column : columns) {
+            if (column.isProjected()) {
+                labelList.add(column.columnName());
+                extractorList.add(ColumnExtractor.forColumn(column));
+            }
+        }
+        String[] labels = labelList.toArray(new String[0]);
+        ColumnExtractor[] extractors = extractorList.toArray(new ColumnExtractor[0]);
+        // the indexes of the columns in the result set, which reads the rows that are not copied
+        int[] indexes = new int[labels.length];
+        for (int i = 0; i < labels.length; i++) {
+            indexes[i] = resultSet.findColumn(labels[i]);
+        }
+
+        List<Object[]> rows = new ArrayList<>();
+        RowWriter writer = null;
+        long size = 0;
+        try {
+            while (resultSet.next()) {
+                Object[] row = new Object[labels.length];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = extractors[i].extract(resultSet, indexes[i]);
+                }
+                if (size == maxRows) {
+                    return new CachedResult(labels, indexes, rows, closeWriter(writer), size, row);
+                }
+                size++;
+
+                if (writer == null && rows.size() < memoryRows) {
+                    rows.add(row);
+                    continue;
+                }
+                if (writer == null) {
+                    writer = new RowWriter();
+                    LOG.debug("Query result has more than {} rows, it is cached in file {}", memoryRows, writer.file);
+                    for (Object[] memoryRow : rows) {
+                        writer.write(memoryRow);
+                    }
+                    rows = null;
+                }
+                writer.write(row);
+            }
+        } catch (SQLException | IOException | RuntimeException e) {
+            if (writer != null) {
+                writer.out.close();
+                delete(writer.file);
+            }
+            throw e;
+        }
+        return new CachedResult(labels, indexes, rows, closeWriter(writer), size, null);
+    }
+
+    private File closeWriter(RowWriter writer) throws IOException {
+        if (writer == null) {
+            return null;
+        }
+        writer.out.close();
+        return writer.file;
+    }
+
+    private static void delete(File file) {
+        if (file != null && file.exists() && !file.delete()) {
+            LOG.warn("Failed to delete cached query result file {}", file);
+        }
+    }
+
+    /**
+     * Writes the rows of a result to a temporary file, one at a time.
+     */
+    private class RowWriter {
+        private final File file;
+        private final ObjectOutputStream out;
+        private long written;
+
+        RowWriter() throws IOException {
+            file = File.createTempFile("pxf-jdbc-result", ".ser");
+            file.deleteOnExit();
+            try {
+                out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            } catch (IOException e) {
+                delete(file);
+                throw e;
+            }
+        }
+
+        void write(Object[] row) throws IOException {
+            out.writeObject(row);
+            // the stream keeps every object it wrote until it is reset
+            if (++written % Math.max(memoryRows, 1) == 0) {
+                out.reset();
+            }
+        }
+    }
+
+    /**
+     * The rows of a result, either in memory or in a file. The rows of a
+     * copy that stopped at the maximum number of rows are followed by the
+     * next row read from the result set.
+     */
+    private static class CachedResult {
+        private final String[] labels;
+        private final int[] indexes;
+        private final List<Object[]> rows;
+        private final File file;
+        private final long size;
+        private final Object[] next;
+
+        CachedResult(String[] labels, int[] indexes, List<Object[]> rows, File file, long size, Object[] next) {
+            this.labels = labels;
+            this.indexes = indexes;
+            this.rows = rows;
+            this.file = file;
+            this.size = size;
+            this.next = next;
+        }
+
+        /*
+         * Opens a result set over the rows, followed by the given result set.
+         * The rows of a copy that stopped are only read once, their file is
+         * deleted when the result set is closed.
+         */
+        ResultSet open(ResultSet remainder) throws IOException {
+            CachedResultSet.RowSource source = (file == null) ? new MemoryRows() : new FileRows();
+            return CachedResultSet.create(labels, source, remainder, indexes);
+        }
+
+        void delete() {
+            QueryResultCache.delete(file);
+        }
+
+        private class MemoryRows implements CachedResultSet.RowSource {
+            private final Iterator<Object[]> iterator = rows.iterator();
+            private boolean nextRead;
+
+            @Override
+            public Object[] next() {
+                if (iterator.hasNext()) {
+                    return iterator.next();
+                }
+                if (next != null && !nextRead) {
+                    nextRead = true;
+                    return next;
+                }
+                return null;
+            }
+
+            @Override
+            public void close() {
+            }
+        }
+
+        private class FileRows implements CachedResultSet.RowSource {
+            private final ObjectInputStream in;
+            private long read;
+            private boolean closed;
+
+            FileRows() throws IOException {
+                in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+            }
+
+            @Override
+            public Object[] next() throws IOException {
+                if (read < size) {
+                    read++;
+                    try {
+                        return (Object[]) in.readObject();
+                    } catch (ClassNotFoundException e) {
+                        throw new IOException(e);
+                    }
+                }
+                if (next != null && read == size) {
+                    read++;
+                    return next;
+                }
+                return null;
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                in.close();
+                if (next != null) {
+                    CachedResult.this.delete();
+                }
+            }
+        }
+    }
+}
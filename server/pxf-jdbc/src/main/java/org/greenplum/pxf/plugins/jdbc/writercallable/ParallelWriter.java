@@ -0,0 +1,232 @@
+package org.greenplum.pxf.plugins.jdbc.writercallable;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.plugins.jdbc.JdbcBasePlugin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes rows to the external database with a pool of threads.
+ *
+ * Rows are grouped in batches that are passed to the threads through a
+ * bounded queue, so at most a few batches per thread are kept in memory.
+ * Every thread opens one connection and prepares the INSERT query once, on
+ * its first batch, and uses them until the end of the write. The transaction
+ * of a thread is committed every commitInterval batches, and when its
+ * connection is closed.
+ *
+ * The first error that happens in any thread is reported by the next call to
+ * {@link #write(OneRow)} or by {@link #close()}. Batches that are still
+ * queued after an error are discarded.
+ */
+public class ParallelWriter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ParallelWriter.class);
+
+    /* the number of batches that can wait in the queue, per thread */
+    private static final int QUEUED_BATCHES_PER_THREAD = 2;
+
+    /* marks the end of the data for one thread */
+    private static final List<OneRow> END_OF_DATA = new ArrayList<>(0);
+
+    private final JdbcBasePlugin plugin;
+    private final String query;
+    private final int batchSize;
+    private final int commitInterval;
+    private final BlockingQueue<List<OneRow>> queue;
+    private final ExecutorService executorService;
+    private final List<Future<?>> workers;
+    private final AtomicReference<Exception> firstException = new AtomicReference<>();
+
+    private List<OneRow> batch;
+
+    /**
+     * Creates a new writer and starts its threads.
+     *
+     * @param plugin         plugin that provides the connections
+     * @param query          INSERT query
+     * @param batchSize      number of rows per batch, 1 to insert rows one by one
+     * @param poolSize       number of threads
+     * @param commitInterval number of batches per transaction, 0 to commit only when a thread ends
+     */
+    public ParallelWriter(JdbcBasePlugin plugin, String query, int batchSize, int poolSize, int commitInterval) {
+        if (plugin == null || query == null) {
+            throw new IllegalArgumentException("The provided JdbcBasePlugin or SQL query is null");
+        }
+        if (batchSize < 1 || poolSize < 1 || commitInterval < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid parallel writer settings: batch size %d, pool size %d, commit interval %d",
+                    batchSize, poolSize, commitInterval));
+        }
+
+        this.plugin = plugin;
+        this.query = query;
+        this.batchSize = batchSize;
+        this.commitInterval = commitInterval;
+        this.queue = new ArrayBlockingQueue<>(poolSize * QUEUED_BATCHES_PER_THREAD);
+        this.batch = new ArrayList<>(batchSize);
+
+        executorService = Executors.newFixedThreadPool(poolSize);
+        workers = new ArrayList<>(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            workers.add(executorService.submit(this::work));
+        }
+    }
+
+    /**
+     * Adds a row to the current batch, and queues the batch once it is full.
+     * Blocks while the queue is full.
+     *
+     * @param row row to write
+     * @throws Exception the first error that happened in a thread
+     */
+    public void write(OneRow row) throws Exception {
+        throwIfFailed();
+        if (row == null) {
+            throw new IllegalArgumentException("Trying to write a null OneRow object");
+        }
+
+        batch.add(row);
+        if (batch.size() >= batchSize) {
+            put(batch);
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    /**
+     * Queues the last batch, waits for all the threads to write their
+     * batches and to close their connections, and stops the threads.
+     *
+     * @throws Exception the first error that happened in a thread
+     */
+    public void close() throws Exception {
+        try {
+            if (!batch.isEmpty() && firstException.get() == null) {
+                put(batch);
+            }
+            batch = new ArrayList<>(0);
+            for (int i = 0; i < workers.size(); i++) {
+                put(END_OF_DATA);
+            }
+
+            // We need to wait for every thread to ensure that all connections opened by the pool are closed
+            for (Future<?> worker : workers) {
+                try {
+                    worker.get();
+                } catch (Exception e) {
+                    LOG.debug("A runtime exception in a thread pool occurred: {} {}", e.getClass(), e.getMessage());
+                    firstException.compareAndSet(null, e);
+                }
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        throwIfFailed();
+    }
+
+    private void put(List<OneRow> rows) throws InterruptedException {
+        // threads only stop consuming when they receive END_OF_DATA or die, do not wait forever for the latter
+        while (!queue.offer(rows, 1, TimeUnit.SECONDS)) {
+            if (workers.stream().allMatch(Future::isDone)) {
+                throw new IllegalStateException("All JDBC writer threads have stopped");
+            }
+        }
+    }
+
+    private void throwIfFailed() throws Exception {
+        Exception e = firstException.get();
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    /**
+     * Body of a thread: writes the queued batches with one statement until
+     * it receives END_OF_DATA.
+     */
+    private Void work() throws Exception {
+        PreparedStatement statement = null;
+        WriterCallable writer = null;
+        int batches = 0;
+
+        try {
+            while (true) {
+                List<OneRow> rows = queue.take();
+                if (rows == END_OF_DATA) {
+                    break;
+                }
+                if (firstException.get() != null) {
+                    continue;
+                }
+
+                try {
+                    if (statement == null) {
+                        statement = plugin.getPreparedStatement(plugin.getConnection(), query);
+                        writer = (batchSize > 1) ?
+                                new BatchWriterCallable(plugin, query, statement, batchSize) :
+                                new SimpleWriterCallable(plugin, query, statement);
+                    }
+                    for (OneRow row : rows) {
+                        writer.supply(row);
+                    }
+                    SQLException e = writer.call();
+                    if (e != null) {
+                        throw e;
+                    }
+                    if (commitInterval > 0 && ++batches % commitInterval == 0) {
+                        commit(statement.getConnection());
+                    }
+                } catch (Exception e) {
+                    LOG.error("A SQLException in a pool thread occurred: {} {}", e.getClass(), e.getMessage());
+                    firstException.compareAndSet(null, e);
+                }
+            }
+        } finally {
+            if (statement != null) {
+                // commits what is left
+                JdbcBasePlugin.closeStatementAndConnection(statement);
+            }
+        }
+        return null;
+    }
+
+    private void commit(Connection connection) throws SQLException {
+        if (!connection.getAutoCommit()) {
+            LOG.debug("Committing transaction on connection {}", connection);
+            connection.commit();
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package org.greenplum.pxf.plugins.jdbc;
 
 import org.apache.commons.lang.SerializationUtils;
+import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.io.DataType;
 import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.greenplum.pxf.api.utilities.EnumAggregationType;
 import org.greenplum.pxf.plugins.jdbc.partitioning.PartitionType;
 import org.greenplum.pxf.plugins.jdbc.utils.ConnectionManager;
 import org.junit.Before;
@@ -13,19 +17,30 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
 import java.io.File;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -47,6 +62,8 @@ public class JdbcAccessorTest {
     private Statement mockStatement;
     @Mock
     private ResultSet mockResultSet;
+    @Mock
+    private ResultSetMetaData mockResultSetMetaData;
 
     @Before
     public void setup() throws SQLException {
@@ -244,4 +261,184 @@ public class JdbcAccessorTest {
                 "GROUP BY dept.name) pxfsubquery WHERE count >= 1 AND count < 2";
         assertEquals(expected, queryPassed.getValue());
     }
+
+    @Test
+    public void testCountIsPushedDown() throws Exception {
+        setupCountQuery();
+        ArgumentCaptor<String> queryPassed = ArgumentCaptor.forClass(String.class);
+        when(mockStatement.executeQuery(queryPassed.capture())).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(true);
+        when(mockResultSet.getLong(1)).thenReturn(2L);
+
+        accessor.initialize(context);
+        accessor.openForRead();
+        accessor.retrieveStats();
+
+        assertEquals("SELECT COUNT(*) FROM test-table", queryPassed.getValue());
+        assertNotNull(accessor.emitAggObject());
+        assertNotNull(accessor.emitAggObject());
+        assertNull(accessor.emitAggObject());
+    }
+
+    @Test
+    public void testCountWithPartitionsIsPushedDown() throws Exception {
+        setupCountQuery();
+        context.addOption("PARTITION_BY", "id:int");
+        context.addOption("RANGE", "1:10");
+        context.addOption("INTERVAL", "1");
+        context.setFragmentMetadata(SerializationUtils.serialize(PartitionType.INT.getFragmentsMetadata("id", "1:10", "1").get(2)));
+        ArgumentCaptor<String> queryPassed = ArgumentCaptor.forClass(String.class);
+        when(mockStatement.executeQuery(queryPassed.capture())).thenReturn(mockResultSet);
+
+        accessor.initialize(context);
+        accessor.openForRead();
+
+        assertEquals("SELECT COUNT(*) FROM test-table WHERE id >= 1 AND id < 2", queryPassed.getValue());
+    }
+
+    @Test
+    public void testCountWithFilterIsNotPushedDown() throws Exception {
+        setupCountQuery();
+        // id = 1
+        context.setFilterString("a0c20s1d1o5");
+        ArgumentCaptor<String> queryPassed = ArgumentCaptor.forClass(String.class);
+        when(mockStatement.executeQuery(queryPassed.capture())).thenReturn(mockResultSet);
+
+        accessor.initialize(context);
+        accessor.openForRead();
+
+        assertEquals("SELECT id FROM test-table WHERE id = 1", queryPassed.getValue());
+        expectedException.expect(IllegalStateException.class);
+        expectedException.expectMessage("Accessor is not using statistics in current context.");
+        accessor.retrieveStats();
+    }
+
+    @Test
+    public void testEmittedRowResolvesToNullFields() throws Exception {
+        setupCountQuery();
+        when(mockStatement.executeQuery(anyString())).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(true);
+        when(mockResultSet.getLong(1)).thenReturn(1L);
+
+        accessor.initialize(context);
+        accessor.openForRead();
+        accessor.retrieveStats();
+        OneRow row = accessor.emitAggObject();
+
+        JdbcResolver resolver = new JdbcResolver();
+        resolver.initialize(context);
+        assertEquals(1, resolver.getFields(row).size());
+        assertNull(resolver.getFields(row).get(0).val);
+    }
+
+    /**
+     * Sets up the context of a SELECT COUNT(*) query, as sent by Greenplum
+     */
+    private void setupCountQuery() {
+        context.setAccessor(JdbcAccessor.class.getName());
+        context.setAggType(EnumAggregationType.COUNT);
+        context.setNumAttrsProjected(0);
+        context.getTupleDescription().add(new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null, true));
+    }
+
+    @Test
+    public void testFetchSizeIsAdaptedToRowWidth() throws Exception {
+        when(mockStatement.executeQuery(anyString())).thenReturn(mockResultSet);
+        when(mockResultSet.getMetaData()).thenReturn(mockResultSetMetaData);
+        when(mockResultSetMetaData.getColumnCount()).thenReturn(2);
+        when(mockResultSetMetaData.getColumnDisplaySize(1)).thenReturn(11);
+        // unlimited columns count as 1024 bytes
+        when(mockResultSetMetaData.getColumnDisplaySize(2)).thenReturn(Integer.MAX_VALUE);
+        // rows of 1 + 11 + 1024 bytes
+        context.getAdditionalConfigProps().put("jdbc.statement.fetchBufferSize", "2072000");
+
+        accessor.initialize(context);
+        accessor.openForRead();
+
+        verify(mockStatement).setFetchSize(1000);
+        verify(mockResultSet).setFetchSize(2000);
+    }
+
+    @Test
+    public void testFetchSizeIsNotAdaptedWhenSetByUser() throws Exception {
+        when(mockStatement.executeQuery(anyString())).thenReturn(mockResultSet);
+        when(mockResultSet.getMetaData()).thenReturn(mockResultSetMetaData);
+        context.getAdditionalConfigProps().put("jdbc.statement.fetchSize", "50");
+
+        accessor.initialize(context);
+        accessor.openForRead();
+
+        verify(mockStatement).setFetchSize(50);
+        verify(mockResultSet, never()).setFetchSize(anyInt());
+    }
+
+    @Test
+    public void testMySqlResultSetIsStreamed() throws Exception {
+        when(mockMetaData.getDatabaseProductName()).thenReturn("MySQL");
+        when(mockStatement.executeQuery(anyString())).thenReturn(mockResultSet);
+        when(mockResultSet.getMetaData()).thenReturn(mockResultSetMetaData);
+
+        accessor.initialize(context);
+        accessor.openForRead();
+
+        verify(mockStatement).setFetchSize(Integer.MIN_VALUE);
+        verify(mockResultSet, never()).setFetchSize(anyInt());
+    }
+
+    @Test
+    public void testResultIsCachedForOtherFragments() throws Exception {
+        context.getAdditionalConfigProps().put("jdbc.result.cache.enabled", "true");
+        context.setTransactionId("testResultIsCachedForOtherFragments");
+        context.getTupleDescription().add(new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null));
+        when(mockStatement.executeQuery(anyString())).thenReturn(createRows(2));
+
+        accessor.initialize(context);
+        accessor.openForRead();
+        JdbcAccessor otherAccessor = new JdbcAccessor(mockConnectionManager);
+        otherAccessor.initialize(context);
+        otherAccessor.openForRead();
+
+        // the query is executed once, and its statement is closed once the rows are copied
+        verify(mockConnection, times(1)).createStatement();
+        verify(mockStatement).close();
+        for (JdbcAccessor reader : new JdbcAccessor[] {accessor, otherAccessor}) {
+            assertEquals(0, ((ResultSet) reader.readNextObject().getData()).getInt("id"));
+            assertEquals(1, ((ResultSet) reader.readNextObject().getData()).getInt("id"));
+            assertNull(reader.readNextObject());
+            reader.closeForRead();
+        }
+    }
+
+    @Test
+    public void testResultIsNotCachedByDefault() throws Exception {
+        context.setTransactionId("testResultIsNotCachedByDefault");
+        when(mockStatement.executeQuery(anyString())).thenReturn(mockResultSet);
+
+        accessor.initialize(context);
+        accessor.openForRead();
+        JdbcAccessor otherAccessor = new JdbcAccessor(mockConnectionManager);
+        otherAccessor.initialize(context);
+        otherAccessor.openForRead();
+
+        verify(mockConnection, times(2)).createStatement();
+    }
+
+    private ResultSet createRows(int numRows) throws SQLException {
+        CachedRowSet rows = RowSetProvider.newFactory().createCachedRowSet();
+        RowSetMetaDataImpl metaData = new RowSetMetaDataImpl();
+        metaData.setColumnCount(1);
+        metaData.setColumnName(1, "id");
+        metaData.setColumnLabel(1, "id");
+        metaData.setColumnType(1, Types.INTEGER);
+        rows.setMetaData(metaData);
+        for (int i = 0; i < numRows; i++) {
+            rows.moveToInsertRow();
+            rows.updateInt(1, i);
+            rows.insertRow();
+            rows.moveToCurrentRow();
+            rows.last();
+        }
+        rows.beforeFirst();
+        return rows;
+    }
 }
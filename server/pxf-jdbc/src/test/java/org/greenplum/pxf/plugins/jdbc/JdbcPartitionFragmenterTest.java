@@ -21,31 +21,64 @@ package org.greenplum.pxf.plugins.jdbc;
 
 import org.greenplum.pxf.api.model.Fragment;
 import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.plugins.jdbc.utils.ConnectionManager;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyObject;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class JdbcPartitionFragmenterTest {
     @Rule
     public ExpectedException thrown = ExpectedException.none();
 
     private RequestContext context;
+    private ConnectionManager mockConnectionManager;
+    private DatabaseMetaData mockMetaData;
+    private Statement mockStatement;
 
     @Before
-    public void setUp() {
+    public void setUp() throws SQLException {
         context = new RequestContext();
         context.setConfig("default");
         context.setDataSource("table");
         context.setUser("test-user");
+        Map<String, String> additionalProps = new HashMap<>();
+        additionalProps.put("jdbc.driver", "org.greenplum.pxf.plugins.jdbc.FakeJdbcDriver");
+        additionalProps.put("jdbc.url", "test-url");
+        context.setAdditionalConfigProps(additionalProps);
+
+        mockConnectionManager = mock(ConnectionManager.class);
+        mockMetaData = mock(DatabaseMetaData.class);
+        mockStatement = mock(Statement.class);
+        Connection mockConnection = mock(Connection.class);
+        when(mockConnectionManager.getConnection(anyString(), anyString(), anyObject(), anyBoolean(), anyObject(), anyString())).thenReturn(mockConnection);
+        when(mockConnection.getMetaData()).thenReturn(mockMetaData);
+        when(mockConnection.createStatement()).thenReturn(mockStatement);
+        when(mockMetaData.getDatabaseProductName()).thenReturn("Greenplum");
+        when(mockMetaData.getExtraNameCharacters()).thenReturn("");
     }
 
     @Test
-    public void testNoPartition() {
+    public void testNoPartition() throws Exception {
 
         JdbcPartitionFragmenter fragment = new JdbcPartitionFragmenter();
         fragment.initialize(context);
@@ -69,4 +102,187 @@ public class JdbcPartitionFragmenterTest {
         context.addOption("PARTITION_BY", "level-enum");
         new JdbcPartitionFragmenter().initialize(context);
     }
+
+    @Test
+    public void testPartitionIntWithoutRange() throws Exception {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("The parameter 'RANGE' must be specified for partition of type 'INT'");
+
+        // the range is only discovered when requested, the external database is not queried
+        context.addOption("PARTITION_BY", "id:int");
+        newAutoPartitionFragmenter().getFragments();
+    }
+
+    @Test
+    public void testAutoPartitionEnumInvalid() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("The parameter 'RANGE' cannot be 'auto' for partition of type 'ENUM'");
+
+        context.addOption("PARTITION_BY", "level:enum");
+        context.addOption("RANGE", "auto");
+        newAutoPartitionFragmenter();
+    }
+
+    @Test
+    public void testAutoPartitionInt() throws Exception {
+        context.addOption("PARTITION_BY", "id:int");
+        context.addOption("RANGE", "auto");
+        context.addOption("ROWS_PER_PARTITION", "10");
+        ResultSet statistics = mockStatistics("SELECT MIN(id), MAX(id), COUNT(*) FROM table");
+        when(statistics.getLong(1)).thenReturn(1L);
+        when(statistics.getLong(2)).thenReturn(100L);
+        when(statistics.getLong(3)).thenReturn(35L);
+
+        List<Fragment> fragments = newAutoPartitionFragmenter().getFragments();
+
+        // 4 fragments of 25 values for 1..100, below 1, from 101 and IS NULL
+        assertEquals(7, fragments.size());
+    }
+
+    @Test
+    public void testAutoPartitionIntOverflow() throws Exception {
+        context.addOption("PARTITION_BY", "id:int");
+        context.addOption("RANGE", "auto");
+        context.addOption("ROWS_PER_PARTITION", "10");
+        ResultSet statistics = mockStatistics("SELECT MIN(id), MAX(id), COUNT(*) FROM table");
+        when(statistics.getLong(1)).thenReturn(Long.MIN_VALUE + 1);
+        when(statistics.getLong(2)).thenReturn(Long.MAX_VALUE - 1);
+        when(statistics.getLong(3)).thenReturn(35L);
+
+        List<Fragment> fragments = newAutoPartitionFragmenter().getFragments();
+
+        // the span of the values does not fit in a long, the table is read as a single fragment
+        assertEquals(1, fragments.size());
+        assertNull(fragments.get(0).getMetadata());
+    }
+
+    @Test
+    public void testAutoPartitionWithInterval() throws Exception {
+        context.addOption("PARTITION_BY", "id:int");
+        context.addOption("RANGE", "auto");
+        context.addOption("INTERVAL", "50");
+        ResultSet statistics = mockStatistics("SELECT MIN(id), MAX(id), COUNT(*) FROM table");
+        when(statistics.getLong(1)).thenReturn(1L);
+        when(statistics.getLong(2)).thenReturn(100L);
+        when(statistics.getLong(3)).thenReturn(35L);
+
+        List<Fragment> fragments = newAutoPartitionFragmenter().getFragments();
+
+        assertEquals(5, fragments.size());
+    }
+
+    @Test
+    public void testAutoPartitionSmallTable() throws Exception {
+        context.addOption("PARTITION_BY", "id:int");
+        context.addOption("RANGE", "auto");
+        ResultSet statistics = mockStatistics("SELECT MIN(id), MAX(id), COUNT(*) FROM table");
+        when(statistics.getLong(3)).thenReturn(35L);
+
+        List<Fragment> fragments = newAutoPartitionFragmenter().getFragments();
+
+        assertEquals(1, fragments.size());
+        assertNull(fragments.get(0).getMetadata());
+    }
+
+    @Test
+    public void testAutoPartitionEmptyTable() throws Exception {
+        context.addOption("PARTITION_BY", "id:int");
+        context.addOption("RANGE", "auto");
+        context.addOption("INTERVAL", "50");
+        ResultSet statistics = mockStatistics("SELECT MIN(id), MAX(id), COUNT(*) FROM table");
+        when(statistics.wasNull()).thenReturn(true);
+
+        List<Fragment> fragments = newAutoPartitionFragmenter().getFragments();
+
+        assertEquals(1, fragments.size());
+        assertNull(fragments.get(0).getMetadata());
+    }
+
+    @Test
+    public void testAutoPartitionByPrimaryKey() throws Exception {
+        context.addOption("PARTITION_BY", "auto");
+        context.addOption("ROWS_PER_PARTITION", "10");
+
+        ResultSet primaryKeys = mock(ResultSet.class);
+        when(primaryKeys.next()).thenReturn(true, false);
+        when(primaryKeys.getString("COLUMN_NAME")).thenReturn("cdate");
+        when(mockMetaData.getPrimaryKeys(null, null, "table")).thenReturn(primaryKeys);
+        ResultSet columns = mock(ResultSet.class);
+        when(columns.next()).thenReturn(true);
+        when(columns.getInt("DATA_TYPE")).thenReturn(Types.DATE);
+        when(mockMetaData.getColumns(null, null, "table", "cdate")).thenReturn(columns);
+        ResultSet indexInfo = mock(ResultSet.class);
+        when(indexInfo.next()).thenReturn(true, false);
+        when(indexInfo.getShort("TYPE")).thenReturn(DatabaseMetaData.tableIndexStatistic);
+        when(indexInfo.getLong("CARDINALITY")).thenReturn(20L);
+        when(mockMetaData.getIndexInfo(null, null, "table", false, true)).thenReturn(indexInfo);
+
+        // the estimated row count is used, rows are not counted
+        ResultSet statistics = mockStatistics("SELECT MIN(cdate), MAX(cdate) FROM table");
+        when(statistics.getDate(1)).thenReturn(Date.valueOf("2020-01-01"));
+        when(statistics.getDate(2)).thenReturn(Date.valueOf("2020-01-10"));
+
+        List<Fragment> fragments = newAutoPartitionFragmenter().getFragments();
+
+        // 2 fragments of 5 days, before 2020-01-01, from 2020-01-11 and IS NULL
+        assertEquals(5, fragments.size());
+    }
+
+    @Test
+    public void testAutoPartitionByTimestampPrimaryKey() throws Exception {
+        context.addOption("PARTITION_BY", "auto");
+
+        ResultSet primaryKeys = mock(ResultSet.class);
+        when(primaryKeys.next()).thenReturn(true, false);
+        when(primaryKeys.getString("COLUMN_NAME")).thenReturn("created");
+        when(mockMetaData.getPrimaryKeys(null, null, "table")).thenReturn(primaryKeys);
+        ResultSet columns = mock(ResultSet.class);
+        when(columns.next()).thenReturn(true);
+        when(columns.getInt("DATA_TYPE")).thenReturn(Types.TIMESTAMP);
+        when(mockMetaData.getColumns(null, null, "table", "created")).thenReturn(columns);
+
+        List<Fragment> fragments = newAutoPartitionFragmenter().getFragments();
+
+        assertEquals(1, fragments.size());
+        assertNull(fragments.get(0).getMetadata());
+    }
+
+    @Test
+    public void testAutoPartitionByCompositePrimaryKey() throws Exception {
+        context.addOption("PARTITION_BY", "auto");
+
+        ResultSet primaryKeys = mock(ResultSet.class);
+        when(primaryKeys.next()).thenReturn(true, true, false);
+        when(primaryKeys.getString("COLUMN_NAME")).thenReturn("id", "cdate");
+        when(mockMetaData.getPrimaryKeys(null, null, "table")).thenReturn(primaryKeys);
+
+        List<Fragment> fragments = newAutoPartitionFragmenter().getFragments();
+
+        assertEquals(1, fragments.size());
+        assertNull(fragments.get(0).getMetadata());
+    }
+
+    @Test
+    public void testAutoPartitionRowsPerPartitionInvalid() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("The parameter 'ROWS_PER_PARTITION' must be at least 1");
+
+        context.addOption("PARTITION_BY", "id:int");
+        context.addOption("RANGE", "auto");
+        context.addOption("ROWS_PER_PARTITION", "0");
+        newAutoPartitionFragmenter();
+    }
+
+    private JdbcPartitionFragmenter newAutoPartitionFragmenter() {
+        JdbcPartitionFragmenter fragmenter = new JdbcPartitionFragmenter(new JdbcBasePlugin(mockConnectionManager));
+        fragmenter.initialize(context);
+        return fragmenter;
+    }
+
+    private ResultSet mockStatistics(String query) throws SQLException {
+        ResultSet statistics = mock(ResultSet.class);
+        when(statistics.next()).thenReturn(true);
+        when(mockStatement.executeQuery(query)).thenReturn(statistics);
+        return statistics;
+    }
 }
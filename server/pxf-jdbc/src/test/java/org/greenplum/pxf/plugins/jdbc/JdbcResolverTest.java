@@ -0,0 +1,109 @@
+package org.greenplum.pxf.plugins.jdbc;
+
+import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class JdbcResolverTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Mock
+    private ResultSet mockResultSet;
+
+    private JdbcResolver resolver;
+    private RequestContext context;
+    private List<ColumnDescriptor> columns;
+
+    @Before
+    public void setup() {
+        resolver = new JdbcResolver();
+        context = new RequestContext();
+        context.setConfig("default");
+        context.setDataSource("test-table");
+        Map<String, String> additionalProps = new HashMap<>();
+        additionalProps.put("jdbc.driver", "org.greenplum.pxf.plugins.jdbc.FakeJdbcDriver");
+        additionalProps.put("jdbc.url", "test-url");
+        context.setAdditionalConfigProps(additionalProps);
+        context.setUser("test-user");
+        columns = new ArrayList<>();
+        context.setTupleDescription(columns);
+    }
+
+    @Test
+    public void testGetFieldsByColumnIndex() throws Exception {
+        columns.add(new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null));
+        columns.add(new ColumnDescriptor("name", DataType.TEXT.getOID(), 1, "text", null));
+        columns.add(new ColumnDescriptor("skipped", DataType.BIGINT.getOID(), 2, "int8", null, false));
+        columns.add(new ColumnDescriptor("created", DataType.DATE.getOID(), 3, "date", null));
+        resolver.initialize(context);
+
+        when(mockResultSet.findColumn("id")).thenReturn(1);
+        when(mockResultSet.findColumn("name")).thenReturn(2);
+        when(mockResultSet.findColumn("created")).thenReturn(3);
+        when(mockResultSet.getInt(1)).thenReturn(42, 0);
+        when(mockResultSet.wasNull()).thenReturn(false, true);
+        when(mockResultSet.getString(2)).thenReturn("abc", (String) null);
+        when(mockResultSet.getDate(3)).thenReturn(Date.valueOf("2020-01-02"), (Date) null);
+
+        List<OneField> fields = resolver.getFields(new OneRow(mockResultSet));
+        assertEquals(4, fields.size());
+        assertField(fields.get(0), DataType.INTEGER, 42);
+        assertField(fields.get(1), DataType.TEXT, "abc");
+        assertField(fields.get(2), DataType.BIGINT, null);
+        assertField(fields.get(3), DataType.DATE, Date.valueOf("2020-01-02"));
+
+        fields = resolver.getFields(new OneRow(mockResultSet));
+        assertField(fields.get(0), DataType.INTEGER, null);
+        assertField(fields.get(1), DataType.TEXT, null);
+        assertField(fields.get(2), DataType.BIGINT, null);
+        assertField(fields.get(3), DataType.DATE, null);
+
+        // columns are looked up once per result set, and never by name when fetching values
+        verify(mockResultSet, times(1)).findColumn("id");
+        verify(mockResultSet, never()).findColumn("skipped");
+        verify(mockResultSet, never()).getString(anyString());
+    }
+
+    @Test
+    public void testGetFieldsUnsupportedType() throws Exception {
+        expectedException.expect(UnsupportedOperationException.class);
+        expectedException.expectMessage("Field type 'INT8ARRAY' (column");
+
+        columns.add(new ColumnDescriptor("arr", DataType.INT8ARRAY.getOID(), 0, "int8[]", null));
+        resolver.initialize(context);
+
+        resolver.getFields(new OneRow(mockResultSet));
+    }
+
+    private void assertField(OneField field, DataType type, Object value) {
+        assertEquals(type.getOID(), field.type);
+        assertEquals(value, field.val);
+    }
+}
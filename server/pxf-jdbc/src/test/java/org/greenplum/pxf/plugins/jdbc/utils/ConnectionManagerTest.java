@@ -1,6 +1,5 @@
 package org.greenplum.pxf.plugins.jdbc.utils;
 
-import com.google.common.base.Ticker;
 import com.google.common.util.concurrent.Uninterruptibles;
 import com.zaxxer.hikari.HikariDataSource;
 import com.zaxxer.hikari.HikariPoolMXBean;
@@ -22,7 +21,6 @@ import java.sql.SQLException;
 import java.sql.SQLTransientConnectionException;
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
 
 import static org.hamcrest.core.StringContains.containsString;
 import static org.junit.Assert.assertEquals;
@@ -225,18 +223,5 @@ public class ConnectionManagerTest {
         verify(mockMBean, atLeast(3)).getActiveConnections();
         verify(mockDataSource, times(1)).close(); // verify datasource is closed when evicted
     }
-
-    class MockTicker extends Ticker {
-        private final AtomicLong nanos = new AtomicLong();
-
-        @Override
-        public long read() {
-            return nanos.get();
-        }
-
-        public void advanceTime(long value, TimeUnit unit) {
-            nanos.addAndGet(unit.toNanos(value));
-        }
-    }
 }
 
@@ -132,4 +132,19 @@ public class DbProductTest {
             assertEquals(expected[i], dbProduct.wrapDate(DATES[i]));
         }
     }
+
+    @Test
+    public void testMySqlStreamingFetchSize() {
+        DbProduct dbProduct = DbProduct.getDbProduct(DB_NAME_MYSQL);
+
+        assertEquals(Integer.MIN_VALUE, dbProduct.getStreamingFetchSize(1000));
+        assertEquals(0, dbProduct.getStreamingFetchSize(0));
+    }
+
+    @Test
+    public void testUnknownStreamingFetchSize() {
+        DbProduct dbProduct = DbProduct.getDbProduct(DB_NAME_UNKNOWN);
+
+        assertEquals(1000, dbProduct.getStreamingFetchSize(1000));
+    }
 }
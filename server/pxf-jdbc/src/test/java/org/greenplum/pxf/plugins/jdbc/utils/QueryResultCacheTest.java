@@ -0,0 +1,322 @@
+package org.greenplum.pxf.plugins.jdbc.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class QueryResultCacheTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private MockTicker ticker;
+    private QueryResultCache cache;
+    private AtomicInteger queries;
+    private AtomicInteger releases;
+    private List<String> key = Arrays.asList("server", "user", "1234", "query:sales", "SELECT 1");
+    private List<ColumnDescriptor> columns = Arrays.asList(
+            new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null),
+            new ColumnDescriptor("name", DataType.TEXT.getOID(), 1, "text", null));
+
+    @Before
+    public void before() {
+        ticker = new MockTicker();
+        cache = new QueryResultCache(ticker, 60, 5, 20, 1000);
+        queries = new AtomicInteger();
+        releases = new AtomicInteger();
+    }
+
+    @Test
+    public void testSingletonInstance() {
+        assertSame(QueryResultCache.getInstance(), QueryResultCache.getInstance());
+    }
+
+    @Test
+    public void testResultIsQueriedOnce() throws SQLException {
+        ResultSet first = get(3);
+        ResultSet second = get(3);
+
+        assertEquals(1, queries.get());
+        // the result set of the query is released once its rows are copied
+        assertEquals(1, releases.get());
+        // the readers have their own cursors
+        assertRows(3, first);
+        assertRows(3, second);
+    }
+
+    @Test
+    public void testResultIsQueriedForEveryKey() throws SQLException {
+        get(3);
+        cache.get(Arrays.asList("server", "user", "1235", "query:sales", "SELECT 1"), columns, () -> query(3),
+                releases::incrementAndGet);
+
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    public void testResultExpires() throws SQLException {
+        get(3);
+        ticker.advanceTime(61, TimeUnit.SECONDS);
+        cache.cleanCache();
+        assertRows(3, get(3));
+
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    public void testResultsAreEvictedOnceTheyHaveTooManyRows() throws SQLException {
+        cache = new QueryResultCache(ticker, 60, 5, 20, 10);
+
+        get(3);
+        ticker.advanceTime(1, TimeUnit.SECONDS);
+        cache.get(Arrays.asList("server", "user", "1234", "query:sales", "SELECT 2"), columns, () -> query(9),
+                releases::incrementAndGet);
+        assertEquals(2, queries.get());
+
+        // the first result was evicted to keep the second one
+        assertRows(3, get(3));
+        assertEquals(3, queries.get());
+    }
+
+    @Test
+    public void testResultIsSpilledToFile() throws SQLException {
+        ResultSet first = get(10);
+        ResultSet second = get(10);
+
+        assertEquals(1, queries.get());
+        assertEquals(1, releases.get());
+        // the readers read the file at the same time
+        assertTrue(first.next());
+        assertEquals(0, first.getInt("id"));
+        assertRows(10, second);
+        for (int i = 1; i < 10; i++) {
+            assertTrue(first.next());
+            assertEquals(i, first.getInt("id"));
+        }
+        assertFalse(first.next());
+    }
+
+    @Test
+    public void testLargeResultIsReadFromQuery() throws SQLException {
+        // the rows copied to a file are followed by the rows of the open result set
+        assertRows(25, get(25));
+        assertEquals(0, releases.get());
+
+        assertNull(get(25));
+        assertEquals(1, queries.get());
+    }
+
+    @Test
+    public void testLargeResultInMemoryIsReadFromQuery() throws SQLException {
+        cache = new QueryResultCache(ticker, 60, 50, 20, 1000);
+
+        assertRows(21, get(21));
+        assertEquals(0, releases.get());
+
+        assertNull(get(21));
+        assertEquals(1, queries.get());
+    }
+
+    @Test
+    public void testQueryFailureIsNotCached() throws SQLException {
+        try {
+            cache.get(key, columns, () -> {
+                throw new SQLException("connection refused");
+            }, releases::incrementAndGet);
+            fail("the query failure was not reported");
+        } catch (SQLException e) {
+            assertEquals("connection refused", e.getMessage());
+        }
+
+        assertRows(3, get(3));
+        assertEquals(1, queries.get());
+    }
+
+    @Test
+    public void testQueryFailureIsWrapped() throws SQLException {
+        expectedException.expect(SQLException.class);
+        expectedException.expectMessage("Failed to cache query result: no such file");
+
+        cache.get(key, columns, () -> {
+            throw new IOException("no such file");
+        }, releases::incrementAndGet);
+    }
+
+    @Test
+    public void testQueryRuntimeFailureIsNotWrapped() throws SQLException {
+        expectedException.expect(IllegalStateException.class);
+        expectedException.expectMessage("no such file");
+
+        cache.get(key, columns, () -> {
+            throw new IllegalStateException("no such file");
+        }, releases::incrementAndGet);
+    }
+
+    @Test
+    public void testColumnsAreFoundByName() throws SQLException {
+        ResultSet result = get(1);
+
+        assertNotNull(result);
+        assertEquals(1, result.findColumn("id"));
+        assertEquals(2, result.findColumn("NAME"));
+    }
+
+    @Test
+    public void testValuesAreConverted() throws SQLException {
+        ResultSet result = get(2);
+
+        result.next();
+        result.next();
+        assertEquals(1L, result.getLong(1));
+        assertEquals(1.0, result.getDouble("id"), 0);
+        assertEquals("1", result.getString("id"));
+        assertFalse(result.wasNull());
+        assertEquals("row1", result.getObject(2));
+    }
+
+    @Test
+    public void testValuesAreCopiedWithTheGettersOfTheirTypes() throws SQLException {
+        // drivers return objects like LOB locators or vendor timestamps from getObject
+        Timestamp timestamp = Timestamp.valueOf("2020-01-02 03:04:05.6");
+        ResultSet driverRows = mock(ResultSet.class);
+        when(driverRows.next()).thenReturn(true, true, true, true, true, true, true, true, true, true, false);
+        when(driverRows.findColumn("id")).thenReturn(1);
+        when(driverRows.findColumn("name")).thenReturn(2);
+        when(driverRows.findColumn("created")).thenReturn(3);
+        when(driverRows.getInt(1)).thenReturn(7);
+        when(driverRows.getString(2)).thenReturn("clob text");
+        when(driverRows.getTimestamp(3)).thenReturn(timestamp);
+        when(driverRows.getObject(anyInt())).thenReturn(new Object());
+
+        List<ColumnDescriptor> driverColumns = Arrays.asList(
+                new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null),
+                new ColumnDescriptor("name", DataType.TEXT.getOID(), 1, "text", null),
+                new ColumnDescriptor("created", DataType.TIMESTAMP.getOID(), 2, "timestamp", null));
+        // the rows past the fifth one are spilled, which needs serializable values
+        ResultSet result = cache.get(key, driverColumns, () -> driverRows, releases::incrementAndGet);
+
+        assertNotNull(result);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(result.next());
+            assertEquals(7, result.getInt("id"));
+            assertEquals("clob text", result.getString("name"));
+            assertEquals(timestamp, result.getTimestamp("created"));
+        }
+        assertFalse(result.next());
+        assertEquals(1, releases.get());
+        verify(driverRows, never()).getObject(anyInt());
+    }
+
+    @Test
+    public void testNonProjectedColumnsAreNotCopied() throws SQLException {
+        columns = Arrays.asList(
+                new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null),
+                new ColumnDescriptor("name", DataType.TEXT.getOID(), 1, "text", null, false));
+        expectedException.expect(SQLException.class);
+        expectedException.expectMessage("Column 'name' not found");
+
+        ResultSet result = get(1);
+        assertNotNull(result);
+        result.findColumn("name");
+    }
+
+    @Test
+    public void testClosedResultIsNotRead() throws SQLException {
+        expectedException.expect(SQLException.class);
+        expectedException.expectMessage("Result set is closed");
+
+        ResultSet result = get(10);
+        result.close();
+
+        assertTrue(result.isClosed());
+        result.next();
+    }
+
+    private ResultSet get(int numRows) throws SQLException {
+        return cache.get(key, columns, () -> query(numRows), releases::incrementAndGet);
+    }
+
+    private CachedRowSet query(int numRows) throws SQLException {
+        queries.incrementAndGet();
+
+        CachedRowSet rows = RowSetProvider.newFactory().createCachedRowSet();
+        RowSetMetaDataImpl metaData = new RowSetMetaDataImpl();
+        metaData.setColumnCount(2);
+        metaData.setColumnName(1, "id");
+        metaData.setColumnLabel(1, "id");
+        metaData.setColumnType(1, Types.INTEGER);
+        metaData.setColumnName(2, "name");
+        metaData.setColumnLabel(2, "name");
+        metaData.setColumnType(2, Types.VARCHAR);
+        rows.setMetaData(metaData);
+        for (int i = 0; i < numRows; i++) {
+            rows.moveToInsertRow();
+            rows.updateInt(1, i);
+            rows.updateString(2, "row" + i);
+            rows.insertRow();
+            rows.moveToCurrentRow();
+            // the next row is inserted after this one
+            rows.last();
+        }
+        rows.beforeFirst();
+        return rows;
+    }
+
+    private void assertRows(int numRows, ResultSet result) throws SQLException {
+        assertNotNull(result);
+        for (int i = 0; i < numRows; i++) {
+            assertTrue(result.next());
+            assertEquals(i, result.getInt("id"));
+            assertEquals("row" + i, result.getString("name"));
+        }
+        assertFalse(result.next());
+    }
+}
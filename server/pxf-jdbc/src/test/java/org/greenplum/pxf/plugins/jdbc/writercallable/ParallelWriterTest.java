@@ -0,0 +1,121 @@
+package org.greenplum.pxf.plugins.jdbc.writercallable;
+
+import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.plugins.jdbc.JdbcBasePlugin;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ParallelWriterTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Mock
+    private JdbcBasePlugin mockPlugin;
+    @Mock
+    private Connection mockConnection;
+    @Mock
+    private DatabaseMetaData mockMetaData;
+    @Mock
+    private PreparedStatement mockStatement;
+
+    @Before
+    public void setup() throws SQLException {
+        when(mockPlugin.getConnection()).thenReturn(mockConnection);
+        when(mockPlugin.getPreparedStatement(any(Connection.class), anyString())).thenReturn(mockStatement);
+        when(mockStatement.getConnection()).thenReturn(mockConnection);
+        when(mockStatement.executeBatch()).thenReturn(new int[0]);
+        when(mockStatement.executeUpdate()).thenReturn(1);
+        when(mockConnection.getMetaData()).thenReturn(mockMetaData);
+        when(mockConnection.getAutoCommit()).thenReturn(false);
+        when(mockMetaData.supportsTransactions()).thenReturn(true);
+    }
+
+    @Test
+    public void testBatchesAreWrittenWithOneConnectionPerThread() throws Exception {
+        ParallelWriter writer = new ParallelWriter(mockPlugin, "INSERT", 10, 3, 1);
+        for (int i = 0; i < 1005; i++) {
+            writer.write(makeRow(i));
+        }
+        writer.close();
+
+        verify(mockPlugin, atMost(3)).getConnection();
+        verify(mockStatement, times(1005)).addBatch();
+        verify(mockStatement, times(101)).executeBatch();
+    }
+
+    @Test
+    public void testRowsAreWrittenOneByOne() throws Exception {
+        ParallelWriter writer = new ParallelWriter(mockPlugin, "INSERT", 1, 2, 1);
+        for (int i = 0; i < 50; i++) {
+            writer.write(makeRow(i));
+        }
+        writer.close();
+
+        verify(mockPlugin, atMost(2)).getConnection();
+        verify(mockStatement, times(50)).executeUpdate();
+    }
+
+    @Test
+    public void testTransactionIsCommittedEveryCommitInterval() throws Exception {
+        ParallelWriter writer = new ParallelWriter(mockPlugin, "INSERT", 10, 1, 2);
+        for (int i = 0; i < 100; i++) {
+            writer.write(makeRow(i));
+        }
+        writer.close();
+
+        // 10 batches: every second batch, and once more when the connection is closed
+        verify(mockConnection, times(6)).commit();
+        verify(mockConnection).close();
+    }
+
+    @Test
+    public void testErrorInThreadIsReported() throws Exception {
+        expectedException.expect(SQLException.class);
+        expectedException.expectMessage("insert failed");
+
+        when(mockStatement.executeBatch()).thenThrow(new SQLException("insert failed"));
+
+        ParallelWriter writer = new ParallelWriter(mockPlugin, "INSERT", 10, 2, 1);
+        try {
+            for (int i = 0; i < 1000; i++) {
+                writer.write(makeRow(i));
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void testInvalidSettings() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("Invalid parallel writer settings: batch size 10, pool size 2, commit interval -1");
+
+        new ParallelWriter(mockPlugin, "INSERT", 10, 2, -1);
+    }
+
+    private OneRow makeRow(int value) {
+        return new OneRow(Collections.singletonList(new OneField(DataType.INTEGER.getOID(), value)));
+    }
+}
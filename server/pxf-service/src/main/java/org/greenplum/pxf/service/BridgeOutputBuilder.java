@@ -19,14 +19,14 @@ package org.greenplum.pxf.service;
  * under the License.
  */
 
-import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.StringUtils;
 import org.greenplum.pxf.api.BadRecordException;
-import org.greenplum.pxf.api.GreenplumDateTime;
+import org.greenplum.pxf.api.ColumnBatch;
 import org.greenplum.pxf.api.OneField;
 import org.greenplum.pxf.api.io.BufferWritable;
+import org.greenplum.pxf.api.io.ColumnBatchWritable;
 import org.greenplum.pxf.api.io.DataType;
 import org.greenplum.pxf.api.io.GPDBWritable;
 import org.greenplum.pxf.api.io.Text;
@@ -38,12 +38,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Array;
-import java.sql.Timestamp;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
 
 import static org.greenplum.pxf.api.io.DataType.TEXT;
 
@@ -65,11 +62,15 @@ public class BridgeOutputBuilder {
     private LinkedList<Writable> outputList;
     private Writable partialLine = null;
     private GPDBWritable errorRecord = null;
+    private ColumnBatchWritable batchOutput = null;
+    private ColumnBatch vectorizedBatch = null;
     private int[] schema;
     private String[] colNames;
     private boolean samplingEnabled;
     private boolean isPartialLine = false;
     private GreenplumCSV greenplumCSV;
+    private CsvRecordEncoder csvEncoder;
+    private Text textOutput = null;
 
     /**
      * Constructs a BridgeOutputBuilder.
@@ -80,6 +81,7 @@ public class BridgeOutputBuilder {
     public BridgeOutputBuilder(RequestContext context) {
         this.context = context;
         greenplumCSV = context.getGreenplumCSV();
+        csvEncoder = new CsvRecordEncoder(greenplumCSV);
         outputList = new LinkedList<>();
         makeErrorRecord();
         samplingEnabled = (this.context.getStatsSampleRatio() > 0);
@@ -150,14 +152,83 @@ public class BridgeOutputBuilder {
     }
 
     public LinkedList<Writable> makeVectorizedOutput(List<List<OneField>> recordsBatch) throws BadRecordException {
+        if (context.getOutputFormat() == OutputFormat.GPDBWritable) {
+            return makeVectorizedGPDBWritableOutput(recordsBatch);
+        }
         outputList.clear();
         if (recordsBatch != null) {
+            // consecutive CSV lines are sent as a single record
+            csvEncoder.reset();
             for (List<OneField> record : recordsBatch) {
-                if (context.getOutputFormat() == OutputFormat.GPDBWritable) {
-                    makeGPDBWritableOutput();
+                if (isBinaryRecord(record)) {
+                    addCsvOutput();
+                    fillText(record);
+                } else {
+                    encodeCsvRecord(record);
                 }
-                fillOutputRecord(record);
             }
+            addCsvOutput();
+        }
+        return outputList;
+    }
+
+    /**
+     * Adds the CSV lines encoded so far to the output as one record.
+     */
+    private void addCsvOutput() {
+        if (csvEncoder.getLength() > 0) {
+            Text text = new Text();
+            text.set(csvEncoder.getBytes(), 0, csvEncoder.getLength());
+            outputList.add(text);
+            csvEncoder.reset();
+        }
+    }
+
+    /**
+     * Copies the records of a resolved batch into a reusable column batch,
+     * which is serialized as a whole, instead of building a GPDBWritable for
+     * every record.
+     *
+     * @param recordsBatch the resolved records
+     * @return list of Writable objects with the serialized records
+     * @throws BadRecordException if a record does not match the schema
+     */
+    private LinkedList<Writable> makeVectorizedGPDBWritableOutput(List<List<OneField>> recordsBatch)
+            throws BadRecordException {
+        if (recordsBatch == null || recordsBatch.isEmpty()) {
+            outputList.clear();
+            return outputList;
+        }
+        if (vectorizedBatch == null || vectorizedBatch.getCapacity() < recordsBatch.size()) {
+            vectorizedBatch = new ColumnBatch(context, Math.max(recordsBatch.size(), ColumnBatch.DEFAULT_CAPACITY));
+        }
+        vectorizedBatch.reset();
+        for (List<OneField> record : recordsBatch) {
+            vectorizedBatch.addRow(record);
+        }
+        return makeBatchOutput(vectorizedBatch);
+    }
+
+    /**
+     * Translates a batch of rows into an output record that serializes the
+     * rows straight from the column vectors of the batch. Only the
+     * GPDBWritable output format is supported.
+     *
+     * @param batch the batch of rows to be serialized
+     * @return list of Writable objects with the serialized batch
+     */
+    public LinkedList<Writable> makeBatchOutput(ColumnBatch batch) {
+        if (context.getOutputFormat() != OutputFormat.GPDBWritable) {
+            throw new UnsupportedOperationException(
+                    "Batch output is only supported for the " + OutputFormat.GPDBWritable + " format");
+        }
+        outputList.clear();
+        if (batch.size() > 0) {
+            // the writable and its encoding buffer are reused for every batch
+            if (batchOutput == null || batchOutput.getBatch() != batch) {
+                batchOutput = new ColumnBatchWritable(batch);
+            }
+            outputList.add(batchOutput);
         }
         return outputList;
     }
@@ -283,15 +354,8 @@ public class BridgeOutputBuilder {
      *                            field
      */
     void fillText(List<OneField> recFields) throws BadRecordException {
-        if (recFields.size() < 1)
-            throw new BadRecordException(
-                    "BridgeOutputBuilder must receive one field when handling the TEXT format");
-
-        OneField field = recFields.get(0);
-        Object val = field.val;
-        DataType dataType = DataType.get(field.type);
-
-        if (recFields.size() == 1 && dataType == DataType.BYTEA) {
+        if (isBinaryRecord(recFields)) {
+            Object val = recFields.get(0).val;
             if (samplingEnabled) {
                 convertTextDataToLines((byte[]) val);
                 return;
@@ -300,15 +364,50 @@ public class BridgeOutputBuilder {
                 output = new BufferWritable((byte[]) val);
             }
         } else {
-            String textRec = (recFields.size() == 1 && val instanceof String) ?
-                    val + greenplumCSV.getNewline() :
-                    fieldListToCSVString(recFields);
-            output = new Text(textRec);
+            // the text record and the encoding buffer are reused for every record
+            csvEncoder.reset();
+            encodeCsvRecord(recFields);
+            if (textOutput == null) {
+                textOutput = new Text();
+            }
+            textOutput.set(csvEncoder.getBytes(), 0, csvEncoder.getLength());
+            output = textOutput;
         }
 
         outputList.add(output);
     }
 
+    /**
+     * Returns whether the record holds raw bytes that are sent as they are,
+     * such as the lines read by the text accessors.
+     *
+     * @param recFields record fields
+     * @return true if the record has a single BYTEA field
+     * @throws BadRecordException if the record has no fields
+     */
+    private boolean isBinaryRecord(List<OneField> recFields) throws BadRecordException {
+        if (recFields.size() < 1)
+            throw new BadRecordException(
+                    "BridgeOutputBuilder must receive one field when handling the TEXT format");
+
+        return recFields.size() == 1 && DataType.get(recFields.get(0).type) == DataType.BYTEA;
+    }
+
+    /**
+     * Appends the CSV line of recFields to the encoding buffer. A record with
+     * a single String field is taken as an already serialized line.
+     *
+     * @param recFields record fields
+     */
+    private void encodeCsvRecord(List<OneField> recFields) {
+        Object val = recFields.get(0).val;
+        if (recFields.size() == 1 && val instanceof String) {
+            csvEncoder.encodeLine((String) val);
+        } else {
+            csvEncoder.encodeRecord(recFields);
+        }
+    }
+
     /**
      * Breaks raw bytes into lines. Used only for sampling.
      * <p>
@@ -318,7 +417,8 @@ public class BridgeOutputBuilder {
      * lines, each one stored in the outputList. In case the read data doesn't
      * end with a line delimiter, which can happen when reading chunks of bytes,
      * the partial line is stored separately, and is being completed when
-     * reading the next chunk of data.
+     * reading the next chunk of data. Complete lines are views of the input
+     * array, only partial lines are copied.
      *
      * @param val input raw data to break into lines
      */
@@ -326,7 +426,6 @@ public class BridgeOutputBuilder {
         int len = val.length;
         int start = 0;
         int end = 0;
-        byte[] line;
         BufferWritable writable;
 
         while (start < len) {
@@ -339,15 +438,18 @@ public class BridgeOutputBuilder {
                 end++; // include the DELIM character
                 isPartialLine = false;
             }
-            line = Arrays.copyOfRange(val, start, end);
 
             if (partialLine != null) {
                 // partial data was completed
-                ((BufferWritable) partialLine).append(line);
                 writable = (BufferWritable) partialLine;
+                writable.append(val, start, end - start);
                 partialLine = null;
+            } else if (isPartialLine) {
+                // the partial line outlives the chunk, which the accessor may reuse
+                writable = new BufferWritable(Arrays.copyOfRange(val, start, end));
             } else {
-                writable = new BufferWritable(line);
+                // complete lines are views of the chunk, they are sent before the next read
+                writable = new BufferWritable(val, start, end - start);
             }
 
             if (isPartialLine) {
@@ -422,29 +524,4 @@ public class BridgeOutputBuilder {
             throw new BadRecordException(e);
         }
     }
-
-    /**
-     * Serialize a list of OneFields to a CSV line
-     *
-     * @param fields list of fields
-     * @return a serialized CSV line
-     */
-    private String fieldListToCSVString(List<OneField> fields) {
-        return fields.stream()
-                .map(field -> {
-                    if (field.val == null)
-                        return greenplumCSV.getValueOfNull();
-                    else if (field.type == DataType.BYTEA.getOID())
-                        return "\\x" + Hex.encodeHexString((byte[]) field.val);
-                    else if (field.type == DataType.NUMERIC.getOID() || !DataType.isTextForm(field.type))
-                        return Objects.toString(field.val, null);
-                    else if (field.type == DataType.TIMESTAMP.getOID())
-                        return ((Timestamp) field.val).toLocalDateTime().format(GreenplumDateTime.DATETIME_FORMATTER);
-                    else if (field.type == DataType.DATE.getOID())
-                        return field.val.toString();
-                    else
-                        return greenplumCSV.toCsvField((String) field.val, true, true, true);
-                })
-                .collect(Collectors.joining(String.valueOf(greenplumCSV.getDelimiter()), "", greenplumCSV.getNewline()));
-    }
 }
@@ -0,0 +1,239 @@
+package org.greenplum.pxf.service;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.greenplum.pxf.api.GreenplumDateTime;
+import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.model.GreenplumCSV;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Encodes records as CSV lines in UTF-8, following the {@link GreenplumCSV}
+ * settings of the request. The bytes of every field are written straight into
+ * a reusable buffer: integral and boolean values are written without creating
+ * strings, and text values are only passed to
+ * {@link GreenplumCSV#toCsvField(String, boolean, boolean, boolean)} when
+ * they contain a character that may require quoting.
+ * <p>
+ * Lines are appended to the buffer until {@link #reset()} is called.
+ * Instances are not thread safe.
+ */
+final class CsvRecordEncoder {
+
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX_PREFIX = "\\x".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LONG_MIN_VALUE = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    private final GreenplumCSV greenplumCSV;
+    private final char quote;
+    private final Character delimiter;
+    private final byte[] delimiterBytes;
+    private final byte[] newlineBytes;
+    private final byte[] valueOfNullBytes;
+
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int length;
+
+    /**
+     * Constructs an encoder with the given CSV settings.
+     *
+     * @param greenplumCSV the CSV settings of the request
+     */
+    CsvRecordEncoder(GreenplumCSV greenplumCSV) {
+        this.greenplumCSV = greenplumCSV;
+        this.quote = greenplumCSV.getQuote();
+        this.delimiter = greenplumCSV.getDelimiter();
+        this.delimiterBytes = String.valueOf(delimiter).getBytes(StandardCharsets.UTF_8);
+        this.newlineBytes = greenplumCSV.getNewline().getBytes(StandardCharsets.UTF_8);
+        this.valueOfNullBytes = greenplumCSV.getValueOfNull().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the buffer holding the encoded lines, only the first
+     * {@link #getLength()} bytes are valid
+     */
+    byte[] getBytes() {
+        return buffer;
+    }
+
+    /**
+     * @return the number of bytes of the encoded lines
+     */
+    int getLength() {
+        return length;
+    }
+
+    /**
+     * Empties the buffer.
+     */
+    void reset() {
+        length = 0;
+    }
+
+    /**
+     * Appends a line made of the given value and a newline.
+     *
+     * @param line the value of the line
+     */
+    void encodeLine(String line) {
+        putString(line);
+        putBytes(newlineBytes);
+    }
+
+    /**
+     * Appends a line with the CSV serialization of the given fields.
+     *
+     * @param fields the fields of the record
+     */
+    void encodeRecord(List<OneField> fields) {
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                putBytes(delimiterBytes);
+            }
+            encodeField(fields.get(i));
+        }
+        putBytes(newlineBytes);
+    }
+
+    private void encodeField(OneField field) {
+        Object val = field.val;
+        if (val == null) {
+            putBytes(valueOfNullBytes);
+        } else if (field.type == DataType.BYTEA.getOID()) {
+            putHex((byte[]) val);
+        } else if (field.type == DataType.NUMERIC.getOID() || !DataType.isTextForm(field.type)) {
+            if (val instanceof Long || val instanceof Integer || val instanceof Short) {
+                putLong(((Number) val).longValue());
+            } else if (val instanceof Boolean) {
+                putBytes((Boolean) val ? TRUE : FALSE);
+            } else {
+                putString(val.toString());
+            }
+        } else if (field.type == DataType.TIMESTAMP.getOID()) {
+            putString(((Timestamp) val).toLocalDateTime().format(GreenplumDateTime.DATETIME_FORMATTER));
+        } else if (field.type == DataType.DATE.getOID()) {
+            putString(val.toString());
+        } else {
+            String s = (String) val;
+            putString(needsQuoting(s) ? greenplumCSV.toCsvField(s, true, true, true) : s);
+        }
+    }
+
+    /**
+     * Returns true if the value contains a quote, delimiter or newline
+     * character, in which case the exact quoting rules of
+     * {@link GreenplumCSV#toCsvField(String, boolean, boolean, boolean)}
+     * are applied. Values without these characters are never quoted.
+     */
+    private boolean needsQuoting(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == quote || c == '\n' || c == '\r' || (delimiter != null && c == delimiter)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void putHex(byte[] bytes) {
+        ensureCapacity(HEX_PREFIX.length + 2 * bytes.length);
+        putBytes(HEX_PREFIX);
+        for (byte b : bytes) {
+            buffer[length++] = HEX_DIGITS[(b >> 4) & 0x0F];
+            buffer[length++] = HEX_DIGITS[b & 0x0F];
+        }
+    }
+
+    private void putLong(long val) {
+        if (val == Long.MIN_VALUE) {
+            putBytes(LONG_MIN_VALUE);
+            return;
+        }
+        ensureCapacity(20);
+        if (val < 0) {
+            buffer[length++] = '-';
+            val = -val;
+        }
+        int start = length;
+        do {
+            buffer[length++] = (byte) ('0' + (val % 10));
+            val /= 10;
+        } while (val != 0);
+        // digits were written from the least significant one
+        for (int i = start, j = length - 1; i < j; i++, j--) {
+            byte tmp = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = tmp;
+        }
+    }
+
+    /**
+     * Appends the UTF-8 encoding of the string. Unpaired surrogates are
+     * replaced by '?', as {@link String#getBytes(java.nio.charset.Charset)} does.
+     */
+    private void putString(String s) {
+        int len = s.length();
+        ensureCapacity(3 * len);
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                buffer[length++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[length++] = (byte) (0xC0 | (c >> 6));
+                buffer[length++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                    buffer[length++] = (byte) (0xF0 | (codePoint >> 18));
+                    buffer[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buffer[length++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else {
+                    buffer[length++] = '?';
+                }
+            } else {
+                buffer[length++] = (byte) (0xE0 | (c >> 12));
+                buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[length++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private void putBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void ensureCapacity(int len) {
+        if (length + len > buffer.length) {
+            byte[] newBuffer = new byte[Math.max(buffer.length * 2, length + len)];
+            System.arraycopy(buffer, 0, newBuffer, 0, length);
+            buffer = newBuffer;
+        }
+    }
+}
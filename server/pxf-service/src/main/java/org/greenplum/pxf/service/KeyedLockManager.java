@@ -0,0 +1,249 @@
+package org.greenplum.pxf.service;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.common.base.Ticker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounds the number of concurrent holders of a lock for each key. Requests
+ * for different keys never block each other, while at most {@code permits}
+ * holders of the same key proceed at a time.
+ * <p>
+ * Entries are reference counted and removed from the map as soon as no
+ * thread holds or waits for them, so the number of keys ever used does not
+ * grow the manager. The manager also keeps counters for the number of
+ * waiters and the time spent waiting to acquire a key, and logs them at
+ * most once a minute while threads have to wait for their keys.
+ */
+public class KeyedLockManager {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KeyedLockManager.class);
+
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Map<String, Entry> locks = new ConcurrentHashMap<>();
+    private final String name;
+    private final int permits;
+    private final boolean fair;
+    private final Ticker ticker;
+
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final AtomicLong nextReport;
+    private final AtomicLong reportMaxWaitNanos = new AtomicLong();
+    // guarded by this
+    private long reportedAcquisitions;
+    private long reportedWaitNanos;
+
+    /**
+     * Creates a lock manager that uses the system ticker to measure wait times.
+     *
+     * @param name    the name of the manager, used for logging
+     * @param permits the maximum number of concurrent holders for a single key
+     * @param fair    whether waiters for the same key are granted the lock in FIFO order
+     */
+    public KeyedLockManager(String name, int permits, boolean fair) {
+        this(name, permits, fair, Ticker.systemTicker());
+    }
+
+    /**
+     * Creates a lock manager with the given {@link Ticker}. Intended for use by
+     * tests which need to control the current time.
+     */
+    KeyedLockManager(String name, int permits, boolean fair, Ticker ticker) {
+        if (permits < 1) {
+            throw new IllegalArgumentException(String.format(
+                    "Number of permits for %s must be a positive integer, got %d", name, permits));
+        }
+        this.name = name;
+        this.permits = permits;
+        this.fair = fair;
+        this.ticker = ticker;
+        this.nextReport = new AtomicLong(ticker.read() + REPORT_INTERVAL_NANOS);
+    }
+
+    /**
+     * Acquires a permit for the given key, blocking until one is available.
+     * Every call must be paired with a call to {@link #unlock(String)} with the
+     * same key.
+     *
+     * @param key the key to lock
+     */
+    public void lock(String key) {
+        Entry entry = locks.compute(key, (k, e) -> {
+            if (e == null) {
+                e = new Entry(permits, fair);
+            }
+            e.refCount++;
+            return e;
+        });
+
+        // tryAcquire() barges ahead of queued threads, only use it when that cannot break fairness
+        if ((!fair || !entry.semaphore.hasQueuedThreads()) && entry.semaphore.tryAcquire()) {
+            recordWait(0);
+            LOG.trace("{} locked {} without waiting", name, key);
+            return;
+        }
+
+        LOG.trace("{} waiting for lock on {}, {} waiters ahead", name, key, entry.semaphore.getQueueLength());
+        waiting.incrementAndGet();
+        long start = ticker.read();
+        try {
+            entry.semaphore.acquireUninterruptibly();
+        } finally {
+            waiting.decrementAndGet();
+        }
+        long now = ticker.read();
+        long waitNanos = now - start;
+        recordWait(waitNanos);
+        LOG.debug("{} locked {} after waiting {} ms", name, key, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        reportWaits(now);
+    }
+
+    /**
+     * Releases a permit previously acquired with {@link #lock(String)}.
+     *
+     * @param key the key to unlock
+     */
+    public void unlock(String key) {
+        Entry entry = locks.get(key);
+        if (entry == null) {
+            throw new IllegalStateException(String.format("%s cannot unlock %s; it is not locked", name, key));
+        }
+        entry.semaphore.release();
+        locks.computeIfPresent(key, (k, e) -> --e.refCount == 0 ? null : e);
+        LOG.trace("{} unlocked {}", name, key);
+    }
+
+    /**
+     * @return the number of times a lock has been acquired
+     */
+    public long getAcquisitions() {
+        return acquisitions.get();
+    }
+
+    /**
+     * @return the accumulated time, in nanoseconds, that threads waited to acquire a lock
+     */
+    public long getTotalWaitNanos() {
+        return totalWaitNanos.get();
+    }
+
+    /**
+     * @return the longest time, in nanoseconds, that a thread waited to acquire a lock
+     */
+    public long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+
+    /**
+     * @return the number of threads currently waiting to acquire a lock
+     */
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    /**
+     * Returns an estimate of the number of threads waiting to acquire the
+     * given key.
+     *
+     * @param key the key
+     * @return the number of threads waiting for the key
+     */
+    public int getQueueLength(String key) {
+        Entry entry = locks.get(key);
+        return entry == null ? 0 : entry.semaphore.getQueueLength();
+    }
+
+    /**
+     * @return the number of keys currently held or waited for
+     */
+    public int size() {
+        return locks.size();
+    }
+
+    /**
+     * @return the maximum number of concurrent holders for a single key
+     */
+    public int getPermits() {
+        return permits;
+    }
+
+    /**
+     * Logs the number of locks acquired and the time threads waited for them
+     * since the last report, once the report interval has passed. It is only
+     * called after a thread had to wait, so managers whose keys are never
+     * contended do not log anything.
+     *
+     * @param now the current time of the ticker
+     * @return true if the wait times were logged
+     */
+    boolean reportWaits(long now) {
+        long next = nextReport.get();
+        if (now - next < 0 || !nextReport.compareAndSet(next, now + REPORT_INTERVAL_NANOS)) {
+            return false;
+        }
+
+        long acquired;
+        long waitNanos;
+        synchronized (this) {
+            long totalAcquisitions = acquisitions.get();
+            long totalWait = totalWaitNanos.get();
+            acquired = totalAcquisitions - reportedAcquisitions;
+            waitNanos = totalWait - reportedWaitNanos;
+            reportedAcquisitions = totalAcquisitions;
+            reportedWaitNanos = totalWait;
+        }
+        LOG.info("{} acquired {} locks in the last {} s, threads waited {} ms for them and at most {} ms, {} threads are waiting",
+                name, acquired, TimeUnit.NANOSECONDS.toSeconds(now - next + REPORT_INTERVAL_NANOS),
+                TimeUnit.NANOSECONDS.toMillis(waitNanos),
+                TimeUnit.NANOSECONDS.toMillis(reportMaxWaitNanos.getAndSet(0)), waiting.get());
+        return true;
+    }
+
+    private void recordWait(long waitNanos) {
+        acquisitions.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        reportMaxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    private static class Entry {
+        private final Semaphore semaphore;
+        // guarded by the map's compute functions
+        private int refCount;
+
+        Entry(int permits, boolean fair) {
+            this.semaphore = new Semaphore(permits, fair);
+        }
+    }
+}
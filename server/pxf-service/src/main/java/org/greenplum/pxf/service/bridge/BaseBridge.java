@@ -19,6 +19,10 @@ public abstract class BaseBridge implements Bridge {
     protected Accessor accessor;
     protected Resolver resolver;
 
+    private final AccessorFactory accessorFactory;
+    private final ResolverFactory resolverFactory;
+    private boolean pluginsReleased;
+
     /**
      * Creates a new instance for a given request context. Uses default singleton instances of
      * plugin factories to request accessor and resolver.
@@ -36,10 +40,25 @@ public abstract class BaseBridge implements Bridge {
      * @param resolverFactory resolver factory
      */
     BaseBridge(RequestContext context, AccessorFactory accessorFactory, ResolverFactory resolverFactory) {
+        this.accessorFactory = accessorFactory;
+        this.resolverFactory = resolverFactory;
         this.accessor = accessorFactory.getPlugin(context);
         this.resolver = resolverFactory.getPlugin(context);
     }
 
+    /**
+     * Returns the accessor and the resolver to their factories once the
+     * iteration has ended successfully. The plugins must not be used afterwards.
+     */
+    protected void releasePlugins() {
+        if (pluginsReleased) {
+            return;
+        }
+        pluginsReleased = true;
+        accessorFactory.releasePlugin(accessor);
+        resolverFactory.releasePlugin(resolver);
+    }
+
     @Override
     public boolean isThreadSafe() {
         boolean result = accessor.isThreadSafe() && resolver.isThreadSafe();
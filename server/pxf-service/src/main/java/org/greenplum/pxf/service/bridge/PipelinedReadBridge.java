@@ -0,0 +1,331 @@
+package org.greenplum.pxf.service.bridge;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.greenplum.pxf.api.BadRecordException;
+import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.io.Writable;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.AccessorFactory;
+import org.greenplum.pxf.api.utilities.ResolverFactory;
+
+import java.io.IOException;
+import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ReadBridge that reads from the accessor on a separate I/O thread, so that
+ * latency of the external system overlaps with serializing and streaming
+ * records to GPDB on the request thread.
+ * <p>
+ * The I/O thread calls {@code accessor.readNextObject()} and
+ * {@code resolver.getFields()} and stores the resolved records in batches.
+ * Resolving happens on the I/O thread because most accessors reuse the key
+ * and value objects of the {@link OneRow} between calls, so a row must be
+ * consumed before the next one is read. Batches are recycled through a bounded
+ * ring of {@code queueSize} entries, which applies back-pressure on the I/O
+ * thread when the request thread falls behind. A batch is handed over when it
+ * holds {@code batchSize} records or its binary and text values add up to
+ * {@code batchBytes} bytes, whichever comes first.
+ * <p>
+ * Data exceptions and {@link BadRecordException}s raised by the I/O thread are
+ * delivered to the request thread in order, after the records that preceded
+ * them, and handled the same way as in {@link ReadBridge}.
+ */
+public class PipelinedReadBridge extends ReadBridge {
+
+    static final int DEFAULT_BATCH_SIZE = 256;
+    static final int DEFAULT_BATCH_BYTES = 4 * 1024 * 1024;
+    static final int DEFAULT_QUEUE_SIZE = 4;
+
+    private static final String PROPERTY_KEY_BATCH_SIZE = "pxf.service.bridge.pipelined.batch.size";
+    private static final String PROPERTY_KEY_BATCH_BYTES = "pxf.service.bridge.pipelined.batch.bytes";
+    private static final String PROPERTY_KEY_QUEUE_SIZE = "pxf.service.bridge.pipelined.queue.size";
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("pxf-bridge-reader-%d").setDaemon(true).build());
+
+    private final int batchSize;
+    private final int batchBytes;
+    private final BlockingQueue<Batch> freeBatches;
+    private final BlockingQueue<Batch> fullBatches;
+
+    private Future<Void> reader;
+    private volatile boolean closed;
+    private Batch current;
+    private int position;
+
+    /**
+     * C'tor - set the implementation of the bridge.
+     *
+     * @param context input containing accessor and resolver names
+     */
+    public PipelinedReadBridge(RequestContext context) {
+        this(context, AccessorFactory.getInstance(), ResolverFactory.getInstance(),
+                Integer.getInteger(PROPERTY_KEY_BATCH_SIZE, DEFAULT_BATCH_SIZE),
+                Integer.getInteger(PROPERTY_KEY_BATCH_BYTES, DEFAULT_BATCH_BYTES),
+                Integer.getInteger(PROPERTY_KEY_QUEUE_SIZE, DEFAULT_QUEUE_SIZE));
+    }
+
+    PipelinedReadBridge(RequestContext context, AccessorFactory accessorFactory, ResolverFactory resolverFactory,
+                        int batchSize, int batchBytes, int queueSize) {
+        super(context, accessorFactory, resolverFactory);
+        if (batchSize < 1 || batchBytes < 1 || queueSize < 1) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid pipelined bridge settings: batch size %d, batch bytes %d, queue size %d",
+                    batchSize, batchBytes, queueSize));
+        }
+        this.batchSize = batchSize;
+        this.batchBytes = batchBytes;
+        this.freeBatches = new ArrayBlockingQueue<>(queueSize);
+        this.fullBatches = new ArrayBlockingQueue<>(queueSize);
+        for (int i = 0; i < queueSize; i++) {
+            freeBatches.add(new Batch(batchSize));
+        }
+    }
+
+    /**
+     * Accesses the underlying data source and starts reading from it on the
+     * I/O thread, as the user of the current request.
+     */
+    @Override
+    public boolean beginIteration() throws Exception {
+        if (!super.beginIteration()) {
+            return false;
+        }
+        UserGroupInformation ugi = UserGroupInformation.getCurrentUser();
+        reader = EXECUTOR.submit(() -> ugi.doAs((PrivilegedExceptionAction<Void>) () -> {
+            readBatches();
+            return null;
+        }));
+        return true;
+    }
+
+    /**
+     * Takes the next resolved record prepared by the I/O thread and turns it
+     * into a record that the GPDB backend can process.
+     */
+    @Override
+    public Writable getNext() throws Exception {
+        Writable output = null;
+
+        if (!outputQueue.isEmpty()) {
+            return outputQueue.pop();
+        }
+
+        try {
+            while (outputQueue.isEmpty()) {
+                List<OneField> record = nextRecord();
+                if (record == null) {
+                    output = outputBuilder.getPartialLine();
+                    if (output != null) {
+                        LOG.warn("A partial record in the end of the fragment");
+                    }
+                    // if there is a partial line, return it now, otherwise it
+                    // will return null
+                    return output;
+                }
+
+                // we checked before that outputQueue is empty, so we can override it.
+                outputQueue = outputBuilder.makeOutput(record);
+                if (!outputQueue.isEmpty()) {
+                    output = outputQueue.pop();
+                    break;
+                }
+            }
+        } catch (IOException ex) {
+            if (!isDataException(ex)) {
+                throw ex;
+            }
+            output = outputBuilder.getErrorOutput(ex);
+        } catch (BadRecordException ex) {
+            LOG.debug("BadRecordException {}", (ex.getCause() != null) ? ex.getCause() : ex);
+            output = outputBuilder.getErrorOutput(ex);
+        }
+
+        return output;
+    }
+
+    /**
+     * Stops the I/O thread and closes the underlying resource
+     */
+    @Override
+    public void endIteration() throws Exception {
+        closed = true;
+        if (reader != null) {
+            try {
+                reader.get();
+            } catch (ExecutionException e) {
+                // already delivered to the request thread, or the request ended early
+                LOG.debug("I/O thread of the pipelined bridge ended with an error", e.getCause());
+            }
+        }
+        super.endIteration();
+    }
+
+    /**
+     * Returns the next resolved record, or null when the data source is
+     * exhausted. Exceptions raised by the I/O thread are rethrown once all
+     * records preceding them have been returned.
+     */
+    private List<OneField> nextRecord() throws Exception {
+        while (current == null || position == current.records.size()) {
+            if (current != null) {
+                if (current.error != null) {
+                    Exception error = current.error;
+                    current.error = null;
+                    throw error;
+                }
+                if (current.last) {
+                    return null;
+                }
+                current.clear();
+                freeBatches.add(current);
+                current = null;
+            }
+            current = takeFullBatch();
+            position = 0;
+        }
+        return current.records.get(position++);
+    }
+
+    private Batch takeFullBatch() throws Exception {
+        Batch batch;
+        while ((batch = fullBatches.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) == null) {
+            if (reader.isDone() && fullBatches.isEmpty()) {
+                // the I/O thread always publishes a last batch, unless it failed to
+                try {
+                    reader.get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+                throw new IllegalStateException("I/O thread of the pipelined bridge ended unexpectedly");
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Runs on the I/O thread, reads and resolves records into batches until
+     * the data source is exhausted, a fatal exception occurs or the bridge is
+     * closed.
+     */
+    private void readBatches() throws Exception {
+        Batch batch = takeFreeBatch();
+        long bytes = 0;
+        while (batch != null) {
+            OneRow onerow = null;
+            try {
+                onerow = accessor.readNextObject();
+                if (onerow == null) {
+                    batch.last = true;
+                } else {
+                    List<OneField> record = resolver.getFields(onerow);
+                    batch.records.add(record);
+                    bytes += estimateSize(record);
+                }
+            } catch (BadRecordException ex) {
+                String rowInfo = (onerow != null) ? onerow.toString() : "[record was not created]";
+                LOG.debug("BadRecordException {}: {}", (ex.getCause() != null) ? ex.getCause() : ex, rowInfo);
+                batch.error = ex;
+            } catch (IOException ex) {
+                batch.error = ex;
+                batch.last = !isDataException(ex);
+            } catch (Exception ex) {
+                batch.error = ex;
+                batch.last = true;
+            }
+
+            if (batch.last || batch.error != null || batch.records.size() >= batchSize || bytes >= batchBytes) {
+                if (!putFullBatch(batch) || batch.last) {
+                    return;
+                }
+                batch = takeFreeBatch();
+                bytes = 0;
+            }
+        }
+    }
+
+    private Batch takeFreeBatch() throws InterruptedException {
+        Batch batch;
+        while ((batch = freeBatches.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) == null) {
+            if (closed) {
+                return null;
+            }
+        }
+        return closed ? null : batch;
+    }
+
+    private boolean putFullBatch(Batch batch) throws InterruptedException {
+        while (!fullBatches.offer(batch, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+            if (closed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Estimates the memory held by a resolved record by adding up the length
+     * of its binary and text values.
+     */
+    private long estimateSize(List<OneField> record) {
+        long size = 0;
+        for (OneField field : record) {
+            if (field.val instanceof byte[]) {
+                size += ((byte[]) field.val).length;
+            } else if (field.val instanceof String) {
+                size += ((String) field.val).length();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * A batch of resolved records, optionally followed by an exception
+     */
+    private static class Batch {
+        private final List<List<OneField>> records;
+        private Exception error;
+        private boolean last;
+
+        Batch(int batchSize) {
+            records = new ArrayList<>(batchSize);
+        }
+
+        void clear() {
+            records.clear();
+            error = null;
+            last = false;
+        }
+    }
+}
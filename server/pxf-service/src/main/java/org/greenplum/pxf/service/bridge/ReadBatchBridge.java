@@ -0,0 +1,138 @@
+package org.greenplum.pxf.service.bridge;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.greenplum.pxf.api.BadRecordException;
+import org.greenplum.pxf.api.BatchResolver;
+import org.greenplum.pxf.api.ColumnBatch;
+import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.io.Writable;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.utilities.AccessorFactory;
+import org.greenplum.pxf.api.utilities.ResolverFactory;
+
+import java.io.IOException;
+
+/**
+ * ReadBridge that resolves records into a reusable {@link ColumnBatch} and
+ * serializes the whole batch at once, without creating {@link OneRow},
+ * {@link org.greenplum.pxf.api.OneField} or boxed values per row for
+ * resolvers implementing {@link BatchResolver}.
+ * <p>
+ * Row resolvers keep working with this bridge: their records are copied into
+ * the batch one at a time, up to the capacity of the batch. When a record
+ * cannot be read or resolved, the rows collected so far are returned first and
+ * the error is reported on the next call, the same way {@link ReadBridge}
+ * reports it. Only the GPDBWritable output format is supported.
+ */
+public class ReadBatchBridge extends ReadBridge {
+
+    private final ColumnBatch batch;
+    private Exception pendingException;
+    private boolean exhausted;
+
+    /**
+     * C'tor - set the implementation of the bridge.
+     *
+     * @param context input containing accessor and resolver names
+     */
+    public ReadBatchBridge(RequestContext context) {
+        this(context, AccessorFactory.getInstance(), ResolverFactory.getInstance(), ColumnBatch.DEFAULT_CAPACITY);
+    }
+
+    ReadBatchBridge(RequestContext context, AccessorFactory accessorFactory, ResolverFactory resolverFactory,
+                    int batchCapacity) {
+        super(context, accessorFactory, resolverFactory);
+        batch = new ColumnBatch(context, batchCapacity);
+    }
+
+    /**
+     * Fetches the next batch of records from the data source and turns it
+     * into a record that the GPDB backend can process.
+     */
+    @Override
+    public Writable getNext() throws Exception {
+        if (!outputQueue.isEmpty()) {
+            return outputQueue.pop();
+        }
+
+        try {
+            if (pendingException != null) {
+                Exception ex = pendingException;
+                pendingException = null;
+                throw ex;
+            }
+            while (outputQueue.isEmpty()) {
+                if (exhausted || !readBatch()) {
+                    return null;
+                }
+                // we checked before that outputQueue is empty, so we can override it.
+                outputQueue = outputBuilder.makeBatchOutput(batch);
+            }
+            return outputQueue.pop();
+        } catch (IOException ex) {
+            if (!isDataException(ex)) {
+                throw ex;
+            }
+            return outputBuilder.getErrorOutput(ex);
+        } catch (BadRecordException ex) {
+            LOG.debug("BadRecordException {}", (ex.getCause() != null) ? ex.getCause() : ex);
+            return outputBuilder.getErrorOutput(ex);
+        }
+    }
+
+    /**
+     * Refills the batch from the accessor.
+     *
+     * @return false if the data source is exhausted and the batch is empty
+     * @throws Exception if reading or resolving the first record of the batch failed
+     */
+    private boolean readBatch() throws Exception {
+        batch.reset();
+        if (resolver instanceof BatchResolver) {
+            OneRow row = accessor.readNextObject();
+            if (row == null) {
+                exhausted = true;
+                return false;
+            }
+            ((BatchResolver) resolver).resolveBatch(row, batch);
+            return true;
+        }
+
+        while (!batch.isFull()) {
+            try {
+                OneRow row = accessor.readNextObject();
+                if (row == null) {
+                    exhausted = true;
+                    break;
+                }
+                batch.addRow(resolver.getFields(row));
+            } catch (IOException | BadRecordException ex) {
+                if (batch.size() == 0) {
+                    throw ex;
+                }
+                // deliver the rows read so far, the error is reported next
+                pendingException = ex;
+                break;
+            }
+        }
+        return !exhausted || batch.size() > 0;
+    }
+}
@@ -133,6 +133,7 @@ public class ReadBridge extends BaseBridge {
             LOG.error("Failed to close bridge resources: {}", e.getMessage());
             throw e;
         }
+        releasePlugins();
     }
 
     /*
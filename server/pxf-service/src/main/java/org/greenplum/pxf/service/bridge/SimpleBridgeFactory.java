@@ -1,7 +1,10 @@
 package org.greenplum.pxf.service.bridge;
 
+import org.greenplum.pxf.api.BatchResolver;
 import org.greenplum.pxf.api.ReadVectorizedResolver;
+import org.greenplum.pxf.api.model.OutputFormat;
 import org.greenplum.pxf.api.model.RequestContext;
+import org.apache.commons.lang.StringUtils;
 import org.greenplum.pxf.api.utilities.Utilities;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,6 +13,8 @@ public class SimpleBridgeFactory implements BridgeFactory {
 
     private static final Logger LOG = LoggerFactory.getLogger(SimpleBridgeFactory.class);
     private static final SimpleBridgeFactory instance = new SimpleBridgeFactory();
+    private static final String PROPERTY_KEY_PIPELINED_BRIDGE = "pxf.service.bridge.pipelined.enabled";
+    private static final String PROPERTY_KEY_BATCH_BRIDGE = "pxf.service.bridge.batch.enabled";
 
     /**
      * Returns a singleton instance of the factory.
@@ -28,8 +33,12 @@ public class SimpleBridgeFactory implements BridgeFactory {
             bridge = new ReadSamplingBridge(context);
         } else if (Utilities.aggregateOptimizationsSupported(context)) {
             bridge = new AggBridge(context);
+        } else if (useBatches(context)) {
+            bridge = new ReadBatchBridge(context);
         } else if (useVectorization(context)) {
             bridge = new ReadVectorizedBridge(context);
+        } else if (usePipelining()) {
+            bridge = new PipelinedReadBridge(context);
         } else {
             bridge = new ReadBridge(context);
         }
@@ -51,4 +60,36 @@ public class SimpleBridgeFactory implements BridgeFactory {
         return Utilities.implementsInterface(requestContext.getResolver(), ReadVectorizedResolver.class);
     }
 
+    /**
+     * Determines whether records should be resolved and serialized in column
+     * batches. Batches are used for resolvers implementing {@link BatchResolver},
+     * including vectorized resolvers that also implement it, and for row
+     * resolvers when the pxf.service.bridge.batch.enabled property is set to
+     * true. Only the GPDBWritable output format supports batches.
+     *
+     * @param requestContext input protocol data
+     * @return true if the batch bridge should be used
+     */
+    private boolean useBatches(RequestContext requestContext) {
+        if (requestContext.getOutputFormat() != OutputFormat.GPDBWritable) {
+            return false;
+        }
+        if (Utilities.implementsInterface(requestContext.getResolver(), BatchResolver.class)) {
+            return true;
+        }
+        return !useVectorization(requestContext) &&
+                StringUtils.equalsIgnoreCase(System.getProperty(PROPERTY_KEY_BATCH_BRIDGE, "false"), "true");
+    }
+
+    /**
+     * Determines whether reading from the accessor should be pipelined on a
+     * separate thread. Disabled by default, enabled by setting the
+     * pxf.service.bridge.pipelined.enabled property to true.
+     *
+     * @return true if the pipelined bridge should be used
+     */
+    private boolean usePipelining() {
+        return StringUtils.equalsIgnoreCase(System.getProperty(PROPERTY_KEY_PIPELINED_BRIDGE, "false"), "true");
+    }
+
 }
@@ -91,6 +91,7 @@ public class WriteBridge extends BaseBridge {
             LOG.error("Failed to close bridge resources: {}", e.getMessage());
             throw e;
         }
+        releasePlugins();
     }
 
     @Override
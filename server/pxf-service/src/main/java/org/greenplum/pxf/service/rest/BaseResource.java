@@ -39,4 +39,17 @@ public abstract class BaseResource {
     protected RequestContext parseRequest(HttpHeaders headers) {
         return parser.parseRequest(headers, requestType);
     }
+
+    /**
+     * Builds the key used to serialize non-thread-safe access to the same
+     * resource. The key consists of the server name, the data source and the
+     * compression codec requested for the resource, if any.
+     *
+     * @param context request context
+     * @return the lock key for the request
+     */
+    static String getLockKey(RequestContext context) {
+        return context.getServerName() + ":" + context.getDataSource() + ":" +
+                context.getOption("COMPRESSION_CODEC", "");
+    }
 }
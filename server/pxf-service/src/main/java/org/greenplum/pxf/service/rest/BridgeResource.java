@@ -23,6 +23,7 @@ import org.apache.catalina.connector.ClientAbortException;
 import org.greenplum.pxf.api.io.Writable;
 import org.greenplum.pxf.api.model.RequestContext;
 import org.greenplum.pxf.service.HttpRequestParser;
+import org.greenplum.pxf.service.KeyedLockManager;
 import org.greenplum.pxf.service.RequestParser;
 import org.greenplum.pxf.service.bridge.Bridge;
 import org.greenplum.pxf.service.bridge.BridgeFactory;
@@ -41,7 +42,6 @@ import javax.ws.rs.core.StreamingOutput;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.concurrent.locks.ReentrantLock;
 
 /*
  * This class handles the subpath /<version>/Bridge/ of this
@@ -50,18 +50,25 @@ import java.util.concurrent.locks.ReentrantLock;
 @Path("/" + Version.PXF_PROTOCOL_VERSION + "/Bridge/")
 public class BridgeResource extends BaseResource {
 
-    private BridgeFactory bridgeFactory;
+    private static final String PROPERTY_KEY_LOCK_PERMITS = "pxf.service.bridge.lock.permits";
 
     /**
-     * Lock is needed here in the case of a non-thread-safe plugin. Using
+     * Locks are needed here in the case of a non-thread-safe plugin. Using
      * synchronized methods is not enough because the bridge work is called by
      * jetty ({@link StreamingOutput}), after we are getting out of this class's
      * context.
      * <p/>
-     * BRIDGE_LOCK is accessed through lock() and unlock() functions, based on
-     * the isThreadSafe parameter that is determined by the bridge.
+     * Locks are keyed by server, data source and compression codec, so that
+     * unrelated non-thread-safe resources can be read in parallel, while reads
+     * of the same resource are bounded by the number of permits configured with
+     * the pxf.service.bridge.lock.permits property (defaults to 1). They are
+     * accessed through lock() and unlock() functions, based on the isThreadSafe
+     * parameter that is determined by the bridge.
      */
-    private static final ReentrantLock BRIDGE_LOCK = new ReentrantLock();
+    private static final KeyedLockManager BRIDGE_LOCKS = new KeyedLockManager(
+            "BridgeResource", Integer.getInteger(PROPERTY_KEY_LOCK_PERMITS, 1), false);
+
+    private BridgeFactory bridgeFactory;
 
     /**
      * Creates an instance of the resource with the default singletons of RequestParser and BridgeFactory.
@@ -115,6 +122,7 @@ public class BridgeResource extends BaseResource {
     private Response readResponse(final Bridge bridge, RequestContext context, final boolean threadSafe) {
         final int fragment = context.getDataFragment();
         final String dataDir = context.getDataSource();
+        final String lockKey = getLockKey(context);
 
         // Creating an internal streaming class which will iterate
         // the records and put them on the output stream
@@ -125,7 +133,7 @@ public class BridgeResource extends BaseResource {
                 long recordCount = 0;
 
                 if (!threadSafe) {
-                    lock(dataDir);
+                    lock(lockKey);
                 }
                 try {
                     if (!bridge.beginIteration()) {
@@ -158,7 +166,7 @@ public class BridgeResource extends BaseResource {
                         // ignore ... any significant errors should already have been handled
                     }
                     if (!threadSafe) {
-                        unlock(dataDir);
+                        unlock(lockKey);
                     }
                 }
             }
@@ -168,24 +176,24 @@ public class BridgeResource extends BaseResource {
     }
 
     /**
-     * Locks BRIDGE_LOCK
+     * Locks the BRIDGE_LOCKS entry for the given key
      *
-     * @param path path for the request, used for logging.
+     * @param key lock key for the request, also used for logging.
      */
-    private void lock(String path) {
-        LOG.trace("Locking BridgeResource for {}", path);
-        BRIDGE_LOCK.lock();
-        LOG.trace("Locked BridgeResource for {}", path);
+    private void lock(String key) {
+        LOG.trace("Locking BridgeResource for {}", key);
+        BRIDGE_LOCKS.lock(key);
+        LOG.trace("Locked BridgeResource for {}", key);
     }
 
     /**
-     * Unlocks BRIDGE_LOCK
+     * Unlocks the BRIDGE_LOCKS entry for the given key
      *
-     * @param path path for the request, used for logging.
+     * @param key lock key for the request, also used for logging.
      */
-    private void unlock(String path) {
-        LOG.trace("Unlocking BridgeResource for {}", path);
-        BRIDGE_LOCK.unlock();
-        LOG.trace("Unlocked BridgeResource for {}", path);
+    private void unlock(String key) {
+        LOG.trace("Unlocking BridgeResource for {}", key);
+        BRIDGE_LOCKS.unlock(key);
+        LOG.trace("Unlocked BridgeResource for {}", key);
     }
 }
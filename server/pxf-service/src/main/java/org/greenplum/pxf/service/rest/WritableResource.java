@@ -23,6 +23,7 @@ import org.apache.catalina.connector.ClientAbortException;
 import org.greenplum.pxf.api.model.RequestContext;
 import org.greenplum.pxf.api.utilities.Utilities;
 import org.greenplum.pxf.service.HttpRequestParser;
+import org.greenplum.pxf.service.KeyedLockManager;
 import org.greenplum.pxf.service.RequestParser;
 import org.greenplum.pxf.service.bridge.Bridge;
 import org.greenplum.pxf.service.bridge.BridgeFactory;
@@ -85,6 +86,18 @@ import static org.greenplum.pxf.api.model.RequestContext.RequestType;
 @Path("/" + Version.PXF_PROTOCOL_VERSION + "/Writable/")
 public class WritableResource extends BaseResource {
 
+    private static final String PROPERTY_KEY_LOCK_PERMITS = "pxf.service.writable.lock.permits";
+
+    /**
+     * Non-thread-safe writes are queued per server, data source and
+     * compression codec. Writes to the same resource are granted in arrival
+     * order and bounded by the number of permits configured with the
+     * pxf.service.writable.lock.permits property (defaults to 1), while writes
+     * to unrelated resources proceed in parallel.
+     */
+    private static final KeyedLockManager WRITE_LOCKS = new KeyedLockManager(
+            "WritableResource", Integer.getInteger(PROPERTY_KEY_LOCK_PERMITS, 1), true);
+
     private BridgeFactory bridgeFactory;
 
     /**
@@ -134,18 +147,21 @@ public class WritableResource extends BaseResource {
 
         return isThreadSafe ?
                 writeResponse(bridge, path, inputStream) :
-                synchronizedWriteResponse(bridge, path, inputStream);
+                synchronizedWriteResponse(bridge, getLockKey(context), path, inputStream);
     }
 
-    private Response synchronizedWriteResponse(Bridge bridge, String path, InputStream inputStream)
+    private Response synchronizedWriteResponse(Bridge bridge, String lockKey, String path, InputStream inputStream)
             throws Exception {
 
-        // non tread-safe access will be synchronized on the class level
-        Response result;
-        synchronized (WritableResource.class) {
-            result = writeResponse(bridge, path, inputStream);
+        // non thread-safe access will be serialized per resource
+        LOG.debug("Queueing write to {}, {} writes waiting for the resource, {} in total",
+                lockKey, WRITE_LOCKS.getQueueLength(lockKey), WRITE_LOCKS.getWaiting());
+        WRITE_LOCKS.lock(lockKey);
+        try {
+            return writeResponse(bridge, path, inputStream);
+        } finally {
+            WRITE_LOCKS.unlock(lockKey);
         }
-        return result;
     }
 
     private Response writeResponse(Bridge bridge, String path, InputStream inputStream)
@@ -402,6 +402,36 @@ public class BridgeOutputBuilderTest {
 
     }
 
+    @Test
+    public void convertTextDataToLinesReusedChunk() throws Exception {
+        RequestContext context = new RequestContext();
+        addColumn(context, 0, DataType.TEXT, "col0");
+        // activate sampling code
+        context.setStatsMaxFragments(100);
+        context.setStatsSampleRatio(1f);
+
+        BridgeOutputBuilder builder = makeBuilder(context);
+
+        // the same chunk buffer is refilled by the accessor for every read
+        byte[] chunk = "line one\nline t".getBytes();
+        List<OneField> fields = new ArrayList<>();
+        fields.add(new OneField(DataType.BYTEA.getOID(), chunk));
+
+        LinkedList<Writable> outputQueue = builder.makeOutput(fields);
+
+        assertEquals(1, outputQueue.size());
+        compareBufferWritable(outputQueue.get(0), "line one\n");
+
+        System.arraycopy("wo\nline 3\n.....".getBytes(), 0, chunk, 0, chunk.length);
+        outputQueue = builder.makeOutput(fields);
+
+        assertEquals(2, outputQueue.size());
+        compareBufferWritable(outputQueue.get(0), "line two\n");
+        compareBufferWritable(outputQueue.get(1), "line 3\n");
+        assertNotNull(builder.getPartialLine());
+        compareBufferWritable(builder.getPartialLine(), ".....");
+    }
+
     private void compareBufferWritable(Writable line, String expected)
             throws IOException {
         assertTrue(line instanceof BufferWritable);
@@ -455,7 +485,7 @@ public class BridgeOutputBuilderTest {
 
         @Override
         public void write(byte[] b, int off, int len) throws IOException {
-            output = Arrays.copyOfRange(b, off, len);
+            output = Arrays.copyOfRange(b, off, off + len);
         }
 
         @Override
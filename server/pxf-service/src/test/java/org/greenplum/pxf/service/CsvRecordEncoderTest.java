@@ -0,0 +1,106 @@
+package org.greenplum.pxf.service;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.model.GreenplumCSV;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class CsvRecordEncoderTest {
+
+    @Test
+    public void testNumericAndBooleanFields() {
+        List<OneField> record = Arrays.asList(
+                new OneField(DataType.INTEGER.getOID(), -123),
+                new OneField(DataType.BIGINT.getOID(), Long.MIN_VALUE),
+                new OneField(DataType.BIGINT.getOID(), Long.MAX_VALUE),
+                new OneField(DataType.SMALLINT.getOID(), (short) 0),
+                new OneField(DataType.FLOAT8.getOID(), 1.5d),
+                new OneField(DataType.BOOLEAN.getOID(), false),
+                new OneField(DataType.NUMERIC.getOID(), new BigDecimal("-0.001")));
+
+        assertEquals("-123,-9223372036854775808,9223372036854775807,0,1.5,false,-0.001\n",
+                encode(new GreenplumCSV(), record));
+    }
+
+    @Test
+    public void testTextFields() {
+        List<OneField> record = Arrays.asList(
+                new OneField(DataType.TEXT.getOID(), "plain"),
+                new OneField(DataType.TEXT.getOID(), "va\"lue"),
+                new OneField(DataType.VARCHAR.getOID(), "a,b"),
+                new OneField(DataType.BPCHAR.getOID(), "line\nbreak"),
+                new OneField(DataType.TEXT.getOID(), "é中😀"),
+                new OneField(DataType.TEXT.getOID(), null),
+                new OneField(DataType.BYTEA.getOID(), new byte[]{0, 15, -1}));
+
+        assertEquals("plain,\"va\"\"lue\",\"a,b\",\"line\nbreak\",é中😀,,\\x000fff\n",
+                encode(new GreenplumCSV(), record));
+    }
+
+    @Test
+    public void testCustomSettings() {
+        GreenplumCSV greenplumCSV = new GreenplumCSV()
+                .withDelimiter("|")
+                .withNewline("\r\n")
+                .withQuoteChar("'")
+                .withEscapeChar("\\")
+                .withValueOfNull("NULL");
+        List<OneField> record = Arrays.asList(
+                new OneField(DataType.TEXT.getOID(), "a,b"),
+                new OneField(DataType.TEXT.getOID(), "a|b"),
+                new OneField(DataType.TEXT.getOID(), "it's"),
+                new OneField(DataType.INTEGER.getOID(), null));
+
+        assertEquals("a,b|'a|b'|'it\\'s'|NULL\r\n", encode(greenplumCSV, record));
+    }
+
+    @Test
+    public void testLinesAreAppendedUntilReset() {
+        CsvRecordEncoder encoder = new CsvRecordEncoder(new GreenplumCSV());
+
+        encoder.encodeLine("first");
+        encoder.encodeRecord(Collections.singletonList(new OneField(DataType.INTEGER.getOID(), 2)));
+        assertEquals("first\n2\n", toString(encoder));
+
+        encoder.reset();
+        encoder.encodeLine("third");
+        assertEquals("third\n", toString(encoder));
+    }
+
+    private String encode(GreenplumCSV greenplumCSV, List<OneField> record) {
+        CsvRecordEncoder encoder = new CsvRecordEncoder(greenplumCSV);
+        encoder.encodeRecord(record);
+        return toString(encoder);
+    }
+
+    private String toString(CsvRecordEncoder encoder) {
+        return new String(encoder.getBytes(), 0, encoder.getLength(), StandardCharsets.UTF_8);
+    }
+}
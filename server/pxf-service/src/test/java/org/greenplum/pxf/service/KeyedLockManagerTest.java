@@ -0,0 +1,151 @@
+package org.greenplum.pxf.service;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class KeyedLockManagerTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private KeyedLockManager manager;
+    private FakeTicker ticker;
+
+    @Before
+    public void setUp() {
+        ticker = new FakeTicker();
+        manager = new KeyedLockManager("test", 1, false, ticker);
+    }
+
+    @Test
+    public void testInvalidPermits() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Number of permits for test must be a positive integer, got 0");
+
+        new KeyedLockManager("test", 0, false);
+    }
+
+    @Test
+    public void testLockAndUnlockRemovesEntry() {
+        manager.lock("a");
+        assertEquals(1, manager.size());
+        manager.unlock("a");
+        assertEquals(0, manager.size());
+        assertEquals(1, manager.getAcquisitions());
+        assertEquals(0, manager.getTotalWaitNanos());
+    }
+
+    @Test
+    public void testUnlockWithoutLock() {
+        thrown.expect(IllegalStateException.class);
+        thrown.expectMessage("test cannot unlock a; it is not locked");
+
+        manager.unlock("a");
+    }
+
+    @Test
+    public void testDifferentKeysDoNotBlock() throws Exception {
+        manager.lock("a");
+
+        CountDownLatch latch = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            manager.lock("b");
+            latch.countDown();
+            manager.unlock("b");
+        });
+        thread.start();
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        thread.join();
+        manager.unlock("a");
+        assertEquals(0, manager.size());
+    }
+
+    @Test
+    public void testSameKeyBlocks() throws Exception {
+        manager.lock("a");
+
+        CountDownLatch latch = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            manager.lock("a");
+            latch.countDown();
+            manager.unlock("a");
+        });
+        thread.start();
+
+        assertFalse(latch.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(1, manager.size());
+        assertEquals(1, manager.getQueueLength("a"));
+        assertEquals(0, manager.getQueueLength("b"));
+
+        manager.unlock("a");
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        thread.join();
+        assertEquals(0, manager.size());
+        assertEquals(2, manager.getAcquisitions());
+        assertEquals(0, manager.getWaiting());
+    }
+
+    @Test
+    public void testMultiplePermitsPerKey() throws Exception {
+        manager = new KeyedLockManager("test", 2, true, new FakeTicker());
+        manager.lock("a");
+
+        CountDownLatch latch = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            manager.lock("a");
+            latch.countDown();
+            manager.unlock("a");
+        });
+        thread.start();
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        thread.join();
+        manager.unlock("a");
+        assertEquals(0, manager.size());
+    }
+
+    @Test
+    public void testWaitsAreReportedOncePerInterval() {
+        manager.lock("a");
+        manager.unlock("a");
+
+        assertFalse(manager.reportWaits(ticker.read()));
+        ticker.advanceTime(TimeUnit.MINUTES.toMillis(1));
+        assertTrue(manager.reportWaits(ticker.read()));
+        assertFalse(manager.reportWaits(ticker.read()));
+
+        ticker.advanceTime(TimeUnit.MINUTES.toMillis(1));
+        assertTrue(manager.reportWaits(ticker.read()));
+        // the counters read by the reports are not reset
+        assertEquals(1, manager.getAcquisitions());
+    }
+}
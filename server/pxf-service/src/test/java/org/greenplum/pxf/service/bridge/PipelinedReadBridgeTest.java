@@ -0,0 +1,222 @@
+package org.greenplum.pxf.service.bridge;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.greenplum.pxf.api.BadRecordException;
+import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.io.Writable;
+import org.greenplum.pxf.api.model.Accessor;
+import org.greenplum.pxf.api.model.OutputFormat;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.model.Resolver;
+import org.greenplum.pxf.api.utilities.AccessorFactory;
+import org.greenplum.pxf.api.utilities.ResolverFactory;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PipelinedReadBridgeTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Mock private AccessorFactory mockAccessorFactory;
+    @Mock private ResolverFactory mockResolverFactory;
+    @Mock private Accessor mockAccessor;
+    @Mock private Resolver mockResolver;
+
+    private RequestContext context;
+
+    @Before
+    public void setup() throws Exception {
+        context = new RequestContext();
+        context.setOutputFormat(OutputFormat.TEXT);
+
+        when(mockAccessorFactory.getPlugin(context)).thenReturn(mockAccessor);
+        when(mockResolverFactory.getPlugin(context)).thenReturn(mockResolver);
+        when(mockAccessor.openForRead()).thenReturn(true);
+        when(mockResolver.getFields(any(OneRow.class))).thenAnswer(new Answer<List<OneField>>() {
+            @Override
+            public List<OneField> answer(InvocationOnMock invocation) {
+                OneRow row = (OneRow) invocation.getArguments()[0];
+                return Collections.singletonList(new OneField(DataType.TEXT.getOID(), row.getData()));
+            }
+        });
+    }
+
+    @Test
+    public void testRecordsAreReturnedInOrder() throws Exception {
+        when(mockAccessor.readNextObject()).thenAnswer(new RowAnswer(1000, -1, null));
+
+        PipelinedReadBridge bridge = new PipelinedReadBridge(context, mockAccessorFactory, mockResolverFactory, 7, 1024, 2);
+        assertTrue(bridge.beginIteration());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("row" + i + "\n", bridge.getNext().toString());
+        }
+        assertNull(bridge.getNext());
+        assertNull(bridge.getNext());
+        bridge.endIteration();
+
+        verify(mockAccessor).closeForRead();
+    }
+
+    @Test
+    public void testEmptyDataSource() throws Exception {
+        when(mockAccessor.readNextObject()).thenReturn(null);
+
+        PipelinedReadBridge bridge = new PipelinedReadBridge(context, mockAccessorFactory, mockResolverFactory, 7, 1024, 2);
+        assertTrue(bridge.beginIteration());
+        assertNull(bridge.getNext());
+        bridge.endIteration();
+    }
+
+    @Test
+    public void testOpenForReadFails() throws Exception {
+        when(mockAccessor.openForRead()).thenReturn(false);
+
+        PipelinedReadBridge bridge = new PipelinedReadBridge(context, mockAccessorFactory, mockResolverFactory, 7, 1024, 2);
+        assertFalse(bridge.beginIteration());
+        bridge.endIteration();
+
+        verify(mockAccessor).closeForRead();
+    }
+
+    @Test
+    public void testDataExceptionIsReturnedInOrder() throws Exception {
+        when(mockAccessor.readNextObject()).thenAnswer(new RowAnswer(10, 5, new EOFException("bad data")));
+
+        PipelinedReadBridge bridge = new PipelinedReadBridge(context, mockAccessorFactory, mockResolverFactory, 3, 1024, 2);
+        assertTrue(bridge.beginIteration());
+        for (int i = 0; i < 5; i++) {
+            assertEquals("row" + i + "\n", bridge.getNext().toString());
+        }
+        Writable error = bridge.getNext();
+        assertTrue(error.toString().contains("bad data"));
+        for (int i = 6; i < 10; i++) {
+            assertEquals("row" + i + "\n", bridge.getNext().toString());
+        }
+        assertNull(bridge.getNext());
+        bridge.endIteration();
+    }
+
+    @Test
+    public void testBadRecordIsReturnedInOrder() throws Exception {
+        when(mockAccessor.readNextObject()).thenAnswer(new RowAnswer(4, 2, new BadRecordException("bad record")));
+
+        PipelinedReadBridge bridge = new PipelinedReadBridge(context, mockAccessorFactory, mockResolverFactory, 3, 1024, 2);
+        assertTrue(bridge.beginIteration());
+        assertEquals("row0\n", bridge.getNext().toString());
+        assertEquals("row1\n", bridge.getNext().toString());
+        assertTrue(bridge.getNext().toString().contains("bad record"));
+        assertEquals("row3\n", bridge.getNext().toString());
+        assertNull(bridge.getNext());
+        bridge.endIteration();
+    }
+
+    @Test
+    public void testFatalExceptionIsRethrown() throws Exception {
+        thrown.expect(IOException.class);
+        thrown.expectMessage("connection lost");
+
+        when(mockAccessor.readNextObject()).thenAnswer(new RowAnswer(10, 5, new IOException("connection lost")));
+
+        PipelinedReadBridge bridge = new PipelinedReadBridge(context, mockAccessorFactory, mockResolverFactory, 3, 1024, 2);
+        assertTrue(bridge.beginIteration());
+        try {
+            for (int i = 0; i < 5; i++) {
+                assertEquals("row" + i + "\n", bridge.getNext().toString());
+            }
+            bridge.getNext();
+        } finally {
+            bridge.endIteration();
+        }
+    }
+
+    @Test
+    public void testEndIterationBeforeExhaustingDataSource() throws Exception {
+        when(mockAccessor.readNextObject()).thenAnswer(new RowAnswer(Integer.MAX_VALUE, -1, null));
+
+        PipelinedReadBridge bridge = new PipelinedReadBridge(context, mockAccessorFactory, mockResolverFactory, 3, 1024, 2);
+        assertTrue(bridge.beginIteration());
+        assertEquals("row0\n", bridge.getNext().toString());
+        bridge.endIteration();
+
+        verify(mockAccessor).closeForRead();
+    }
+
+    @Test
+    public void testInvalidSettings() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Invalid pipelined bridge settings: batch size 0, batch bytes 1024, queue size 2");
+
+        new PipelinedReadBridge(context, mockAccessorFactory, mockResolverFactory, 0, 1024, 2);
+    }
+
+    /**
+     * Returns rows named row0 .. row(count - 1), throwing the given exception
+     * instead of returning the row at index errorIndex.
+     */
+    private static class RowAnswer implements Answer<OneRow> {
+        private final int count;
+        private final int errorIndex;
+        private final Exception error;
+        private int index;
+
+        RowAnswer(int count, int errorIndex, Exception error) {
+            this.count = count;
+            this.errorIndex = errorIndex;
+            this.error = error;
+        }
+
+        @Override
+        public OneRow answer(InvocationOnMock invocation) throws Throwable {
+            if (index == count) {
+                return null;
+            }
+            int current = index++;
+            if (current == errorIndex) {
+                throw error;
+            }
+            return new OneRow(null, "row" + current);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package org.greenplum.pxf.service.bridge;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import org.greenplum.pxf.api.BadRecordException;
+import org.greenplum.pxf.api.OneField;
+import org.greenplum.pxf.api.OneRow;
+import org.greenplum.pxf.api.io.ColumnBatchWritable;
+import org.greenplum.pxf.api.io.DataType;
+import org.greenplum.pxf.api.io.GPDBWritable;
+import org.greenplum.pxf.api.io.Writable;
+import org.greenplum.pxf.api.model.Accessor;
+import org.greenplum.pxf.api.model.OutputFormat;
+import org.greenplum.pxf.api.model.RequestContext;
+import org.greenplum.pxf.api.model.Resolver;
+import org.greenplum.pxf.api.utilities.AccessorFactory;
+import org.greenplum.pxf.api.utilities.ColumnDescriptor;
+import org.greenplum.pxf.api.utilities.ResolverFactory;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReadBatchBridgeTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Mock private AccessorFactory mockAccessorFactory;
+    @Mock private ResolverFactory mockResolverFactory;
+    @Mock private Accessor mockAccessor;
+    @Mock private Resolver mockResolver;
+
+    private RequestContext context;
+
+    @Before
+    public void setup() throws Exception {
+        context = new RequestContext();
+        context.setOutputFormat(OutputFormat.GPDBWritable);
+        context.getTupleDescription().add(new ColumnDescriptor("id", DataType.INTEGER.getOID(), 0, "int4", null));
+
+        when(mockAccessorFactory.getPlugin(context)).thenReturn(mockAccessor);
+        when(mockResolverFactory.getPlugin(context)).thenReturn(mockResolver);
+        when(mockAccessor.openForRead()).thenReturn(true);
+        when(mockResolver.getFields(any(OneRow.class))).thenAnswer(new Answer<List<OneField>>() {
+            @Override
+            public List<OneField> answer(InvocationOnMock invocation) {
+                OneRow row = (OneRow) invocation.getArguments()[0];
+                return Collections.singletonList(new OneField(DataType.INTEGER.getOID(), row.getData()));
+            }
+        });
+    }
+
+    @Test
+    public void testRowsAreBatched() throws Exception {
+        when(mockAccessor.readNextObject()).thenAnswer(new RowAnswer(10, -1, null));
+
+        ReadBatchBridge bridge = new ReadBatchBridge(context, mockAccessorFactory, mockResolverFactory, 4);
+        bridge.beginIteration();
+        assertBatch(bridge.getNext(), 0, 4);
+        assertBatch(bridge.getNext(), 4, 4);
+        assertBatch(bridge.getNext(), 8, 2);
+        assertNull(bridge.getNext());
+        assertNull(bridge.getNext());
+    }
+
+    @Test
+    public void testEmptyDataSource() throws Exception {
+        when(mockAccessor.readNextObject()).thenReturn(null);
+
+        ReadBatchBridge bridge = new ReadBatchBridge(context, mockAccessorFactory, mockResolverFactory, 4);
+        bridge.beginIteration();
+        assertNull(bridge.getNext());
+    }
+
+    @Test
+    public void testBadRecordIsReturnedAfterPrecedingRows() throws Exception {
+        when(mockAccessor.readNextObject()).thenAnswer(new RowAnswer(8, 2, new BadRecordException("bad record")));
+
+        ReadBatchBridge bridge = new ReadBatchBridge(context, mockAccessorFactory, mockResolverFactory, 4);
+        bridge.beginIteration();
+        assertBatch(bridge.getNext(), 0, 2);
+        assertError(bridge.getNext(), "bad record");
+        assertBatch(bridge.getNext(), 3, 4);
+        assertBatch(bridge.getNext(), 7, 1);
+        assertNull(bridge.getNext());
+    }
+
+    @Test
+    public void testBadRecordAtStartOfBatch() throws Exception {
+        when(mockAccessor.readNextObject()).thenAnswer(new RowAnswer(3, 0, new BadRecordException("bad record")));
+
+        ReadBatchBridge bridge = new ReadBatchBridge(context, mockAccessorFactory, mockResolverFactory, 4);
+        bridge.beginIteration();
+        assertError(bridge.getNext(), "bad record");
+        assertBatch(bridge.getNext(), 1, 2);
+        assertNull(bridge.getNext());
+    }
+
+    @Test
+    public void testFatalExceptionIsRethrown() throws Exception {
+        thrown.expect(IOException.class);
+        thrown.expectMessage("connection lost");
+
+        when(mockAccessor.readNextObject()).thenAnswer(new RowAnswer(10, 5, new IOException("connection lost")));
+
+        ReadBatchBridge bridge = new ReadBatchBridge(context, mockAccessorFactory, mockResolverFactory, 8);
+        bridge.beginIteration();
+        assertBatch(bridge.getNext(), 0, 5);
+        bridge.getNext();
+    }
+
+    private void assertBatch(Writable writable, int firstRow, int size) {
+        assertTrue(writable instanceof ColumnBatchWritable);
+        ColumnBatchWritable batchWritable = (ColumnBatchWritable) writable;
+        assertEquals(size, batchWritable.getBatch().size());
+        for (int i = 0; i < size; i++) {
+            assertEquals(firstRow + i, batchWritable.getBatch().getColumn(0).longValues[i]);
+        }
+    }
+
+    private void assertError(Writable writable, String message) {
+        assertTrue(writable instanceof GPDBWritable);
+        assertTrue(writable.toString().contains(message));
+    }
+
+    /**
+     * Returns rows with the values 0 .. count - 1, throwing the given
+     * exception instead of returning the row at index errorIndex.
+     */
+    private static class RowAnswer implements Answer<OneRow> {
+        private final int count;
+        private final int errorIndex;
+        private final Exception error;
+        private int index;
+
+        RowAnswer(int count, int errorIndex, Exception error) {
+            this.count = count;
+            this.errorIndex = errorIndex;
+            this.error = error;
+        }
+
+        @Override
+        public OneRow answer(InvocationOnMock invocation) throws Throwable {
+            if (index == count) {
+                return null;
+            }
+            int current = index++;
+            if (current == errorIndex) {
+                throw error;
+            }
+            return new OneRow(null, current);
+        }
+    }
+}
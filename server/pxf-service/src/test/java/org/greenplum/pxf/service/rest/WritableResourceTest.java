@@ -84,4 +84,19 @@ public class WritableResourceTest {
         assertEquals(Response.Status.OK, Response.Status.fromStatusCode(result.getStatus()));
         assertEquals("wrote 0 bulks to " + path, result.getEntity().toString());
     }
+
+    @Test
+    public void streamNonThreadSafe() throws Exception {
+        when(mockBridge.isThreadSafe()).thenReturn(false);
+        when(mockContext.getServerName()).thenReturn("default");
+        when(mockContext.getDataSource()).thenReturn("/tmp/bzip2");
+
+        String path = "whatCAN1tellYOU";
+        Response result = writableResource.stream(mockServletContext, mockHeaders, path, mockInputStream);
+        // the lock for the resource is released, so it can be acquired again
+        result = writableResource.stream(mockServletContext, mockHeaders, path, mockInputStream);
+
+        assertEquals(Response.Status.OK, Response.Status.fromStatusCode(result.getStatus()));
+        assertEquals("wrote 0 bulks to " + path, result.getEntity().toString());
+    }
 }